@@ -5,10 +5,9 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.security.PermitAll;
 import jakarta.validation.Valid;
-import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
@@ -27,8 +26,10 @@ import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.api.PhotoResponses;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.PhotoThumbnailService;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 
 import java.util.ArrayList;
@@ -45,6 +46,7 @@ public class AuthorController {
     private final AuthorViewMapper authorViewMapper;
     private final ConcurrencyService concurrencyService;
     private final FileStorageService fileStorageService;
+    private final PhotoThumbnailService photoThumbnailService;
     private final BookViewMapper bookViewMapper;
 
 
@@ -158,9 +160,15 @@ public class AuthorController {
     @Operation(summary= "Gets a author photo")
     @GetMapping("/{authorNumber}/photo")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<byte[]> getSpecificAuthorPhoto(@PathVariable("authorNumber")
+    public ResponseEntity<Resource> getSpecificAuthorPhoto(@PathVariable("authorNumber")
                                                              @Parameter(description = "The number of the Author to find")
-                                                             final String authorNumber) {
+                                                             final String authorNumber,
+                                                           @RequestParam(value = "size", required = false)
+                                                             @Parameter(description = "Width and height, in pixels, to fit the photo in")
+                                                             final Integer size,
+                                                           @RequestParam(value = "v", required = false)
+                                                             @Parameter(description = "Photo file name, to cache the photo as immutable")
+                                                             final String version) {
 
         Author authorDetails = authorService.findByAuthorNumber(authorNumber)
                 .orElseThrow(() -> new NotFoundException(Author.class, authorNumber));
@@ -171,17 +179,9 @@ public class AuthorController {
         }
 
         String photoFile = authorDetails.getPhoto().getPhotoFile();
-        byte[] image = this.fileStorageService.getFile(photoFile);
-        String fileFormat = this.fileStorageService.getExtension(authorDetails.getPhoto().getPhotoFile())
-                .orElseThrow(() -> new ValidationException("Unable to get file extension"));
-
-        if(image == null) {
-            return ResponseEntity.ok().build();
-        }
-
-        return ResponseEntity.ok()
-                .contentType(fileFormat.equals("png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG)
-                .body(image);
+        return this.photoThumbnailService.getPhoto(photoFile, size)
+                .map(photo -> PhotoResponses.of(photo, photoFile, version))
+                .orElseGet(() -> ResponseEntity.ok().build());
     }
     //Co-authors and their respective books
     @Operation(summary = "Get co-authors and their respective books for a specific author")
@@ -213,7 +213,6 @@ public class AuthorController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        this.fileStorageService.deleteFile(author.getPhoto().getPhotoFile());
         authorService.removeAuthorPhoto(author.getAuthorNumber(), author.getVersion());
 
         return ResponseEntity.ok().build();
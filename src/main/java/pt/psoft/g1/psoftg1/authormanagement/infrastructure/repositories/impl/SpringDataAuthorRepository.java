@@ -7,6 +7,7 @@ import pt.psoft.g1.psoftg1.authormanagement.api.AuthorLendingView;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +15,9 @@ public interface SpringDataAuthorRepository extends AuthorRepository, org.spring
     @Override
     Optional<Author> findByAuthorNumber(String authorId);
 
+    @Override
+    List<Author> findByAuthorNumberIn(Collection<String> authorNumbers);
+
     @Override
     @Query("SELECT new pt.psoft.g1.psoftg1.authormanagement.api.AuthorLendingView(a.name.name, COUNT(l.pk)) " +
             "FROM Book b " +
@@ -2,6 +2,7 @@ package pt.psoft.g1.psoftg1.authormanagement.infrastructure.repositories.mongo;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document("authors")
@@ -14,6 +15,9 @@ public class AuthorDoc {
   private String bio;
 
   private String photoId;
+  /** Absent on authors saved before it was kept, whose photo is known by its id alone. */
+  @Indexed(sparse = true)
+  private String photoFile;
 
   @Version
   private Long version;
@@ -26,6 +30,8 @@ public class AuthorDoc {
   public void setBio(String bio) { this.bio = bio; }
   public String getPhotoId() { return photoId; }
   public void setPhotoId(String photoId) { this.photoId = photoId; }
+  public String getPhotoFile() { return photoFile; }
+  public void setPhotoFile(String photoFile) { this.photoFile = photoFile; }
   public Long getVersion() { return version; }
   public void setVersion(Long version) { this.version = version; }
 }
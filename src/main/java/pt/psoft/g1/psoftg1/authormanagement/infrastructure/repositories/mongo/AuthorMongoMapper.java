@@ -1,5 +1,9 @@
 package pt.psoft.g1.psoftg1.authormanagement.infrastructure.repositories.mongo;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.shared.model.Photo;
+
+import java.nio.file.Path;
+
 public class AuthorMongoMapper {
   public AuthorDoc toDoc(Author a) {
     if (a == null) return null;
@@ -8,6 +12,7 @@ public class AuthorMongoMapper {
     d.setName(a.getName());
     d.setBio(a.getBio());
     d.setPhotoId(a.getPhotoId());
+    d.setPhotoFile(a.getPhoto() == null ? null : a.getPhoto().getPhotoFile());
     d.setVersion(a.getVersion());
     return d;
   }
@@ -17,7 +22,13 @@ public class AuthorMongoMapper {
     Author a = new Author(d.getName(), d.getBio(), null);
     a.assignId(d.getId());
     a.assignVersion(d.getVersion());
-    a.setPhotoId(d.getPhotoId());
+    if (d.getPhotoFile() != null) {
+      Photo photo = new Photo(Path.of(d.getPhotoFile()));
+      photo.assignIdIfAbsent(d.getPhotoId());
+      a.setPhotoEntity(photo);
+    } else {
+      a.setPhotoId(d.getPhotoId());
+    }
     return a;
   }
-}
\ No newline at end of file
+}
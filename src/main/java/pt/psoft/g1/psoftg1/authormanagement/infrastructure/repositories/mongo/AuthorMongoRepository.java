@@ -1,6 +1,8 @@
 package pt.psoft.g1.psoftg1.authormanagement.infrastructure.repositories.mongo;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 import org.springframework.context.annotation.Profile;
@@ -9,6 +11,8 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.*;
 import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 
 import pt.psoft.g1.psoftg1.authormanagement.api.AuthorLendingView;
@@ -35,6 +39,14 @@ public class AuthorMongoRepository implements AuthorRepository {
     return repo.findById(authorId).map(mapper::toDomain);
   }
 
+  @Override
+  public List<Author> findByAuthorNumberIn(Collection<String> authorNumbers) {
+    if (authorNumbers == null || authorNumbers.isEmpty()) return List.of();
+    return repo.findAllById(authorNumbers).stream()
+        .map(mapper::toDomain)
+        .toList();
+  }
+
   @Override
   public List<Author> findByName_NameStartsWithIgnoreCase(String name) {
     return repo.findByNameStartsWithIgnoreCase(name).stream()
@@ -54,15 +66,25 @@ public class AuthorMongoRepository implements AuthorRepository {
     if (author == null || author.getId() == null || author.getId().isBlank())
       throw new IllegalStateException("Author id must be assigned before saving");
 
-    boolean exists = repo.existsById(author.getId());
+    AuthorDoc existing = repo.findById(author.getId()).orElse(null);
     AuthorDoc doc = mapper.toDoc(author);
-    if (!exists) {
+    if (existing == null) {
       doc.setVersion(null);
     }
     AuthorDoc saved = repo.save(doc);
+    if (existing != null && !Objects.equals(existing.getName(), saved.getName())) {
+      renameInBooks(saved.getId(), existing.getName(), saved.getName());
+    }
     return mapper.toDomain(saved);
   }
 
+  /** Books keep their authors' names for searching, so a rename is copied onto every book of the author. */
+  private void renameInBooks(String authorId, String previousName, String name) {
+    mongoTemplate.updateMulti(Query.query(Criteria.where("authorIds").is(authorId)),
+        new Update().set("authorNames.$[previous]", name).filterArray(Criteria.where("previous").is(previousName)),
+        "books");
+  }
+
   @Override
   public Iterable<Author> findAll() {
     return repo.findAll().stream().map(mapper::toDomain).toList();
@@ -70,23 +92,20 @@ public class AuthorMongoRepository implements AuthorRepository {
 
   @Override
   public Page<AuthorLendingView> findTopAuthorByLendings(Pageable pageable) {
-    LookupOperation lookupBooks = lookup("books", "bookIsbn", "isbn", "book");
-    UnwindOperation unwindBook = unwind("book");
-    UnwindOperation unwindAuthors = unwind("book.authorIds");
-    LookupOperation lookupAuthors = lookup("authors", "book.authorIds", "_id", "author");
-    UnwindOperation unwindAuthor = unwind("author");
-
-    GroupOperation groupByAuthor = group("author._id")
-        .first("author.name").as("name")
-        .count().as("lendingCount");
+    UnwindOperation unwindAuthors = unwind("bookAuthorIds");
+    GroupOperation groupByAuthor = group("bookAuthorIds").count().as("lendingCount");
 
     SortOperation sortByCountDesc = sort(org.springframework.data.domain.Sort.Direction.DESC, "lendingCount");
     SkipOperation skip = skip((long) pageable.getPageNumber() * pageable.getPageSize());
     LimitOperation limit = limit(pageable.getPageSize());
 
+    // Names are looked up only for the page of authors returned, not for every lending.
+    LookupOperation lookupAuthor = lookup("authors", "_id", "_id", "author");
+    UnwindOperation unwindAuthor = unwind("author");
+    ProjectionOperation projectName = project("lendingCount").and("author.name").as("name");
+
     Aggregation agg = newAggregation(
-        lookupBooks, unwindBook, unwindAuthors, lookupAuthors, unwindAuthor,
-        groupByAuthor, sortByCountDesc, skip, limit
+        unwindAuthors, groupByAuthor, sortByCountDesc, skip, limit, lookupAuthor, unwindAuthor, projectName
     );
 
     var results = mongoTemplate.aggregate(agg, "lendings", AuthorLendingAgg.class);
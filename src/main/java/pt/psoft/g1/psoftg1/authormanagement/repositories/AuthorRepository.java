@@ -5,12 +5,14 @@ import org.springframework.data.domain.Pageable;
 import pt.psoft.g1.psoftg1.authormanagement.api.AuthorLendingView;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface AuthorRepository {
 
     Optional<Author> findByAuthorNumber(String authorId);
+    List<Author> findByAuthorNumberIn(Collection<String> authorNumbers);
     List<Author> findByName_NameStartsWithIgnoreCase(String name);
     List<Author> findByName_NameIgnoreCase(String name);
     Author save(Author author);
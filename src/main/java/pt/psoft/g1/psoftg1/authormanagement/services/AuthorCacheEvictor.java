@@ -0,0 +1,55 @@
+package pt.psoft.g1.psoftg1.authormanagement.services;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.shared.infrastructure.cache.TwoLevelCache;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Drops only the cache entries an author change can affect.
+ * <p>
+ * {@code authorSearch} is keyed by the lower-cased prefix being searched, so an author named "Ana Lima" can only
+ * appear under the keys {@code startsWith:a}, {@code startsWith:an}, ... {@code startsWith:ana lima}; those are
+ * the keys evicted, for the old and for the new name. Does nothing when caching is not enabled.
+ */
+@Component
+public class AuthorCacheEvictor {
+
+    static final String SEARCH_KEY_PREFIX = "startsWith:";
+
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    public AuthorCacheEvictor(ObjectProvider<CacheManager> cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    public static String searchKey(String name) {
+        return SEARCH_KEY_PREFIX + name.toLowerCase(Locale.ROOT);
+    }
+
+    /** Evicts the searches an author could appear in under any of {@code names}. */
+    public void authorChanged(String... names) {
+        CacheManager cm = cacheManager.getIfAvailable();
+        if (cm == null) return;
+
+        Cache search = cm.getCache("authorSearch");
+        if (search == null) return;
+        Set<String> keys = new LinkedHashSet<>();
+        for (String name : names) {
+            if (name == null) continue;
+            for (int end = 1; end <= name.length(); end++) {
+                keys.add(searchKey(name.substring(0, end)));
+            }
+        }
+        if (search instanceof TwoLevelCache twoLevel) {
+            twoLevel.evictAll(keys);
+        } else {
+            keys.forEach(search::evict);
+        }
+    }
+}
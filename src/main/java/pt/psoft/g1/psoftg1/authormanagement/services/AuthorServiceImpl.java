@@ -2,8 +2,6 @@ package pt.psoft.g1.psoftg1.authormanagement.services;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.cache.annotation.*;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,12 +11,20 @@ import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchIndex;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSnapshotCache;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardEntry;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardKind;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardService;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
 import pt.psoft.g1.psoftg1.shared.model.Photo;
-import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.PhotoReferenceService;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -27,8 +33,12 @@ public class AuthorServiceImpl implements AuthorService {
     private final AuthorRepository authorRepository;
     private final BookRepository bookRepository;
     private final AuthorMapper mapper;
-    private final PhotoRepository photoRepository;
+    private final PhotoReferenceService photoReferenceService;
     private final IdGenerator idGenerator;
+    private final AuthorCacheEvictor cacheEvictor;
+    private final LeaderboardService leaderboardService;
+    private final BookSearchIndex searchIndex;
+    private final BookSnapshotCache snapshotCache;
 
     @Override
     public Iterable<Author> findAll() {
@@ -41,13 +51,12 @@ public class AuthorServiceImpl implements AuthorService {
     }
 
     @Override
-    @Cacheable(value = "authorSearch", key = "'startsWith:' + #name")
+    @Cacheable(value = "authorSearch", key = "T(pt.psoft.g1.psoftg1.authormanagement.services.AuthorCacheEvictor).searchKey(#name)")
     public List<Author> findByName(String name) {
         return authorRepository.findByName_NameStartsWithIgnoreCase(name);
     }
 
     @Override
-    @CacheEvict(value = {"authorById","authorSearch"}, allEntries = true)
     public Author create(final CreateAuthorRequest resource) {
         /*
          * Since photos can be null (no photo uploaded) that means the URI can be null as well.
@@ -70,21 +79,40 @@ public class AuthorServiceImpl implements AuthorService {
         final Author author = mapper.create(resource);
         author.assignId(idGenerator.newId());
 
-        return authorRepository.save(author);
+        final Author saved = authorRepository.save(author);
+        cacheEvictor.authorChanged(saved.getName());
+        photoReferenceService.replaced(null, saved.getPhoto());
+        return saved;
     }
 
     @Override
-    @CacheEvict(value = {"authorById","authorSearch"}, allEntries = true)
     public Author partialUpdate(final String authorId, final UpdateAuthorRequest request, final long desiredVersion) {
         final var author = findByAuthorNumber(authorId)
             .orElseThrow(() -> new NotFoundException("Cannot update an object that does not yet exist"));
+        final String previousName = author.getName();
+        final Photo previousPhoto = author.getPhoto();
         author.applyPatch(desiredVersion, request);
-        return authorRepository.save(author);
+        final Author saved = authorRepository.save(author);
+        cacheEvictor.authorChanged(previousName, saved.getName());
+        if (!Objects.equals(previousName, saved.getName())) {
+            // the author's name is searchable on, and cached with, each of their books
+            final List<Book> books = bookRepository.findBooksByAuthorNumber(authorId);
+            searchIndex.index(books);
+            books.forEach(snapshotCache::refresh);
+        }
+        photoReferenceService.replaced(previousPhoto, saved.getPhoto());
+        return saved;
     }
     @Override
     public List<AuthorLendingView> findTopAuthorByLendings() {
-        Pageable pageableRules = PageRequest.of(0,5);
-        return authorRepository.findTopAuthorByLendings(pageableRules).getContent();
+        List<LeaderboardEntry> top = leaderboardService.top(LeaderboardKind.AUTHOR, 5);
+        Map<String, String> names = new HashMap<>();
+        authorRepository.findByAuthorNumberIn(top.stream().map(LeaderboardEntry::member).toList())
+                .forEach(a -> names.put(a.getId(), a.getName()));
+        return top.stream()
+                .filter(e -> names.containsKey(e.member()))
+                .map(e -> new AuthorLendingView(names.get(e.member()), e.count()))
+                .toList();
     }
 
     @Override
@@ -99,7 +127,6 @@ public class AuthorServiceImpl implements AuthorService {
 
     @Transactional
     @Override
-    @CacheEvict(value = {"authorById","authorSearch"}, allEntries = true)
     public Optional<Author> removeAuthorPhoto(String authorId, long desiredVersion) {
         Author author = authorRepository.findByAuthorNumber(authorId)
                 .orElseThrow(() -> new NotFoundException("Cannot find reader"));
@@ -115,8 +142,9 @@ public class AuthorServiceImpl implements AuthorService {
         authorRepository.save(author);
 
         flushIfJpa(authorRepository);
+        cacheEvictor.authorChanged(author.getName());
 
-        photoRepository.deleteByPhotoFile(photoFile);
+        photoReferenceService.release(photoFile);
         return Optional.of(author);
     }
 
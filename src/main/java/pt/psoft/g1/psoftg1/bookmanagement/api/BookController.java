@@ -1,14 +1,14 @@
 package pt.psoft.g1.psoftg1.bookmanagement.api;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.security.PermitAll;
 import jakarta.persistence.OptimisticLockException;
 import jakarta.validation.Valid;
-import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -28,8 +28,11 @@ import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingService;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.api.PhotoResponses;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.PhotoThumbnailService;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 import pt.psoft.g1.psoftg1.usermanagement.services.UserService;
@@ -50,6 +53,7 @@ public class BookController {
     private final LendingService lendingService;
     private final ConcurrencyService concurrencyService;
     private final FileStorageService fileStorageService;
+    private final PhotoThumbnailService photoThumbnailService;
     private final UserService userService;
     private final ReaderService readerService;
     private final IsbnLookupService isbnLookupService;
@@ -93,12 +97,11 @@ public class BookController {
     @GetMapping(value = "/{isbn}")
     public ResponseEntity<BookView> findByIsbn(@PathVariable final String isbn) {
 
-        var book = bookService.findByIsbn(isbn);
+        var book = bookService.findSnapshotByIsbn(isbn);
         var bookView = bookViewMapper.toBookView(book);
-        long ver = (book.getVersion() == null) ? 0L : book.getVersion();
 
         return ResponseEntity.ok()
-            .eTag("\"" + ver + "\"")
+            .eTag("\"" + book.version() + "\"")
             .body(bookView);
     }
 
@@ -111,7 +114,6 @@ public class BookController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        fileStorageService.deleteFile(book.getPhoto().getPhotoFile());
         bookService.removeBookPhoto(book.getIsbn(), book.getVersion());
 
         return ResponseEntity.ok().build();
@@ -120,25 +122,25 @@ public class BookController {
     @Operation(summary= "Gets a book photo")
     @GetMapping("/{isbn}/photo")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<byte[]> getSpecificBookPhoto(@PathVariable("isbn") final String isbn){
+    public ResponseEntity<Resource> getSpecificBookPhoto(@PathVariable("isbn") final String isbn,
+                                                         @RequestParam(value = "size", required = false)
+                                                         @Parameter(description = "Width and height, in pixels, to fit the photo in")
+                                                         final Integer size,
+                                                         @RequestParam(value = "v", required = false)
+                                                         @Parameter(description = "Photo file name, to cache the photo as immutable")
+                                                         final String version){
 
-        Book book = bookService.findByIsbn(isbn);
+        var book = bookService.findSnapshotByIsbn(isbn);
 
         //In case the user has no photo, just return a 200 OK without body
-        if(book.getPhoto() == null) {
+        if(book.photoFile() == null) {
             return ResponseEntity.ok().build();
         }
 
-        String photoFile = book.getPhoto().getPhotoFile();
-        byte[] image = fileStorageService.getFile(photoFile);
-        String fileFormat = fileStorageService.getExtension(book.getPhoto().getPhotoFile()).orElseThrow(() -> new ValidationException("Unable to get file extension"));
-
-        if(image == null) {
-            return ResponseEntity.ok().build();
-        }
-
-        return ResponseEntity.ok().contentType(fileFormat.equals("png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG).body(image);
-
+        String photoFile = book.photoFile();
+        return photoThumbnailService.getPhoto(photoFile, size)
+                .map(photo -> PhotoResponses.of(photo, photoFile, version))
+                .orElseGet(() -> ResponseEntity.ok().build());
     }
 
 
@@ -235,7 +237,7 @@ public class BookController {
     @GetMapping(value = "/{isbn}/avgDuration")
     public @ResponseBody ResponseEntity<BookAverageLendingDurationView>getAvgLendingDurationByIsbn(
             @PathVariable("isbn") final String isbn) {
-        final var book = bookService.findByIsbn(isbn);
+        final var book = bookService.findSnapshotByIsbn(isbn);
         Double avgDuration = lendingService.getAvgLendingDurationByIsbn(isbn);
 
         return ResponseEntity.ok().body(bookViewMapper.toBookAverageLendingDurationView(book, avgDuration));
@@ -245,7 +247,8 @@ public class BookController {
     public ListResponse<BookView> searchBooks(
             @RequestBody final SearchRequest<SearchBooksQuery> request) {
         final var bookList = bookService.searchBooks(request.getPage(), request.getQuery());
-        return new ListResponse<>(bookViewMapper.toBookView(bookList));
+        return new ListResponse<>(bookViewMapper.toBookView(bookList),
+                PageCursor.next(request.getPage(), bookList, b -> new String[]{b.getTitle().toString(), b.getIsbn()}));
     }
 
     @Operation(summary = "Lookup ISBN(s) by title using external providers (Google/OpenLibrary)")
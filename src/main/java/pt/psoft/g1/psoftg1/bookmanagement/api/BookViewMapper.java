@@ -7,6 +7,7 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSnapshot;
 import pt.psoft.g1.psoftg1.shared.api.MapperInterface;
 
 import java.util.HashMap;
@@ -33,6 +34,25 @@ public abstract class BookViewMapper extends MapperInterface {
 
     public abstract BookAverageLendingDurationView toBookAverageLendingDurationView(Book book, Double averageLendingDuration);
 
+    public BookView toBookView(BookSnapshot book) {
+        BookView view = new BookView();
+        view.setTitle(book.title());
+        view.setAuthors(book.authors().stream().map(BookSnapshot.AuthorRef::name).collect(Collectors.toList()));
+        view.setGenre(book.genre());
+        view.setDescription(book.description());
+        view.setIsbn(book.isbn());
+        view.set_links(mapLinks(book.isbn(),
+                book.authors().stream().map(BookSnapshot.AuthorRef::authorNumber).toList()));
+        return view;
+    }
+
+    public BookAverageLendingDurationView toBookAverageLendingDurationView(BookSnapshot book, Double averageLendingDuration) {
+        BookAverageLendingDurationView view = new BookAverageLendingDurationView();
+        view.setBook(toBookView(book));
+        view.setAverageLendingDuration(averageLendingDuration);
+        return view;
+    }
+
     protected List<String> mapAuthors(List<Author> authors) {
         return authors.stream()
                 .map(Author::getName)
@@ -41,19 +61,23 @@ public abstract class BookViewMapper extends MapperInterface {
 
     @Named(value = "mapBookLinks")
     public Map<String, Object> mapLinks(final Book book) {
+        return mapLinks(book.getIsbn(), book.getAuthors().stream().map(Author::getAuthorNumber).toList());
+    }
+
+    protected Map<String, Object> mapLinks(final String isbn, final List<String> authorNumbers) {
         String bookUri = ServletUriComponentsBuilder.fromCurrentContextPath()
                 .path("/api/books/")
-                .path(book.getIsbn())
+                .path(isbn)
                 .toUriString();
 
         Map<String, Object> links = new HashMap<>();
         links.put("self", bookUri);
 
-        List<Map<String, String>> authorLinks = book.getAuthors().stream()
-                .map(author -> {
+        List<Map<String, String>> authorLinks = authorNumbers.stream()
+                .map(authorNumber -> {
                     String authorUri = ServletUriComponentsBuilder.fromCurrentContextPath()
                             .path("/api/authors/")
-                            .path(author.getAuthorNumber().toString())
+                            .path(authorNumber)
                             .toUriString();
                     Map<String, String> authorLink = new HashMap<>();
                     authorLink.put("href", authorUri);
@@ -62,14 +86,13 @@ public abstract class BookViewMapper extends MapperInterface {
                 .collect(Collectors.toList());
 
         links.put("authors", authorLinks);
-        links.put("photo", generatePhotoUrl(book));
+        links.put("photo", generatePhotoUrl(isbn));
 
         return links;
     }
 
 
-    protected String generatePhotoUrl(Book book) {
-        String isbn = book.getIsbn();
+    protected String generatePhotoUrl(String isbn) {
         return ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/books/{isbn}/photo").buildAndExpand(isbn).toUri().toString();
     }
 }
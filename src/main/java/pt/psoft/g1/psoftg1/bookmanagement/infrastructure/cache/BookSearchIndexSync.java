@@ -0,0 +1,107 @@
+package pt.psoft.g1.psoftg1.bookmanagement.infrastructure.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchDocument;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchIndex;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchIndexBuilder;
+import pt.psoft.g1.psoftg1.shared.infrastructure.cache.CacheInvalidation;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the {@link BookSearchIndex} of every node in step with the books changed through the others.
+ * <p>
+ * The ISBNs each node indexes are announced on the cache invalidation channel as a {@link CacheInvalidation} of
+ * {@link #CHANNEL_NAME}, and the other nodes re-read those books and index them. Pub/sub delivery is best effort,
+ * so each announcement also increments the {@link #COUNTER_KEY} counter in Redis. Every
+ * {@code bookSearch.catchUpInterval} a node checks that it has seen as many announcements as the counter showed at
+ * its previous check; if not, it has missed changes, and its index is rebuilt from the repository, with searches
+ * going to the repository meanwhile.
+ */
+@Slf4j
+@Component
+@Profile("redis")
+@Order(6)
+@PropertySource({"classpath:config/library.properties"})
+public class BookSearchIndexSync implements ApplicationRunner {
+
+  public static final String CHANNEL_NAME = "bookSearch";
+  static final String COUNTER_KEY = "bookSearch:changes";
+
+  private final StringRedisTemplate redis;
+  private final Consumer<CacheInvalidation> publisher;
+  private final BookRepository bookRepository;
+  private final BookSearchIndex searchIndex;
+  private final BookSearchIndexBuilder builder;
+  private final String nodeId = UUID.randomUUID().toString();
+  /** Announcements made or received by this node, counted from the counter's value when the index was built. */
+  private final AtomicLong seen = new AtomicLong();
+  /** The counter at the previous check; every announcement up to it should have arrived by the next one. */
+  private long expected = -1;
+
+  public BookSearchIndexSync(StringRedisTemplate redis,
+                             Consumer<CacheInvalidation> cacheInvalidationPublisher,
+                             BookRepository bookRepository,
+                             BookSearchIndex searchIndex,
+                             BookSearchIndexBuilder builder) {
+    this.redis = redis;
+    this.publisher = cacheInvalidationPublisher;
+    this.bookRepository = bookRepository;
+    this.searchIndex = searchIndex;
+    this.builder = builder;
+    searchIndex.onChange(this::announce);
+  }
+
+  /** Runs before {@link BookSearchIndexBuilder}: announcements from here on are either built in or received. */
+  @Override
+  public void run(ApplicationArguments args) {
+    seen.set(counter());
+  }
+
+  private void announce(List<String> isbns) {
+    redis.opsForValue().increment(COUNTER_KEY);
+    seen.incrementAndGet();
+    publisher.accept(new CacheInvalidation(nodeId, CHANNEL_NAME, isbns));
+  }
+
+  /** Indexes the books another node announced, as they are now in the repository. */
+  @Transactional(readOnly = true)
+  public void onRemoteInvalidation(CacheInvalidation message) {
+    if (!CHANNEL_NAME.equals(message.cacheName()) || nodeId.equals(message.origin())) return;
+    seen.incrementAndGet();
+    if (message.clearsAll()) return;
+    bookRepository.findByIsbnIn(message.keys()).forEach(book -> searchIndex.put(BookSearchDocument.of(book)));
+  }
+
+  @Scheduled(initialDelayString = "${bookSearch.catchUpInterval:PT1M}",
+      fixedDelayString = "${bookSearch.catchUpInterval:PT1M}")
+  public synchronized void catchUp() {
+    if (!searchIndex.isReady()) return;
+    if (expected >= 0 && seen.get() < expected) {
+      log.warn("Book search index missed {} changes made by other nodes; rebuilding it", expected - seen.get());
+      expected = -1;
+      seen.set(counter());
+      builder.build();
+      return;
+    }
+    expected = counter();
+  }
+
+  private long counter() {
+    String value = redis.opsForValue().get(COUNTER_KEY);
+    return value == null ? 0 : Long.parseLong(value);
+  }
+}
@@ -0,0 +1,93 @@
+package pt.psoft.g1.psoftg1.bookmanagement.infrastructure.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSnapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-layout binary encoding of {@link BookSnapshot} for the {@code bookByIsbn} Redis cache.
+ * <p>
+ * Fields are written in declaration order as length-prefixed UTF-8 (length -1 for null), with no type metadata
+ * or field names. The leading format byte lets an old entry be told apart, and read as a miss, if the layout
+ * ever changes.
+ */
+public class BookSnapshotRedisSerializer implements RedisSerializer<Object> {
+
+  private static final byte FORMAT = 1;
+
+  @Override
+  public byte[] serialize(Object value) throws SerializationException {
+    if (value == null) return new byte[0];
+    if (!(value instanceof BookSnapshot book)) {
+      throw new SerializationException("Cannot serialize " + value.getClass().getName() + " as a book snapshot");
+    }
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeByte(FORMAT);
+      writeString(out, book.isbn());
+      writeString(out, book.title());
+      writeString(out, book.description());
+      writeString(out, book.genre());
+      out.writeShort(book.authors().size());
+      for (BookSnapshot.AuthorRef author : book.authors()) {
+        writeString(out, author.authorNumber());
+        writeString(out, author.name());
+      }
+      writeString(out, book.photoFile());
+      out.writeLong(book.version());
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new SerializationException("Could not serialize book snapshot", e);
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) throws SerializationException {
+    if (bytes == null || bytes.length == 0 || bytes[0] != FORMAT) return null;
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+      String isbn = readString(in);
+      String title = readString(in);
+      String description = readString(in);
+      String genre = readString(in);
+      int n = in.readUnsignedShort();
+      List<BookSnapshot.AuthorRef> authors = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        authors.add(new BookSnapshot.AuthorRef(readString(in), readString(in)));
+      }
+      String photoFile = readString(in);
+      long version = in.readLong();
+      return new BookSnapshot(isbn, title, description, genre, authors, photoFile, version);
+    } catch (IOException e) {
+      throw new SerializationException("Could not deserialize book snapshot", e);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(b.length);
+    out.write(b);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int len = in.readInt();
+    if (len < 0) return null;
+    byte[] b = new byte[len];
+    in.readFully(b);
+    return new String(b, StandardCharsets.UTF_8);
+  }
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
@@ -13,15 +14,24 @@ import org.springframework.util.StringUtils;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchDocument;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Isbn;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public interface SpringDataBookRepository  extends BookRepository, BookRepoCustom, CrudRepository<Book, String> {
 
@@ -30,6 +40,12 @@ public interface SpringDataBookRepository  extends BookRepository, BookRepoCusto
             "WHERE b.isbn.isbn = :isbn")
     Optional<Book> findByIsbn(@Param("isbn") String isbn);
 
+    @Override
+    @Query("SELECT b " +
+            "FROM Book b " +
+            "WHERE b.isbn.isbn IN :isbns")
+    List<Book> findByIsbnIn(@Param("isbns") Collection<String> isbns);
+
     @Override
     @Query("SELECT new pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO(b, COUNT(l)) " +
                 "FROM Book b " +
@@ -73,6 +89,7 @@ public interface SpringDataBookRepository  extends BookRepository, BookRepoCusto
 
 interface BookRepoCustom {
     List<Book> searchBooks(pt.psoft.g1.psoftg1.shared.services.Page page, SearchBooksQuery query);
+    Stream<BookSearchDocument> streamSearchDocuments();
 
 }
 
@@ -82,6 +99,8 @@ class BookRepoCustomImpl implements BookRepoCustom {
     // injection
     private final EntityManager em;
 
+    static final int SEARCH_DOCUMENT_FETCH_SIZE = 1000;
+
     @Override
     public List<Book> searchBooks(pt.psoft.g1.psoftg1.shared.services.Page page, SearchBooksQuery query)
     {
@@ -107,13 +126,69 @@ class BookRepoCustomImpl implements BookRepoCustom {
         if (StringUtils.hasText(authorName))
             where.add(cb.like(authorJoin.get("name").get("name"), authorName + "%"));
 
+        // Order by title, alphabetically; the ISBN breaks ties so a cursor points at exactly one book
+        final Path<String> titleKey = root.get("title").get("title");
+        final Path<String> isbnKey = root.get("isbn").get("isbn");
+        if (PageCursor.isKeyset(page)) {
+            final String[] after = PageCursor.decode(page.getCursor(), 2);
+            where.add(cb.or(cb.greaterThan(titleKey, after[0]),
+                    cb.and(cb.equal(titleKey, after[0]), cb.greaterThan(isbnKey, after[1]))));
+        }
+
         cq.where(where.toArray(new Predicate[0]));
-        cq.orderBy(cb.asc(root.get("title"))); // Order by title, alphabetically
+        cq.orderBy(cb.asc(titleKey), cb.asc(isbnKey));
 
         final TypedQuery<Book> q = em.createQuery(cq);
-        q.setFirstResult((page.getNumber() - 1) * page.getLimit());
+        if (!PageCursor.isKeyset(page))
+            q.setFirstResult((page.getNumber() - 1) * page.getLimit());
         q.setMaxResults(page.getLimit());
 
         return q.getResultList();
     }
+
+    /**
+     * One row per book and author, ordered by ISBN, folded back into one document per book as it is read. Only the
+     * searchable columns are selected and the driver fetches {@link #SEARCH_DOCUMENT_FETCH_SIZE} rows per round trip.
+     */
+    @Override
+    public Stream<BookSearchDocument> streamSearchDocuments() {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Object[]> cq = cb.createQuery(Object[].class);
+        final Root<Book> root = cq.from(Book.class);
+        final Join<Book, Genre> genreJoin = root.join("genre");
+        final Join<Book, Author> authorJoin = root.join("authors", JoinType.LEFT);
+        final Path<String> isbn = root.get("isbn").get("isbn");
+        cq.multiselect(isbn,
+                root.get("title").get("title"),
+                root.get("description").get("description"),
+                genreJoin.get("genre"),
+                authorJoin.get("name").get("name"));
+        cq.orderBy(cb.asc(isbn));
+
+        final Stream<Object[]> rows = em.createQuery(cq)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, SEARCH_DOCUMENT_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+        final Iterator<Object[]> it = rows.iterator();
+        final Spliterator<BookSearchDocument> books = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private Object[] pending;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super BookSearchDocument> action) {
+                if (pending == null && it.hasNext()) pending = it.next();
+                if (pending == null) return false;
+                final Object[] first = pending;
+                final List<String> authorNames = new ArrayList<>();
+                while (pending != null && pending[0].equals(first[0])) {
+                    if (pending[4] != null) authorNames.add((String) pending[4]);
+                    pending = it.hasNext() ? it.next() : null;
+                }
+                action.accept(new BookSearchDocument((String) first[0], (String) first[1], (String) first[2],
+                        (String) first[3], authorNames));
+                return true;
+            }
+        };
+        return StreamSupport.stream(books, false).onClose(rows::close);
+    }
 }
@@ -3,12 +3,15 @@ package pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.mongo;
 import lombok.*;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.List;
 
 @Document("books")
+// searchBooks order and cursor
+@CompoundIndex(name = "title_isbn", def = "{'title': 1, 'isbn': 1}")
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class BookDoc {
   @Id
@@ -22,11 +25,15 @@ public class BookDoc {
   private String title;
   private String description;
 
+  @Indexed
   private String genre;
 
+  @Indexed
   private List<String> authorIds;
 
+  @Indexed
   private List<String> authorNames;
 
+  @Indexed(sparse = true)
   private String photoFile;
 }
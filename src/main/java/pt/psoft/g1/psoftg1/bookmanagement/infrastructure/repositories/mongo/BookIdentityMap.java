@@ -0,0 +1,80 @@
+package pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.mongo;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded identity map of the {@link Book} instances handed out by {@link BookMongoRepository}, keyed by Mongo _id.
+ * <p>
+ * Holds at most {@code maximumSize} books, evicting the least recently used; with {@code weakValues} a book is
+ * also dropped as soon as nobody else references it. An entry is only reused while its version matches the
+ * document just read, so an update made by another node re-hydrates the book instead of serving a stale copy.
+ * Size, hits, misses and stale re-hydrations are published as {@code book.identity.*} meters.
+ */
+public final class BookIdentityMap {
+
+  private final Cache<String, Book> books;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder stale = new LongAdder();
+
+  public BookIdentityMap(long maximumSize, boolean weakValues, MeterRegistry meterRegistry) {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(maximumSize);
+    if (weakValues) builder.weakValues();
+    this.books = builder.build();
+
+    if (meterRegistry != null) {
+      Gauge.builder("book.identity.size", this, BookIdentityMap::size).register(meterRegistry);
+      Gauge.builder("book.identity.hit.ratio", this, BookIdentityMap::hitRatio).register(meterRegistry);
+      FunctionCounter.builder("book.identity.gets", hits, LongAdder::sum)
+          .tags("result", "hit").register(meterRegistry);
+      FunctionCounter.builder("book.identity.gets", misses, LongAdder::sum)
+          .tags("result", "miss").register(meterRegistry);
+      FunctionCounter.builder("book.identity.gets", stale, LongAdder::sum)
+          .tags("result", "stale").register(meterRegistry);
+    }
+  }
+
+  /**
+   * Returns the cached book for {@code id} if it is at {@code version}, otherwise hydrates and caches a new one.
+   */
+  public Book resolve(String id, long version, Supplier<Book> hydrate) {
+    Book cached = books.getIfPresent(id);
+    if (cached != null && Objects.equals(cached.getVersion(), version)) {
+      hits.increment();
+      return cached;
+    }
+    (cached == null ? misses : stale).increment();
+    Book fresh = hydrate.get();
+    books.put(id, fresh);
+    return fresh;
+  }
+
+  public void put(String id, Book book) {
+    books.put(id, book);
+  }
+
+  public void evict(String id) {
+    books.invalidate(id);
+  }
+
+  public long size() {
+    books.cleanUp();
+    return books.estimatedSize();
+  }
+
+  /** Share of lookups answered from the map; stale entries count as misses. */
+  public double hitRatio() {
+    long h = hits.sum();
+    long total = h + misses.sum() + stale.sum();
+    return total == 0 ? 0.0 : (double) h / total;
+  }
+}
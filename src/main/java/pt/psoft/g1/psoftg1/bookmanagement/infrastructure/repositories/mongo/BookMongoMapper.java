@@ -4,12 +4,28 @@ import org.springframework.stereotype.Component;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo.FieldHandles;
 
+import java.lang.invoke.VarHandle;
 import java.util.List;
 
 @Component
 public class BookMongoMapper {
 
+  private static final VarHandle VERSION = FieldHandles.of(Book.class, "version", Long.class);
+
+  public Book toDomain(BookDoc d, Genre genre, List<Author> authors) {
+    Book b = new Book(d.getIsbn(), d.getTitle(), d.getDescription(), genre, authors, d.getPhotoFile());
+    b.assignPk(d.getId());
+    assignVersion(b, d.getVersion());
+    return b;
+  }
+
+  /** Book has no version setter; the version is restored from the document after a read or save. */
+  public void assignVersion(Book b, Long version) {
+    VERSION.set(b, version == null ? Long.valueOf(0L) : version);
+  }
+
   public BookDoc toDoc(Book b) {
     return BookDoc.builder()
         .id(b.getPk())
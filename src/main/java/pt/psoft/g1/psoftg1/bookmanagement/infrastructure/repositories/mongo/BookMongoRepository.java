@@ -1,7 +1,10 @@
 package pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.mongo;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.PropertySource;
 import org.springframework.data.domain.*;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.*;
@@ -12,74 +15,126 @@ import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchDocument;
 import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
-import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreDictionary;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
 
 @Repository
 @Profile("mongo")
-@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
 public class BookMongoRepository implements BookRepository {
 
+  static final int SEARCH_DOCUMENT_BATCH_SIZE = 1000;
+
   private final SpringMongoBookRepo repo;
   private final MongoTemplate mongo;
   private final BookMongoMapper mapper;
-  private final GenreRepository genreRepo;
+  private final GenreDictionary genreDictionary;
   private final AuthorRepository authorRepo;
-  private final java.util.concurrent.ConcurrentMap<String, Book> identityMap = new java.util.concurrent.ConcurrentHashMap<>();
+  private final BookIdentityMap identityMap;
+
+  public BookMongoRepository(SpringMongoBookRepo repo,
+                             MongoTemplate mongo,
+                             BookMongoMapper mapper,
+                             GenreDictionary genreDictionary,
+                             AuthorRepository authorRepo,
+                             ObjectProvider<MeterRegistry> meterRegistry,
+                             @Value("${bookIdentityMap.maximumSize:10000}") long identityMapSize,
+                             @Value("${bookIdentityMap.weakValues:false}") boolean identityMapWeakValues) {
+    this.repo = repo;
+    this.mongo = mongo;
+    this.mapper = mapper;
+    this.genreDictionary = genreDictionary;
+    this.authorRepo = authorRepo;
+    this.identityMap = new BookIdentityMap(identityMapSize, identityMapWeakValues, meterRegistry.getIfAvailable());
+  }
 
 
   /* ----------------------- helpers ------------------------ */
 
   private Book toDomain(BookDoc d) {
-    Genre genre = genreRepo.findByString(d.getGenre())
+    return toDomain(d, d.getAuthorIds() == null ? Map.of() : loadAuthors(d.getAuthorIds()));
+  }
+
+  private Book toDomain(BookDoc d, Map<String, Author> authorsById) {
+    Genre genre = genreDictionary.findByName(d.getGenre())
         .orElseThrow(() -> new IllegalArgumentException("Genre not found: " + d.getGenre()));
 
+    // keep the doc's author order; authors that no longer exist are skipped
     List<Author> authors = d.getAuthorIds() == null ? List.of() :
         d.getAuthorIds().stream()
-            .map(authorRepo::findByAuthorNumber)
-            .filter(Optional::isPresent)
-            .map(Optional::get)
+            .map(authorsById::get)
+            .filter(Objects::nonNull)
             .toList();
 
-    Book b = new Book(d.getIsbn(), d.getTitle(), d.getDescription(), genre, authors, d.getPhotoFile());
-    b.assignPk(d.getId());
-    Long ver = d.getVersion() == null ? 0L : d.getVersion();
-    try {
-      var f = Book.class.getDeclaredField("version");
-      f.setAccessible(true);
-      f.set(b, ver);
-    } catch (NoSuchFieldException | IllegalAccessException e) {
-      throw new IllegalStateException("Cannot set Book.version", e);
-    }
-    return b;
+    return mapper.toDomain(d, genre, authors);
+  }
+
+  private static long versionOf(BookDoc d) {
+    return d.getVersion() == null ? 0L : d.getVersion();
+  }
+
+  private Map<String, Author> loadAuthors(Collection<String> authorNumbers) {
+    Map<String, Author> byNumber = new HashMap<>();
+    if (authorNumbers.isEmpty()) return byNumber;
+    authorRepo.findByAuthorNumberIn(authorNumbers).forEach(a -> byNumber.put(a.getId(), a));
+    return byNumber;
   }
 
   private Book reuse(BookDoc d) {
-    // Return the same in-memory instance per Mongo _id
-    Book b = identityMap.computeIfAbsent(d.getId(), id -> toDomain(d));
-
-    // Keep the optimistic-lock version in sync with the doc
-    Long ver = d.getVersion() == null ? 0L : d.getVersion();
-    try {
-      var f = Book.class.getDeclaredField("version");
-      f.setAccessible(true);
-      f.set(b, ver);
-    } catch (NoSuchFieldException | IllegalAccessException e) {
-      throw new IllegalStateException("Cannot set Book.version", e);
-    }
+    return resolve(d, () -> toDomain(d));
+  }
 
-    return b;
+  /**
+   * Same in-memory instance per Mongo _id while the doc's version is unchanged, unless one of its authors has been
+   * renamed since: that changes the doc's author names but not its version.
+   */
+  private Book resolve(BookDoc d, Supplier<Book> hydrate) {
+    Book book = identityMap.resolve(d.getId(), versionOf(d), hydrate);
+    if (d.getAuthorNames() == null
+        || book.getAuthors().stream().map(Author::getName).toList().equals(d.getAuthorNames())) {
+      return book;
+    }
+    Book fresh = hydrate.get();
+    identityMap.put(d.getId(), fresh);
+    return fresh;
   }
 
+  /**
+   * Maps a whole result page with at most one author query: the first book that has to be hydrated loads
+   * the authors of every book on the page, and books still current in the identity map need none.
+   */
   private List<Book> mapAll(List<BookDoc> docs) {
-    return docs.stream().map(this::reuse).toList();
+    if (docs.isEmpty()) return List.of();
+
+    AtomicReference<Map<String, Author>> authors = new AtomicReference<>();
+    Supplier<Map<String, Author>> pageAuthors = () -> {
+      if (authors.get() == null) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (BookDoc d : docs) {
+          if (d.getAuthorIds() != null) ids.addAll(d.getAuthorIds());
+        }
+        authors.set(loadAuthors(ids));
+      }
+      return authors.get();
+    };
+
+    List<Book> out = new ArrayList<>(docs.size());
+    for (BookDoc d : docs) {
+      out.add(resolve(d, () -> toDomain(d, pageAuthors.get())));
+    }
+    return out;
   }
 
   private static String ciStartsWith(String s) {
@@ -119,6 +174,12 @@ public class BookMongoRepository implements BookRepository {
     return repo.findByIsbn(isbn).map(this::reuse);
   }
 
+  @Override
+  public List<Book> findByIsbnIn(Collection<String> isbns) {
+    if (isbns == null || isbns.isEmpty()) return List.of();
+    return mapAll(repo.findByIsbnIn(isbns));
+  }
+
   @Override
   public Page<BookCountDTO> findTop5BooksLent(LocalDate oneYearAgo, Pageable pageable) {
     MatchOperation match = match(Criteria.where("startDate").gte(oneYearAgo));
@@ -146,9 +207,12 @@ public class BookMongoRepository implements BookRepository {
     AggregationResults<BookCountAgg> results =
         mongo.aggregate(agg, "lendings", BookCountAgg.class);
 
-    var content = results.getMappedResults().stream()
-        .map(r -> new BookCountDTO(toDomain(r.book()), r.lendingCount()))
-        .toList();
+    var rows = results.getMappedResults();
+    var books = mapAll(rows.stream().map(BookCountAgg::book).toList());
+    List<BookCountDTO> content = new ArrayList<>(rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      content.add(new BookCountDTO(books.get(i), rows.get(i).lendingCount()));
+    }
 
     Aggregation totalAgg = newAggregation(
         match,
@@ -188,30 +252,50 @@ public class BookMongoRepository implements BookRepository {
       }
     }
 
-    q.with(Sort.by(Sort.Direction.ASC, "title"));
+    // the ISBN breaks ties so a cursor points at exactly one book
+    q.with(Sort.by(Sort.Direction.ASC, "title", "isbn"));
 
     if (page == null) page = new pt.psoft.g1.psoftg1.shared.services.Page(1, 10);
-    int skip = (page.getNumber() - 1) * page.getLimit();
-    q.skip(skip).limit(page.getLimit());
+    if (PageCursor.isKeyset(page)) {
+      String[] after = PageCursor.decode(page.getCursor(), 2);
+      q.addCriteria(new Criteria().orOperator(
+          Criteria.where("title").gt(after[0]),
+          Criteria.where("title").is(after[0]).and("isbn").gt(after[1])));
+    } else {
+      q.skip((long) (page.getNumber() - 1) * page.getLimit());
+    }
+    q.limit(page.getLimit());
 
     List<BookDoc> docs = mongo.find(q, BookDoc.class);
     return mapAll(docs);
   }
 
+  /** Reads only the searchable fields, {@link #SEARCH_DOCUMENT_BATCH_SIZE} documents per round trip. */
+  @Override
+  public Stream<BookSearchDocument> streamSearchDocuments() {
+    Query q = new Query().cursorBatchSize(SEARCH_DOCUMENT_BATCH_SIZE);
+    q.fields().include("isbn", "title", "description", "genre", "authorNames");
+    return mongo.stream(q, BookDoc.class).map(d -> new BookSearchDocument(d.getIsbn(), d.getTitle(),
+        d.getDescription(), d.getGenre(), d.getAuthorNames() == null ? List.of() : d.getAuthorNames()));
+  }
+
   @Override
   public Book save(Book book) {
     if (book == null || book.getPk() == null || book.getPk().isBlank()) {
       throw new IllegalStateException("Book pk must be assigned before saving");
     }
     var saved = repo.save(mapper.toDoc(book));
-    return reuse(saved);
+    // the saved book is the freshest copy; keep it rather than re-hydrating from the doc
+    mapper.assignVersion(book, saved.getVersion());
+    identityMap.put(saved.getId(), book);
+    return book;
   }
 
   @Override
   public void delete(Book book) {
     if (book == null || book.getPk() == null || book.getPk().isBlank()) return;
     repo.deleteById(book.getPk());
-    identityMap.remove(book.getPk());
+    identityMap.evict(book.getPk());
   }
 
   private record BookCountAgg(String _id, long lendingCount, BookDoc book) {}
@@ -4,6 +4,7 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,6 +12,7 @@ import java.util.Optional;
 @Profile("mongo")
 public interface SpringMongoBookRepo extends MongoRepository<BookDoc, String> {
   Optional<BookDoc> findByIsbn(String isbn);
+  List<BookDoc> findByIsbnIn(Collection<String> isbns);
 
   List<BookDoc> findByGenreRegex(String genreRegex);
   List<BookDoc> findByTitleRegex(String titleRegex);
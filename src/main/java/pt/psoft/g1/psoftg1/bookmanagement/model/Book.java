@@ -62,6 +62,7 @@ public class Book extends EntityWithPhoto {
     private void setAuthors(List<Author> authors) {this.authors = authors; }
 
     public String getDescription(){ return this.description.toString(); }
+    public boolean hasDescription(){ return this.description != null && this.description.toString() != null; }
 
     public Book(String isbn, String title, String description, Genre genre, List<Author> authors, String photoURI) {
         setTitle(title);
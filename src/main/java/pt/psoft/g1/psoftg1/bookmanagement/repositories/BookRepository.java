@@ -5,11 +5,14 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.query.Param;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchDocument;
 import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 /**
@@ -22,11 +25,18 @@ public interface BookRepository {
     List<Book> findByTitle(@Param("title") String title);
     List<Book> findByAuthorName(@Param("authorName") String authorName);
     Optional<Book> findByIsbn(@Param("isbn") String isbn);
+    List<Book> findByIsbnIn(@Param("isbns") Collection<String> isbns);
     Page<BookCountDTO> findTop5BooksLent(@Param("oneYearAgo") LocalDate oneYearAgo, Pageable pageable);
     List<Book> findBooksByAuthorNumber(String authorId);
 
     List<Book> searchBooks(pt.psoft.g1.psoftg1.shared.services.Page page, SearchBooksQuery query);
 
+    /**
+     * Streams the searchable fields of every book, one element per book. The stream holds a cursor open and must
+     * be closed.
+     */
+    Stream<BookSearchDocument> streamSearchDocuments();
+
     Book save(Book book);
     void delete(Book book);
 }
@@ -0,0 +1,26 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+
+import java.util.List;
+
+/**
+ * The searchable fields of a book, as read by {@link BookSearchIndex}: plain strings, so the whole catalogue can be
+ * streamed into the index without loading {@code Book} graphs.
+ */
+public record BookSearchDocument(String isbn,
+                                 String title,
+                                 String description,
+                                 String genre,
+                                 List<String> authorNames) {
+
+    public static BookSearchDocument of(Book book) {
+        return new BookSearchDocument(
+                book.getIsbn(),
+                book.getTitle().toString(),
+                book.hasDescription() ? book.getDescription() : null,
+                book.getGenre().toString(),
+                book.getAuthors().stream().map(Author::getName).toList());
+    }
+}
@@ -0,0 +1,610 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over the title, author names, genre and description of every book, so
+ * {@link BookService#searchBooks} does not scan the catalogue.
+ * <p>
+ * Text is lower-cased, stripped of accents and split into words, and each word maps, per field, to the books it
+ * appears in. The {@code text} of a {@link SearchBooksQuery} matches in any field: each of its words matches every
+ * indexed word it is a prefix of, so {@code "tolk"} finds "Tolkien", words may come in any order, and books are
+ * ranked by where their words were found, title first. The title, genre and author filters match books whose own
+ * field contains the filter anywhere, ignoring case and accents, as the {@code LIKE '%...%'} finders of the
+ * repositories do: the indexed words containing each of the filter's words are found by scanning the distinct
+ * words, which grow far slower than the catalogue, and the books having them are then checked against the whole
+ * filter. (The repository search used until the index is ready only matches filters at the start of the field.)
+ * Without {@code text} books are ordered by title and ISBN, as the repository search orders them, and the same page
+ * cursors work with both.
+ * <p>
+ * A changed book is added as a new entry and its previous entry is marked dead; postings of dead entries are skipped
+ * when read. Once dead entries are more than a quarter of all entries the index is compacted: their postings are
+ * dropped, the live entries renumbered and words no book has any more forgotten. The index is filled at startup by
+ * {@link BookSearchIndexBuilder} and {@link #isReady()} is false until then.
+ * <p>
+ * Only changes made through this node are indexed by {@link #index}; the listener set with {@link #onChange} is told
+ * about them, so they can be passed on to the indexes of other nodes.
+ */
+@Component
+public class BookSearchIndex {
+
+    static final int TITLE = 0;
+    static final int AUTHOR = 1;
+    static final int GENRE = 2;
+    static final int DESCRIPTION = 3;
+    /** Score of a query word found in each field, halved when it is only the start of the indexed word. */
+    private static final float[] WEIGHTS = {4, 3, 2, 1};
+    /** Unranked results covering more than 1/DENSE of the books are read in title order instead of sorted. */
+    private static final int DENSE = 32;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    /** Title, ISBN: the order of unranked results and of page cursors. */
+    private static final Comparator<Entry> BY_TITLE = Comparator.comparing(Entry::title).thenComparing(Entry::isbn);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Term> terms = new HashMap<>();
+    private final TreeSet<String> sortedWords = new TreeSet<>();
+    /** By entry id; {@code null} once the book has been re-indexed. */
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Integer> entryByIsbn = new HashMap<>();
+    private final TreeSet<Entry> byTitle = new TreeSet<>(BY_TITLE);
+    /** Number of {@code null} slots in {@link #entries}. */
+    private int dead;
+    private volatile boolean ready;
+    private volatile Consumer<List<String>> changeListener = isbns -> { };
+
+    /** A book; the folded fields are what the filters are checked against, and are {@code null} in cursor keys. */
+    private record Entry(String isbn, String title, int id, String foldedTitle, String foldedGenre,
+                         List<String> foldedAuthors) {
+
+        Entry(String isbn, String title, int id) {
+            this(isbn, title, id, null, null, null);
+        }
+
+        Entry renumbered(int newId) {
+            return new Entry(isbn, title, newId, foldedTitle, foldedGenre, foldedAuthors);
+        }
+
+        boolean contains(int field, String needle) {
+            return switch (field) {
+                case TITLE -> foldedTitle.contains(needle);
+                case GENRE -> foldedGenre.contains(needle);
+                default -> foldedAuthors.stream().anyMatch(name -> name.contains(needle));
+            };
+        }
+    }
+
+    /**
+     * Indexes the current state of {@code book}, replacing its previous entry. Inside a transaction this waits for
+     * the commit, so a rolled back change is never searchable.
+     */
+    public void index(Book book) {
+        index(List.of(book));
+    }
+
+    /** Indexes the current state of each of {@code books}, as {@link #index(Book)} does. */
+    public void index(Collection<Book> books) {
+        if (books.isEmpty()) return;
+        final List<BookSearchDocument> documents = books.stream().map(BookSearchDocument::of).toList();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    indexed(documents);
+                }
+            });
+        } else {
+            indexed(documents);
+        }
+    }
+
+    private void indexed(List<BookSearchDocument> documents) {
+        documents.forEach(this::put);
+        changeListener.accept(documents.stream().map(BookSearchDocument::isbn).toList());
+    }
+
+    /** Sets what is called with the ISBNs of the books {@link #index} has just indexed. */
+    public void onChange(Consumer<List<String>> listener) {
+        this.changeListener = listener;
+    }
+
+    public void put(BookSearchDocument document) {
+        lock.writeLock().lock();
+        try {
+            add(document, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes {@code document} unless its book already has an entry. Used while building, so a book saved in the
+     * meantime keeps the newer entry it got from {@link #index}.
+     */
+    public void putIfAbsent(BookSearchDocument document) {
+        lock.writeLock().lock();
+        try {
+            add(document, false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Drops the entry of the book with {@code isbn}, if any. */
+    public void remove(String isbn) {
+        lock.writeLock().lock();
+        try {
+            final Integer id = entryByIsbn.remove(isbn);
+            if (id == null) return;
+            byTitle.remove(entries.get(id));
+            entries.set(id, null);
+            dead++;
+            if (dead > entries.size() / 4) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Empties the index; it is not ready again until {@link #markReady()}. */
+    public void reset() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            terms.clear();
+            sortedWords.clear();
+            entries.clear();
+            entryByIsbn.clear();
+            byTitle.clear();
+            dead = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** Number of books indexed. */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entryByIsbn.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Number of distinct words indexed. */
+    public int wordCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ISBNs of the requested page of books matching {@code query}, best match first when it has
+     * {@code text}.
+     *
+     * @throws IllegalArgumentException if the page cursor is not valid
+     */
+    public List<String> search(Page page, SearchBooksQuery query) {
+        final String[] after = PageCursor.isKeyset(page) ? PageCursor.decode(page.getCursor(), 2) : null;
+        final int skip = after == null ? (page.getNumber() - 1) * page.getLimit() : 0;
+        final List<String> textWords = words(query.getText());
+
+        lock.readLock().lock();
+        try {
+            if (!StringUtils.hasText(query.getTitle()) && !StringUtils.hasText(query.getGenre())
+                    && !StringUtils.hasText(query.getAuthorName()) && textWords.isEmpty()) {
+                return inTitleOrder(null, after, skip, page.getLimit());
+            }
+            Hits hits = null;
+            hits = filter(hits, query.getTitle(), TITLE);
+            hits = filter(hits, query.getGenre(), GENRE);
+            hits = filter(hits, query.getAuthorName(), AUTHOR);
+            for (int i = 0; i < textWords.size() && (hits == null || hits.size > 0); i++) {
+                Hits anyField = lookup(textWords.get(i), TITLE, true);
+                for (int field = AUTHOR; field <= DESCRIPTION; field++) {
+                    anyField = Hits.union(anyField, lookup(textWords.get(i), field, true));
+                }
+                hits = Hits.intersect(hits, anyField);
+            }
+
+            if (textWords.isEmpty() && hits.size > entryByIsbn.size() / DENSE) {
+                final BitSet matching = new BitSet(entries.size());
+                for (int i = 0; i < hits.size; i++) matching.set(hits.ids[i]);
+                return inTitleOrder(matching, after, skip, page.getLimit());
+            }
+            return top(hits, !textWords.isEmpty(), after, skip, page.getLimit());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** {@code text} lower-cased and without accents; empty for {@code null}. */
+    static String fold(String text) {
+        if (text == null) return "";
+        return stripAccents(text).toLowerCase(Locale.ROOT);
+    }
+
+    private static String stripAccents(String text) {
+        return isAscii(text) ? text : MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    /** Lower-cased words of {@code text}, without accents. */
+    static List<String> words(String text) {
+        if (!StringUtils.hasText(text)) return List.of();
+        final String folded = stripAccents(text);
+        final List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            final boolean inWord = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                words.add(folded.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    private void add(BookSearchDocument document, boolean replace) {
+        final Integer previous = entryByIsbn.get(document.isbn());
+        if (previous != null) {
+            if (!replace) return;
+            byTitle.remove(entries.get(previous));
+            entries.set(previous, null);
+            dead++;
+        }
+        final int id = entries.size();
+        final List<String> authorNames = document.authorNames() == null ? List.of() : document.authorNames();
+        final Entry entry = new Entry(document.isbn(), Objects.toString(document.title(), ""), id,
+                fold(document.title()), fold(document.genre()),
+                authorNames.stream().map(BookSearchIndex::fold).toList());
+        entries.add(entry);
+        entryByIsbn.put(document.isbn(), id);
+        byTitle.add(entry);
+
+        addWords(id, document.title(), TITLE);
+        addWords(id, document.genre(), GENRE);
+        addWords(id, document.description(), DESCRIPTION);
+        if (document.authorNames() != null) {
+            for (String authorName : document.authorNames()) {
+                addWords(id, authorName, AUTHOR);
+            }
+        }
+        if (dead > entries.size() / 4) {
+            compact();
+        }
+    }
+
+    /** Drops the dead entries, renumbering the live ones in the same order so postings stay sorted. */
+    private void compact() {
+        final int[] newIds = new int[entries.size()];
+        final List<Entry> live = new ArrayList<>(entries.size() - dead);
+        byTitle.clear();
+        for (int id = 0; id < entries.size(); id++) {
+            final Entry entry = entries.get(id);
+            if (entry == null) {
+                newIds[id] = -1;
+                continue;
+            }
+            final Entry moved = entry.renumbered(live.size());
+            newIds[id] = moved.id();
+            live.add(moved);
+            entryByIsbn.put(moved.isbn(), moved.id());
+            byTitle.add(moved);
+        }
+        entries.clear();
+        entries.addAll(live);
+        dead = 0;
+
+        final Iterator<Map.Entry<String, Term>> it = terms.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<String, Term> term = it.next();
+            if (!term.getValue().renumber(newIds)) {
+                it.remove();
+                sortedWords.remove(term.getKey());
+            }
+        }
+    }
+
+    private void addWords(int id, String text, int field) {
+        for (String word : words(text)) {
+            Term term = terms.get(word);
+            if (term == null) {
+                term = new Term();
+                terms.put(word, term);
+                sortedWords.add(word);
+            }
+            term.add(field, id);
+        }
+    }
+
+    /**
+     * Narrows {@code hits}, or starts from all books when it is {@code null}, to those whose {@code field} contains
+     * {@code filter}; a blank filter leaves them as they are.
+     */
+    private Hits filter(Hits hits, String filter, int field) {
+        if (!StringUtils.hasText(filter)) return hits;
+        final String needle = fold(filter);
+        final List<String> words = words(filter);
+        for (int i = 0; i < words.size() && (hits == null || hits.size > 0); i++) {
+            hits = Hits.intersect(hits, containing(words.get(i), field));
+        }
+        if (hits == null) hits = live();
+        // a single word needs no check: the book has a word containing it
+        if (words.size() == 1 && words.get(0).equals(needle)) return hits;
+        final Hits matching = new Hits();
+        for (int i = 0; i < hits.size; i++) {
+            if (entries.get(hits.ids[i]).contains(field, needle)) matching.add(hits.ids[i], hits.scores[i]);
+        }
+        return matching;
+    }
+
+    /** Live books having a word that contains {@code part} in {@code field}. */
+    private Hits containing(String part, int field) {
+        final Hits hits = new Hits();
+        int lists = 0;
+        for (Map.Entry<String, Term> term : terms.entrySet()) {
+            if (!term.getKey().contains(part)) continue;
+            final Postings postings = term.getValue().byField[field];
+            if (postings == null) continue;
+            lists++;
+            for (int i = 0; i < postings.size; i++) {
+                if (entries.get(postings.ids[i]) != null) hits.add(postings.ids[i], 0f);
+            }
+        }
+        return lists > 1 ? hits.sortedById() : hits;
+    }
+
+    /** Every live book, in id order. */
+    private Hits live() {
+        final Hits hits = new Hits();
+        for (int id = 0; id < entries.size(); id++) {
+            if (entries.get(id) != null) hits.add(id, 0f);
+        }
+        return hits;
+    }
+
+    /** Live books having a word that starts with {@code prefix} in {@code field}. */
+    private Hits lookup(String prefix, int field, boolean scored) {
+        final Hits hits = new Hits();
+        int lists = 0;
+        for (String word : sortedWords.subSet(prefix, true, prefix + Character.MAX_VALUE, false)) {
+            final Postings postings = terms.get(word).byField[field];
+            if (postings == null) continue;
+            lists++;
+            final float score = scored ? WEIGHTS[field] * (word.length() == prefix.length() ? 1f : 0.5f) : 0f;
+            for (int i = 0; i < postings.size; i++) {
+                if (entries.get(postings.ids[i]) != null) hits.add(postings.ids[i], score);
+            }
+        }
+        // a single word's postings are already in id order
+        return lists > 1 ? hits.sortedById() : hits;
+    }
+
+    /** The page of books in {@code matching}, or of all books when it is {@code null}, read in title order. */
+    private List<String> inTitleOrder(BitSet matching, String[] after, int skip, int limit) {
+        final Iterator<Entry> it = after == null
+                ? byTitle.iterator()
+                : byTitle.tailSet(new Entry(after[1], after[0], -1), false).iterator();
+        final List<String> isbns = new ArrayList<>(limit);
+        int skipped = 0;
+        while (isbns.size() < limit && it.hasNext()) {
+            final Entry entry = it.next();
+            if (matching != null && !matching.get(entry.id())) continue;
+            if (skipped < skip) {
+                skipped++;
+            } else {
+                isbns.add(entry.isbn());
+            }
+        }
+        return isbns;
+    }
+
+    /**
+     * The page of {@code hits} after the cursor or offset. Ranked order is score, then title and ISBN; a cursor book
+     * that no longer matches scores 0, below every match, so the search ends there.
+     */
+    private List<String> top(Hits hits, boolean ranked, String[] after, int skip, int limit) {
+        final Comparator<Integer> order = ranked
+                ? Comparator.<Integer>comparingDouble(i -> -hits.scores[i])
+                        .thenComparing(i -> entries.get(hits.ids[i]), BY_TITLE)
+                : Comparator.comparing(i -> entries.get(hits.ids[i]), BY_TITLE);
+
+        Entry afterEntry = null;
+        float afterScore = 0;
+        if (after != null) {
+            afterEntry = new Entry(after[1], after[0], -1);
+            final Integer id = entryByIsbn.get(after[1]);
+            final int at = id == null ? -1 : Arrays.binarySearch(hits.ids, 0, hits.size, id);
+            afterScore = at < 0 ? 0 : hits.scores[at];
+        }
+
+        final int wanted = skip + limit;
+        final PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(wanted, Math.max(1, hits.size)),
+                order.reversed());
+        for (int i = 0; i < hits.size; i++) {
+            if (afterEntry != null) {
+                final int scoreOrder = ranked ? Float.compare(afterScore, hits.scores[i]) : 0;
+                if (scoreOrder < 0 || scoreOrder == 0 && BY_TITLE.compare(entries.get(hits.ids[i]), afterEntry) <= 0) {
+                    continue;
+                }
+            }
+            if (best.size() < wanted) {
+                best.add(i);
+            } else if (order.compare(i, best.peek()) < 0) {
+                best.poll();
+                best.add(i);
+            }
+        }
+
+        final List<Integer> sorted = new ArrayList<>(best);
+        sorted.sort(order);
+        final List<String> isbns = new ArrayList<>(limit);
+        for (int i = skip; i < sorted.size(); i++) {
+            isbns.add(entries.get(hits.ids[sorted.get(i)]).isbn());
+        }
+        return isbns;
+    }
+
+    /** The entries having a word, per field. */
+    private static final class Term {
+        final Postings[] byField = new Postings[DESCRIPTION + 1];
+
+        void add(int field, int id) {
+            if (byField[field] == null) byField[field] = new Postings();
+            byField[field].add(id);
+        }
+
+        /** Applies {@code newIds}, where dead entries map to -1; returns whether any entry still has the word. */
+        boolean renumber(int[] newIds) {
+            boolean used = false;
+            for (int field = 0; field < byField.length; field++) {
+                if (byField[field] == null) continue;
+                if (byField[field].renumber(newIds) == 0) {
+                    byField[field] = null;
+                } else {
+                    used = true;
+                }
+            }
+            return used;
+        }
+    }
+
+    /** Growable list of entry ids, in increasing order. */
+    private static final class Postings {
+        int[] ids = new int[2];
+        int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) return;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        /** Maps the ids through {@code newIds}, dropping those mapped to -1, and returns the new size. */
+        int renumber(int[] newIds) {
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                final int id = newIds[ids[i]];
+                if (id >= 0) ids[n++] = id;
+            }
+            size = n;
+            if (ids.length > 2 * Math.max(2, n)) ids = Arrays.copyOf(ids, Math.max(2, n));
+            return n;
+        }
+    }
+
+    /** Entry ids with their scores, sorted by id once built. */
+    private static final class Hits {
+        int[] ids = new int[8];
+        float[] scores = new float[8];
+        int size;
+
+        void add(int id, float score) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            ids[size] = id;
+            scores[size] = score;
+            size++;
+        }
+
+        /** Sorts by id, keeping the best score of an id matched through several words. */
+        Hits sortedById() {
+            final long[] packed = new long[size];
+            for (int i = 0; i < size; i++) {
+                packed[i] = (long) ids[i] << 32 | Float.floatToIntBits(scores[i]);
+            }
+            Arrays.sort(packed);
+            int n = 0;
+            for (int i = 0; i < packed.length; i++) {
+                final int id = (int) (packed[i] >>> 32);
+                if (i + 1 < packed.length && (int) (packed[i + 1] >>> 32) == id) continue;
+                ids[n] = id;
+                scores[n] = Float.intBitsToFloat((int) packed[i]);
+                n++;
+            }
+            size = n;
+            return this;
+        }
+
+        /** Ids in both, scores added; {@code a} may be {@code null} for the first word. */
+        static Hits intersect(Hits a, Hits b) {
+            if (a == null) return b;
+            final Hits both = new Hits();
+            int i = 0;
+            int j = 0;
+            while (i < a.size && j < b.size) {
+                if (a.ids[i] < b.ids[j]) {
+                    i++;
+                } else if (a.ids[i] > b.ids[j]) {
+                    j++;
+                } else {
+                    both.add(a.ids[i], a.scores[i] + b.scores[j]);
+                    i++;
+                    j++;
+                }
+            }
+            return both;
+        }
+
+        /** Ids in either, scores added. */
+        static Hits union(Hits a, Hits b) {
+            if (b.size == 0) return a;
+            if (a.size == 0) return b;
+            final Hits either = new Hits();
+            int i = 0;
+            int j = 0;
+            while (i < a.size || j < b.size) {
+                if (j == b.size || i < a.size && a.ids[i] < b.ids[j]) {
+                    either.add(a.ids[i], a.scores[i]);
+                    i++;
+                } else if (i == a.size || b.ids[j] < a.ids[i]) {
+                    either.add(b.ids[j], b.scores[j]);
+                    j++;
+                } else {
+                    either.add(a.ids[i], a.scores[i] + b.scores[j]);
+                    i++;
+                    j++;
+                }
+            }
+            return either;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+
+import java.util.stream.Stream;
+
+/**
+ * Startup job filling the {@link BookSearchIndex} from the repository, after the bootstrappers. With
+ * {@code bookSearch.index=false} the index stays empty and searches keep going to the repository. {@link #build()}
+ * also rebuilds the index of a node that has missed changes made by others.
+ */
+@Slf4j
+@Component
+@Order(7)
+@PropertySource({"classpath:config/library.properties"})
+public class BookSearchIndexBuilder implements ApplicationRunner {
+
+    private final BookRepository bookRepository;
+    private final BookSearchIndex searchIndex;
+    private final boolean enabled;
+
+    public BookSearchIndexBuilder(BookRepository bookRepository,
+                                  BookSearchIndex searchIndex,
+                                  @Value("${bookSearch.index:true}") boolean enabled) {
+        this.bookRepository = bookRepository;
+        this.searchIndex = searchIndex;
+        this.enabled = enabled;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void run(ApplicationArguments args) {
+        if (!enabled) return;
+        build();
+    }
+
+    /**
+     * Empties the index and fills it again. Searches go to the repository until it is done; books indexed in the
+     * meantime keep their newer entries.
+     */
+    @Transactional(readOnly = true)
+    public void build() {
+        searchIndex.reset();
+        final long started = System.nanoTime();
+        try (Stream<BookSearchDocument> documents = bookRepository.streamSearchDocuments()) {
+            documents.forEach(searchIndex::putIfAbsent);
+        }
+        searchIndex.markReady();
+        log.info("Indexed {} books ({} words) for search in {} ms", searchIndex.size(), searchIndex.wordCount(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+}
@@ -13,6 +13,8 @@ public interface BookService {
     Book create(CreateBookRequest request, String isbn);
     Book save(Book book);
     Book findByIsbn(String isbn);
+    /** Cached, read-only view of the book; use {@link #findByIsbn} when the book is to be changed. */
+    BookSnapshot findSnapshotByIsbn(String isbn);
     Book update(UpdateBookRequest request, String currentVersion);
     List<Book> findByGenre(String genre);
     List<Book> findByTitle(String title);
@@ -2,30 +2,34 @@ package pt.psoft.g1.psoftg1.bookmanagement.services;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.PropertySource;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.bookmanagement.model.*;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import lombok.RequiredArgsConstructor;
-import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreDictionary;
 import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardEntry;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardKind;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardService;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
-import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.model.Photo;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PhotoReferenceService;
 
-import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -34,16 +38,18 @@ import java.util.Optional;
 public class BookServiceImpl implements BookService {
 
 	private final BookRepository bookRepository;
-	private final GenreRepository genreRepository;
+	private final GenreDictionary genreDictionary;
 	private final AuthorRepository authorRepository;
-	private final PhotoRepository photoRepository;
+	private final PhotoReferenceService photoReferenceService;
 	private final ReaderRepository readerRepository;
 	private final IdGenerator idGenerator;
+	private final BookSnapshotCache snapshotCache;
+	private final LeaderboardService leaderboardService;
+	private final BookSearchIndex searchIndex;
 
 	@Value("${suggestionsLimitPerGenre}")
 	private long suggestionsLimitPerGenre;
 
-	@org.springframework.cache.annotation.CacheEvict(cacheNames = "bookByIsbn", key = "#isbn")
 	@Override
 	public Book create(CreateBookRequest request, String isbn) {
 
@@ -71,13 +77,17 @@ public class BookServiceImpl implements BookService {
 			request.setPhotoURI(null);
 		}
 
-		final var genre = genreRepository.findByString(request.getGenre())
+		final var genre = genreDictionary.findByName(request.getGenre())
 				.orElseThrow(() -> new NotFoundException("Genre not found"));
 
 		Book newBook = new Book(isbn, request.getTitle(), request.getDescription(), genre, authors, photoURI);
 		newBook.assignPk(idGenerator.newId());
 
-		return bookRepository.save(newBook);
+		final Book saved = bookRepository.save(newBook);
+		snapshotCache.refresh(saved);
+		searchIndex.index(saved);
+		photoReferenceService.replaced(null, saved.getPhoto());
+		return saved;
 	}
 
 
@@ -109,34 +119,44 @@ public class BookServiceImpl implements BookService {
 		}
 
         if (request.getGenre() != null) {
-            Optional<Genre> genre = genreRepository.findByString(request.getGenre());
+            Optional<Genre> genre = genreDictionary.findByName(request.getGenre());
             if (genre.isEmpty()) {
                 throw new NotFoundException("Genre not found");
             }
             request.setGenreObj(genre.get());
         }
 
+        final Photo previousPhoto = book.getPhoto();
         book.applyPatch(Long.parseLong(currentVersion), request);
 
-		bookRepository.save(book);
-
+		final Book saved = bookRepository.save(book);
+		snapshotCache.refresh(saved);
+		searchIndex.index(saved);
+		photoReferenceService.replaced(previousPhoto, saved.getPhoto());
 
 		return book;
 	}
 
 	@Override
 	public Book save(Book book) {
-		return this.bookRepository.save(book);
+		final Book saved = this.bookRepository.save(book);
+		snapshotCache.refresh(saved);
+		searchIndex.index(saved);
+		return saved;
 	}
 
 	@Override
 	public List<BookCountDTO> findTop5BooksLent(){
-		LocalDate oneYearAgo = LocalDate.now().minusYears(1);
-		Pageable pageableRules = PageRequest.of(0,5);
-		return this.bookRepository.findTop5BooksLent(oneYearAgo, pageableRules).getContent();
+		List<LeaderboardEntry> top = leaderboardService.top(LeaderboardKind.BOOK, 5);
+		Map<String, Book> books = new HashMap<>();
+		bookRepository.findByIsbnIn(top.stream().map(LeaderboardEntry::member).toList())
+				.forEach(b -> books.put(b.getIsbn(), b));
+		return top.stream()
+				.filter(e -> books.containsKey(e.member()))
+				.map(e -> new BookCountDTO(books.get(e.member()), e.count()))
+				.toList();
 	}
 
-	@org.springframework.cache.annotation.CacheEvict(cacheNames = "bookByIsbn", key = "#isbn")
 	@Override
 	public Book removeBookPhoto(String isbn, long desiredVersion) {
 		Book book = this.findByIsbn(isbn);
@@ -149,7 +169,8 @@ public class BookServiceImpl implements BookService {
 
 		book.removePhoto(desiredVersion);
 		var updatedBook = bookRepository.save(book);
-		photoRepository.deleteByPhotoFile(photoFile);
+		snapshotCache.refresh(updatedBook);
+		photoReferenceService.release(photoFile);
 		return updatedBook;
 	}
 
@@ -167,12 +188,16 @@ public class BookServiceImpl implements BookService {
 		return bookRepository.findByAuthorName(authorName + "%");
 	}
 
-	@org.springframework.cache.annotation.Cacheable(cacheNames = "bookByIsbn", key = "#isbn")
 	public Book findByIsbn(String isbn) {
 		return this.bookRepository.findByIsbn(isbn)
 				.orElseThrow(() -> new NotFoundException(Book.class, isbn));
 	}
 
+	@Override
+	public BookSnapshot findSnapshotByIsbn(String isbn) {
+		return snapshotCache.get(isbn, () -> BookSnapshot.of(findByIsbn(isbn)));
+	}
+
 	public List<Book> getBooksSuggestionsForReader(String readerNumber) {
 		List<Book> books = new ArrayList<>();
 
@@ -213,6 +238,20 @@ public class BookServiceImpl implements BookService {
 		if (query == null) {
 			query = new SearchBooksQuery("", "", "");
 		}
+		while (searchIndex.isReady()) {
+			final List<String> isbns = searchIndex.search(page, query);
+			final Map<String, Book> books = new HashMap<>();
+			bookRepository.findByIsbnIn(isbns).forEach(b -> books.put(b.getIsbn(), b));
+			if (books.size() == isbns.size()) {
+				return isbns.stream().map(books::get).toList();
+			}
+			// books removed from the database behind the index's back: forget them and fill the page again
+			isbns.stream().filter(isbn -> !books.containsKey(isbn)).forEach(searchIndex::remove);
+		}
+		// until the index is built, free text can only be matched as the start of the title
+		if (StringUtils.hasText(query.getText()) && !StringUtils.hasText(query.getTitle())) {
+			query = new SearchBooksQuery(query.getText(), query.getGenre(), query.getAuthorName());
+		}
 		return bookRepository.searchBooks(page, query);
 	}
 }
@@ -0,0 +1,45 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+
+import java.util.List;
+
+/**
+ * Immutable read model of a {@link Book}, holding just what the book endpoints render.
+ * <p>
+ * This is what the {@code bookByIsbn} cache stores. Callers can share it across requests and nodes because
+ * nothing can change it, unlike the entity, which later edits would modify.
+ */
+public record BookSnapshot(String isbn,
+                           String title,
+                           String description,
+                           String genre,
+                           List<AuthorRef> authors,
+                           String photoFile,
+                           long version) {
+
+    public record AuthorRef(String authorNumber, String name) {}
+
+    public BookSnapshot {
+        authors = List.copyOf(authors);
+    }
+
+    public static BookSnapshot of(Book book) {
+        List<AuthorRef> authors = book.getAuthors().stream()
+                .map(BookSnapshot::authorRef)
+                .toList();
+        return new BookSnapshot(
+                book.getIsbn(),
+                book.getTitle().toString(),
+                book.getDescription(),
+                book.getGenre().toString(),
+                authors,
+                book.getPhoto() == null ? null : book.getPhoto().getPhotoFile(),
+                book.getVersion() == null ? 0L : book.getVersion());
+    }
+
+    private static AuthorRef authorRef(Author author) {
+        return new AuthorRef(author.getAuthorNumber(), author.getName());
+    }
+}
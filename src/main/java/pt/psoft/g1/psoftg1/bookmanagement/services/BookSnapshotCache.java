@@ -0,0 +1,68 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+
+import java.util.function.Supplier;
+
+/**
+ * The {@code bookByIsbn} cache of {@link BookSnapshot}s, written through on every change of a book.
+ * <p>
+ * Loads after a miss use {@code putIfAbsent}, so a read that started before a write cannot replace the fresher
+ * snapshot the write put there. When caching is not enabled every read goes to the loader.
+ */
+@Component
+public class BookSnapshotCache {
+
+    static final String CACHE_NAME = "bookByIsbn";
+
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    public BookSnapshotCache(ObjectProvider<CacheManager> cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    public BookSnapshot get(String isbn, Supplier<BookSnapshot> loader) {
+        Cache cache = cache();
+        if (cache == null) return loader.get();
+
+        Cache.ValueWrapper cached = cache.get(isbn);
+        if (cached != null && cached.get() instanceof BookSnapshot snapshot) return snapshot;
+
+        BookSnapshot loaded = loader.get();
+        Cache.ValueWrapper raced = cache.putIfAbsent(isbn, loaded);
+        return (raced != null && raced.get() instanceof BookSnapshot newer) ? newer : loaded;
+    }
+
+    /**
+     * Replaces the cached snapshot of {@code book}. Inside a transaction this waits for the commit, since that is
+     * when the new version is assigned and the change becomes visible to other readers.
+     */
+    public void refresh(Book book) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(book);
+                }
+            });
+        } else {
+            put(book);
+        }
+    }
+
+    private void put(Book book) {
+        Cache cache = cache();
+        if (cache != null) cache.put(book.getIsbn(), BookSnapshot.of(book));
+    }
+
+    private Cache cache() {
+        CacheManager cm = cacheManager.getIfAvailable();
+        return cm == null ? null : cm.getCache(CACHE_NAME);
+    }
+}
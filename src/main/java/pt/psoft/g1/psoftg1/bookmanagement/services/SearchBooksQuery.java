@@ -11,4 +11,13 @@ public class SearchBooksQuery {
     private String title;
     private String genre;
     private String authorName;
+    /**
+     * Words looked up in the title, author names, genre and description at once; results are ranked by how well
+     * they match. Needs the in-memory {@link BookSearchIndex}.
+     */
+    private String text;
+
+    public SearchBooksQuery(String title, String genre, String authorName) {
+        this(title, genre, authorName, null);
+    }
 }
@@ -1,6 +1,7 @@
 package pt.psoft.g1.psoftg1.bootstrapping;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Profile;
@@ -27,6 +28,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+@Slf4j
 @Component
 @RequiredArgsConstructor
 @Profile("bootstrap")
@@ -384,7 +386,8 @@ public class Bootstrapper implements CommandLineRunner {
 
     protected void loadForbiddenNames() {
         String fileName = "forbiddenNames.txt";
-        forbiddenNameService.loadDataFromFile(fileName);
+        ForbiddenNameService.LoadResult result = forbiddenNameService.loadDataFromFile(fileName);
+        log.info("Loaded {} forbidden names from {}, skipped {} lines", result.loaded(), fileName, result.skipped());
     }
 
     private void createLendings() {
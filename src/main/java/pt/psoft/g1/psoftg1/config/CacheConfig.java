@@ -1,36 +1,118 @@
 package pt.psoft.g1.psoftg1.config;
 
-import org.springframework.cache.CacheManager;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.*;
 import org.springframework.data.redis.cache.*;
 import org.springframework.data.redis.connection.*;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.*;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.cache.BookSearchIndexSync;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.cache.BookSnapshotRedisSerializer;
+import pt.psoft.g1.psoftg1.shared.infrastructure.cache.CacheInvalidation;
+import pt.psoft.g1.psoftg1.shared.infrastructure.cache.TwoLevelCacheManager;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
+/**
+ * Caffeine on each node (L1) in front of Redis (L2) for the caches listed in {@code cache.l1.caches}; the others
+ * are served by Redis alone.
+ * <p>
+ * Changes made on one node are announced on {@link #INVALIDATION_CHANNEL} so the others drop the same keys from
+ * their L1. Pub/sub delivery is best effort, so the L1 TTL is kept short: it bounds how long a node that missed
+ * a message can serve a stale entry. The same channel carries the changes of the book search index, see
+ * {@link BookSearchIndexSync}.
+ */
 @Configuration
 @EnableCaching
 @Profile("redis")
 public class CacheConfig {
 
+  public static final String INVALIDATION_CHANNEL = "cache:invalidation";
+
+  private final ObjectMapper json = new ObjectMapper();
+
   @Bean
-  public CacheManager cacheManager(RedisConnectionFactory cf) {
+  public Consumer<CacheInvalidation> cacheInvalidationPublisher(StringRedisTemplate redis) {
+    return message -> redis.convertAndSend(INVALIDATION_CHANNEL, write(message));
+  }
+
+  @Bean
+  public TwoLevelCacheManager cacheManager(RedisConnectionFactory cf,
+                                           Consumer<CacheInvalidation> cacheInvalidationPublisher,
+                                           ObjectProvider<MeterRegistry> meterRegistry,
+                                           @Value("${cache.l1.caches:authorSearch}") Set<String> l1Caches,
+                                           @Value("${cache.l1.maximumSize:10000}") long l1MaximumSize,
+                                           @Value("${cache.l1.expireAfterWrite:PT1M}") Duration l1Ttl) {
+    GenericJackson2JsonRedisSerializer values = new GenericJackson2JsonRedisSerializer();
     RedisCacheConfiguration base = RedisCacheConfiguration.defaultCacheConfig()
         .entryTtl(Duration.ofMinutes(30))
         .disableCachingNullValues()
-        .serializeValuesWith(RedisSerializationContext.SerializationPair
-            .fromSerializer(new GenericJackson2JsonRedisSerializer()));
+        .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(values));
 
     Map<String, RedisCacheConfiguration> perCache = Map.of(
         "authorById", base.entryTtl(Duration.ofMinutes(15)),
-        "authorSearch", base.entryTtl(Duration.ofMinutes(5))
+        "authorSearch", base.entryTtl(Duration.ofMinutes(5)),
+        "bookByIsbn", base.serializeValuesWith(RedisSerializationContext.SerializationPair
+            .fromSerializer(new BookSnapshotRedisSerializer()))
     );
 
-    return RedisCacheManager.builder(cf)
+    RedisCacheManager l2 = RedisCacheManager.builder(cf)
         .cacheDefaults(base)
         .withInitialCacheConfigurations(perCache)
         .build();
+    l2.afterPropertiesSet();
+
+    Caffeine<Object, Object> l1 = Caffeine.newBuilder()
+        .maximumSize(l1MaximumSize)
+        .expireAfterWrite(l1Ttl);
+
+    return new TwoLevelCacheManager(l2, l1Caches, l1, values, cacheInvalidationPublisher,
+        meterRegistry.getIfAvailable());
+  }
+
+  @Bean
+  public RedisMessageListenerContainer cacheInvalidationListener(RedisConnectionFactory cf,
+                                                                 TwoLevelCacheManager cacheManager,
+                                                                 ObjectProvider<BookSearchIndexSync> searchIndexSync) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(cf);
+    container.addMessageListener((message, pattern) -> {
+      CacheInvalidation invalidation = read(message.getBody());
+      if (BookSearchIndexSync.CHANNEL_NAME.equals(invalidation.cacheName())) {
+        searchIndexSync.ifAvailable(sync -> sync.onRemoteInvalidation(invalidation));
+      } else {
+        cacheManager.onRemoteInvalidation(invalidation);
+      }
+    }, new ChannelTopic(INVALIDATION_CHANNEL));
+    return container;
+  }
+
+  private String write(CacheInvalidation message) {
+    try {
+      return json.writeValueAsString(message);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private CacheInvalidation read(byte[] body) {
+    try {
+      return json.readValue(body, CacheInvalidation.class);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
-}
\ No newline at end of file
+}
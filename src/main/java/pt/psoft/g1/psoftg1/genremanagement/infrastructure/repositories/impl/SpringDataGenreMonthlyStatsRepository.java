@@ -0,0 +1,99 @@
+package pt.psoft.g1.psoftg1.genremanagement.infrastructure.repositories.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreMonthlyStats;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreMonthlyStatsRepository;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl.CounterRows;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public interface SpringDataGenreMonthlyStatsRepository extends GenreMonthlyStatsRepository, GenreMonthlyStatsRepoCustom, CrudRepository<GenreMonthlyStats, String> {
+
+    @Override
+    List<GenreMonthlyStats> findByPeriodBetween(int fromPeriod, int toPeriod);
+
+    @Override
+    default boolean isEmpty() {
+        return count() == 0;
+    }
+}
+
+interface GenreMonthlyStatsRepoCustom {
+    void recordLending(YearMonth month, String genreId);
+    void recordReturn(YearMonth month, String genreId, long durationDays);
+    long rebuildFromLendings();
+}
+
+class GenreMonthlyStatsRepoCustomImpl implements GenreMonthlyStatsRepoCustom {
+
+    private final EntityManager em;
+    private final CounterRows counterRows;
+
+    GenreMonthlyStatsRepoCustomImpl(EntityManager em, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.counterRows = new CounterRows(em, transactionManager);
+    }
+
+    @Override
+    @Transactional
+    public void recordLending(YearMonth month, String genreId) {
+        update(month, genreId, em.createQuery(
+                "UPDATE GenreMonthlyStats s SET s.lendingCount = s.lendingCount + 1 WHERE s.id = :id"));
+    }
+
+    @Override
+    @Transactional
+    public void recordReturn(YearMonth month, String genreId, long durationDays) {
+        update(month, genreId, em.createQuery(
+                "UPDATE GenreMonthlyStats s SET s.returnedCount = s.returnedCount + 1, " +
+                "s.totalDurationDays = s.totalDurationDays + :days WHERE s.id = :id")
+                .setParameter("days", durationDays));
+    }
+
+    /** Applies {@code update} to the month's row, which is created empty by {@link CounterRows} if missing. */
+    private void update(YearMonth month, String genreId, Query update) {
+        String id = GenreMonthlyStats.idOf(month, genreId);
+        counterRows.update(GenreMonthlyStats.class, id, () -> new GenreMonthlyStats(month, genreId, 0, 0, 0),
+                update.setParameter("id", id));
+    }
+
+    @Override
+    @Transactional
+    public long rebuildFromLendings() {
+        Map<String, GenreMonthlyStats> rows = new HashMap<>();
+        long lendings = 0;
+
+        try (Stream<Tuple> lent = em.createQuery(
+                "SELECT l.book.genre.pk AS genreId, l.startDate AS startDate, l.returnedDate AS returnedDate " +
+                "FROM Lending l", Tuple.class).getResultStream()) {
+            for (Tuple t : (Iterable<Tuple>) lent::iterator) {
+                LocalDate start = t.get("startDate", LocalDate.class);
+                LocalDate returned = t.get("returnedDate", LocalDate.class);
+                YearMonth month = YearMonth.from(start);
+                String genreId = t.get("genreId", String.class);
+                GenreMonthlyStats stats = rows.computeIfAbsent(GenreMonthlyStats.idOf(month, genreId),
+                        k -> new GenreMonthlyStats(month, genreId, 0, 0, 0));
+                stats.recordLending();
+                if (returned != null) {
+                    stats.recordReturn(ChronoUnit.DAYS.between(start, returned));
+                }
+                lendings++;
+            }
+        }
+
+        em.createQuery("DELETE FROM GenreMonthlyStats").executeUpdate();
+        rows.values().forEach(em::persist);
+        return lendings;
+    }
+}
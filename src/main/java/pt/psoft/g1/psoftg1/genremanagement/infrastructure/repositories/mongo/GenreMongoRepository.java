@@ -106,14 +106,12 @@ public class GenreMongoRepository implements GenreRepository {
     Date end = toEndOfDay(month.withDayOfMonth(days));
 
     MatchOperation match = match(Criteria.where("startDate").gte(start).lt(end));
-    LookupOperation lookup = lookup("books", "bookIsbn", "isbn", "book");
-    UnwindOperation unwind = unwind("book");
-    GroupOperation group = group("$book.genre").count().as("cnt");
+    GroupOperation group = group("bookGenre").count().as("cnt");
     ProjectionOperation project = project()
         .and("_id").as("genre")
         .andExpression("cnt / " + days).as("avg");
 
-    Aggregation agg = newAggregation(match, lookup, unwind, group, project,
+    Aggregation agg = newAggregation(match, group, project,
         sort(org.springframework.data.domain.Sort.by("genre").ascending()));
 
     var results = mongo.aggregate(agg, "lendings", GenreAvgAgg.class).getMappedResults();
@@ -138,20 +136,17 @@ public class GenreMongoRepository implements GenreRepository {
         .gte(toStartOfDay(twelveMonthsAgo.withDayOfMonth(1)))
         .lt(toEndOfDay(now)));
 
-    LookupOperation lookup = lookup("books", "bookIsbn", "isbn", "book");
-    UnwindOperation unwind = unwind("book");
-
     ProjectionOperation projectYearMonthGenre = project()
         .andExpression("year($startDate)").as("year")
         .andExpression("month($startDate)").as("month")
-        .and("book.genre").as("genre");
+        .and("bookGenre").as("genre");
 
     GroupOperation group = group(fields().and("year").and("month").and("genre"))
         .count().as("count");
 
     SortOperation sort = sort(org.springframework.data.domain.Sort.by("year", "month", "genre").ascending());
 
-    Aggregation agg = newAggregation(match, lookup, unwind, projectYearMonthGenre, group, sort);
+    Aggregation agg = newAggregation(match, projectYearMonthGenre, group, sort);
 
     var rows = mongo.aggregate(agg, "lendings", YMGCountAgg.class).getMappedResults();
 
@@ -188,9 +183,6 @@ public class GenreMongoRepository implements GenreRepository {
         .lte(toEndOfDay(endDate))
         .and("returnedDate").ne(null));
 
-    LookupOperation lookup = lookup("books", "bookIsbn", "isbn", "isbnBook");
-    UnwindOperation unwind = unwind("isbnBook");
-
     AddFieldsOperation addDuration = AddFieldsOperation.builder()
         .addFieldWithValue(
             "durationDays",
@@ -204,7 +196,7 @@ public class GenreMongoRepository implements GenreRepository {
     ProjectionOperation project = project()
         .andExpression("year($startDate)").as("year")
         .andExpression("month($startDate)").as("month")
-        .and("isbnBook.genre").as("genre")
+        .and("bookGenre").as("genre")
         .and("durationDays").as("durationDays");
 
     GroupOperation group = group(fields().and("year").and("month").and("genre"))
@@ -212,7 +204,7 @@ public class GenreMongoRepository implements GenreRepository {
 
     SortOperation sort = sort(org.springframework.data.domain.Sort.by("year", "month", "genre").ascending());
 
-    Aggregation agg = newAggregation(match, lookup, unwind, addDuration, project, group, sort);
+    Aggregation agg = newAggregation(match, addDuration, project, group, sort);
 
     var rows = mongo.aggregate(agg, "lendings", YMGAverageAgg.class).getMappedResults();
 
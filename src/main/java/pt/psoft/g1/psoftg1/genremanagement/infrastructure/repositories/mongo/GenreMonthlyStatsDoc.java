@@ -0,0 +1,25 @@
+package pt.psoft.g1.psoftg1.genremanagement.infrastructure.repositories.mongo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Document("genreMonthlyStats")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class GenreMonthlyStatsDoc {
+  @Id
+  private String id;
+  @Indexed
+  private int period;
+  private String genreId;
+  private long lendingCount;
+  private long returnedCount;
+  private long totalDurationDays;
+}
@@ -0,0 +1,104 @@
+package pt.psoft.g1.psoftg1.genremanagement.infrastructure.repositories.mongo;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreMonthlyStats;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreMonthlyStatsRepository;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+@Repository
+@Profile("mongo")
+@RequiredArgsConstructor
+public class GenreMonthlyStatsMongoRepository implements GenreMonthlyStatsRepository {
+
+  private final MongoTemplate mongo;
+
+  @Override
+  public List<GenreMonthlyStats> findByPeriodBetween(int fromPeriod, int toPeriod) {
+    Query q = Query.query(Criteria.where("period").gte(fromPeriod).lte(toPeriod)).with(Sort.by("period"));
+    return mongo.find(q, GenreMonthlyStatsDoc.class).stream()
+        .map(GenreMonthlyStatsMongoRepository::toDomain)
+        .toList();
+  }
+
+  private static GenreMonthlyStats toDomain(GenreMonthlyStatsDoc d) {
+    YearMonth month = YearMonth.of(d.getPeriod() / 100, d.getPeriod() % 100);
+    return new GenreMonthlyStats(month, d.getGenreId(), d.getLendingCount(), d.getReturnedCount(),
+        d.getTotalDurationDays());
+  }
+
+  @Override
+  public void recordLending(YearMonth month, String genreId) {
+    upsert(month, genreId, new Update().inc("lendingCount", 1));
+  }
+
+  @Override
+  public void recordReturn(YearMonth month, String genreId, long durationDays) {
+    upsert(month, genreId, new Update().inc("returnedCount", 1).inc("totalDurationDays", durationDays));
+  }
+
+  /** Upserting {@code $inc}: atomic on the one document, so concurrent lendings never lose a count. */
+  private void upsert(YearMonth month, String genreId, Update update) {
+    update.setOnInsert("period", GenreMonthlyStats.periodOf(month)).setOnInsert("genreId", genreId);
+    mongo.upsert(Query.query(Criteria.where("_id").is(GenreMonthlyStats.idOf(month, genreId))), update,
+        GenreMonthlyStatsDoc.class);
+  }
+
+  /** {@code value} for a returned lending, 0 for one still out (whether {@code returnedDate} is null or missing). */
+  private static AggregationExpression ifReturned(Object value) {
+    return ctx -> new Document("$cond", List.of(new Document("$ifNull", Arrays.asList("$returnedDate", false)), value, 0));
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return !mongo.exists(new Query(), GenreMonthlyStatsDoc.class);
+  }
+
+  @Override
+  public long rebuildFromLendings() {
+    Aggregation agg = newAggregation(
+        lookup("genres", "bookGenre", "genre", "genre"),
+        unwind("genre"),
+        project()
+            .andExpression("year($startDate) * 100 + month($startDate)").as("period")
+            .and("genre._id").as("genreId")
+            .and(ifReturned(1)).as("returned")
+            .and(ifReturned(new Document("$dateDiff", new Document("startDate", "$startDate")
+                .append("endDate", "$returnedDate")
+                .append("unit", "day")))).as("durationDays"),
+        group("period", "genreId")
+            .count().as("lendingCount")
+            .sum("returned").as("returnedCount")
+            .sum("durationDays").as("totalDurationDays"),
+        project("lendingCount", "returnedCount", "totalDurationDays")
+            .and("period").as("period")
+            .and("genreId").as("genreId")
+    );
+    record Row(int period, String genreId, long lendingCount, long returnedCount, long totalDurationDays) {}
+    List<GenreMonthlyStatsDoc> docs = mongo.aggregate(agg, "lendings", Row.class).getMappedResults().stream()
+        .map(r -> new GenreMonthlyStatsDoc(
+            GenreMonthlyStats.idOf(YearMonth.of(r.period() / 100, r.period() % 100), r.genreId()),
+            r.period(), r.genreId(), r.lendingCount(), r.returnedCount(), r.totalDurationDays()))
+        .toList();
+
+    mongo.remove(new Query(), GenreMonthlyStatsDoc.class);
+    if (!docs.isEmpty()) {
+      mongo.insert(docs, GenreMonthlyStatsDoc.class);
+    }
+    return docs.stream().mapToLong(GenreMonthlyStatsDoc::getLendingCount).sum();
+  }
+}
@@ -0,0 +1,85 @@
+package pt.psoft.g1.psoftg1.genremanagement.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.time.YearMonth;
+
+/**
+ * Lendings of one genre started in one calendar month: how many, how many of those were returned, and the sum of
+ * their durations in days.
+ * <p>
+ * The genre analytics read these rows instead of grouping the lendings, so their cost depends on the number of
+ * months and genres asked for, not on the number of lendings.
+ */
+@Entity
+@Table(indexes = @Index(columnList = "STATS_PERIOD"))
+public class GenreMonthlyStats {
+
+    @Id
+    @Column(length = 48, nullable = false, updatable = false)
+    @Getter
+    private String id;
+
+    /** {@code year * 100 + month}, so a range of months is a range of this column. */
+    @Column(name = "STATS_PERIOD", nullable = false, updatable = false)
+    @Getter
+    private int period;
+
+    @Column(length = 36, nullable = false, updatable = false)
+    @Getter
+    private String genreId;
+
+    @Column(nullable = false)
+    @Getter
+    private long lendingCount;
+
+    @Column(nullable = false)
+    @Getter
+    private long returnedCount;
+
+    @Column(nullable = false)
+    @Getter
+    private long totalDurationDays;
+
+    protected GenreMonthlyStats() {}
+
+    public GenreMonthlyStats(YearMonth month, String genreId, long lendingCount, long returnedCount, long totalDurationDays) {
+        this.id = idOf(month, genreId);
+        this.period = periodOf(month);
+        this.genreId = genreId;
+        this.lendingCount = lendingCount;
+        this.returnedCount = returnedCount;
+        this.totalDurationDays = totalDurationDays;
+    }
+
+    public static String idOf(YearMonth month, String genreId) {
+        return month + "|" + genreId;
+    }
+
+    public static int periodOf(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    public int getYear() {
+        return period / 100;
+    }
+
+    public int getMonth() {
+        return period % 100;
+    }
+
+    public void recordLending() {
+        lendingCount++;
+    }
+
+    public void recordReturn(long durationDays) {
+        returnedCount++;
+        totalDurationDays += durationDays;
+    }
+
+    /** Average duration in days of the returned lendings, or 0 when none has been returned. */
+    public double averageDuration() {
+        return returnedCount == 0 ? 0.0 : (double) totalDurationDays / returnedCount;
+    }
+}
@@ -0,0 +1,32 @@
+package pt.psoft.g1.psoftg1.genremanagement.repositories;
+
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreMonthlyStats;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Per-month, per-genre lending totals, kept up to date as lendings are created and returned.
+ */
+public interface GenreMonthlyStatsRepository {
+
+    /** Rows whose {@link GenreMonthlyStats#getPeriod() period} lies between the two, inclusive. */
+    List<GenreMonthlyStats> findByPeriodBetween(int fromPeriod, int toPeriod);
+
+    /** Counts one lending of {@code genreId} started in {@code month}. Joins the caller's transaction where supported. */
+    void recordLending(YearMonth month, String genreId);
+
+    /**
+     * Counts the return of a lending of {@code genreId} started in {@code month}. Joins the caller's transaction
+     * where supported.
+     */
+    void recordReturn(YearMonth month, String genreId, long durationDays);
+
+    boolean isEmpty();
+
+    /**
+     * Replaces every row with totals recomputed from the lending store.
+     * @return number of lendings counted
+     */
+    long rebuildFromLendings();
+}
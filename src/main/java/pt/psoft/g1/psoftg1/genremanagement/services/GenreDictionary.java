@@ -0,0 +1,139 @@
+package pt.psoft.g1.psoftg1.genremanagement.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Process-wide, read-mostly view of all genres.
+ * <p>
+ * The genres are loaded with a single {@link GenreRepository#findAll()} and served from an immutable map until
+ * {@link #invalidate()} is called, which {@link GenreDictionaryInvalidator} does after every repository
+ * {@code save} or {@code delete}. Names are matched ignoring case, as the SQL collation does. A name that is not in
+ * the map falls back to {@link GenreRepository#findByString}: a genre found that way, e.g. one added by another node,
+ * is added to the map, and a name not found is remembered for {@link #MISS_TTL} so unknown names do not query the
+ * repository on every lookup.
+ * <p>
+ * Every genre also gets a dense {@code int} id, handed out in load order and kept for the life of the process,
+ * so analytics code can use arrays instead of maps keyed by name.
+ */
+@Component
+public class GenreDictionary {
+
+    static final Duration MISS_TTL = Duration.ofSeconds(30);
+
+    private final GenreRepository genreRepository;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final Cache<String, Boolean> misses = Caffeine.newBuilder()
+            .expireAfterWrite(MISS_TTL)
+            .maximumSize(10_000)
+            .build();
+    private volatile Snapshot snapshot;
+
+    public GenreDictionary(GenreRepository genreRepository) {
+        this.genreRepository = genreRepository;
+    }
+
+    public Optional<Genre> findByName(String name) {
+        if (name == null) return Optional.empty();
+        String key = key(name);
+        Genre genre = snapshot().byName.get(key);
+        if (genre != null) return Optional.of(genre);
+        if (misses.getIfPresent(key) != null) return Optional.empty();
+
+        Optional<Genre> loaded = genreRepository.findByString(name);
+        if (loaded.isPresent()) add(loaded.get());
+        else misses.put(key, Boolean.TRUE);
+        return loaded;
+    }
+
+    public OptionalInt idOf(String name) {
+        if (name == null) return OptionalInt.empty();
+        Integer id = snapshot().idByName.get(key(name));
+        return id == null ? OptionalInt.empty() : OptionalInt.of(id);
+    }
+
+    /** Genre with dense id {@code id}, or empty if the id is unknown or its genre has been deleted. */
+    public Optional<Genre> byId(int id) {
+        Genre[] byId = snapshot().byId;
+        return id < 0 || id >= byId.length ? Optional.empty() : Optional.ofNullable(byId[id]);
+    }
+
+    /** Upper bound (exclusive) of the dense ids handed out so far. */
+    public int idCount() {
+        return snapshot().byId.length;
+    }
+
+    public List<Genre> all() {
+        return List.copyOf(snapshot().byName.values());
+    }
+
+    /** Drops the loaded genres and remembered misses; the next lookup reloads them. */
+    public void invalidate() {
+        snapshot = null;
+        misses.invalidateAll();
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /** Adds one genre found outside the loaded ones, without reloading the rest. */
+    private synchronized void add(Genre genre) {
+        Snapshot s = snapshot;
+        if (s == null) return;
+        String key = key(genre.toString());
+        int id = ids.computeIfAbsent(key, k -> ids.size());
+
+        Map<String, Genre> byName = new HashMap<>(s.byName);
+        byName.put(key, genre);
+        Map<String, Integer> idByName = new HashMap<>(s.idByName);
+        idByName.put(key, id);
+        Genre[] byId = Arrays.copyOf(s.byId, Math.max(s.byId.length, id + 1));
+        byId[id] = genre;
+        snapshot = new Snapshot(Map.copyOf(byName), Map.copyOf(idByName), byId);
+    }
+
+    private Snapshot snapshot() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            synchronized (this) {
+                if (snapshot == null) snapshot = load();
+                s = snapshot;
+            }
+        }
+        return s;
+    }
+
+    private Snapshot load() {
+        Map<String, Genre> byName = new HashMap<>();
+        for (Genre g : genreRepository.findAll()) {
+            byName.put(key(g.toString()), g);
+            ids.computeIfAbsent(key(g.toString()), k -> ids.size());
+        }
+
+        List<Genre> byId = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) byId.add(null);
+        Map<String, Integer> idByName = new HashMap<>();
+        for (Map.Entry<String, Genre> e : byName.entrySet()) {
+            int id = ids.get(e.getKey());
+            byId.set(id, e.getValue());
+            idByName.put(e.getKey(), id);
+        }
+        return new Snapshot(Map.copyOf(byName), Map.copyOf(idByName), byId.toArray(new Genre[0]));
+    }
+
+    private record Snapshot(Map<String, Genre> byName, Map<String, Integer> idByName, Genre[] byId) {}
+}
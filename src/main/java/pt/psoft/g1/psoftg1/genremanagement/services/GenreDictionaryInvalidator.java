@@ -0,0 +1,27 @@
+package pt.psoft.g1.psoftg1.genremanagement.services;
+
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Invalidates the {@link GenreDictionary} after any {@code GenreRepository.save} or {@code delete},
+ * whichever service or bootstrapper made the call.
+ */
+@Aspect
+@Component
+public class GenreDictionaryInvalidator {
+
+    private final ObjectProvider<GenreDictionary> dictionary;
+
+    public GenreDictionaryInvalidator(ObjectProvider<GenreDictionary> dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @AfterReturning("execution(* pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository+.save(..))"
+            + " || execution(* pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository+.delete(..))")
+    public void genresChanged() {
+        dictionary.ifAvailable(GenreDictionary::invalidate);
+    }
+}
@@ -0,0 +1,36 @@
+package pt.psoft.g1.psoftg1.genremanagement.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreMonthlyStatsRepository;
+
+/**
+ * Backfill of the monthly genre rollup from the lending history.
+ * <p>
+ * Runs at startup, after the bootstrappers, when the rollup is empty or when {@code genreStats.rebuild=true}.
+ */
+@Component
+@Order(6)
+@PropertySource({"classpath:config/library.properties"})
+public class GenreMonthlyStatsRebuilder implements ApplicationRunner {
+
+    private final GenreMonthlyStatsRepository statsRepository;
+    private final boolean force;
+
+    public GenreMonthlyStatsRebuilder(GenreMonthlyStatsRepository statsRepository,
+                                      @Value("${genreStats.rebuild:false}") boolean force) {
+        this.statsRepository = statsRepository;
+        this.force = force;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (force || statsRepository.isEmpty()) {
+            statsRepository.rebuildFromLendings();
+        }
+    }
+}
@@ -7,14 +7,18 @@ import org.springframework.stereotype.Service;
 import pt.psoft.g1.psoftg1.bookmanagement.services.GenreBookCountDTO;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreMonthlyStats;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreMonthlyStatsRepository;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeParseException;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
 
 @Service
 @RequiredArgsConstructor
@@ -22,6 +26,8 @@ public class GenreServiceImpl implements GenreService {
 
     private final GenreRepository genreRepository;
     private final IdGenerator idGenerator;
+    private final GenreMonthlyStatsRepository monthlyStatsRepository;
+    private final GenreDictionary genreDictionary;
 
 
     @Override
@@ -56,7 +62,9 @@ public class GenreServiceImpl implements GenreService {
 
     @Override
     public List<GenreLendingsPerMonthDTO> getLendingsPerMonthLastYearByGenre() {
-        return genreRepository.getLendingsPerMonthLastYearByGenre();
+        final YearMonth now = YearMonth.now();
+        return perMonth(now.minusMonths(12), now, s -> s.getLendingCount() > 0,
+                (genre, s) -> new GenreLendingsDTO(genre, s.getLendingCount()));
     }
 
     @Override
@@ -64,9 +72,20 @@ public class GenreServiceImpl implements GenreService {
         if (page == null)
             page = new Page(1, 10);
 
-        final var month = LocalDate.of(query.getYear(), query.getMonth(), 1);
+        final var month = YearMonth.of(query.getYear(), query.getMonth());
+        final int days = month.lengthOfMonth();
+        final int period = GenreMonthlyStats.periodOf(month);
+        final Map<String, String> names = genreNames();
 
-        return genreRepository.getAverageLendingsInMonth(month, page);
+        final List<GenreLendingsDTO> all = monthlyStatsRepository.findByPeriodBetween(period, period).stream()
+                .filter(s -> s.getLendingCount() > 0 && names.containsKey(s.getGenreId()))
+                .map(s -> new GenreLendingsDTO(names.get(s.getGenreId()), (double) s.getLendingCount() / days))
+                .sorted(Comparator.comparing(GenreLendingsDTO::getGenre))
+                .toList();
+
+        final int from = Math.max(0, (page.getNumber() - 1) * page.getLimit());
+        final int to = Math.min(all.size(), from + page.getLimit());
+        return from >= to ? List.of() : all.subList(from, to);
     }
 
     @Override
@@ -84,11 +103,42 @@ public class GenreServiceImpl implements GenreService {
         if(startDate.isAfter(endDate))
             throw new IllegalArgumentException("Start date cannot be after end date");
 
-        final var list = genreRepository.getLendingsAverageDurationPerMonth(startDate, endDate);
+        final var list = perMonth(YearMonth.from(startDate), YearMonth.from(endDate), s -> s.getReturnedCount() > 0,
+                (genre, s) -> new GenreLendingsDTO(genre, s.averageDuration()));
 
         if (list.isEmpty())
             throw new NotFoundException("No objects match the provided criteria");
 
         return list;
     }
+
+    /**
+     * Rollup rows of the months from {@code from} to {@code to} that pass {@code include}, grouped by month in
+     * calendar order and by genre name within a month.
+     */
+    private List<GenreLendingsPerMonthDTO> perMonth(YearMonth from, YearMonth to, Predicate<GenreMonthlyStats> include,
+                                                    BiFunction<String, GenreMonthlyStats, GenreLendingsDTO> value) {
+        final Map<String, String> names = genreNames();
+        final SortedMap<Integer, List<GenreLendingsDTO>> byPeriod = new TreeMap<>();
+        for (GenreMonthlyStats s : monthlyStatsRepository.findByPeriodBetween(
+                GenreMonthlyStats.periodOf(from), GenreMonthlyStats.periodOf(to))) {
+            final String genre = names.get(s.getGenreId());
+            if (genre != null && include.test(s)) {
+                byPeriod.computeIfAbsent(s.getPeriod(), k -> new ArrayList<>()).add(value.apply(genre, s));
+            }
+        }
+
+        final List<GenreLendingsPerMonthDTO> out = new ArrayList<>(byPeriod.size());
+        byPeriod.forEach((period, values) -> {
+            values.sort(Comparator.comparing(GenreLendingsDTO::getGenre));
+            out.add(new GenreLendingsPerMonthDTO(period / 100, period % 100, values));
+        });
+        return out;
+    }
+
+    private Map<String, String> genreNames() {
+        final Map<String, String> names = new HashMap<>();
+        genreDictionary.all().forEach(g -> names.put(g.getPk(), g.getGenre()));
+        return names;
+    }
 }
@@ -1,11 +1,14 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.security.PermitAll;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -14,6 +17,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
@@ -27,11 +31,14 @@ import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
 import pt.psoft.g1.psoftg1.usermanagement.model.Librarian;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 import pt.psoft.g1.psoftg1.usermanagement.services.UserService;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Objects;
 
@@ -46,6 +53,7 @@ public class LendingController {
     private final ConcurrencyService concurrencyService;
 
     private final LendingViewMapper lendingViewMapper;
+    private final ObjectMapper objectMapper;
 
     @Operation(summary = "Creates a new Lending")
     @PostMapping
@@ -159,7 +167,37 @@ public class LendingController {
     public ListResponse<LendingView> searchReaders(
             @RequestBody final SearchRequest<SearchLendingQuery> request) {
         final var readerList = lendingService.searchLendings(request.getPage(), request.getQuery());
-        return new ListResponse<>(lendingViewMapper.toLendingView(readerList));
+        return new ListResponse<>(lendingViewMapper.toLendingView(readerList),
+                PageCursor.next(request.getPage(), readerList, l -> new String[]{l.getLendingNumber()}));
+    }
+
+    @Operation(summary = "Exports the lendings matching the search filters as NDJSON or CSV")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(value = "format", defaultValue = "ndjson")
+                @Parameter(description = "ndjson or csv")
+                final String format,
+            @ParameterObject final SearchLendingQuery query) {
+        final var exportFormat = LendingExportFormat.fromParam(format);
+
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            exportFormat.writeHeader(writer);
+            lendingService.exportLendings(query, row -> {
+                try {
+                    exportFormat.writeRow(writer, row, objectMapper);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"lendings." + exportFormat.getExtension() + "\"")
+                .body(body);
     }
 
 /*    @Operation(summary = "Get list monthly average lendings per reader")
@@ -0,0 +1,86 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingExportRow;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Output formats of the lending export. Each row is written on its own line as soon as it is read.
+ */
+public enum LendingExportFormat {
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson") {
+        @Override
+        public void writeHeader(Writer out) {
+        }
+
+        @Override
+        public void writeRow(Writer out, LendingExportRow row, ObjectMapper objectMapper) throws IOException {
+            out.write(objectMapper.writeValueAsString(row));
+            out.write('\n');
+        }
+    },
+    CSV(MediaType.parseMediaType("text/csv"), "csv") {
+        @Override
+        public void writeHeader(Writer out) throws IOException {
+            out.write("lendingNumber,isbn,readerNumber,startDate,limitDate,returnedDate,fineValuePerDayInCents\n");
+        }
+
+        @Override
+        public void writeRow(Writer out, LendingExportRow row, ObjectMapper objectMapper) throws IOException {
+            out.write(String.join(",",
+                    csv(row.lendingNumber()),
+                    csv(row.isbn()),
+                    csv(row.readerNumber()),
+                    csv(row.startDate()),
+                    csv(row.limitDate()),
+                    csv(row.returnedDate()),
+                    Integer.toString(row.fineValuePerDayInCents())));
+            out.write('\n');
+        }
+    };
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    LendingExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public abstract void writeHeader(Writer out) throws IOException;
+
+    public abstract void writeRow(Writer out, LendingExportRow row, ObjectMapper objectMapper) throws IOException;
+
+    public static LendingExportFormat fromParam(String format) {
+        try {
+            return valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Export format must be ndjson or csv");
+        }
+    }
+
+    private static String csv(LocalDate date) {
+        return date == null ? "" : date.toString();
+    }
+
+    private static String csv(String value) {
+        if (value == null)
+            return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+            return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,115 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardBucket;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardEntry;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardKind;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LeaderboardRepository;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl.CounterRows;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+
+public interface SpringDataLeaderboardRepository extends LeaderboardRepository, LeaderboardRepoCustom, CrudRepository<LeaderboardBucket, String> {
+
+    @Override
+    default boolean isEmpty() {
+        return count() == 0;
+    }
+
+    @Override
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM LeaderboardBucket b WHERE b.day < :day")
+    void pruneBefore(@Param("day") LocalDate day);
+}
+
+interface LeaderboardRepoCustom {
+    void recordLending(LocalDate day, String isbn, Collection<String> authorNumbers, String readerNumber);
+    List<LeaderboardEntry> top(LeaderboardKind kind, LocalDate since, int limit);
+    long rebuildFromLendings(LocalDate since);
+}
+
+class LeaderboardRepoCustomImpl implements LeaderboardRepoCustom {
+
+    private static final String COUNT_SINCE = "FROM Lending l %s WHERE l.startDate >= :since GROUP BY l.startDate, %s";
+
+    private final EntityManager em;
+    private final CounterRows counterRows;
+
+    LeaderboardRepoCustomImpl(EntityManager em, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.counterRows = new CounterRows(em, transactionManager);
+    }
+
+    /**
+     * Joins the transaction that creates the lending. Missing buckets are created through {@link CounterRows} and
+     * existing ones are updated in id order, so concurrent lendings sharing a book, author or reader lock them in
+     * the same order.
+     */
+    @Override
+    @Transactional
+    public void recordLending(LocalDate day, String isbn, Collection<String> authorNumbers, String readerNumber) {
+        TreeMap<String, LeaderboardBucket> buckets = new TreeMap<>();
+        put(buckets, LeaderboardKind.BOOK, day, isbn);
+        authorNumbers.forEach(a -> put(buckets, LeaderboardKind.AUTHOR, day, a));
+        put(buckets, LeaderboardKind.READER, day, readerNumber);
+
+        for (LeaderboardBucket empty : buckets.values()) {
+            counterRows.update(LeaderboardBucket.class, empty.getId(), () -> empty,
+                    em.createQuery("UPDATE LeaderboardBucket b SET b.count = b.count + 1 WHERE b.id = :id")
+                            .setParameter("id", empty.getId()));
+        }
+    }
+
+    private static void put(TreeMap<String, LeaderboardBucket> buckets, LeaderboardKind kind, LocalDate day, String member) {
+        LeaderboardBucket bucket = new LeaderboardBucket(kind, day, member, 0);
+        buckets.put(bucket.getId(), bucket);
+    }
+
+    @Override
+    public List<LeaderboardEntry> top(LeaderboardKind kind, LocalDate since, int limit) {
+        return em.createQuery(
+                        "SELECT new pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardEntry(b.member, SUM(b.count)) " +
+                        "FROM LeaderboardBucket b " +
+                        "WHERE b.kind = :kind AND b.day >= :since " +
+                        "GROUP BY b.member " +
+                        "ORDER BY SUM(b.count) DESC, b.member", LeaderboardEntry.class)
+                .setParameter("kind", kind)
+                .setParameter("since", since)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    public long rebuildFromLendings(LocalDate since) {
+        em.createQuery("DELETE FROM LeaderboardBucket").executeUpdate();
+        rebuild(LeaderboardKind.AUTHOR, "JOIN l.book.authors a", "a.authorNumber", since);
+        rebuild(LeaderboardKind.READER, "", "l.readerDetails.readerNumber.readerNumber", since);
+        return rebuild(LeaderboardKind.BOOK, "", "l.book.isbn.isbn", since);
+    }
+
+    private long rebuild(LeaderboardKind kind, String join, String member, LocalDate since) {
+        List<Tuple> rows = em.createQuery(
+                        "SELECT l.startDate, " + member + ", COUNT(l) " + COUNT_SINCE.formatted(join, member), Tuple.class)
+                .setParameter("since", since)
+                .getResultList();
+        long lendings = 0;
+        for (Tuple row : rows) {
+            long count = row.get(2, Long.class);
+            em.persist(new LeaderboardBucket(kind, row.get(0, LocalDate.class), row.get(1, String.class), count));
+            lendings += count;
+        }
+        return lendings;
+    }
+}
@@ -0,0 +1,81 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationStatsRepository;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl.CounterRows;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface SpringDataLendingDurationStatsRepository extends LendingDurationStatsRepository, LendingDurationStatsRepoCustom, CrudRepository<LendingDurationStats, String> {
+
+    @Override
+    Optional<LendingDurationStats> findByKey(String key);
+}
+
+interface LendingDurationStatsRepoCustom {
+    void recordReturn(String isbn, long durationDays);
+    long rebuildFromLendings();
+}
+
+class LendingDurationStatsRepoCustomImpl implements LendingDurationStatsRepoCustom {
+
+    private final EntityManager em;
+    private final CounterRows counterRows;
+
+    LendingDurationStatsRepoCustomImpl(EntityManager em, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.counterRows = new CounterRows(em, transactionManager);
+    }
+
+    /**
+     * Joins the transaction that marks the lending returned, so the totals and the lending commit together.
+     * Rows are always updated overall-first, so concurrent returns lock them in the same order.
+     */
+    @Override
+    @Transactional
+    public void recordReturn(String isbn, long durationDays) {
+        increment(LendingDurationStats.ALL, durationDays);
+        increment(isbn, durationDays);
+    }
+
+    private void increment(String key, long durationDays) {
+        counterRows.update(LendingDurationStats.class, key, () -> new LendingDurationStats(key, 0, 0),
+                em.createQuery("UPDATE LendingDurationStats s " +
+                                "SET s.totalDays = s.totalDays + :days, s.count = s.count + 1 WHERE s.key = :key")
+                        .setParameter("days", durationDays)
+                        .setParameter("key", key));
+    }
+
+    @Override
+    @Transactional
+    public long rebuildFromLendings() {
+        LendingDurationStats all = new LendingDurationStats(LendingDurationStats.ALL, 0, 0);
+        Map<String, LendingDurationStats> byIsbn = new HashMap<>();
+
+        try (Stream<Tuple> rows = em.createQuery(
+                "SELECT l.book.isbn.isbn AS isbn, l.startDate AS startDate, l.returnedDate AS returnedDate " +
+                "FROM Lending l WHERE l.returnedDate IS NOT NULL", Tuple.class).getResultStream()) {
+            rows.forEach(t -> {
+                long days = ChronoUnit.DAYS.between(
+                        t.get("startDate", LocalDate.class), t.get("returnedDate", LocalDate.class));
+                all.record(days);
+                byIsbn.computeIfAbsent(t.get("isbn", String.class), k -> new LendingDurationStats(k, 0, 0)).record(days);
+            });
+        }
+
+        em.createQuery("DELETE FROM LendingDurationStats").executeUpdate();
+        em.persist(all);
+        byIsbn.values().forEach(em::persist);
+        return all.getCount();
+    }
+}
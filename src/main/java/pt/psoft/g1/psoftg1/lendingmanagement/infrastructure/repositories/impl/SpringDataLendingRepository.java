@@ -5,6 +5,7 @@ import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -14,15 +15,18 @@ import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsDTO;
 import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsPerMonthDTO;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingExportRow;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderAverageDto;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderLendingsAvgPerMonthDto;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Stream;
 
 public interface SpringDataLendingRepository extends LendingRepository, LendingRepoCustom, CrudRepository<Lending, Long> {
     @Override
@@ -86,6 +90,7 @@ public interface SpringDataLendingRepository extends LendingRepository, LendingR
 interface LendingRepoCustom {
     List<Lending> getOverdue(Page page);
     List<Lending> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
+    Stream<LendingExportRow> streamForExport(String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
 //    List<ReaderAverageDto> getAverageMonthlyPerReader(LocalDate startDate, LocalDate endDate);
 
 }
@@ -96,6 +101,8 @@ class LendingRepoCustomImpl implements LendingRepoCustom {
     // injection
     private final EntityManager em;
 
+    static final int EXPORT_FETCH_SIZE = 1000;
+
     @Override
     public List<Lending> getOverdue(Page page)
     {
@@ -129,6 +136,59 @@ class LendingRepoCustomImpl implements LendingRepoCustom {
         final Join<Lending, ReaderDetails> readerDetailsJoin = lendingRoot.join("readerDetails");
         cq.select(lendingRoot);
 
+        final List<Predicate> where = searchFilters(cb, lendingRoot, bookJoin, readerDetailsJoin,
+                readerNumber, isbn, returned, startDate, endDate);
+
+        final Path<String> lendingNumber = lendingRoot.get("lendingNumber").get("lendingNumber");
+        if (PageCursor.isKeyset(page))
+            where.add(cb.greaterThan(lendingNumber, PageCursor.decode(page.getCursor(), 1)[0]));
+
+        cq.where(where.toArray(new Predicate[0]));
+        cq.orderBy(cb.asc(lendingNumber));
+
+        final TypedQuery<Lending> q = em.createQuery(cq);
+        if (!PageCursor.isKeyset(page))
+            q.setFirstResult((page.getNumber() - 1) * page.getLimit());
+        q.setMaxResults(page.getLimit());
+
+        return q.getResultList();
+    }
+
+    /**
+     * Selects only the exported columns, so no entity enters the persistence context, and lets the driver fetch
+     * {@link #EXPORT_FETCH_SIZE} rows per round trip.
+     */
+    @Override
+    public Stream<LendingExportRow> streamForExport(String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<LendingExportRow> cq = cb.createQuery(LendingExportRow.class);
+        final Root<Lending> lendingRoot = cq.from(Lending.class);
+        final Join<Lending, Book> bookJoin = lendingRoot.join("book");
+        final Join<Lending, ReaderDetails> readerDetailsJoin = lendingRoot.join("readerDetails");
+        final Path<String> lendingNumber = lendingRoot.get("lendingNumber").get("lendingNumber");
+        cq.select(cb.construct(LendingExportRow.class,
+                lendingNumber,
+                bookJoin.get("isbn").get("isbn"),
+                readerDetailsJoin.get("readerNumber").get("readerNumber"),
+                lendingRoot.get("startDate"),
+                lendingRoot.get("limitDate"),
+                lendingRoot.get("returnedDate"),
+                lendingRoot.get("fineValuePerDayInCents")));
+
+        cq.where(searchFilters(cb, lendingRoot, bookJoin, readerDetailsJoin,
+                readerNumber, isbn, returned, startDate, endDate).toArray(new Predicate[0]));
+        cq.orderBy(cb.asc(lendingNumber));
+
+        return em.createQuery(cq)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private static List<Predicate> searchFilters(CriteriaBuilder cb, Root<Lending> lendingRoot,
+                                                 Join<Lending, Book> bookJoin, Join<Lending, ReaderDetails> readerDetailsJoin,
+                                                 String readerNumber, String isbn, Boolean returned,
+                                                 LocalDate startDate, LocalDate endDate) {
         final List<Predicate> where = new ArrayList<>();
 
         if (StringUtils.hasText(readerNumber))
@@ -146,15 +206,7 @@ class LendingRepoCustomImpl implements LendingRepoCustom {
             where.add(cb.greaterThanOrEqualTo(lendingRoot.get("startDate"), startDate));
         if(endDate!=null)
             where.add(cb.lessThanOrEqualTo(lendingRoot.get("startDate"), endDate));
-
-        cq.where(where.toArray(new Predicate[0]));
-        cq.orderBy(cb.asc(lendingRoot.get("lendingNumber")));
-
-        final TypedQuery<Lending> q = em.createQuery(cq);
-        q.setFirstResult((page.getNumber() - 1) * page.getLimit());
-        q.setMaxResults(page.getLimit());
-
-        return q.getResultList();
+        return where;
     }
 
 /*
@@ -0,0 +1,26 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.mongo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+
+@Document("leaderboardBuckets")
+@CompoundIndex(name = "kind_day", def = "{'kind': 1, 'day': 1}")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardBucketDoc {
+  @Id
+  private String id;
+  private String kind;
+  private LocalDate day;
+  private String member;
+  private long count;
+}
@@ -0,0 +1,119 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.mongo;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardBucket;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardEntry;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardKind;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LeaderboardRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+@Repository
+@Profile("mongo")
+@RequiredArgsConstructor
+public class LeaderboardMongoRepository implements LeaderboardRepository {
+
+  private final MongoTemplate mongo;
+
+  /**
+   * Every bucket is bumped with an upserting {@code $inc} in one round trip; each update is atomic on its own
+   * document, so concurrent lendings never lose a count.
+   */
+  @Override
+  public void recordLending(LocalDate day, String isbn, Collection<String> authorNumbers, String readerNumber) {
+    BulkOperations ops = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, LeaderboardBucketDoc.class);
+    increment(ops, LeaderboardKind.BOOK, day, isbn);
+    authorNumbers.forEach(a -> increment(ops, LeaderboardKind.AUTHOR, day, a));
+    increment(ops, LeaderboardKind.READER, day, readerNumber);
+    ops.execute();
+  }
+
+  private static void increment(BulkOperations ops, LeaderboardKind kind, LocalDate day, String member) {
+    Update update = new Update()
+        .inc("count", 1)
+        .setOnInsert("kind", kind.name())
+        .setOnInsert("day", day)
+        .setOnInsert("member", member);
+    ops.upsert(Query.query(Criteria.where("_id").is(LeaderboardBucket.idOf(kind, day, member))), update);
+  }
+
+  @Override
+  public List<LeaderboardEntry> top(LeaderboardKind kind, LocalDate since, int limit) {
+    Aggregation agg = newAggregation(
+        match(Criteria.where("kind").is(kind.name()).and("day").gte(since)),
+        group("member").sum("count").as("count"),
+        sort(Sort.by(Sort.Direction.DESC, "count").and(Sort.by("_id"))),
+        limit(limit)
+    );
+    record MemberCount(String id, long count) {}
+    return mongo.aggregate(agg, LeaderboardBucketDoc.class, MemberCount.class).getMappedResults().stream()
+        .map(r -> new LeaderboardEntry(r.id(), r.count()))
+        .toList();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return !mongo.exists(new Query(), LeaderboardBucketDoc.class);
+  }
+
+  @Override
+  public long rebuildFromLendings(LocalDate since) {
+    List<LeaderboardBucketDoc> docs = new ArrayList<>();
+    long lendings = countSince(LeaderboardKind.BOOK, since, docs, group("startDate", "bookIsbn").count().as("count"));
+    countSince(LeaderboardKind.READER, since, docs, group("startDate", "readerNumber").count().as("count"));
+    countSince(LeaderboardKind.AUTHOR, since, docs,
+        unwind("bookAuthorIds"),
+        group(fields("startDate").and("member", "bookAuthorIds")).count().as("count"));
+
+    mongo.remove(new Query(), LeaderboardBucketDoc.class);
+    if (!docs.isEmpty()) {
+      mongo.insert(docs, LeaderboardBucketDoc.class);
+    }
+    return lendings;
+  }
+
+  private long countSince(LeaderboardKind kind, LocalDate since, List<LeaderboardBucketDoc> out,
+                          AggregationOperation... stages) {
+    List<AggregationOperation> ops = new ArrayList<>();
+    ops.add(match(Criteria.where("startDate").gte(since)));
+    ops.addAll(List.of(stages));
+    ops.add(project("count").and("startDate").as("day").and(memberField(kind)).as("member"));
+
+    record DayCount(LocalDate day, String member, long count) {}
+    long lendings = 0;
+    for (DayCount r : mongo.aggregate(newAggregation(ops), "lendings", DayCount.class).getMappedResults()) {
+      out.add(new LeaderboardBucketDoc(LeaderboardBucket.idOf(kind, r.day(), r.member()), kind.name(), r.day(),
+          r.member(), r.count()));
+      lendings += r.count();
+    }
+    return lendings;
+  }
+
+  private static String memberField(LeaderboardKind kind) {
+    return switch (kind) {
+      case BOOK -> "bookIsbn";
+      case READER -> "readerNumber";
+      case AUTHOR -> "member";
+    };
+  }
+
+  @Override
+  public void pruneBefore(LocalDate day) {
+    mongo.remove(Query.query(Criteria.where("day").lt(day)), LeaderboardBucketDoc.class);
+  }
+}
@@ -2,10 +2,14 @@ package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.mongo;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @Getter
 @Setter
@@ -13,11 +17,24 @@ import java.time.LocalDate;
 @AllArgsConstructor
 @Builder
 @Document(collection = "lendings")
+@CompoundIndexes({
+    // listOutstandingByReaderNumber
+    @CompoundIndex(name = "reader_returned", def = "{'readerNumber': 1, 'returnedDate': 1}"),
+    // listByReaderNumberAndIsbn, searchLendings by reader
+    @CompoundIndex(name = "reader_book", def = "{'readerNumber': 1, 'bookIsbn': 1}"),
+    // getOverdue, getAverageDuration, searchLendings by returned
+    @CompoundIndex(name = "returned_limit", def = "{'returnedDate': 1, 'limitDate': 1}"),
+    // getAvgLendingDurationByIsbn, searchLendings by ISBN and dates
+    @CompoundIndex(name = "book_start", def = "{'bookIsbn': 1, 'startDate': 1}"),
+    // top readers per genre
+    @CompoundIndex(name = "genre_start", def = "{'bookGenre': 1, 'startDate': 1}")
+})
 public class LendingDoc {
 
   @Id
   private String id;
 
+  @Indexed(unique = true)
   @Field("lendingNumber")
   private String lendingNumber;
 
@@ -27,9 +44,19 @@ public class LendingDoc {
   @Field("readerNumber")
   private String readerNumber;
 
+  /** Every analytics pipeline starts with a range on this field. */
+  @Indexed
   private LocalDate startDate;
   private LocalDate limitDate;
   private LocalDate returnedDate;
 
   private int fineValuePerDayInCents;
+
+  /** Genre name of the book when it was lent, so genre analytics need no join with {@code books}. */
+  @Field("bookGenre")
+  private String bookGenre;
+
+  /** Author numbers of the book when it was lent, so author analytics need no join with {@code books}. */
+  @Field("bookAuthorIds")
+  private List<String> bookAuthorIds;
 }
@@ -0,0 +1,90 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.mongo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.mongo.BookDoc;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copies the book's genre and author ids onto lendings written before {@link LendingDoc} carried them.
+ * <p>
+ * Runs at startup, after the bootstrappers and before the analytics rebuilders read those fields. Lendings are
+ * walked in {@code _id} order, one batch at a time, and only those still missing {@code bookGenre} are selected,
+ * so a run that is interrupted picks up where it stopped. Lendings whose book no longer exists are left as they
+ * are and skipped.
+ */
+@Component
+@Profile("mongo")
+@Order(3)
+@PropertySource({"classpath:config/library.properties"})
+public class LendingDocBackfill implements ApplicationRunner {
+
+  private final MongoTemplate mongo;
+  private final int batchSize;
+
+  public LendingDocBackfill(MongoTemplate mongo, @Value("${lendingBackfill.batchSize:1000}") int batchSize) {
+    this.mongo = mongo;
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    backfill();
+  }
+
+  /** Returns the number of lendings updated. */
+  public long backfill() {
+    long updated = 0;
+    String lastId = null;
+    List<LendingDoc> batch;
+    do {
+      Criteria missing = Criteria.where("bookGenre").exists(false);
+      if (lastId != null) missing = missing.and("_id").gt(lastId);
+      Query q = Query.query(missing).with(Sort.by("_id")).limit(batchSize);
+      q.fields().include("_id", "bookIsbn");
+      batch = mongo.find(q, LendingDoc.class);
+      if (batch.isEmpty()) break;
+
+      updated += apply(batch);
+      lastId = batch.get(batch.size() - 1).getId();
+    } while (batch.size() == batchSize);
+    return updated;
+  }
+
+  private int apply(List<LendingDoc> batch) {
+    Set<String> isbns = new HashSet<>();
+    batch.forEach(d -> isbns.add(d.getBookIsbn()));
+    Query booksQuery = Query.query(Criteria.where("isbn").in(isbns));
+    booksQuery.fields().include("isbn", "genre", "authorIds");
+    Map<String, BookDoc> books = new HashMap<>();
+    mongo.find(booksQuery, BookDoc.class).forEach(b -> books.put(b.getIsbn(), b));
+
+    BulkOperations ops = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, LendingDoc.class);
+    int count = 0;
+    for (LendingDoc d : batch) {
+      BookDoc book = books.get(d.getBookIsbn());
+      if (book == null) continue;
+      ops.updateOne(Query.query(Criteria.where("_id").is(d.getId())),
+          new Update().set("bookGenre", book.getGenre()).set("bookAuthorIds", book.getAuthorIds()));
+      count++;
+    }
+    if (count > 0) ops.execute();
+    return count;
+  }
+}
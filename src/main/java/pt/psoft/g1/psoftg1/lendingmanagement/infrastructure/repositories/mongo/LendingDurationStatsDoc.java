@@ -0,0 +1,20 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.mongo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Document("lendingDurationStats")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LendingDurationStatsDoc {
+  @Id
+  private String id;
+  private long totalDays;
+  private long count;
+}
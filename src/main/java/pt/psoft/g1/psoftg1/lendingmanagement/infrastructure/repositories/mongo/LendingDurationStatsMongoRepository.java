@@ -0,0 +1,71 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.mongo;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationStatsRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+@Repository
+@Profile("mongo")
+@RequiredArgsConstructor
+public class LendingDurationStatsMongoRepository implements LendingDurationStatsRepository {
+
+  private final MongoTemplate mongo;
+
+  @Override
+  public Optional<LendingDurationStats> findByKey(String key) {
+    return Optional.ofNullable(mongo.findById(key, LendingDurationStatsDoc.class))
+        .map(d -> new LendingDurationStats(d.getId(), d.getTotalDays(), d.getCount()));
+  }
+
+  /**
+   * Both totals are bumped with an upserting {@code $inc} in one round trip; each update is atomic on its own
+   * document, so concurrent returns never lose a count.
+   */
+  @Override
+  public void recordReturn(String isbn, long durationDays) {
+    Update inc = new Update().inc("totalDays", durationDays).inc("count", 1);
+    mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, LendingDurationStatsDoc.class)
+        .upsert(Query.query(Criteria.where("_id").is(LendingDurationStats.ALL)), inc)
+        .upsert(Query.query(Criteria.where("_id").is(isbn)), inc)
+        .execute();
+  }
+
+  @Override
+  public long rebuildFromLendings() {
+    Aggregation agg = newAggregation(
+        match(Criteria.where("returnedDate").ne(null)),
+        project("bookIsbn").andExpression("{$dateDiff: {startDate: '$startDate', endDate: '$returnedDate', unit: 'day'}}")
+            .as("duration"),
+        group("bookIsbn").sum("duration").as("totalDays").count().as("count")
+    );
+    List<LendingDurationStatsDoc> perIsbn =
+        mongo.aggregate(agg, "lendings", LendingDurationStatsDoc.class).getMappedResults();
+
+    List<LendingDurationStatsDoc> docs = new ArrayList<>(perIsbn.size() + 1);
+    LendingDurationStatsDoc all = new LendingDurationStatsDoc(LendingDurationStats.ALL, 0, 0);
+    for (LendingDurationStatsDoc d : perIsbn) {
+      all.setTotalDays(all.getTotalDays() + d.getTotalDays());
+      all.setCount(all.getCount() + d.getCount());
+      docs.add(d);
+    }
+    docs.add(all);
+
+    mongo.remove(new Query(), LendingDurationStatsDoc.class);
+    mongo.insert(docs, LendingDurationStatsDoc.class);
+    return all.getCount();
+  }
+}
@@ -1,5 +1,6 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.mongo;
 
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 
 public class LendingMongoMapper {
@@ -16,6 +17,8 @@ public class LendingMongoMapper {
         .limitDate(lending.getLimitDate())
         .returnedDate(lending.getReturnedDate())
         .fineValuePerDayInCents(lending.getFineValuePerDayInCents())
+        .bookGenre(lending.getBook().getGenre().toString())
+        .bookAuthorIds(lending.getBook().getAuthors().stream().map(Author::getId).toList())
         .build();
   }
 }
@@ -4,23 +4,27 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.*;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingExportRow;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
 
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.stream.Stream;
 
 import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
 
@@ -34,6 +38,8 @@ public class LendingMongoRepository implements LendingRepository {
   private final BookRepository bookRepository;
   private final ReaderRepository readerRepository;
 
+  static final int EXPORT_BATCH_SIZE = 1000;
+
   @Override
   public Optional<Lending> findByLendingNumber(String lendingNumber) {
     return repo.findByLendingNumber(lendingNumber).map(this::toDomain);
@@ -41,9 +47,7 @@ public class LendingMongoRepository implements LendingRepository {
 
   @Override
   public List<Lending> listByReaderNumberAndIsbn(String readerNumber, String isbn) {
-    return repo.findByReaderNumberAndBookIsbn(readerNumber, isbn).stream()
-        .map(this::toDomain)
-        .toList();
+    return mapAll(repo.findByReaderNumberAndBookIsbn(readerNumber, isbn));
   }
 
   @Override
@@ -58,9 +62,7 @@ public class LendingMongoRepository implements LendingRepository {
 
   @Override
   public List<Lending> listOutstandingByReaderNumber(String readerNumber) {
-    return repo.findByReaderNumberAndReturnedDateIsNull(readerNumber).stream()
-        .map(this::toDomain)
-        .toList();
+    return mapAll(repo.findByReaderNumberAndReturnedDateIsNull(readerNumber));
   }
 
   @Override public Double getAverageDuration() {
@@ -97,7 +99,7 @@ public class LendingMongoRepository implements LendingRepository {
     );
     q.with(toPageable(page));
     List<LendingDoc> docs = mongoTemplate.find(q, LendingDoc.class, "lendings");
-    return docs.stream().map(this::toDomain).toList();
+    return mapAll(docs);
   }
 
   @Override
@@ -107,6 +109,44 @@ public class LendingMongoRepository implements LendingRepository {
       Boolean returned,
       LocalDate startDate,
       LocalDate endDate) {
+    Query q = searchQuery(readerNumber, isbn, returned, startDate, endDate);
+
+    if (PageCursor.isKeyset(page)) {
+      q.addCriteria(Criteria.where("lendingNumber").gt(PageCursor.decode(page.getCursor(), 1)[0]));
+      q.limit(Math.max(1, page.getLimit()));
+    } else {
+      q.with(toPageable(page));
+    }
+    q.with(Sort.by(Sort.Direction.ASC, "lendingNumber"));
+    List<LendingDoc> docs = mongoTemplate.find(q, LendingDoc.class, "lendings");
+    return mapAll(docs);
+  }
+
+  /**
+   * Reads through a server cursor {@link #EXPORT_BATCH_SIZE} documents at a time and maps each one straight to a
+   * row, without loading the lending's book and reader.
+   */
+  @Override
+  public Stream<LendingExportRow> streamForExport(String readerNumber,
+      String isbn,
+      Boolean returned,
+      LocalDate startDate,
+      LocalDate endDate) {
+    Query q = searchQuery(readerNumber, isbn, returned, startDate, endDate);
+    q.fields().include("lendingNumber", "bookIsbn", "readerNumber", "startDate", "limitDate", "returnedDate",
+        "fineValuePerDayInCents");
+    q.with(Sort.by(Sort.Direction.ASC, "lendingNumber"));
+    q.cursorBatchSize(EXPORT_BATCH_SIZE);
+    return mongoTemplate.stream(q, LendingDoc.class, "lendings")
+        .map(d -> new LendingExportRow(d.getLendingNumber(), d.getBookIsbn(), d.getReaderNumber(),
+            d.getStartDate(), d.getLimitDate(), d.getReturnedDate(), d.getFineValuePerDayInCents()));
+  }
+
+  private static Query searchQuery(String readerNumber,
+      String isbn,
+      Boolean returned,
+      LocalDate startDate,
+      LocalDate endDate) {
     Query q = new Query();
 
     if (readerNumber != null && !readerNumber.isBlank()) {
@@ -128,16 +168,28 @@ public class LendingMongoRepository implements LendingRepository {
     if (endDate != null) {
       q.addCriteria(Criteria.where("startDate").lte(endDate));
     }
-
-    q.with(toPageable(page));
-    List<LendingDoc> docs = mongoTemplate.find(q, LendingDoc.class, "lendings");
-    return docs.stream().map(this::toDomain).toList();
+    return q;
   }
 
 
+  /**
+   * Upserts by lending number. What a lending was at checkout (book, reader, start date and the book's genre and
+   * authors) is only written on insert, so later saves never rewrite the denormalized book fields.
+   */
   @Override
   public Lending save(Lending lending) {
-    repo.save(LendingMongoMapper.toDoc(lending));
+    LendingDoc d = LendingMongoMapper.toDoc(lending);
+    Update update = new Update()
+        .set("limitDate", d.getLimitDate())
+        .set("returnedDate", d.getReturnedDate())
+        .set("fineValuePerDayInCents", d.getFineValuePerDayInCents())
+        .setOnInsert("bookIsbn", d.getBookIsbn())
+        .setOnInsert("readerNumber", d.getReaderNumber())
+        .setOnInsert("startDate", d.getStartDate())
+        .setOnInsert("bookGenre", d.getBookGenre())
+        .setOnInsert("bookAuthorIds", d.getBookAuthorIds());
+    if (d.getId() != null) update.setOnInsert("_id", d.getId());
+    mongoTemplate.upsert(Query.query(Criteria.where("lendingNumber").is(d.getLendingNumber())), update, LendingDoc.class);
     return lending;
   }
 
@@ -165,7 +217,39 @@ public class LendingMongoRepository implements LendingRepository {
         .orElseThrow(() -> new IllegalArgumentException("Book not found for ISBN " + doc.getBookIsbn()));
     ReaderDetails reader = readerRepository.findByReaderNumber(doc.getReaderNumber())
         .orElseThrow(() -> new IllegalArgumentException("Reader not found for " + doc.getReaderNumber()));
+    return toDomain(doc, book, reader);
+  }
+
+  /**
+   * Maps a page of lendings with one book query and one reader query, whatever the page size.
+   */
+  private List<Lending> mapAll(List<LendingDoc> docs) {
+    if (docs.isEmpty()) return List.of();
+
+    Set<String> isbns = new HashSet<>();
+    Set<String> readerNumbers = new HashSet<>();
+    for (LendingDoc d : docs) {
+      isbns.add(d.getBookIsbn());
+      readerNumbers.add(d.getReaderNumber());
+    }
+
+    Map<String, Book> books = new HashMap<>();
+    bookRepository.findByIsbnIn(isbns).forEach(b -> books.put(b.getIsbn(), b));
+    Map<String, ReaderDetails> readers = new HashMap<>();
+    readerRepository.findByReaderNumberIn(readerNumbers).forEach(r -> readers.put(r.getReaderNumber(), r));
+
+    List<Lending> out = new ArrayList<>(docs.size());
+    for (LendingDoc d : docs) {
+      Book book = books.get(d.getBookIsbn());
+      if (book == null) throw new IllegalArgumentException("Book not found for ISBN " + d.getBookIsbn());
+      ReaderDetails reader = readers.get(d.getReaderNumber());
+      if (reader == null) throw new IllegalArgumentException("Reader not found for " + d.getReaderNumber());
+      out.add(toDomain(d, book, reader));
+    }
+    return out;
+  }
 
+  private Lending toDomain(LendingDoc doc, Book book, ReaderDetails reader) {
     String ln = doc.getLendingNumber();
     int year = Integer.parseInt(ln.substring(0, 4));
     int seq = Integer.parseInt(ln.substring(5));
@@ -0,0 +1,57 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * Number of lendings started on one day for one book, author or reader.
+ * <p>
+ * A leaderboard over a window is the sum of the buckets in that window, so its cost depends on the number of
+ * members and days, not on the number of lendings.
+ */
+@Entity
+@Table(indexes = @Index(columnList = "kind, BUCKET_DAY"))
+public class LeaderboardBucket {
+
+    @Id
+    @Column(length = 128, nullable = false, updatable = false)
+    @Getter
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16, nullable = false, updatable = false)
+    @Getter
+    private LeaderboardKind kind;
+
+    @Column(name = "BUCKET_DAY", nullable = false, updatable = false)
+    @Getter
+    private LocalDate day;
+
+    @Column(name = "MEMBER_KEY", length = 64, nullable = false, updatable = false)
+    @Getter
+    private String member;
+
+    @Column(name = "LENDING_COUNT", nullable = false)
+    @Getter
+    private long count;
+
+    protected LeaderboardBucket() {}
+
+    public LeaderboardBucket(LeaderboardKind kind, LocalDate day, String member, long count) {
+        this.id = idOf(kind, day, member);
+        this.kind = kind;
+        this.day = day;
+        this.member = member;
+        this.count = count;
+    }
+
+    public static String idOf(LeaderboardKind kind, LocalDate day, String member) {
+        return kind + "|" + day + "|" + member;
+    }
+
+    public void add(long lendings) {
+        count += lendings;
+    }
+}
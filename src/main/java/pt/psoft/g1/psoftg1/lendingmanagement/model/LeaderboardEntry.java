@@ -0,0 +1,7 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+/**
+ * One ranked member of a leaderboard and its lending count over the window asked for.
+ */
+public record LeaderboardEntry(String member, long count) {
+}
@@ -0,0 +1,10 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+/**
+ * What a leaderboard ranks; the member of a bucket is the ISBN, author number or reader number respectively.
+ */
+public enum LeaderboardKind {
+    BOOK,
+    AUTHOR,
+    READER
+}
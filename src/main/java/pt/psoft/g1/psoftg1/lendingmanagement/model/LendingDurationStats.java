@@ -0,0 +1,50 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+
+/**
+ * Running totals of the duration, in days, of returned lendings.
+ * <p>
+ * One row is kept for all lendings ({@link #ALL}) and one per book ISBN, so an average is a single read
+ * however many lendings have been returned.
+ */
+@Entity
+public class LendingDurationStats {
+
+    /** Key of the totals over every returned lending; ISBNs never take this value. */
+    public static final String ALL = "*";
+
+    @Id
+    @Column(name = "STATS_KEY", length = 32, nullable = false, updatable = false)
+    @Getter
+    private String key;
+
+    @Column(nullable = false)
+    @Getter
+    private long totalDays;
+
+    @Column(name = "LENDING_COUNT", nullable = false)
+    @Getter
+    private long count;
+
+    protected LendingDurationStats() {}
+
+    public LendingDurationStats(String key, long totalDays, long count) {
+        this.key = key;
+        this.totalDays = totalDays;
+        this.count = count;
+    }
+
+    public void record(long durationDays) {
+        totalDays += durationDays;
+        count++;
+    }
+
+    /** Average duration in days, or 0 when no lending has been returned yet. */
+    public double average() {
+        return count == 0 ? 0.0 : (double) totalDays / count;
+    }
+}
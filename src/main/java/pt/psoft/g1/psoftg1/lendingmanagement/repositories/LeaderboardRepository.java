@@ -0,0 +1,34 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardEntry;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardKind;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Per-day lending counts for books, authors and readers, kept up to date as lendings are created.
+ */
+public interface LeaderboardRepository {
+
+    /**
+     * Counts one lending started on {@code day} for its book, each of the book's authors and its reader.
+     * Joins the caller's transaction where the store supports one.
+     */
+    void recordLending(LocalDate day, String isbn, Collection<String> authorNumbers, String readerNumber);
+
+    /** Members of {@code kind} with the most lendings started on or after {@code since}, most lent first. */
+    List<LeaderboardEntry> top(LeaderboardKind kind, LocalDate since, int limit);
+
+    boolean isEmpty();
+
+    /**
+     * Replaces every bucket with counts recomputed from the lendings started on or after {@code since}.
+     * @return number of lendings counted
+     */
+    long rebuildFromLendings(LocalDate since);
+
+    /** Drops the buckets of days before {@code day}, which no window reaches any more. */
+    void pruneBefore(LocalDate day);
+}
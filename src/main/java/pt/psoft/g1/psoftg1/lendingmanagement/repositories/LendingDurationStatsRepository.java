@@ -0,0 +1,26 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
+
+import java.util.Optional;
+
+/**
+ * Incrementally maintained totals behind the average lending duration, overall and per book.
+ */
+public interface LendingDurationStatsRepository {
+
+    /** Totals for {@code key}: {@link LendingDurationStats#ALL} or a book ISBN. */
+    Optional<LendingDurationStats> findByKey(String key);
+
+    /**
+     * Adds one returned lending of {@code durationDays} to both the overall and the {@code isbn} totals,
+     * creating them if needed. Joins the caller's transaction where the store supports one.
+     */
+    void recordReturn(String isbn, long durationDays);
+
+    /**
+     * Recomputes every total from the returned lendings in the lending store, replacing what was there.
+     * @return number of returned lendings counted
+     */
+    long rebuildFromLendings();
+}
@@ -1,11 +1,13 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
 
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingExportRow;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface LendingRepository {
     Optional<Lending> findByLendingNumber(String lendingNumber);
@@ -19,6 +21,13 @@ public interface LendingRepository {
     List<Lending> getOverdue(Page page);
     List<Lending> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
 
+    /**
+     * Streams every lending matching the {@link #searchLendings} filters, in lending-number order, as flat rows
+     * read through a database cursor. The caller must close the stream, and for JPA consume it inside a
+     * transaction.
+     */
+    Stream<LendingExportRow> streamForExport(String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
+
     Lending save(Lending lending);
 
     void delete(Lending lending);
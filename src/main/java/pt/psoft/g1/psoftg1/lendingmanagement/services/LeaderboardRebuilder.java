@@ -0,0 +1,51 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LeaderboardRepository;
+
+import java.time.LocalDate;
+
+/**
+ * Startup job for the leaderboard buckets: builds them from the lending history when there are none or when
+ * {@code leaderboard.rebuild=true}, and otherwise drops the days that have left the window. While running, the days
+ * that leave the window are dropped every {@code leaderboard.pruneInterval}.
+ */
+@Component
+@Order(5)
+@PropertySource({"classpath:config/library.properties"})
+public class LeaderboardRebuilder implements ApplicationRunner {
+
+    private final LeaderboardRepository leaderboardRepository;
+    private final LeaderboardService leaderboardService;
+    private final boolean force;
+
+    public LeaderboardRebuilder(LeaderboardRepository leaderboardRepository,
+                                LeaderboardService leaderboardService,
+                                @Value("${leaderboard.rebuild:false}") boolean force) {
+        this.leaderboardRepository = leaderboardRepository;
+        this.leaderboardService = leaderboardService;
+        this.force = force;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        LocalDate since = leaderboardService.windowStart();
+        if (force || leaderboardRepository.isEmpty()) {
+            leaderboardRepository.rebuildFromLendings(since);
+        } else {
+            leaderboardRepository.pruneBefore(since);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${leaderboard.pruneInterval:PT24H}",
+            fixedDelayString = "${leaderboard.pruneInterval:PT24H}")
+    public void prune() {
+        leaderboardRepository.pruneBefore(leaderboardService.windowStart());
+    }
+}
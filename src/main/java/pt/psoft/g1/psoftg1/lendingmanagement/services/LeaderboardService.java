@@ -0,0 +1,75 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardEntry;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardKind;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LeaderboardRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Most lent books, authors and readers over a rolling window of days.
+ * <p>
+ * Rankings are merged from the per-day buckets of {@link LeaderboardRepository} and kept for a few seconds, so
+ * repeated reads are served from memory. Lendings recorded on this node drop the cached rankings once they commit;
+ * lendings recorded on other nodes show up when the cached ranking expires.
+ */
+@Service
+@PropertySource({"classpath:config/library.properties"})
+public class LeaderboardService {
+
+    private record Key(LeaderboardKind kind, LocalDate since, int limit) {}
+
+    private final LeaderboardRepository repository;
+    private final int windowDays;
+    private final Cache<Key, List<LeaderboardEntry>> rankings;
+
+    public LeaderboardService(LeaderboardRepository repository,
+                              @Value("${leaderboard.windowDays:365}") int windowDays,
+                              @Value("${leaderboard.cacheTtlSeconds:30}") long cacheTtlSeconds) {
+        this.repository = repository;
+        this.windowDays = windowDays;
+        this.rankings = Caffeine.newBuilder()
+                .maximumSize(64)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build();
+    }
+
+    /** First day inside the window; buckets of earlier days are no longer counted. */
+    public LocalDate windowStart() {
+        return LocalDate.now().minusDays(windowDays);
+    }
+
+    public List<LeaderboardEntry> top(LeaderboardKind kind, int limit) {
+        Key key = new Key(kind, windowStart(), limit);
+        return rankings.get(key, k -> repository.top(k.kind(), k.since(), k.limit()));
+    }
+
+    public void record(Lending lending) {
+        repository.recordLending(lending.getStartDate(),
+                lending.getBook().getIsbn(),
+                lending.getBook().getAuthors().stream().map(Author::getId).toList(),
+                lending.getReaderDetails().getReaderNumber());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rankings.invalidateAll();
+                }
+            });
+        } else {
+            rankings.invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationStatsRepository;
+
+/**
+ * One-off job that rebuilds the lending-duration totals from the lending history.
+ * <p>
+ * Runs at startup, after the bootstrappers, when the totals have never been built or when
+ * {@code lendingStats.rebuild=true}. Returns recorded while it runs on another node may be lost, so a forced
+ * rebuild is meant for maintenance windows.
+ */
+@Component
+@Order(4)
+@PropertySource({"classpath:config/library.properties"})
+public class LendingDurationStatsRebuilder implements ApplicationRunner {
+
+    private final LendingDurationStatsRepository statsRepository;
+    private final boolean force;
+
+    public LendingDurationStatsRebuilder(LendingDurationStatsRepository statsRepository,
+                                         @Value("${lendingStats.rebuild:false}") boolean force) {
+        this.statsRepository = statsRepository;
+        this.force = force;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (force || statsRepository.findByKey(LendingDurationStats.ALL).isEmpty()) {
+            statsRepository.rebuildFromLendings();
+        }
+    }
+}
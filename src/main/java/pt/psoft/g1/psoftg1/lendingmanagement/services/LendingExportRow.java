@@ -0,0 +1,16 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import java.time.LocalDate;
+
+/**
+ * Flat projection of a lending for bulk export: only the stored columns, with the book and reader by their
+ * natural keys, so rows can be streamed without loading the {@code Book} and {@code ReaderDetails} graphs.
+ */
+public record LendingExportRow(String lendingNumber,
+                               String isbn,
+                               String readerNumber,
+                               LocalDate startDate,
+                               LocalDate limitDate,
+                               LocalDate returnedDate,
+                               int fineValuePerDayInCents) {
+}
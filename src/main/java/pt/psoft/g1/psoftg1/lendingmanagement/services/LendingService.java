@@ -5,6 +5,7 @@ import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface LendingService {
     /**
@@ -25,6 +26,15 @@ public interface LendingService {
     List<Lending> getOverdue(Page page);
     Double getAvgLendingDurationByIsbn(String isbn);
     List<Lending> searchLendings(Page page, SearchLendingQuery request);
+    /**
+     * Streams every lending matching {@code request} to {@code sink}, ordered by lending number, without
+     * holding the result set in memory.
+     *
+     * @param request - search filters; {@code null} exports all lendings
+     * @param sink    - receives each row as it is read
+     * @return the number of rows exported
+     */
+    long exportLendings(SearchLendingQuery request, Consumer<LendingExportRow> sink);
 
 
 }
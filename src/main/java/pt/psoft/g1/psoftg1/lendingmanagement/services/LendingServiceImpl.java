@@ -4,22 +4,32 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreMonthlyStatsRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Fine;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationStatsRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.SequenceAllocator;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -30,6 +40,10 @@ public class LendingServiceImpl implements LendingService{
     private final BookRepository bookRepository;
     private final ReaderRepository readerRepository;
     private final IdGenerator idGenerator;
+    private final SequenceAllocator sequenceAllocator;
+    private final LendingDurationStatsRepository durationStatsRepository;
+    private final LeaderboardService leaderboardService;
+    private final GenreMonthlyStatsRepository genreMonthlyStatsRepository;
 
     @Value("${lendingDurationInDays}")
     private int lendingDurationInDays;
@@ -58,6 +72,7 @@ public class LendingServiceImpl implements LendingService{
     }
 
     @Override
+    @Transactional
     public Lending create(final CreateLendingRequest resource) {
         int count = 0;
         Iterable<Lending> lendingList = lendingRepository.listOutstandingByReaderNumber(resource.getReaderNumber());
@@ -73,14 +88,19 @@ public class LendingServiceImpl implements LendingService{
         var reader = readerRepository.findByReaderNumber(resource.getReaderNumber())
             .orElseThrow(() -> new NotFoundException("Reader not found"));
 
-        int seq = lendingRepository.getCountFromCurrentYear() + 1;
+        int year = LocalDate.now().getYear();
+        int seq = Math.toIntExact(sequenceAllocator.next("lendings/" + year, lendingRepository::getCountFromCurrentYear));
         Lending lending = new Lending(book, reader, seq, lendingDurationInDays, fineValuePerDayInCents);
         lending.assignId(idGenerator.newId());
 
-        return lendingRepository.save(lending);
+        final Lending saved = lendingRepository.save(lending);
+        leaderboardService.record(saved);
+        genreMonthlyStatsRepository.recordLending(YearMonth.from(saved.getStartDate()), saved.getBook().getGenre().getPk());
+        return saved;
     }
 
     @Override
+    @Transactional
     public Lending setReturned(final String lendingNumber, final SetLendingReturnedRequest resource, final long desiredVersion) {
 
         var lending = lendingRepository.findByLendingNumber(lendingNumber)
@@ -94,12 +114,19 @@ public class LendingServiceImpl implements LendingService{
             fineRepository.save(fine);
         }
 
-        return lendingRepository.save(lending);
+        final Lending saved = lendingRepository.save(lending);
+        if (lending.getStartDate() != null && lending.getReturnedDate() != null) {
+            final long days = ChronoUnit.DAYS.between(lending.getStartDate(), lending.getReturnedDate());
+            durationStatsRepository.recordReturn(lending.getBook().getIsbn(), days);
+            genreMonthlyStatsRepository.recordReturn(YearMonth.from(lending.getStartDate()),
+                    lending.getBook().getGenre().getPk(), days);
+        }
+        return saved;
     }
 
     @Override
     public Double getAverageDuration(){
-        Double avg = lendingRepository.getAverageDuration();
+        double avg = averageOf(LendingDurationStats.ALL);
         return Double.valueOf(String.format(Locale.US,"%.1f", avg));
     }
 
@@ -113,15 +140,16 @@ public class LendingServiceImpl implements LendingService{
 
     @Override
     public Double getAvgLendingDurationByIsbn(String isbn){
-        Double avg = lendingRepository.getAvgLendingDurationByIsbn(isbn);
+        double avg = averageOf(isbn);
         return Double.valueOf(String.format(Locale.US,"%.1f", avg));
     }
 
+    private double averageOf(String key) {
+        return durationStatsRepository.findByKey(key).map(LendingDurationStats::average).orElse(0.0);
+    }
+
     @Override
     public List<Lending> searchLendings(Page page, SearchLendingQuery query){
-        LocalDate startDate = null;
-        LocalDate endDate = null;
-
         if (page == null) {
             page = new Page(1, 10);
         }
@@ -132,22 +160,45 @@ public class LendingServiceImpl implements LendingService{
                     LocalDate.now().minusDays(10L).toString(),
                     null);
 
-        try {
-            if(query.getStartDate()!=null)
-                startDate = LocalDate.parse(query.getStartDate());
-            if(query.getEndDate()!=null)
-                endDate = LocalDate.parse(query.getEndDate());
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException("Expected format is YYYY-MM-DD");
-        }
-
         return lendingRepository.searchLendings(page,
                 query.getReaderNumber(),
                 query.getIsbn(),
                 query.getReturned(),
-                startDate,
-                endDate);
+                parseDate(query.getStartDate()),
+                parseDate(query.getEndDate()));
+
+    }
 
+    @Override
+    @Transactional(readOnly = true)
+    public long exportLendings(SearchLendingQuery query, Consumer<LendingExportRow> sink){
+        if (query == null)
+            query = new SearchLendingQuery();
+
+        long count = 0;
+        try (Stream<LendingExportRow> rows = lendingRepository.streamForExport(
+                query.getReaderNumber(),
+                query.getIsbn(),
+                query.getReturned(),
+                parseDate(query.getStartDate()),
+                parseDate(query.getEndDate()))) {
+            Iterator<LendingExportRow> it = rows.iterator();
+            while (it.hasNext()) {
+                sink.accept(it.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static LocalDate parseDate(String date){
+        if (date == null)
+            return null;
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Expected format is YYYY-MM-DD");
+        }
     }
 
 
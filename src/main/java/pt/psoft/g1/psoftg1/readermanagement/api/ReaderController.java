@@ -13,7 +13,7 @@ import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
@@ -34,8 +34,11 @@ import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
 import pt.psoft.g1.psoftg1.readermanagement.services.SearchReadersQuery;
 import pt.psoft.g1.psoftg1.readermanagement.services.UpdateReaderRequest;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.api.PhotoResponses;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
+import pt.psoft.g1.psoftg1.shared.services.PhotoThumbnailService;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
 import pt.psoft.g1.psoftg1.usermanagement.model.Librarian;
 import pt.psoft.g1.psoftg1.usermanagement.model.Role;
@@ -60,6 +63,7 @@ class ReaderController {
     private final LendingViewMapper lendingViewMapper;
     private final ConcurrencyService concurrencyService;
     private final FileStorageService fileStorageService;
+    private final PhotoThumbnailService photoThumbnailService;
     private final ApiNinjasService apiNinjasService;
 
     @Operation(summary = "Gets the reader data if authenticated as Reader or all readers if authenticated as Librarian")
@@ -145,12 +149,18 @@ class ReaderController {
     @Operation(summary= "Gets a reader photo")
     @GetMapping("/{year}/{seq}/photo")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<byte[]> getSpecificReaderPhoto(@PathVariable("year")
+    public ResponseEntity<Resource> getSpecificReaderPhoto(@PathVariable("year")
                                                      @Parameter(description = "The year of the Reader to find")
                                                      final Integer year,
                                                  @PathVariable("seq")
                                                      @Parameter(description = "The sequencial of the Reader to find")
                                                      final Integer seq,
+                                                         @RequestParam(value = "size", required = false)
+                                                         @Parameter(description = "Width and height, in pixels, to fit the photo in")
+                                                         final Integer size,
+                                                         @RequestParam(value = "v", required = false)
+                                                         @Parameter(description = "Photo file name, to cache the photo as immutable")
+                                                         final String version,
                                                          Authentication authentication) {
         User loggedUser = userService.getAuthenticatedUser(authentication);
 
@@ -174,20 +184,21 @@ class ReaderController {
         }
 
         String photoFile = readerDetails.getPhoto().getPhotoFile();
-        byte[] image = this.fileStorageService.getFile(photoFile);
-        String fileFormat = this.fileStorageService.getExtension(readerDetails.getPhoto().getPhotoFile()).orElseThrow(() -> new ValidationException("Unable to get file extension"));
-
-        if(image == null) {
-            return ResponseEntity.ok().build();
-        }
-
-        return ResponseEntity.ok().contentType(fileFormat.equals("png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG).body(image);
+        return this.photoThumbnailService.getPhoto(photoFile, size)
+                .map(photo -> PhotoResponses.of(photo, photoFile, version))
+                .orElseGet(() -> ResponseEntity.ok().build());
     }
 
     @Operation(summary= "Gets a reader photo")
     @GetMapping("/photo")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<byte[]> getReaderOwnPhoto(Authentication authentication) {
+    public ResponseEntity<Resource> getReaderOwnPhoto(@RequestParam(value = "size", required = false)
+                                                      @Parameter(description = "Width and height, in pixels, to fit the photo in")
+                                                      final Integer size,
+                                                      @RequestParam(value = "v", required = false)
+                                                      @Parameter(description = "Photo file name, to cache the photo as immutable")
+                                                      final String version,
+                                                      Authentication authentication) {
 
         User loggedUser = userService.getAuthenticatedUser(authentication);
 
@@ -203,15 +214,10 @@ class ReaderController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        byte[] image = this.fileStorageService.getFile(readerDetails.getPhoto().getPhotoFile());
-
-        if(image == null) {
-            return ResponseEntity.ok().build();
-        }
-
-        String fileFormat = this.fileStorageService.getExtension(readerDetails.getPhoto().getPhotoFile()).orElseThrow(() -> new ValidationException("Unable to get file extension"));
-
-        return ResponseEntity.ok().contentType(fileFormat.equals("png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG).body(image);
+        String photoFile = readerDetails.getPhoto().getPhotoFile();
+        return this.photoThumbnailService.getPhoto(photoFile, size)
+                .map(photo -> PhotoResponses.of(photo, photoFile, version))
+                .orElseGet(() -> ResponseEntity.ok().build());
     }
 
     @Operation(summary = "Creates a reader")
@@ -249,7 +255,6 @@ class ReaderController {
             throw new NotFoundException("Reader has no photo to delete");
         }
 
-        this.fileStorageService.deleteFile(readerDetails.getPhoto().getPhotoFile());
         readerService.removeReaderPhoto(readerDetails.getReaderNumber(), readerDetails.getVersion());
 
         return ResponseEntity.ok().build();
@@ -347,6 +352,8 @@ class ReaderController {
     public ListResponse<ReaderView> searchReaders(
             @RequestBody final SearchRequest<SearchReadersQuery> request) {
         final var readerList = readerService.searchReaders(request.getPage(), request.getQuery());
-        return new ListResponse<>(readerViewMapper.toReaderView(readerList));
+        return new ListResponse<>(readerViewMapper.toReaderView(readerList),
+                PageCursor.next(request.getPage(), readerList,
+                        r -> new String[]{r.getReader().getName().toString(), r.getReaderNumber()}));
     }
 }
@@ -16,10 +16,12 @@ import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 
 import org.springframework.data.domain.Pageable;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderBookCountDTO;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +33,12 @@ public interface SpringDataReaderRepositoryImpl extends ReaderRepository, Reader
             "WHERE r.readerNumber.readerNumber = :readerNumber")
     Optional<ReaderDetails> findByReaderNumber(@Param("readerNumber") @NotNull String readerNumber);
 
+    @Override
+    @Query("SELECT r " +
+            "FROM ReaderDetails r " +
+            "WHERE r.readerNumber.readerNumber IN :readerNumbers")
+    List<ReaderDetails> findByReaderNumberIn(@Param("readerNumbers") @NotNull Collection<String> readerNumbers);
+
     @Override
     @Query("SELECT r " +
             "FROM ReaderDetails r " +
@@ -96,26 +104,34 @@ class ReaderDetailsRepoCustomImpl implements ReaderDetailsRepoCustom {
         final List<Predicate> where = new ArrayList<>();
         if (StringUtils.hasText(query.getName())) { //'contains' type search
             where.add(cb.like(userJoin.get("name").get("name"), "%" + query.getName() + "%"));
-            cq.orderBy(cb.asc(userJoin.get("name")));
         }
         if (StringUtils.hasText(query.getEmail())) { //'exatct' type search
             where.add(cb.equal(userJoin.get("username"), query.getEmail()));
-            cq.orderBy(cb.asc(userJoin.get("username")));
-
         }
         if (StringUtils.hasText(query.getPhoneNumber())) { //'exatct' type search
             where.add(cb.equal(readerDetailsRoot.get("phoneNumber").get("phoneNumber"), query.getPhoneNumber()));
-            cq.orderBy(cb.asc(readerDetailsRoot.get("phoneNumber").get("phoneNumber")));
         }
 
+        final List<Predicate> and = new ArrayList<>();
         // search using OR
         if (!where.isEmpty()) {
-            cq.where(cb.or(where.toArray(new Predicate[0])));
+            and.add(cb.or(where.toArray(new Predicate[0])));
         }
 
+        // Order by name; the reader number breaks ties so a cursor points at exactly one reader
+        final Path<String> nameKey = userJoin.get("name").get("name");
+        final Path<String> numberKey = readerDetailsRoot.get("readerNumber").get("readerNumber");
+        if (PageCursor.isKeyset(page)) {
+            final String[] after = PageCursor.decode(page.getCursor(), 2);
+            and.add(cb.or(cb.greaterThan(nameKey, after[0]),
+                    cb.and(cb.equal(nameKey, after[0]), cb.greaterThan(numberKey, after[1]))));
+        }
+        cq.where(and.toArray(new Predicate[0]));
+        cq.orderBy(cb.asc(nameKey), cb.asc(numberKey));
 
         final TypedQuery<ReaderDetails> q = em.createQuery(cq);
-        q.setFirstResult((page.getNumber() - 1) * page.getLimit());
+        if (!PageCursor.isKeyset(page))
+            q.setFirstResult((page.getNumber() - 1) * page.getLimit());
         q.setMaxResults(page.getLimit());
 
         return q.getResultList();
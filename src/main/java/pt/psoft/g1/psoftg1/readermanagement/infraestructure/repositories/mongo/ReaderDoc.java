@@ -3,6 +3,7 @@ package pt.psoft.g1.psoftg1.readermanagement.infraestructure.repositories.mongo;
 import lombok.*;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -10,6 +11,8 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Document("readers")
+// searchReaderDetails order and cursor
+@CompoundIndex(name = "fullName_readerNumber", def = "{'fullName': 1, 'readerNumber': 1}")
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class ReaderDoc {
   @Id
@@ -33,6 +36,7 @@ public class ReaderDoc {
 
   private List<String> interestGenres;
 
+  @Indexed(sparse = true)
   private String photoFile;
 
   @Version
@@ -3,16 +3,22 @@ package pt.psoft.g1.psoftg1.readermanagement.infraestructure.repositories.mongo;
 import org.springframework.stereotype.Component;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 import pt.psoft.g1.psoftg1.readermanagement.model.*;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo.FieldHandles;
 import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
 
+import java.lang.invoke.VarHandle;
 import java.util.List;
 
 @Component
 public class ReaderMongoMapper {
 
+  private static final VarHandle READER_NUMBER = FieldHandles.of(ReaderDetails.class, "readerNumber", ReaderNumber.class);
+  private static final VarHandle VERSION = FieldHandles.of(ReaderDetails.class, "version", Long.class);
+  private static final VarHandle READER_NUMBER_VALUE = FieldHandles.of(ReaderNumber.class, "readerNumber", String.class);
+
   public ReaderDoc toDoc(ReaderDetails rd) {
     return ReaderDoc.builder()
-        .id(extractReaderPk(rd))
+        .id(rd.getId())
         .readerNumber(rd.getReaderNumber())
         .userId(rd.getReader() == null ? null : rd.getReader().getId())
         .username(rd.getReader() == null ? null : rd.getReader().getUsername())
@@ -41,45 +47,17 @@ public class ReaderMongoMapper {
         d.getPhotoFile() == null ? null : d.getPhotoFile(),
         interests
     );
-    try {
-      var fNum = ReaderDetails.class.getDeclaredField("readerNumber");
-      fNum.setAccessible(true);
-      fNum.set(rd, new ReaderNumberStringBackdoor(d.getReaderNumber()));
-    } catch (Exception ignored) {}
-
-    try {
-      var fVer = ReaderDetails.class.getDeclaredField("version");
-      fVer.setAccessible(true);
-      fVer.set(rd, d.getVersion());
-    } catch (Exception ignored) {}
+    // keep the stored number as is, including its year, instead of the one the constructor derives
+    ReaderNumber number = new ReaderNumber(0);
+    READER_NUMBER_VALUE.set(number, d.getReaderNumber());
+    READER_NUMBER.set(rd, number);
+    VERSION.set(rd, d.getVersion());
 
     return rd;
   }
 
-  private String extractReaderPk(ReaderDetails rd) {
-    try {
-      var f = ReaderDetails.class.getDeclaredField("pk");
-      f.setAccessible(true);
-      Object v = f.get(rd);
-      return v == null ? null : v.toString();
-    } catch (Exception e) {
-      return null;
-    }
-  }
-
   private int extractSequential(String readerNumber) {
     if (readerNumber == null || readerNumber.length() < 6) return 1;
     return Integer.parseInt(readerNumber.substring(readerNumber.indexOf('/') + 1));
   }
-
-  static class ReaderNumberStringBackdoor extends ReaderNumber {
-    public ReaderNumberStringBackdoor(String rn) {
-      super();
-      try {
-        var f = ReaderNumber.class.getDeclaredField("readerNumber");
-        f.setAccessible(true);
-        f.set(this, rn);
-      } catch (Exception ignored) {}
-    }
-  }
 }
@@ -12,11 +12,12 @@ import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Repository;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
-import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreDictionary;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderBookCountDTO;
 import pt.psoft.g1.psoftg1.readermanagement.services.SearchReadersQuery;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -33,13 +34,13 @@ public class ReaderMongoRepository implements ReaderRepository {
   private final SpringMongoReaderRepo repo;
   private final MongoTemplate mongo;
   private final ReaderMongoMapper mapper;
-  private final GenreRepository genreRepo;
+  private final GenreDictionary genreDictionary;
   private final UserRepository userRepo;
 
   private List<Genre> toGenres(List<String> names) {
     if (names == null) return null;
     List<Genre> out = new ArrayList<>();
-    for (String g : names) genreRepo.findByString(g).ifPresent(out::add);
+    for (String g : names) genreDictionary.findByName(g).ifPresent(out::add);
     return out;
   }
 
@@ -53,8 +54,30 @@ public class ReaderMongoRepository implements ReaderRepository {
     return mapper.toDomainSkeleton(d, readerEntity, toGenres(d.getInterestGenres()));
   }
 
+  /**
+   * Hydrates a whole page of readers with one user query, instead of one per document
+   * as {@link #hydrate(ReaderDoc)} does. Interests are resolved from the {@link GenreDictionary}.
+   */
   private List<ReaderDetails> mapAll(List<ReaderDoc> docs) {
-    return docs.stream().map(this::hydrate).toList();
+    if (docs.isEmpty()) return List.of();
+
+    Set<String> userIds = new HashSet<>();
+    for (ReaderDoc d : docs) {
+      if (d.getUserId() != null) userIds.add(d.getUserId());
+    }
+
+    Map<String, pt.psoft.g1.psoftg1.usermanagement.model.Reader> readersById = new HashMap<>();
+    if (!userIds.isEmpty()) {
+      userRepo.findAllById(userIds).forEach(u -> {
+        if (u instanceof pt.psoft.g1.psoftg1.usermanagement.model.Reader r) readersById.put(r.getId(), r);
+      });
+    }
+
+    List<ReaderDetails> out = new ArrayList<>(docs.size());
+    for (ReaderDoc d : docs) {
+      out.add(mapper.toDomainSkeleton(d, readersById.get(d.getUserId()), toGenres(d.getInterestGenres())));
+    }
+    return out;
   }
 
   private String ciStartsWith(String s) {
@@ -72,6 +95,12 @@ public class ReaderMongoRepository implements ReaderRepository {
     return repo.findByReaderNumber(readerNumber).map(this::hydrate);
   }
 
+  @Override
+  public List<ReaderDetails> findByReaderNumberIn(Collection<String> readerNumbers) {
+    if (readerNumbers == null || readerNumbers.isEmpty()) return List.of();
+    return mapAll(repo.findByReaderNumberIn(readerNumbers));
+  }
+
   @Override
   public List<ReaderDetails> findByPhoneNumber(String phoneNumber) {
     return mapAll(repo.findByPhoneNumber(phoneNumber));
@@ -140,10 +169,7 @@ public class ReaderMongoRepository implements ReaderRepository {
       Pageable pageable, String genre, LocalDate startDate, LocalDate endDate) {
 
     Aggregation agg = newAggregation(
-        match(Criteria.where("startDate").gte(startDate).lte(endDate)),
-        lookup("books", "bookIsbn", "isbn", "book"),
-        unwind("book"),
-        match(Criteria.where("book.genre").is(genre)),
+        match(Criteria.where("startDate").gte(startDate).lte(endDate).and("bookGenre").is(genre)),
         group("readerNumber").count().as("cnt"),
         sort(Sort.Direction.DESC, "cnt"),
         skip((long) pageable.getPageNumber() * pageable.getPageSize()),
@@ -183,11 +209,19 @@ public class ReaderMongoRepository implements ReaderRepository {
         q.addCriteria(Criteria.where("phoneNumber").is(query.getPhoneNumber()));
       }
     }
-    q.with(Sort.by(Sort.Direction.ASC, "fullName"));
+    // the reader number breaks ties so a cursor points at exactly one reader
+    q.with(Sort.by(Sort.Direction.ASC, "fullName", "readerNumber"));
 
     var pageable = toPageable(page);
-    q.skip((long) pageable.getPageNumber() * pageable.getPageSize())
-        .limit(pageable.getPageSize());
+    if (PageCursor.isKeyset(page)) {
+      String[] after = PageCursor.decode(page.getCursor(), 2);
+      q.addCriteria(new Criteria().orOperator(
+          Criteria.where("fullName").gt(after[0]),
+          Criteria.where("fullName").is(after[0]).and("readerNumber").gt(after[1])));
+    } else {
+      q.skip((long) pageable.getPageNumber() * pageable.getPageSize());
+    }
+    q.limit(pageable.getPageSize());
 
     return mapAll(mongo.find(q, ReaderDoc.class));
   }
@@ -4,6 +4,7 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,6 +12,7 @@ import java.util.Optional;
 @Profile("mongo")
 public interface SpringMongoReaderRepo extends MongoRepository<ReaderDoc, String> {
   Optional<ReaderDoc> findByReaderNumber(String readerNumber);
+  List<ReaderDoc> findByReaderNumberIn(Collection<String> readerNumbers);
   List<ReaderDoc> findByPhoneNumber(String phoneNumber);
   Optional<ReaderDoc> findByUsername(String username);
   Optional<ReaderDoc> findById(String Id);
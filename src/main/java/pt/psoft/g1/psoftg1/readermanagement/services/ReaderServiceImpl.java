@@ -2,25 +2,32 @@ package pt.psoft.g1.psoftg1.readermanagement.services;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
-import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreDictionary;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardEntry;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardKind;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardService;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
-import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
-import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.model.Photo;
+import pt.psoft.g1.psoftg1.shared.services.ForbiddenNameMatcher;
+import pt.psoft.g1.psoftg1.shared.services.PhotoReferenceService;
+import pt.psoft.g1.psoftg1.shared.services.SequenceAllocator;
 import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
 import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import org.springframework.data.domain.Pageable;
 
@@ -30,10 +37,12 @@ public class ReaderServiceImpl implements ReaderService {
     private final ReaderRepository readerRepo;
     private final UserRepository userRepo;
     private final ReaderMapper readerMapper;
-    private final GenreRepository genreRepo;
-    private final ForbiddenNameRepository forbiddenNameRepository;
-    private final PhotoRepository photoRepository;
+    private final GenreDictionary genreDictionary;
+    private final ForbiddenNameMatcher forbiddenNameMatcher;
+    private final PhotoReferenceService photoReferenceService;
     private final IdGenerator idGenerator;
+    private final SequenceAllocator sequenceAllocator;
+    private final LeaderboardService leaderboardService;
 
 
     @Override
@@ -42,11 +51,8 @@ public class ReaderServiceImpl implements ReaderService {
             throw new ConflictException("Username already exists!");
         }
 
-        Iterable<String> words = List.of(request.getFullName().split("\\s+"));
-        for (String word : words){
-            if(!forbiddenNameRepository.findByForbiddenNameIsContained(word).isEmpty()) {
-                throw new IllegalArgumentException("Name contains a forbidden word");
-            }
+        if (forbiddenNameMatcher.containsForbiddenName(request.getFullName())) {
+            throw new IllegalArgumentException("Name contains a forbidden word");
         }
 
         List<String> stringInterestList = request.getInterestList();
@@ -72,16 +78,19 @@ public class ReaderServiceImpl implements ReaderService {
             request.setPhoto(null);
         }
 
-        int count = readerRepo.getCountFromCurrentYear();
+        int year = LocalDate.now().getYear();
+        int seq = Math.toIntExact(sequenceAllocator.next("readers/" + year, readerRepo::getCountFromCurrentYear));
 
         Reader reader = readerMapper.createReader(request);
         reader.assignId(idGenerator.newId());
 
-        ReaderDetails rd = readerMapper.createReaderDetails(count+1, reader, request, photoURI, interestList);
+        ReaderDetails rd = readerMapper.createReaderDetails(seq, reader, request, photoURI, interestList);
         rd.assignId(idGenerator.newId());
 
         userRepo.save(reader);
-        return readerRepo.save(rd);
+        final ReaderDetails saved = readerRepo.save(rd);
+        photoReferenceService.replaced(null, saved.getPhoto());
+        return saved;
     }
 
     @Override
@@ -118,10 +127,13 @@ public class ReaderServiceImpl implements ReaderService {
             request.setPhoto(null);
         }
 
+        final Photo previousPhoto = readerDetails.getPhoto();
         readerDetails.applyPatch(desiredVersion, request, photoURI, interestList);
 
         userRepo.save(readerDetails.getReader());
-        return readerRepo.save(readerDetails);
+        final ReaderDetails saved = readerRepo.save(readerDetails);
+        photoReferenceService.replaced(previousPhoto, saved.getPhoto());
+        return saved;
     }
 
 
@@ -152,9 +164,14 @@ public class ReaderServiceImpl implements ReaderService {
             throw new IllegalArgumentException("Minimum top reader must be greater than 0");
         }
 
-        Pageable pageableRules = PageRequest.of(0,minTop);
-        Page<ReaderDetails> page = readerRepo.findTopReaders(pageableRules);
-        return page.getContent();
+        List<LeaderboardEntry> top = leaderboardService.top(LeaderboardKind.READER, minTop);
+        Map<String, ReaderDetails> readers = new HashMap<>();
+        readerRepo.findByReaderNumberIn(top.stream().map(LeaderboardEntry::member).toList())
+                .forEach(r -> readers.put(r.getReaderNumber(), r));
+        return top.stream()
+                .map(e -> readers.get(e.member()))
+                .filter(Objects::nonNull)
+                .toList();
     }
 
     private List<Genre> getGenreListFromStringList(List<String> interestList) {
@@ -168,7 +185,7 @@ public class ReaderServiceImpl implements ReaderService {
 
         List<Genre> genreList = new ArrayList<>();
         for(String interest : interestList) {
-            Optional<Genre> optGenre = genreRepo.findByString(interest);
+            Optional<Genre> optGenre = genreDictionary.findByName(interest);
             if(optGenre.isEmpty()) {
                 throw new NotFoundException("Could not find genre with name " + interest);
             }
@@ -187,7 +204,7 @@ public class ReaderServiceImpl implements ReaderService {
         String photoFile = readerDetails.getPhoto().getPhotoFile();
         readerDetails.removePhoto(desiredVersion);
         Optional<ReaderDetails> updatedReader = Optional.of(readerRepo.save(readerDetails));
-        photoRepository.deleteByPhotoFile(photoFile);
+        photoReferenceService.release(photoFile);
         return updatedReader;
     }
 
@@ -22,6 +22,7 @@ package pt.psoft.g1.psoftg1.shared.api;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -32,4 +33,14 @@ import lombok.Data;
 @AllArgsConstructor
 public class ListResponse<T> {
 	private List<T> items;
+
+	/**
+	 * Cursor for the next page of a search, absent on the last page and on responses that are not paged.
+	 */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private String nextCursor;
+
+	public ListResponse(List<T> items) {
+		this(items, null);
+	}
 }
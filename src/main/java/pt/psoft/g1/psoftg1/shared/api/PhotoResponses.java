@@ -0,0 +1,60 @@
+package pt.psoft.g1.psoftg1.shared.api;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import pt.psoft.g1.psoftg1.exceptions.FileStorageException;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Builds the responses of the photo endpoints.
+ * <p>
+ * The photo is returned as a {@link Resource}, so Spring MVC streams it from disk instead of copying it into a
+ * {@code byte[]}, answers {@code Range} requests with {@code 206} and {@code If-None-Match}/{@code If-Modified-Since}
+ * with {@code 304}, using the ETag and Last-Modified set here. The ETag is strong: it changes whenever the file
+ * name, size or modification time does, so each thumbnail of a photo has its own.
+ * <p>
+ * Photo URLs identify an entity, whose photo can be replaced, so they are revalidated on every use. A request that
+ * pins the photo with {@code ?v=<photo file name>} names bytes that never change and is cached for a year.
+ */
+public final class PhotoResponses {
+
+	static final Duration IMMUTABLE_MAX_AGE = Duration.ofDays(365);
+
+	private PhotoResponses() {
+	}
+
+	public static ResponseEntity<Resource> of(final Resource photo, final String fileName, final String version) {
+		final long size;
+		final long lastModified;
+		try {
+			size = photo.contentLength();
+			lastModified = photo.lastModified();
+		} catch (final IOException e) {
+			throw new FileStorageException("Could not read photo " + fileName, e);
+		}
+
+		final CacheControl cacheControl = fileName.equals(version)
+				? CacheControl.maxAge(IMMUTABLE_MAX_AGE).cachePrivate().immutable()
+				: CacheControl.noCache().cachePrivate();
+
+		return ResponseEntity.ok()
+				.contentType(mediaType(fileName))
+				.contentLength(size)
+				.eTag(eTag(photo.getFilename() != null ? photo.getFilename() : fileName, size, lastModified))
+				.lastModified(lastModified)
+				.cacheControl(cacheControl)
+				.body(photo);
+	}
+
+	static String eTag(final String fileName, final long size, final long lastModified) {
+		return "\"" + fileName + "-" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+	}
+
+	private static MediaType mediaType(final String fileName) {
+		return fileName.toLowerCase().endsWith(".png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG;
+	}
+}
@@ -1,7 +1,6 @@
 package pt.psoft.g1.psoftg1.shared.id;
 
-import java.math.BigInteger;
-import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
 
 public final class Base65IdGenerator implements IdGenerator {
   // 65 URL-safe symbols: 0-9, A-Z, a-z, '-', '_', '~'
@@ -13,35 +12,57 @@ public final class Base65IdGenerator implements IdGenerator {
           "~"
   ).toCharArray();
   private static final int RADIX = ALPH.length;
-  private static final int BYTES = 16;
   private static final int FIXED_LEN = 22;
-  private static final SecureRandom RNG = new SecureRandom();
+  private static final long MASK32 = 0xFFFF_FFFFL;
+  private static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial(() -> new char[64]);
 
   @Override public String newId() { return newId(null); }
 
   @Override
   public String newId(String prefix) {
-    byte[] buf = new byte[BYTES];
-    RNG.nextBytes(buf);
+    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+    return encode(prefix, rnd.nextLong(), rnd.nextLong());
+  }
 
-    BigInteger x = new BigInteger(1, buf);
+  /**
+   * Base65 form of the unsigned 128-bit value {@code hi:lo}, left-padded to 22 symbols.
+   * Same output as reading the 16 big-endian bytes into a {@code BigInteger} and converting it.
+   */
+  public static String encode(long hi, long lo) {
+    return encode(null, hi, lo);
+  }
 
-    char[] tmp = new char[64];
-    int i = 0;
-    while (x.signum() != 0) {
-      BigInteger[] qr = x.divideAndRemainder(BigInteger.valueOf(RADIX));
-      tmp[i++] = ALPH[qr[1].intValue()];
-      x = qr[0];
-    }
-    if (i == 0) tmp[i++] = ALPH[0];
+  /*
+   * Long division by 65 over four 32-bit limbs: each partial remainder is below 65 * 2^32, so it fits
+   * in a long and nothing is allocated except the returned String.
+   */
+  private static String encode(String prefix, long hi, long lo) {
+    int p = (prefix == null) ? 0 : prefix.length();
+    int len = p + FIXED_LEN;
+    char[] buf = scratch(len);
+    if (p > 0) prefix.getChars(0, p, buf, 0);
 
-    char[] out = new char[Math.max(FIXED_LEN, i)];
-    int outLen = Math.max(FIXED_LEN, i);
-    int p = outLen - i;
-    for (int k = 0; k < p; k++) out[k] = ALPH[0];
-    while (i > 0) out[p++] = tmp[--i];
+    long l0 = hi >>> 32, l1 = hi & MASK32, l2 = lo >>> 32, l3 = lo & MASK32;
+    for (int i = len - 1; i >= p; i--) {
+      long r = l0;
+      l0 = r / RADIX;
+      r = ((r % RADIX) << 32) | l1;
+      l1 = r / RADIX;
+      r = ((r % RADIX) << 32) | l2;
+      l2 = r / RADIX;
+      r = ((r % RADIX) << 32) | l3;
+      l3 = r / RADIX;
+      buf[i] = ALPH[(int) (r % RADIX)];
+    }
+    return new String(buf, 0, len);
+  }
 
-    String core = new String(out);
-    return (prefix == null || prefix.isEmpty()) ? core : prefix + core;
+  private static char[] scratch(int len) {
+    char[] buf = SCRATCH.get();
+    if (buf.length < len) {
+      buf = new char[len];
+      SCRATCH.set(buf);
+    }
+    return buf;
   }
 }
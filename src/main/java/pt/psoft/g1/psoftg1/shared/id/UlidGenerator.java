@@ -1,57 +1,78 @@
 package pt.psoft.g1.psoftg1.shared.id;
 
-import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Monotonic ULID generator: 48-bit millisecond timestamp followed by 80 random bits.
+ * <p>
+ * IDs requested within the same millisecond reuse the previous random part incremented by one, so they
+ * stay strictly increasing without waiting for the clock. The shared state is swapped with a CAS and fresh
+ * randomness comes from {@link ThreadLocalRandom}, so callers never block each other.
+ */
 public final class UlidGenerator implements IdGenerator {
   private static final char[] ALPH = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
-  private static final SecureRandom RNG = new SecureRandom();
-  private static long lastTs = -1L;
+  private static final int LEN = 26;
+  private static final long RAND_HI_MASK = 0xFFFFL;
 
-  @Override public String newId() { return newId(null); }
+  private static final AtomicReference<State> LAST = new AtomicReference<>(new State(-1L, 0L, 0L));
 
-  @Override
-  public synchronized String newId(String prefix) {
-    long time = System.currentTimeMillis();
-
-    int tries = 100;
-    while (time == lastTs && tries-- > 0) {
-      try { Thread.sleep(1); } catch (InterruptedException ie) {
-        Thread.currentThread().interrupt();
-        break;
+  /** Timestamp plus the 80 random bits split into a 16-bit high and a 64-bit low part. */
+  private record State(long time, long randHi, long randLo) {
+    State increment() {
+      long lo = randLo + 1;
+      long hi = lo == 0 ? randHi + 1 : randHi;
+      if (hi > RAND_HI_MASK) {
+        // random part exhausted within this millisecond: borrow the next one
+        return new State(time + 1, 0L, 0L);
       }
-      time = System.currentTimeMillis();
+      return new State(time, hi, lo);
     }
-    if (time == lastTs) {
-      time = lastTs + 1;
-    }
-    lastTs = time;
-
-    byte[] b = new byte[16];
-
-    b[0]=(byte)(time>>>40); b[1]=(byte)(time>>>32); b[2]=(byte)(time>>>24);
-    b[3]=(byte)(time>>>16); b[4]=(byte)(time>>>8);  b[5]=(byte) time;
-
-    byte[] rand = new byte[10]; RNG.nextBytes(rand);
-    System.arraycopy(rand, 0, b, 6, 10);
-
-    char[] out = new char[26];
-    int acc = 0, bits = 0, oi = 0, bi = 0;
-    while (oi < 26) {
-      if (bits < 5) {
-        if (bi < 16) {
-          acc = (acc << 8) | (b[bi++] & 0xFF);
-          bits += 8;
-          continue;
-        } else {
-          acc <<= (5 - bits);
-          bits = 5;
-        }
+  }
+
+  @Override public String newId() { return newId(null); }
+
+  @Override
+  public String newId(String prefix) {
+    State next;
+    while (true) {
+      State prev = LAST.get();
+      long now = System.currentTimeMillis();
+      if (now > prev.time()) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        next = new State(now, rnd.nextLong() & RAND_HI_MASK, rnd.nextLong());
+      } else {
+        next = prev.increment();
       }
-      bits -= 5;
-      out[oi++] = ALPH[(acc >>> bits) & 31];
+      if (LAST.compareAndSet(prev, next)) break;
     }
 
-    String core = new String(out);
+    String core = encode(next);
     return (prefix == null || prefix.isEmpty()) ? core : prefix + core;
   }
+
+  /**
+   * Crockford Base32 of the 128-bit value, most significant bits first; the last symbol carries the
+   * remaining 3 bits padded with two zero bits.
+   */
+  private static String encode(State s) {
+    long hi = (s.time() << 16) | s.randHi();
+    long lo = s.randLo();
+
+    char[] out = new char[LEN];
+    for (int i = 0; i < LEN - 1; i++) {
+      int shift = 123 - 5 * i;
+      int v;
+      if (shift >= 64) {
+        v = (int) (hi >>> (shift - 64));
+      } else if (shift > 59) {
+        v = (int) ((hi << (64 - shift)) | (lo >>> shift));
+      } else {
+        v = (int) (lo >>> shift);
+      }
+      out[i] = ALPH[v & 31];
+    }
+    out[LEN - 1] = ALPH[(int) (lo & 7) << 2];
+    return new String(out);
+  }
 }
@@ -0,0 +1,15 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.cache;
+
+import java.util.List;
+
+/**
+ * Message broadcast to the other nodes when entries of a {@link TwoLevelCache} change.
+ * @param origin id of the node that made the change; it ignores its own messages
+ * @param keys   the keys to drop from the local tier, or {@code null} to drop every entry of the cache
+ */
+public record CacheInvalidation(String origin, String cacheName, List<String> keys) {
+
+  public boolean clearsAll() {
+    return keys == null;
+  }
+}
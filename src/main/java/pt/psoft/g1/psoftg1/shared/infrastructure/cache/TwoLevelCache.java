@@ -0,0 +1,180 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A Caffeine cache local to the node (L1) in front of a shared cache, normally Redis (L2).
+ * <p>
+ * Reads try L1, then L2, and copy L2 hits into L1. L1 holds values serialized, the way Redis does, so every read
+ * returns a fresh copy and a caller changing the entities it got back cannot change what other callers see.
+ * Writes go to both tiers. Evictions also go to both tiers and are published so the other nodes drop the same keys
+ * from their L1; puts are not, as a cache filled on a miss holds what every node would load. An entry that changes
+ * must be evicted. Keys are held in L1 as strings, the same form Redis uses.
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+  public enum Tier { L1, L2 }
+
+  private final String name;
+  private final Cache<String, byte[]> local;
+  private final org.springframework.cache.Cache shared;
+  private final RedisSerializer<Object> serializer;
+  private final Consumer<CacheInvalidation> publisher;
+  private final String nodeId;
+
+  private final LongAdder l1Hits = new LongAdder();
+  private final LongAdder l1Misses = new LongAdder();
+  private final LongAdder l2Hits = new LongAdder();
+  private final LongAdder l2Misses = new LongAdder();
+
+  public TwoLevelCache(String name, Cache<String, byte[]> local, org.springframework.cache.Cache shared,
+                       RedisSerializer<Object> serializer, Consumer<CacheInvalidation> publisher, String nodeId) {
+    super(false);
+    this.name = name;
+    this.local = local;
+    this.shared = shared;
+    this.serializer = serializer;
+    this.publisher = publisher;
+    this.nodeId = nodeId;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Object getNativeCache() {
+    return local;
+  }
+
+  @Override
+  protected Object lookup(Object key) {
+    String k = keyOf(key);
+    byte[] bytes = local.getIfPresent(k);
+    if (bytes != null) {
+      l1Hits.increment();
+      return serializer.deserialize(bytes);
+    }
+    l1Misses.increment();
+
+    ValueWrapper fromShared = shared.get(key);
+    if (fromShared == null || fromShared.get() == null) {
+      l2Misses.increment();
+      return null;
+    }
+    l2Hits.increment();
+    local.put(k, serializer.serialize(fromShared.get()));
+    return fromShared.get();
+  }
+
+  /**
+   * Loads a missing value at most once per node at a time: concurrent callers for the same key wait for the first
+   * one's value instead of calling {@code valueLoader} themselves, as {@code @Cacheable(sync = true)} expects.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Callable<T> valueLoader) {
+    String k = keyOf(key);
+    byte[] bytes = local.getIfPresent(k);
+    if (bytes != null) {
+      l1Hits.increment();
+      return (T) serializer.deserialize(bytes);
+    }
+    l1Misses.increment();
+
+    Object[] loaded = new Object[1];
+    bytes = local.get(k, ignored -> {
+      ValueWrapper fromShared = shared.get(key);
+      if (fromShared != null && fromShared.get() != null) {
+        l2Hits.increment();
+        loaded[0] = fromShared.get();
+      } else {
+        l2Misses.increment();
+        try {
+          loaded[0] = valueLoader.call();
+        } catch (Exception e) {
+          throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        if (loaded[0] == null) return null;
+        shared.put(key, loaded[0]);
+      }
+      return serializer.serialize(loaded[0]);
+    });
+    if (loaded[0] != null) return (T) loaded[0];
+    return bytes == null ? null : (T) serializer.deserialize(bytes);
+  }
+
+  @Override
+  public void put(Object key, Object value) {
+    if (value == null) {
+      evict(key);
+      return;
+    }
+    shared.put(key, value);
+    local.put(keyOf(key), serializer.serialize(value));
+  }
+
+  /** Atomic in L2, so a concurrent writer's value is kept and returned instead. */
+  @Override
+  public ValueWrapper putIfAbsent(Object key, Object value) {
+    ValueWrapper existing = shared.putIfAbsent(key, value);
+    Object current = (existing == null || existing.get() == null) ? value : existing.get();
+    if (current != null) local.put(keyOf(key), serializer.serialize(current));
+    return existing;
+  }
+
+  @Override
+  public void evict(Object key) {
+    shared.evict(key);
+    local.invalidate(keyOf(key));
+    publish(List.of(keyOf(key)));
+  }
+
+  /** Evicts several keys from both tiers, announcing them to the other nodes in a single message. */
+  public void evictAll(Collection<?> keys) {
+    if (keys.isEmpty()) return;
+    List<String> ks = keys.stream().map(TwoLevelCache::keyOf).toList();
+    for (Object key : keys) shared.evict(key);
+    local.invalidateAll(ks);
+    publish(ks);
+  }
+
+  @Override
+  public void clear() {
+    shared.clear();
+    local.invalidateAll();
+    publish(null);
+  }
+
+  /** Applies a change made on another node to the local tier only. */
+  void onRemoteInvalidation(CacheInvalidation message) {
+    if (nodeId.equals(message.origin())) return;
+    if (message.clearsAll()) local.invalidateAll();
+    else local.invalidateAll(message.keys());
+  }
+
+  public long hits(Tier tier) {
+    return (tier == Tier.L1 ? l1Hits : l2Hits).sum();
+  }
+
+  public long misses(Tier tier) {
+    return (tier == Tier.L1 ? l1Misses : l2Misses).sum();
+  }
+
+  private void publish(List<String> keys) {
+    publisher.accept(new CacheInvalidation(nodeId, name, keys));
+  }
+
+  private static String keyOf(Object key) {
+    return String.valueOf(key);
+  }
+}
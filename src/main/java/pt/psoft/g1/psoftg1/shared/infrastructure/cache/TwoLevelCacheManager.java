@@ -0,0 +1,90 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Wraps the caches named in {@code localCaches} in a {@link TwoLevelCache} whose local tier is built from
+ * {@code localSpec} and holds values written with {@code serializer}; every other cache is served by {@code shared}
+ * alone.
+ * <p>
+ * Changes are announced through {@code publisher}; messages received from other nodes must be handed to
+ * {@link #onRemoteInvalidation}. When a {@link MeterRegistry} is given, each cache reports
+ * {@code cache.tier.gets} counters tagged with the cache name, the tier and {@code result=hit|miss}.
+ */
+public class TwoLevelCacheManager implements CacheManager {
+
+  private final CacheManager shared;
+  private final Set<String> localCaches;
+  private final Caffeine<Object, Object> localSpec;
+  private final RedisSerializer<Object> serializer;
+  private final Consumer<CacheInvalidation> publisher;
+  private final MeterRegistry meterRegistry;
+  private final String nodeId = UUID.randomUUID().toString();
+  private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+  public TwoLevelCacheManager(CacheManager shared, Set<String> localCaches, Caffeine<Object, Object> localSpec,
+                              RedisSerializer<Object> serializer, Consumer<CacheInvalidation> publisher,
+                              MeterRegistry meterRegistry) {
+    this.shared = shared;
+    this.localCaches = Set.copyOf(localCaches);
+    this.localSpec = localSpec;
+    this.serializer = serializer;
+    this.publisher = publisher;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public Cache getCache(String name) {
+    TwoLevelCache cache = caches.get(name);
+    if (cache != null) return cache;
+
+    Cache l2 = shared.getCache(name);
+    if (l2 == null || !localCaches.contains(name)) return l2;
+    return caches.computeIfAbsent(name, n -> register(
+        new TwoLevelCache(n, localSpec.build(), l2, serializer, publisher, nodeId)));
+  }
+
+  @Override
+  public Collection<String> getCacheNames() {
+    Set<String> names = new LinkedHashSet<>(shared.getCacheNames());
+    names.addAll(caches.keySet());
+    return Collections.unmodifiableSet(names);
+  }
+
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  public void onRemoteInvalidation(CacheInvalidation message) {
+    TwoLevelCache cache = caches.get(message.cacheName());
+    if (cache != null) cache.onRemoteInvalidation(message);
+  }
+
+  private TwoLevelCache register(TwoLevelCache cache) {
+    if (meterRegistry == null) return cache;
+    for (TwoLevelCache.Tier tier : TwoLevelCache.Tier.values()) {
+      String t = tier.name().toLowerCase();
+      FunctionCounter.builder("cache.tier.gets", cache, c -> c.hits(tier))
+          .tags("cache", cache.getName(), "tier", t, "result", "hit")
+          .register(meterRegistry);
+      FunctionCounter.builder("cache.tier.gets", cache, c -> c.misses(tier))
+          .tags("cache", cache.getName(), "tier", t, "result", "miss")
+          .register(meterRegistry);
+    }
+    return cache;
+  }
+}
@@ -0,0 +1,63 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Updates counter rows that many transactions add to at once, such as lending totals and leaderboard buckets.
+ * <p>
+ * A missing row is inserted, empty, in a short transaction of its own that commits before the counter is touched;
+ * the counter is then changed with one {@code UPDATE} in the caller's transaction. Two transactions creating the
+ * same row therefore cannot both insert it, and the row is only locked once it exists: locking a missing row
+ * would take a gap lock on InnoDB, on which two such transactions can deadlock.
+ */
+public class CounterRows {
+
+    private final EntityManager em;
+    private final TransactionTemplate requiresNew;
+
+    public CounterRows(EntityManager em, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Runs {@code update}, a bulk update of the row of {@code type} with id {@code id}, inserting {@code emptyRow}
+     * first when there is no such row.
+     *
+     * @throws IllegalStateException if the row was deleted before it could be updated
+     */
+    public void update(Class<?> type, Object id, Supplier<?> emptyRow, Query update) {
+        if (!exists(type, id)) insertIfAbsent(type, id, emptyRow);
+        if (update.executeUpdate() == 0) {
+            throw new IllegalStateException("Counter row " + id + " was deleted while being updated");
+        }
+    }
+
+    /** A plain read: takes no lock, so it cannot conflict with another transaction inserting the row. */
+    private boolean exists(Class<?> type, Object id) {
+        var entity = em.getMetamodel().entity(type);
+        String idAttribute = entity.getId(id.getClass()).getName();
+        return em.createQuery("SELECT COUNT(e) FROM " + entity.getName() + " e WHERE e." + idAttribute + " = :id",
+                        Long.class)
+                .setParameter("id", id)
+                .getSingleResult() > 0;
+    }
+
+    private void insertIfAbsent(Class<?> type, Object id, Supplier<?> emptyRow) {
+        try {
+            requiresNew.executeWithoutResult(status -> {
+                if (em.find(type, id) == null) em.persist(emptyRow.get());
+            });
+        } catch (DataIntegrityViolationException e) {
+            // another transaction inserted it first; either row will do
+        }
+    }
+}
@@ -1,15 +1,24 @@
 package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl;
 
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import pt.psoft.g1.psoftg1.shared.model.ForbiddenName;
 import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
-public interface SpringDataForbiddenNameRepository extends ForbiddenNameRepository, CrudRepository<ForbiddenName, String> {
+public interface SpringDataForbiddenNameRepository extends ForbiddenNameRepository, ForbiddenNameRepoCustom, CrudRepository<ForbiddenName, String> {
     @Query("SELECT fn FROM ForbiddenName fn" +
             " WHERE :pat LIKE CONCAT('%', fn.forbiddenName, '%') ")
     List<ForbiddenName> findByForbiddenNameIsContained(String pat);
@@ -26,3 +35,48 @@ public interface SpringDataForbiddenNameRepository extends ForbiddenNameReposito
     int deleteForbiddenName(String forbiddenName);
 
 }
+
+interface ForbiddenNameRepoCustom {
+    int insertMissing(Collection<ForbiddenName> forbiddenNames);
+}
+
+@RequiredArgsConstructor
+class ForbiddenNameRepoCustomImpl implements ForbiddenNameRepoCustom {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final EntityManager em;
+
+    /**
+     * Works in chunks: one query finds which names of the chunk already exist, and the rest are flushed as a
+     * single JDBC batch before the persistence context is cleared. Runs in its own transaction, so a name inserted
+     * meanwhile by another node fails only this call, which the caller can repeat.
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int insertMissing(Collection<ForbiddenName> forbiddenNames) {
+        em.unwrap(Session.class).setJdbcBatchSize(BATCH_SIZE);
+
+        List<ForbiddenName> all = new ArrayList<>(forbiddenNames);
+        int inserted = 0;
+        for (int from = 0; from < all.size(); from += BATCH_SIZE) {
+            List<ForbiddenName> chunk = all.subList(from, Math.min(from + BATCH_SIZE, all.size()));
+            List<String> names = chunk.stream().map(ForbiddenName::getForbiddenName).toList();
+
+            Set<String> existing = new HashSet<>(em.createQuery(
+                            "SELECT fn.forbiddenName FROM ForbiddenName fn WHERE fn.forbiddenName IN :names", String.class)
+                    .setParameter("names", names)
+                    .getResultList());
+
+            for (ForbiddenName fn : chunk) {
+                if (existing.add(fn.getForbiddenName())) {
+                    em.persist(fn);
+                    inserted++;
+                }
+            }
+            em.flush();
+            em.clear();
+        }
+        return inserted;
+    }
+}
@@ -8,8 +8,10 @@ import org.springframework.transaction.annotation.Transactional;
 import pt.psoft.g1.psoftg1.shared.model.Photo;
 import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface SpringDataPhotoRepository extends PhotoRepository, CrudRepository<Photo, String> {
     /*@Override
@@ -24,4 +26,34 @@ public interface SpringDataPhotoRepository extends PhotoRepository, CrudReposito
             "FROM Photo p " +
             "WHERE p.photoFile = :photoFile")
     void deleteByPhotoFile(String photoFile);
+
+    @Query("SELECT COUNT(p) " +
+            "FROM Photo p " +
+            "WHERE p.photoFile = :photoFile")
+    long countByPhotoFile(@Param("photoFile") String photoFile);
+
+    /**
+     * Every entity's photo is its own {@code Photo} row, persisted and orphan-removed with the entity, so the rows
+     * are the references and there is nothing else to record.
+     */
+    @Override
+    default void retain(String photoFile) {
+    }
+
+    /** A file without a row is already unreferenced. */
+    @Override
+    default void stored(String photoFile) {
+    }
+
+    /** Call after saving the entity that dropped the photo, so its row is already gone. */
+    @Override
+    default boolean release(String photoFile) {
+        return countByPhotoFile(photoFile) == 0;
+    }
+
+    @Override
+    @Query("SELECT DISTINCT p.photoFile " +
+            "FROM Photo p " +
+            "WHERE p.photoFile IN :photoFiles")
+    Set<String> findReferenced(@Param("photoFiles") Collection<String> photoFiles);
 }
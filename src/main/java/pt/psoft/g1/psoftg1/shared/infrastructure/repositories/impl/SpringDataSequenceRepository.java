@@ -0,0 +1,49 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.shared.model.SequenceCounter;
+import pt.psoft.g1.psoftg1.shared.repositories.SequenceRepository;
+
+import java.util.function.LongSupplier;
+
+public interface SpringDataSequenceRepository extends SequenceRepository, SequenceRepoCustom, CrudRepository<SequenceCounter, String> {
+}
+
+interface SequenceRepoCustom {
+    long reserve(String name, int count, LongSupplier initialValue);
+
+    long current(String name);
+}
+
+@RequiredArgsConstructor
+class SequenceRepoCustomImpl implements SequenceRepoCustom {
+
+    private final EntityManager em;
+
+    /**
+     * Runs in its own short transaction so the row lock is released as soon as the block is reserved,
+     * not at the end of whatever business transaction asked for it.
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long reserve(String name, int count, LongSupplier initialValue) {
+        SequenceCounter counter = em.find(SequenceCounter.class, name, LockModeType.PESSIMISTIC_WRITE);
+        if (counter == null) {
+            counter = new SequenceCounter(name, initialValue.getAsLong());
+            em.persist(counter);
+        }
+        return counter.advance(count);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long current(String name) {
+        SequenceCounter counter = em.find(SequenceCounter.class, name);
+        return counter == null ? 0 : counter.getLastValue();
+    }
+}
@@ -0,0 +1,24 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Resolves private domain fields that the Mongo mappers have to restore (versions, ids, value objects without
+ * setters) into {@link VarHandle}s.
+ * <p>
+ * Mappers keep the handles in {@code static final} fields, so the lookup happens once when the mapper class is
+ * initialised and every later read or write is a plain field access the JIT can inline.
+ */
+public final class FieldHandles {
+
+  private FieldHandles() {}
+
+  public static VarHandle of(Class<?> owner, String name, Class<?> type) {
+    try {
+      return MethodHandles.privateLookupIn(owner, MethodHandles.lookup()).findVarHandle(owner, name, type);
+    } catch (NoSuchFieldException | IllegalAccessException e) {
+      throw new IllegalStateException("Cannot access " + owner.getSimpleName() + "." + name, e);
+    }
+  }
+}
@@ -1,11 +1,18 @@
 package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 
 import lombok.RequiredArgsConstructor;
@@ -17,7 +24,10 @@ import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
 @RequiredArgsConstructor
 public class ForbiddenNameMongoRepository implements ForbiddenNameRepository {
 
+  private static final int DUPLICATE_KEY = 11000;
+
   private final SpringMongoForbiddenNameRepo repo;
+  private final MongoTemplate mongoTemplate;
 
   private static ForbiddenName toDomain(ForbiddenNameDoc d) {
     return d == null ? null : new ForbiddenName(d.getId(), d.getForbiddenName());
@@ -52,6 +62,11 @@ public class ForbiddenNameMongoRepository implements ForbiddenNameRepository {
     return toDomain(saved);
   }
 
+  @Override
+  public long count() {
+    return repo.count();
+  }
+
   @Override
   public Optional<ForbiddenName> findByForbiddenName(String forbiddenName) {
     return repo.findByForbiddenName(forbiddenName).map(ForbiddenNameMongoRepository::toDomain);
@@ -61,4 +76,26 @@ public class ForbiddenNameMongoRepository implements ForbiddenNameRepository {
   public int deleteForbiddenName(String forbiddenName) {
     return (int) repo.deleteByForbiddenName(forbiddenName);
   }
+
+  /**
+   * One unordered bulk write of {@code $setOnInsert} upserts, so existing names are matched and left as they are.
+   * An upsert that loses the race with another node to the unique index fails with a duplicate key; that name is
+   * stored all the same, so it counts as skipped.
+   */
+  @Override
+  public int insertMissing(Collection<ForbiddenName> forbiddenNames) {
+    if (forbiddenNames.isEmpty()) return 0;
+    BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ForbiddenNameDoc.class);
+    for (ForbiddenName fn : forbiddenNames) {
+      ops.upsert(
+          Query.query(Criteria.where("forbiddenName").is(fn.getForbiddenName())),
+          new Update().setOnInsert("forbiddenName", fn.getForbiddenName()));
+    }
+    try {
+      return ops.execute().getUpserts().size();
+    } catch (BulkOperationException e) {
+      if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) throw e;
+      return e.getResult().getUpserts().size();
+    }
+  }
 }
@@ -0,0 +1,56 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes declared with {@code @Indexed}, {@code @CompoundIndex} and {@code @CompoundIndexes} on the
+ * Mongo documents.
+ * <p>
+ * Spring Data leaves automatic index creation off, so without this the annotations would only be documentation.
+ * Runs at startup before the bootstrappers, so the unique indexes are in place before any data is written.
+ * Creating an index that already exists with the same definition is a no-op.
+ */
+@Component
+@Profile("mongo")
+@Order(0)
+public class MongoIndexCreator implements ApplicationRunner {
+
+  private final MongoTemplate mongo;
+  private final MongoMappingContext mappingContext;
+
+  public MongoIndexCreator(MongoTemplate mongo, MongoMappingContext mappingContext) {
+    this.mongo = mongo;
+    this.mappingContext = mappingContext;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    createIndexes();
+  }
+
+  /** Returns the number of index definitions applied. */
+  public int createIndexes() {
+    IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+    int count = 0;
+    for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+      if (!entity.isAnnotationPresent(Document.class)) continue;
+      IndexOperations ops = mongo.indexOps(entity.getType());
+      for (var index : resolver.resolveIndexFor(entity.getTypeInformation())) {
+        ops.ensureIndex(index);
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -19,4 +19,6 @@ public class PhotoDoc {
   private String id;
   @Indexed(unique = true)
   private String photoFile;
+  /** Number of books, authors and readers whose photo is this file. */
+  private long refCount;
 }
@@ -1,21 +1,45 @@
 package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo;
 
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
 import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
 import pt.psoft.g1.psoftg1.shared.model.Photo;
 import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
 
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+@Slf4j
 @Repository
 @Profile("mongo")
 @RequiredArgsConstructor
 public class PhotoMongoRepository implements PhotoRepository {
+  /** Collections whose documents keep their photo's file name. */
+  private static final List<String> PHOTO_OWNERS = List.of("books", "authors", "readers");
+  private static final String MIGRATIONS = "migrations";
+  private static final String BACKFILL = "photo-references";
+
   private final SpringMongoPhotoRepo repo;
   private final IdGenerator idGenerator;
-
+  private final MongoTemplate mongoTemplate;
+  /** Set once every file some book, author or reader names has an entry, see {@link #backfillReferences}. */
+  private volatile boolean backfilled;
 
   @Override
   public Photo save(Photo photo) {
@@ -32,4 +56,95 @@ public class PhotoMongoRepository implements PhotoRepository {
   public void deleteByPhotoFile(String file) {
     repo.deleteByPhotoFile(file);
   }
+
+  /** Adds an entry at zero unless the file already has one, as it does when the same bytes are uploaded again. */
+  @Override
+  public void stored(String photoFile) {
+    mongoTemplate.upsert(byFile(photoFile),
+        new Update().setOnInsert("_id", idGenerator.newId("ph_")).setOnInsert("refCount", 0L),
+        PhotoDoc.class);
+  }
+
+  @Override
+  public void retain(String photoFile) {
+    mongoTemplate.upsert(byFile(photoFile),
+        new Update().inc("refCount", 1).setOnInsert("_id", idGenerator.newId("ph_")),
+        PhotoDoc.class);
+  }
+
+  /**
+   * Decrements the count. An entry that reaches zero is kept, so {@code findReferenced} still knows the file if
+   * deleting it is left to the orphan sweep, and a later retain of the same file reuses it. A file with no entry was
+   * stored before reference counting, when every upload had its own file, so its only reference is the one being
+   * dropped.
+   */
+  @Override
+  public boolean release(String photoFile) {
+    PhotoDoc doc = mongoTemplate.findAndModify(byFile(photoFile), new Update().inc("refCount", -1),
+        FindAndModifyOptions.options().returnNew(true), PhotoDoc.class);
+    return doc == null || doc.getRefCount() <= 0;
+  }
+
+  /**
+   * Files with a positive count, or that some book, author or reader names, are referenced. Until
+   * {@link #backfillReferences} has run, files with no entry at all are kept too: they may predate reference counting,
+   * when authors kept only their photo's id.
+   */
+  @Override
+  public Set<String> findReferenced(Collection<String> photoFiles) {
+    Query counted = Query.query(Criteria.where("photoFile").in(photoFiles).and("refCount").gt(0));
+    Set<String> unreferenced = new HashSet<>(photoFiles);
+    mongoTemplate.findDistinct(counted, "photoFile", PhotoDoc.class, String.class).forEach(unreferenced::remove);
+    if (!unreferenced.isEmpty() && !backfilled) {
+      Query known = Query.query(Criteria.where("photoFile").in(unreferenced));
+      unreferenced.retainAll(mongoTemplate.findDistinct(known, "photoFile", PhotoDoc.class, String.class));
+    }
+    if (!unreferenced.isEmpty()) {
+      Query named = Query.query(Criteria.where("photoFile").in(unreferenced));
+      for (String collection : PHOTO_OWNERS) {
+        mongoTemplate.findDistinct(named, "photoFile", collection, String.class).forEach(unreferenced::remove);
+      }
+    }
+    Set<String> referenced = new HashSet<>(photoFiles);
+    referenced.removeAll(unreferenced);
+    return referenced;
+  }
+
+  /**
+   * One-off migration giving every photo file in use an entry, so that {@link #findReferenced} can treat a file with
+   * no entry as an orphan. Authors saved with their photo's id alone get the file name from its entry, then each
+   * file's count is raised to the number of books, authors and readers naming it. Later runs only find the marker
+   * left in {@code migrations}.
+   */
+  public void backfillReferences() {
+    if (mongoTemplate.exists(Query.query(Criteria.where("_id").is(BACKFILL)), MIGRATIONS)) {
+      backfilled = true;
+      return;
+    }
+    Query idOnly = Query.query(Criteria.where("photoId").ne(null).and("photoFile").is(null));
+    for (Document author : mongoTemplate.find(idOnly, Document.class, "authors")) {
+      repo.findById(author.getString("photoId")).ifPresent(photo -> mongoTemplate.updateFirst(
+          Query.query(Criteria.where("_id").is(author.get("_id"))),
+          Update.update("photoFile", photo.getPhotoFile()), "authors"));
+    }
+    Map<String, Long> owners = new HashMap<>();
+    Aggregation perFile = newAggregation(
+        match(Criteria.where("photoFile").ne(null)),
+        group("photoFile").count().as("owners"));
+    for (String collection : PHOTO_OWNERS) {
+      for (Document file : mongoTemplate.aggregate(perFile, collection, Document.class)) {
+        owners.merge(file.getString("_id"), ((Number) file.get("owners")).longValue(), Long::sum);
+      }
+    }
+    owners.forEach((photoFile, count) -> mongoTemplate.upsert(byFile(photoFile),
+        new Update().max("refCount", count).setOnInsert("_id", idGenerator.newId("ph_")),
+        PhotoDoc.class));
+    mongoTemplate.save(new Document("_id", BACKFILL), MIGRATIONS);
+    backfilled = true;
+    log.info("Backfilled photo reference counts for {} files", owners.size());
+  }
+
+  private static Query byFile(String photoFile) {
+    return Query.query(Criteria.where("photoFile").is(photoFile));
+  }
 }
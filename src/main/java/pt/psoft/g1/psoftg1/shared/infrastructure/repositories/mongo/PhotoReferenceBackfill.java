@@ -0,0 +1,30 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gives the photo files of books, authors and readers saved before reference counting their entries, see
+ * {@link PhotoMongoRepository#backfillReferences}.
+ * <p>
+ * Runs at startup, after the bootstrappers. Until it has run, the orphan sweep keeps every file that has no entry.
+ */
+@Component
+@Profile("mongo")
+@Order(3)
+public class PhotoReferenceBackfill implements ApplicationRunner {
+
+  private final PhotoMongoRepository photoRepository;
+
+  public PhotoReferenceBackfill(PhotoMongoRepository photoRepository) {
+    this.photoRepository = photoRepository;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    photoRepository.backfillReferences();
+  }
+}
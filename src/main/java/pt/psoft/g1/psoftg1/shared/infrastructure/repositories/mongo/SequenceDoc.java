@@ -0,0 +1,19 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Document("sequences")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SequenceDoc {
+  @Id
+  private String id;
+  private long value;
+}
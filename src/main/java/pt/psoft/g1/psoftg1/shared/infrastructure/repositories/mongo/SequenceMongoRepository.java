@@ -0,0 +1,52 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import pt.psoft.g1.psoftg1.shared.repositories.SequenceRepository;
+
+import java.util.function.LongSupplier;
+
+@Repository
+@Profile("mongo")
+@RequiredArgsConstructor
+public class SequenceMongoRepository implements SequenceRepository {
+
+  private final MongoTemplate mongo;
+
+  @Override
+  public long reserve(String name, int count, LongSupplier initialValue) {
+    if (count < 1) throw new IllegalArgumentException("Count must be positive");
+
+    SequenceDoc updated = increment(name, count);
+    if (updated == null) {
+      try {
+        mongo.insert(new SequenceDoc(name, initialValue.getAsLong()));
+      } catch (DuplicateKeyException ignored) {
+        // another node seeded the counter first; its value is just as good
+      }
+      updated = increment(name, count);
+    }
+    return updated.getValue();
+  }
+
+  @Override
+  public long current(String name) {
+    SequenceDoc counter = mongo.findById(name, SequenceDoc.class);
+    return counter == null ? 0 : counter.getValue();
+  }
+
+  private SequenceDoc increment(String name, int count) {
+    return mongo.findAndModify(
+        Query.query(Criteria.where("_id").is(name)),
+        new Update().inc("value", count),
+        FindAndModifyOptions.options().returnNew(true),
+        SequenceDoc.class);
+  }
+}
@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
+@Table(indexes = @Index(columnList = "forbiddenName", unique = true))
 @NoArgsConstructor
 public class ForbiddenName{
 
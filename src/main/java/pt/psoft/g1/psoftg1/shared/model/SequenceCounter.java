@@ -0,0 +1,32 @@
+package pt.psoft.g1.psoftg1.shared.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+
+@Entity
+public class SequenceCounter {
+    @Id
+    @Column(length = 64, nullable = false, updatable = false)
+    @Getter
+    private String name;
+
+    @Column(nullable = false)
+    @Getter
+    private long lastValue;
+
+    protected SequenceCounter() {}
+
+    public SequenceCounter(String name, long lastValue) {
+        this.name = name;
+        this.lastValue = lastValue;
+    }
+
+    public long advance(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("Count must be positive");
+        lastValue += count;
+        return lastValue;
+    }
+}
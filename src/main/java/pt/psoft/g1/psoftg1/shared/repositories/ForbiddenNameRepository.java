@@ -2,6 +2,7 @@ package pt.psoft.g1.psoftg1.shared.repositories;
 
 import pt.psoft.g1.psoftg1.shared.model.ForbiddenName;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,4 +15,12 @@ public interface ForbiddenNameRepository {
 
     int deleteForbiddenName(String forbiddenName);
 
+    /**
+     * Stores, in bulk, the names not stored yet; names already present are left untouched.
+     * @return how many names were inserted
+     */
+    int insertMissing(Collection<ForbiddenName> forbiddenNames);
+
+    long count();
+
 }
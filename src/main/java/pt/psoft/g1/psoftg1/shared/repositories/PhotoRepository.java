@@ -2,7 +2,9 @@ package pt.psoft.g1.psoftg1.shared.repositories;
 
 import org.springframework.data.repository.query.Param;
 import pt.psoft.g1.psoftg1.shared.model.Photo;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 
 
 public interface PhotoRepository {
@@ -10,4 +12,29 @@ public interface PhotoRepository {
 
     Photo save(Photo photo);
     void deleteByPhotoFile(String photoFile);
+
+    /**
+     * Records that {@code photoFile} was just stored, before any entity references it, so that an upload whose entity
+     * is never saved is known to be unreferenced.
+     */
+    void stored(String photoFile);
+
+    /**
+     * Records that one more entity references {@code photoFile}. With content-addressed storage the same file can
+     * back the photos of several entities.
+     */
+    void retain(String photoFile);
+
+    /**
+     * Drops one entity's reference to {@code photoFile}.
+     *
+     * @return {@code true} if nothing references the file any more, so its bytes can be deleted
+     */
+    boolean release(String photoFile);
+
+    /**
+     * Returns those of {@code photoFiles} that must be kept: still the photo of some book, author or reader, or stored
+     * in a way that does not tell whether they are yet.
+     */
+    Set<String> findReferenced(Collection<String> photoFiles);
 }
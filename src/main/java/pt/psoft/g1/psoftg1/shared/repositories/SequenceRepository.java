@@ -0,0 +1,20 @@
+package pt.psoft.g1.psoftg1.shared.repositories;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Named, persistent counters used to hand out business sequence numbers.
+ */
+public interface SequenceRepository {
+
+    /**
+     * Atomically advances the counter {@code name} by {@code count} and returns its new value.
+     * <p>
+     * The caller owns the range {@code (returned - count, returned]}. When the counter does not exist yet it
+     * is first created with {@code initialValue}, so numbering can carry on from data that predates it.
+     */
+    long reserve(String name, int count, LongSupplier initialValue);
+
+    /** The last value of the counter {@code name}, or 0 when it does not exist yet; reads without locking. */
+    long current(String name);
+}
@@ -4,6 +4,9 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import lombok.Data;
 
+import java.time.Duration;
+import java.util.List;
+
 /**
  * <p>
  * code based on
@@ -16,4 +19,25 @@ import lombok.Data;
 public class FileStorageProperties {
     private String uploadDir;
     private long photoMaxSize;
+    /** Names uploads by their SHA-256 so identical photos are stored once; otherwise each upload gets a UUID. */
+    private boolean contentAddressed = true;
+    /** Widths and heights, in pixels, that photos can be requested at with {@code ?size=}. */
+    private List<Integer> thumbnailSizes = List.of(64, 128, 256);
+    /** Disk space, in bytes, kept for generated thumbnails before the least recently used are deleted. */
+    private long thumbnailQuota = 50L * 1024 * 1024;
+    /** Originals with more pixels than this are not decoded for thumbnails, only served as they are. */
+    private long thumbnailMaxPixels = 40_000_000;
+    /** The background job that deletes uploaded files no book, author or reader references. */
+    private OrphanSweep orphanSweep = new OrphanSweep();
+
+    @Data
+    public static class OrphanSweep {
+        private boolean enabled = true;
+        /** Files modified more recently than this are kept, so an upload whose entity is still being saved survives. */
+        private Duration gracePeriod = Duration.ofHours(24);
+        /** File names checked against the photo repository per query. */
+        private int batchSize = 500;
+        /** Upper bound on the files examined per second, to keep the disk and database load of a sweep low. */
+        private int filesPerSecond = 1000;
+    }
 }
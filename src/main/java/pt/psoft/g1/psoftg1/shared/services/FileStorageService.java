@@ -21,17 +21,26 @@
 package pt.psoft.g1.psoftg1.shared.services;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
 
 import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
@@ -40,6 +49,7 @@ import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.exceptions.FileStorageException;
 import pt.psoft.g1.psoftg1.shared.api.UploadFileResponse;
 import pt.psoft.g1.psoftg1.shared.model.FileUtils;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
 
 /**
  * <p>
@@ -54,12 +64,22 @@ public class FileStorageService {
 
     private final Path fileStorageLocation;
     private long photoMaxSize;
+    private final boolean contentAddressed;
+    private final PhotoRepository photoRepository;
     private final String[] validImageFormats = {"image/png", "image/jpeg"};
+    /** Striped by file name, so storing a content-addressed file and deleting it cannot interleave. */
+    private final Object[] fileLocks = new Object[64];
 
     @Autowired
-    public FileStorageService(final FileStorageProperties fileStorageProperties) {
+    public FileStorageService(final FileStorageProperties fileStorageProperties,
+                              final PhotoRepository photoRepository) {
         this.fileStorageLocation = Paths.get(fileStorageProperties.getUploadDir()).toAbsolutePath().normalize();
         this.photoMaxSize = fileStorageProperties.getPhotoMaxSize();
+        this.contentAddressed = fileStorageProperties.isContentAddressed();
+        this.photoRepository = photoRepository;
+        for (int i = 0; i < fileLocks.length; i++) {
+            fileLocks[i] = new Object();
+        }
 
         try {
             Files.createDirectories(fileStorageLocation);
@@ -69,7 +89,21 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Stores the upload and returns the name to reference it by. In content-addressed mode {@code prefix} is ignored:
+     * the name is the file's SHA-256, under two levels of prefix directories ({@code ab/cd/abcd....png}), and
+     * uploading bytes that are already stored reuses the existing file name. The file itself is written again, which
+     * restarts its age for {@link #deleteIfNotModifiedSince}: a reference about to be taken keeps the file, or puts
+     * it back if a concurrent last release deleted it just before. Either way the file is recorded with the
+     * {@link PhotoRepository} as stored, so the orphan sweep deletes it if no entity ever references it.
+     */
     public String storeFile(final String prefix, final MultipartFile file) {
+        final String fileName = contentAddressed ? storeContentAddressed(file) : storeNamed(prefix, file);
+        photoRepository.stored(fileName);
+        return fileName;
+    }
+
+    private String storeNamed(final String prefix, final MultipartFile file) {
         //final String fileName = prefix + "_" + determineFileName(file);
         //files will contain only the generated uuid passed as prefix
         final String fileName = prefix + "." + getExtension(file.getOriginalFilename()).orElse("");
@@ -85,6 +119,41 @@ public class FileStorageService {
         }
     }
 
+    private String storeContentAddressed(final MultipartFile file) {
+        final String extension = getExtension(file.getOriginalFilename())
+                .map(e -> "." + e.toLowerCase(Locale.ROOT))
+                .orElse("");
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(fileStorageLocation, "upload", ".tmp");
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            final String hash = HexFormat.of().formatHex(digest.digest());
+            final String fileName = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + extension;
+
+            final Path target = fileStorageLocation.resolve(fileName);
+            Files.createDirectories(target.getParent());
+            synchronized (lockFor(fileName)) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return fileName;
+        } catch (final IOException ex) {
+            throw new FileStorageException("Could not store file " + file.getOriginalFilename() + ". Please try again!", ex);
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (final IOException ignored) {
+                    // left for the orphaned-file sweep
+                }
+            }
+        }
+    }
+
     public void deleteFile(String file) {
         if(file == null) {
             throw new IllegalArgumentException("Received null reference to file path");
@@ -98,17 +167,48 @@ public class FileStorageService {
         }
     }
 
-    public byte[] getFile(final String fileName) {
-        String photoPathString = this.fileStorageLocation + "/" + fileName;
-        Path photoPath = Paths.get(photoPathString);
-        byte[] image = null;
-        try {
-            image = Files.readAllBytes(photoPath);
-        } catch(IOException e) {
-            return null;
+    /**
+     * Deletes {@code fileName} unless it was stored or reused at or after {@code cutoff}, which means a reference to
+     * it may be about to be saved.
+     *
+     * @return {@code true} if the file was deleted
+     */
+    public boolean deleteIfNotModifiedSince(final String fileName, final Instant cutoff) {
+        final Path filePath = fileStorageLocation.resolve(fileName).normalize();
+        if (!filePath.startsWith(fileStorageLocation)) {
+            return false;
+        }
+        synchronized (lockFor(fileName)) {
+            try {
+                if (!Files.getLastModifiedTime(filePath).toInstant().isBefore(cutoff)) {
+                    return false;
+                }
+                return Files.deleteIfExists(filePath);
+            } catch (final NoSuchFileException e) {
+                return false;
+            } catch (final IOException e) {
+                throw new FileStorageException("Could not delete file " + fileName, e);
+            }
         }
+    }
+
+    private Object lockFor(final String fileName) {
+        return fileLocks[Math.floorMod(fileName.hashCode(), fileLocks.length)];
+    }
 
-        return image;
+    /**
+     * Returns the stored file as a {@link Resource} that is read from disk as it is sent, or empty if there is no
+     * such file in the upload directory or no name is given.
+     */
+    public Optional<Resource> getFileResource(final String fileName) {
+        if (fileName == null || fileName.isBlank()) {
+            return Optional.empty();
+        }
+        final Path filePath = fileStorageLocation.resolve(fileName).normalize();
+        if (!filePath.startsWith(fileStorageLocation) || !Files.isRegularFile(filePath)) {
+            return Optional.empty();
+        }
+        return Optional.of(new FileSystemResource(filePath));
     }
 
     //Returns the string of the fileName of the file (UUID.FILE_FORMAT) stored in the uploads folder | null for error or no photo
@@ -148,10 +248,7 @@ public class FileStorageService {
                 //throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR);
             }
 
-            //String fileFormat = validImageFormats[formatIndex].split("/")[1];
-            String originalFileName = file.getOriginalFilename();
-            String fileFormat = originalFileName.substring(originalFileName.lastIndexOf('.')+1);
-            return photoUUID+"."+fileFormat;
+            return up.getFileName();
         }
 
         return null;
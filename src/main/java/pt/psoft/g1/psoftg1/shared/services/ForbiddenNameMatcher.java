@@ -0,0 +1,177 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pt.psoft.g1.psoftg1.shared.model.ForbiddenName;
+import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
+import pt.psoft.g1.psoftg1.shared.repositories.SequenceRepository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory check of names against the forbidden-name dictionary.
+ * <p>
+ * The dictionary is compiled into an Aho–Corasick automaton, so a whole name is checked in one pass over its
+ * characters without touching the database. As before, a forbidden name matches when it is contained in one of
+ * the words of the name, ignoring case. The automaton is rebuilt from {@link ForbiddenNameRepository#findAll()}
+ * on startup and after this node loads new names.
+ * <p>
+ * Changes made by other nodes are picked up by {@link #refresh()} every {@code forbiddenNames.refreshInterval}.
+ * It only reads the dictionary's row count and the {@code forbiddenNames} sequence, which every change made through
+ * {@link #changed()} advances, and reloads the names when either moved. Names added or removed straight in the
+ * database are seen through the count; an edit that keeps the count must also advance the sequence.
+ */
+@Service
+@PropertySource({"classpath:config/library.properties"})
+public class ForbiddenNameMatcher {
+
+    static final String VERSION_SEQUENCE = "forbiddenNames";
+
+    private final ForbiddenNameRepository forbiddenNameRepository;
+    private final SequenceRepository sequenceRepository;
+    private volatile Automaton automaton;
+    private Version builtAt;
+
+    public ForbiddenNameMatcher(ForbiddenNameRepository forbiddenNameRepository,
+                                SequenceRepository sequenceRepository) {
+        this.forbiddenNameRepository = forbiddenNameRepository;
+        this.sequenceRepository = sequenceRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        build(version());
+    }
+
+    /** Records that this node changed the dictionary, so the other nodes reload it, and rebuilds here right away. */
+    public void changed() {
+        sequenceRepository.reserve(VERSION_SEQUENCE, 1, () -> 0);
+        rebuild();
+    }
+
+    /** Rebuilds the automaton if the dictionary changed since it was built. */
+    @Scheduled(initialDelayString = "${forbiddenNames.refreshInterval:PT1M}",
+            fixedDelayString = "${forbiddenNames.refreshInterval:PT1M}")
+    public synchronized void refresh() {
+        Version version = version();
+        if (automaton == null || !version.equals(builtAt)) build(version);
+    }
+
+    private Version version() {
+        return new Version(sequenceRepository.current(VERSION_SEQUENCE), forbiddenNameRepository.count());
+    }
+
+    /** {@code version} is read before the names, so a change made in between is seen by the next refresh. */
+    private void build(Version version) {
+        automaton = Automaton.of(load());
+        builtAt = version;
+    }
+
+    private List<String> load() {
+        List<String> names = new ArrayList<>();
+        for (ForbiddenName fn : forbiddenNameRepository.findAll()) {
+            names.add(fn.getForbiddenName());
+        }
+        return names;
+    }
+
+    public boolean containsForbiddenName(String name) {
+        if (name == null || name.isEmpty()) return false;
+        Automaton a = automaton;
+        if (a == null) {
+            synchronized (this) {
+                if (automaton == null) rebuild();
+                a = automaton;
+            }
+        }
+        return a.matches(name);
+    }
+
+    private record Version(long sequence, long count) {}
+
+    /** Goto/fail tables over lower-cased characters; node 0 is the root. */
+    static final class Automaton {
+        private final Map<Character, Integer>[] next;
+        private final int[] fail;
+        private final boolean[] terminal;
+
+        private Automaton(Map<Character, Integer>[] next, int[] fail, boolean[] terminal) {
+            this.next = next;
+            this.fail = fail;
+            this.terminal = terminal;
+        }
+
+        @SuppressWarnings("unchecked")
+        static Automaton of(Iterable<String> patterns) {
+            List<Map<Character, Integer>> trie = new ArrayList<>();
+            List<Boolean> ends = new ArrayList<>();
+            trie.add(new HashMap<>());
+            ends.add(false);
+
+            for (String p : patterns) {
+                if (p == null || p.isBlank()) continue;
+                String s = p.strip().toLowerCase(Locale.ROOT);
+                int node = 0;
+                for (int i = 0; i < s.length(); i++) {
+                    Integer child = trie.get(node).get(s.charAt(i));
+                    if (child == null) {
+                        child = trie.size();
+                        trie.get(node).put(s.charAt(i), child);
+                        trie.add(new HashMap<>());
+                        ends.add(false);
+                    }
+                    node = child;
+                }
+                ends.set(node, true);
+            }
+
+            int n = trie.size();
+            Map<Character, Integer>[] next = trie.toArray(new Map[0]);
+            int[] fail = new int[n];
+            boolean[] terminal = new boolean[n];
+            for (int i = 0; i < n; i++) terminal[i] = ends.get(i);
+
+            // breadth-first, so a node's fail target is final before its children are linked
+            ArrayDeque<Integer> queue = new ArrayDeque<>(next[0].values());
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                for (Map.Entry<Character, Integer> e : next[node].entrySet()) {
+                    int child = e.getValue();
+                    int f = fail[node];
+                    while (f != 0 && !next[f].containsKey(e.getKey())) f = fail[f];
+                    int target = next[f].getOrDefault(e.getKey(), 0);
+                    fail[child] = target;
+                    terminal[child] |= terminal[target];
+                    queue.add(child);
+                }
+            }
+            return new Automaton(next, fail, terminal);
+        }
+
+        boolean matches(String text) {
+            String s = text.toLowerCase(Locale.ROOT);
+            int node = 0;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    // matches never span words
+                    node = 0;
+                    continue;
+                }
+                Integer child;
+                while ((child = next[node].get(c)) == null && node != 0) node = fail[node];
+                node = (child == null) ? 0 : child;
+                if (terminal[node]) return true;
+            }
+            return false;
+        }
+    }
+}
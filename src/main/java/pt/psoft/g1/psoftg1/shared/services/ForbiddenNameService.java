@@ -1,5 +1,12 @@
 package pt.psoft.g1.psoftg1.shared.services;
 
 public interface ForbiddenNameService {
-    void loadDataFromFile(String filePath);
+    /**
+     * Adds the names listed one per line in the classpath file {@code filePath}. Loading the same file again
+     * changes nothing.
+     * @return how many names were stored, and how many lines were skipped as blank, repeated or already stored
+     */
+    LoadResult loadDataFromFile(String filePath);
+
+    record LoadResult(int loaded, int skipped) {}
 }
@@ -2,6 +2,7 @@ package pt.psoft.g1.psoftg1.shared.services;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
 import pt.psoft.g1.psoftg1.shared.model.ForbiddenName;
@@ -10,28 +11,53 @@ import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class ForbiddenNameServiceImpl implements ForbiddenNameService {
     private final ForbiddenNameRepository repo;
     private final IdGenerator idGenerator;
+    private final ForbiddenNameMatcher matcher;
 
-    public void loadDataFromFile(String fileName) {
+    public LoadResult loadDataFromFile(String fileName) {
+        int lines = 0;
+        Set<String> names = new LinkedHashSet<>();
         try {
             ClassPathResource resource = new ClassPathResource(fileName);
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream()))) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
                 String line;
                 while ((line = reader.readLine()) != null) {
-                    final var fn = repo.findByForbiddenName(line);
-                    if (fn.isEmpty()) {
-                        ForbiddenName entity = new ForbiddenName(idGenerator.newId(), line);
-                        repo.save(entity);
-                    }
+                    lines++;
+                    String name = line.strip();
+                    if (!name.isEmpty()) names.add(name);
                 }
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+
+        List<ForbiddenName> entities = new ArrayList<>(names.size());
+        for (String name : names) {
+            entities.add(new ForbiddenName(idGenerator.newId(), name));
+        }
+        int loaded = entities.isEmpty() ? 0 : insertMissing(entities);
+
+        if (loaded > 0) matcher.changed();
+        return new LoadResult(loaded, lines - loaded);
+    }
+
+    private int insertMissing(List<ForbiddenName> entities) {
+        try {
+            return repo.insertMissing(entities);
+        } catch (DataIntegrityViolationException e) {
+            // another node stored some of the names first; they are skipped on the second pass
+            return repo.insertMissing(entities);
+        }
     }
 }
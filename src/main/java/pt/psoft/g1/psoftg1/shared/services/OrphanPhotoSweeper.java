@@ -0,0 +1,209 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Deletes uploaded files that no book, author or reader references.
+ * <p>
+ * Such files are left behind by uploads whose entity failed to save, or by a photo release that could not delete its
+ * file. The upload directory, including the content-addressed prefix directories, is read with
+ * {@link Files#newDirectoryStream} one directory at a time, and the file names are checked against the
+ * {@link PhotoRepository} in batches of {@code file.orphan-sweep.batch-size}. Thumbnails belong to their original and
+ * go with it, deleted through {@link PhotoThumbnailService} so its quota stays right; originals are deleted through
+ * {@link FileStorageService}, so a concurrent upload of the same bytes keeps them. Leftover {@code .tmp} files are
+ * always orphans. Only files older than
+ * {@code file.orphan-sweep.grace-period} are deleted, and at most {@code file.orphan-sweep.files-per-second} files are
+ * examined per second. Deleted files and reclaimed bytes are published as {@code photos.orphans.*} meters.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "file.orphan-sweep", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OrphanPhotoSweeper {
+
+    static final Pattern THUMBNAIL_SUFFIX = Pattern.compile("_w\\d+(?=\\.[A-Za-z]+$)");
+
+    private final PhotoRepository photoRepository;
+    private final FileStorageService fileStorageService;
+    private final PhotoThumbnailService photoThumbnailService;
+    private final Path uploadDir;
+    private final FileStorageProperties.OrphanSweep settings;
+    private final Counter deletedFiles;
+    private final Counter reclaimedBytes;
+
+    public OrphanPhotoSweeper(final PhotoRepository photoRepository,
+                              final FileStorageService fileStorageService,
+                              final PhotoThumbnailService photoThumbnailService,
+                              final FileStorageProperties fileStorageProperties,
+                              final MeterRegistry meterRegistry) {
+        this.photoRepository = photoRepository;
+        this.fileStorageService = fileStorageService;
+        this.photoThumbnailService = photoThumbnailService;
+        this.uploadDir = Paths.get(fileStorageProperties.getUploadDir()).toAbsolutePath().normalize();
+        this.settings = fileStorageProperties.getOrphanSweep();
+        this.deletedFiles = Counter.builder("photos.orphans.deleted")
+                .description("Unreferenced uploaded files deleted")
+                .register(meterRegistry);
+        this.reclaimedBytes = Counter.builder("photos.orphans.reclaimed")
+                .description("Disk space freed by deleting unreferenced uploaded files")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${file.orphan-sweep.initial-delay:PT10M}",
+            fixedDelayString = "${file.orphan-sweep.interval:PT6H}")
+    public void scheduledSweep() {
+        sweep();
+    }
+
+    /** Runs one pass over the upload directory and returns the number of bytes reclaimed. */
+    public long sweep() {
+        if (!Files.isDirectory(uploadDir)) {
+            return 0;
+        }
+        final Sweep sweep = new Sweep(Instant.now().minus(settings.getGracePeriod()));
+        try {
+            sweep.walk(uploadDir);
+            sweep.flush();
+        } catch (final IOException e) {
+            log.warn("Orphaned photo sweep of {} stopped early", uploadDir, e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Orphaned photo sweep examined {} files, deleted {} ({} bytes)",
+                sweep.examined, sweep.deleted, sweep.reclaimed);
+        return sweep.reclaimed;
+    }
+
+    /** The name the photo repository knows a file by: thumbnails are looked up by their original. */
+    static String referenceName(final String fileName) {
+        return THUMBNAIL_SUFFIX.matcher(fileName).replaceFirst("");
+    }
+
+    private final class Sweep {
+        private final Instant cutoff;
+        /** Candidate files of the current batch, by the name they are referenced by. */
+        private final Map<String, List<Path>> batch = new LinkedHashMap<>();
+        private long windowStarted = System.nanoTime();
+        private int batchFiles;
+        private long examined;
+        private long deleted;
+        private long reclaimed;
+
+        Sweep(final Instant cutoff) {
+            this.cutoff = cutoff;
+        }
+
+        void walk(final Path dir) throws IOException, InterruptedException {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (final Path entry : entries) {
+                    final BasicFileAttributes attrs =
+                            Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isDirectory()) {
+                        walk(entry);
+                    } else if (attrs.isRegularFile()) {
+                        examine(entry, attrs);
+                    }
+                }
+            }
+        }
+
+        private void examine(final Path file, final BasicFileAttributes attrs)
+                throws IOException, InterruptedException {
+            examined++;
+            if (attrs.lastModifiedTime().toInstant().isBefore(cutoff)) {
+                final String name = nameOf(file);
+                if (name.endsWith(".tmp")) {
+                    delete(file);
+                } else {
+                    batch.computeIfAbsent(referenceName(name), k -> new ArrayList<>()).add(file);
+                    batchFiles++;
+                }
+            }
+            if (batchFiles >= settings.getBatchSize()) {
+                flush();
+            }
+            throttle();
+        }
+
+        void flush() throws IOException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            final Set<String> referenced = photoRepository.findReferenced(batch.keySet());
+            for (final Map.Entry<String, List<Path>> candidate : batch.entrySet()) {
+                if (!referenced.contains(candidate.getKey())) {
+                    for (final Path file : candidate.getValue()) {
+                        delete(file);
+                    }
+                }
+            }
+            batch.clear();
+            batchFiles = 0;
+        }
+
+        /** Re-checks the age first: a deduplicated upload refreshes it once it is about to be referenced again. */
+        private void delete(final Path file) throws IOException {
+            final BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (final NoSuchFileException e) {
+                return;
+            }
+            if (!attrs.lastModifiedTime().toInstant().isBefore(cutoff) || !remove(file)) {
+                return;
+            }
+            deleted++;
+            reclaimed += attrs.size();
+            deletedFiles.increment();
+            reclaimedBytes.increment(attrs.size());
+            log.debug("Deleted orphaned photo file {}", file);
+        }
+
+        private boolean remove(final Path file) throws IOException {
+            final String name = nameOf(file);
+            if (name.endsWith(".tmp")) {
+                return Files.deleteIfExists(file);
+            }
+            if (!referenceName(name).equals(name)) {
+                return photoThumbnailService.deleteThumbnail(file);
+            }
+            return fileStorageService.deleteIfNotModifiedSince(name, cutoff);
+        }
+
+        private String nameOf(final Path file) {
+            return uploadDir.relativize(file).toString().replace(File.separatorChar, '/');
+        }
+
+        /** Sleeps whenever the files examined since the last pause got ahead of the configured rate. */
+        private void throttle() throws InterruptedException {
+            if (examined % Math.max(1, settings.getFilesPerSecond() / 10) != 0) {
+                return;
+            }
+            final long budget = TimeUnit.SECONDS.toNanos(1) / 10;
+            final long ahead = budget - (System.nanoTime() - windowStarted);
+            if (ahead > 0) {
+                TimeUnit.NANOSECONDS.sleep(ahead);
+            }
+            windowStarted = System.nanoTime();
+        }
+    }
+}
@@ -19,7 +19,17 @@ public class Page {
     @Max(value = 100, message = "You can request maximum 100 records")
     int limit;
 
+    /**
+     * Optional {@link PageCursor} returned as {@code nextCursor} by a previous search. When present the page
+     * {@code number} is ignored and the rows after the cursor are returned.
+     */
+    String cursor;
+
     public Page() {
         this(1, 10);
     }
+
+    public Page(int number, int limit) {
+        this(number, limit, null);
+    }
 }
@@ -0,0 +1,69 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Opaque keyset-pagination cursor.
+ * <p>
+ * A cursor carries the sort key of the last row of a page (plus a tie-breaker when the sort key is not unique),
+ * and the next page is read with a {@code >} predicate on that key instead of an offset. Pages stay as fast at
+ * the end of a result set as at its start, and rows inserted or removed before the cursor do not shift the next
+ * page. Clients must treat the value as opaque.
+ */
+public final class PageCursor {
+
+    private static final String SEPARATOR = "\u001F";
+
+    private PageCursor() {}
+
+    public static String encode(String... keys) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.join(SEPARATOR, keys).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode} with {@code keys} keys
+     */
+    public static String[] decode(String cursor, int keys) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, -1);
+            if (parts.length == keys) return parts;
+        } catch (IllegalArgumentException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid page cursor");
+    }
+
+    /**
+     * Reads a cursor key that was encoded from a {@link LocalDateTime}.
+     *
+     * @throws IllegalArgumentException if {@code key} is not such a timestamp
+     */
+    public static LocalDateTime timestamp(String key) {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid page cursor", e);
+        }
+    }
+
+    /**
+     * Cursor for the page after {@code items}, or {@code null} when {@code items} is the last page.
+     */
+    public static <T> String next(Page page, List<T> items, Function<T, String[]> keys) {
+        int limit = page == null ? new Page().getLimit() : page.getLimit();
+        if (items.isEmpty() || items.size() < limit) return null;
+        return encode(keys.apply(items.get(items.size() - 1)));
+    }
+
+    /** Whether {@code page} asks for the rows after a cursor rather than for a page number. */
+    public static boolean isKeyset(Page page) {
+        return page != null && page.getCursor() != null && !page.getCursor().isBlank();
+    }
+}
@@ -0,0 +1,77 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.exceptions.FileStorageException;
+import pt.psoft.g1.psoftg1.shared.model.Photo;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Keeps the reference counts of stored photo files and deletes a file's bytes when its last reference goes.
+ * <p>
+ * With content-addressed storage several books, authors or readers can share one file, so a photo is only deleted
+ * from disk once no entity uses it. Services call this after saving the entity whose photo changed. A file stored or
+ * reused within {@code file.orphan-sweep.grace-period} may be about to get a new reference, so it is not deleted on
+ * release but left to {@link OrphanPhotoSweeper}, which deletes it once it is older and still unreferenced.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PhotoReferenceService {
+
+    private final PhotoRepository photoRepository;
+    private final FileStorageService fileStorageService;
+    private final FileStorageProperties fileStorageProperties;
+
+    /** Records that an entity's photo went from {@code previous} to {@code current}; either may be {@code null}. */
+    public void replaced(final Photo previous, final Photo current) {
+        final String previousFile = previous == null ? null : previous.getPhotoFile();
+        final String currentFile = current == null ? null : current.getPhotoFile();
+        if (Objects.equals(previousFile, currentFile)) {
+            return;
+        }
+        if (currentFile != null) {
+            photoRepository.retain(currentFile);
+        }
+        if (previousFile != null) {
+            release(previousFile);
+        }
+    }
+
+    /**
+     * Drops one reference to {@code photoFile}, deleting the file if it was the last. Inside a transaction the file
+     * is deleted after the commit, so a rolled back change never points at a deleted file.
+     */
+    public void release(final String photoFile) {
+        if (!photoRepository.release(photoFile)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    delete(photoFile);
+                }
+            });
+        } else {
+            delete(photoFile);
+        }
+    }
+
+    private void delete(final String photoFile) {
+        final Instant cutoff = Instant.now().minus(fileStorageProperties.getOrphanSweep().getGracePeriod());
+        try {
+            if (!fileStorageService.deleteIfNotModifiedSince(photoFile, cutoff)) {
+                log.debug("Photo file {} is recent or already gone; left to the orphan sweep", photoFile);
+            }
+        } catch (final FileStorageException e) {
+            log.warn("Could not delete photo file {}; left to the orphan sweep", photoFile, e);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import pt.psoft.g1.psoftg1.exceptions.FileStorageException;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Serves photos at the sizes listed in {@code file.thumbnail-sizes}.
+ * <p>
+ * A thumbnail is generated with {@code javax.imageio} the first time it is asked for and written next to the
+ * original as {@code <name>_w<size>.<ext>}. Only every n-th pixel of a large original is decoded, and originals of
+ * more than {@code file.thumbnail-max-pixels} pixels are not decoded at all but served as they are, like those
+ * {@code javax.imageio} cannot read; both are remembered so they are not tried again on every request. Concurrent
+ * first requests for the same thumbnail wait for a single resize. Thumbnails are kept in least recently used order and deleted once they take more than
+ * {@code file.thumbnail-quota} bytes; a deleted thumbnail is simply generated again on its next request.
+ */
+@Slf4j
+@Service
+public class PhotoThumbnailService {
+
+    static final Pattern VARIANT_NAME = Pattern.compile(".+_w\\d+\\.[A-Za-z]+$");
+
+    private final FileStorageService fileStorageService;
+    private final Set<Integer> sizes;
+    private final long quota;
+    private final long maxPixels;
+
+    /** Originals served without thumbnails. Uploads are never rewritten under the same name, so the path is enough. */
+    private final Cache<Path, Boolean> undecodable = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+    private final ConcurrentMap<Path, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    /** Thumbnail sizes in bytes, least recently used first. */
+    private final LinkedHashMap<Path, Long> lru = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    public PhotoThumbnailService(final FileStorageService fileStorageService,
+                                 final FileStorageProperties fileStorageProperties) {
+        this.fileStorageService = fileStorageService;
+        this.sizes = Set.copyOf(fileStorageProperties.getThumbnailSizes());
+        this.quota = fileStorageProperties.getThumbnailQuota();
+        this.maxPixels = fileStorageProperties.getThumbnailMaxPixels();
+        loadExistingThumbnails(Paths.get(fileStorageProperties.getUploadDir()).toAbsolutePath().normalize());
+    }
+
+    /**
+     * Returns the photo at the requested size, or the original when {@code size} is {@code null}, the original is
+     * not an image {@code javax.imageio} can read or it has more than {@code file.thumbnail-max-pixels} pixels.
+     * Empty if the original does not exist.
+     *
+     * @throws IllegalArgumentException if {@code size} is not one of the configured sizes
+     */
+    public Optional<Resource> getPhoto(final String fileName, final Integer size) {
+        if (size != null && !sizes.contains(size)) {
+            throw new IllegalArgumentException("Photo size must be one of " + new TreeSet<>(sizes));
+        }
+        final Optional<Resource> original = fileStorageService.getFileResource(fileName);
+        if (size == null || original.isEmpty()) {
+            return original;
+        }
+
+        try {
+            final Path source = original.get().getFile().toPath();
+            final Path variant = source.resolveSibling(variantName(source.getFileName().toString(), size));
+            final Path thumbnail = Files.isRegularFile(variant) ? touch(variant) : generateOnce(source, variant, size);
+            return Optional.of(thumbnail == null ? original.get() : new FileSystemResource(thumbnail));
+        } catch (final IOException e) {
+            throw new FileStorageException("Could not read photo " + fileName, e);
+        }
+    }
+
+    static String variantName(final String fileName, final int size) {
+        final int dot = fileName.lastIndexOf('.');
+        return dot < 0
+                ? fileName + "_w" + size
+                : fileName.substring(0, dot) + "_w" + size + fileName.substring(dot);
+    }
+
+    /** The first caller for a thumbnail resizes it; the others wait for that result. */
+    private Path generateOnce(final Path source, final Path variant, final int size) {
+        final CompletableFuture<Path> mine = new CompletableFuture<>();
+        final CompletableFuture<Path> running = inFlight.putIfAbsent(variant, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (final CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+
+        try {
+            final Path result = resize(source, variant, size);
+            mine.complete(result);
+            return result;
+        } catch (final RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(variant, mine);
+        }
+    }
+
+    /** Returns {@code null} when the original cannot be decoded or is too large, so it is served as is. */
+    private Path resize(final Path source, final Path variant, final int size) {
+        if (undecodable.getIfPresent(source) != null) {
+            return null;
+        }
+        try {
+            final Decoded decoded = decode(source, size);
+            if (decoded == null) {
+                undecodable.put(source, Boolean.TRUE);
+                return null;
+            }
+            final String format = formatOf(variant);
+            final double scale = Math.min(1.0, (double) size / Math.max(decoded.width(), decoded.height()));
+            final int width = Math.max(1, (int) Math.round(decoded.width() * scale));
+            final int height = Math.max(1, (int) Math.round(decoded.height() * scale));
+
+            final BufferedImage thumbnail = new BufferedImage(width, height,
+                    "png".equals(format) ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            final Graphics2D g = thumbnail.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(decoded.image(), 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+
+            final Path tmp = Files.createTempFile(variant.getParent(), "thumb", ".tmp");
+            try {
+                if (!ImageIO.write(thumbnail, format, tmp.toFile())) {
+                    return null;
+                }
+                Files.move(tmp, variant, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            record(variant, Files.size(variant));
+            return variant;
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Could not generate thumbnail " + variant.getFileName(), e);
+        }
+    }
+
+    /**
+     * Reads the original's dimensions from its header and decodes only as many pixels as the thumbnail needs: every
+     * n-th row and column, leaving at least twice the thumbnail's size for the smoothing resize. Returns {@code null}
+     * when no reader recognises the file, its data is corrupt or it has more than {@code maxPixels} pixels.
+     */
+    private Decoded decode(final Path source, final int size) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            final Iterator<ImageReader> readers = in == null ? Collections.emptyIterator() : ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            final ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                final int width = reader.getWidth(0);
+                final int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.warn("Not generating thumbnails of {}: {}x{} pixels is over the limit of {}",
+                            source.getFileName(), width, height, maxPixels);
+                    return null;
+                }
+                final int step = Math.max(1, Math.max(width, height) / (2 * size));
+                final ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return new Decoded(reader.read(0, param), width, height);
+            } catch (final IIOException e) {
+                log.debug("Could not decode {}", source.getFileName(), e);
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** A possibly subsampled image and the original's dimensions. */
+    private record Decoded(BufferedImage image, int width, int height) {
+    }
+
+    /**
+     * Deletes a thumbnail whose original is going away, taking its bytes off the quota.
+     *
+     * @return {@code true} if the file was deleted
+     */
+    public boolean deleteThumbnail(final Path thumbnail) throws IOException {
+        synchronized (lru) {
+            final Long bytes = lru.remove(thumbnail);
+            if (bytes != null) {
+                usedBytes -= bytes;
+            }
+            return Files.deleteIfExists(thumbnail);
+        }
+    }
+
+    /** Disk space taken by the thumbnails, in bytes. */
+    public long usedBytes() {
+        synchronized (lru) {
+            return usedBytes;
+        }
+    }
+
+    private static String formatOf(final Path variant) {
+        final String name = variant.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".png") ? "png" : "jpg";
+    }
+
+    private Path touch(final Path variant) throws IOException {
+        synchronized (lru) {
+            if (lru.get(variant) == null) {
+                record(variant, Files.size(variant));
+            }
+        }
+        return variant;
+    }
+
+    private void record(final Path variant, final long bytes) {
+        synchronized (lru) {
+            final Long previous = lru.put(variant, bytes);
+            usedBytes += bytes - (previous == null ? 0 : previous);
+            final Iterator<Map.Entry<Path, Long>> it = lru.entrySet().iterator();
+            while (usedBytes > quota && it.hasNext()) {
+                final Map.Entry<Path, Long> eldest = it.next();
+                if (eldest.getKey().equals(variant)) {
+                    continue;
+                }
+                it.remove();
+                usedBytes -= eldest.getValue();
+                try {
+                    Files.deleteIfExists(eldest.getKey());
+                } catch (final IOException e) {
+                    log.warn("Could not evict thumbnail {}", eldest.getKey(), e);
+                }
+            }
+        }
+    }
+
+    /** Picks up the thumbnails left by a previous run, oldest first, so the quota covers them too. */
+    private void loadExistingThumbnails(final Path uploadDir) {
+        if (!Files.isDirectory(uploadDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            final List<Path> thumbnails = files
+                    .filter(p -> VARIANT_NAME.matcher(p.getFileName().toString()).matches())
+                    .filter(Files::isRegularFile)
+                    .sorted(Comparator.comparing(PhotoThumbnailService::lastModified))
+                    .toList();
+            for (final Path thumbnail : thumbnails) {
+                record(thumbnail, Files.size(thumbnail));
+            }
+        } catch (final IOException e) {
+            log.warn("Could not scan {} for thumbnails", uploadDir, e);
+        }
+    }
+
+    private static FileTime lastModified(final Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (final IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
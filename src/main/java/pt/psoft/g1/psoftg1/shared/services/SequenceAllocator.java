@@ -0,0 +1,90 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import pt.psoft.g1.psoftg1.shared.repositories.SequenceRepository;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands out sequence numbers from blocks reserved in a {@link SequenceRepository}.
+ * <p>
+ * Only one round trip is made per {@code blockSize} numbers; the rest are taken from memory with a single
+ * atomic increment. Numbers are unique across threads and nodes, but a block left unused when the node
+ * stops is never handed out, so a sequence may have gaps.
+ */
+@Service
+@PropertySource({"classpath:config/library.properties"})
+public class SequenceAllocator {
+
+    private final SequenceRepository sequenceRepository;
+    private final int blockSize;
+    private final ConcurrentMap<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public SequenceAllocator(SequenceRepository sequenceRepository,
+                             @Value("${sequenceBlockSize:20}") int blockSize) {
+        if (blockSize < 1)
+            throw new IllegalArgumentException("Sequence block size must be positive");
+        this.sequenceRepository = sequenceRepository;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the next number of sequence {@code name}.
+     * @param initialValue last number already in use, only consulted the first time the sequence is persisted
+     */
+    public long next(String name, LongSupplier initialValue) {
+        Block block = blocks.computeIfAbsent(name, k -> new Block());
+        long v = block.tryNext();
+        if (v != Block.EXHAUSTED) return v;
+
+        synchronized (block) {
+            v = block.tryNext();
+            if (v != Block.EXHAUSTED) return v;
+
+            long last = reserve(name, initialValue);
+            block.refill(last - blockSize + 1, last);
+            return block.tryNext();
+        }
+    }
+
+    private long reserve(String name, LongSupplier initialValue) {
+        try {
+            return sequenceRepository.reserve(name, blockSize, initialValue);
+        } catch (DataIntegrityViolationException e) {
+            // lost the race to create the counter on another node; it exists now
+            return sequenceRepository.reserve(name, blockSize, initialValue);
+        }
+    }
+
+    private static final class Block {
+        static final long EXHAUSTED = Long.MIN_VALUE;
+
+        private volatile Range range = new Range(1, 0);
+
+        long tryNext() {
+            Range r = range;
+            long v = r.next.getAndIncrement();
+            return v <= r.last ? v : EXHAUSTED;
+        }
+
+        void refill(long first, long last) {
+            range = new Range(first, last);
+        }
+    }
+
+    private static final class Range {
+        final AtomicLong next;
+        final long last;
+
+        Range(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+    }
+}
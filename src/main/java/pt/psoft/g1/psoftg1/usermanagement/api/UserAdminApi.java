@@ -26,6 +26,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
 import pt.psoft.g1.psoftg1.usermanagement.model.Role;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
@@ -77,6 +78,7 @@ public class UserAdminApi {
 	@PostMapping("search")
 	public ListResponse<UserView> search(@RequestBody final SearchRequest<SearchUsersQuery> request) {
 		final List<User> searchUsers = userService.searchUsers(request.getPage(), request.getQuery());
-		return new ListResponse<>(userViewMapper.toUserView(searchUsers));
+		return new ListResponse<>(userViewMapper.toUserView(searchUsers), PageCursor.next(request.getPage(), searchUsers,
+				u -> new String[] { u.getCreatedAt().toString(), u.getUsername() }));
 	}
 }
@@ -20,6 +20,7 @@
  */
 package pt.psoft.g1.psoftg1.usermanagement.infrastructure.repositories.impl;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -41,6 +42,7 @@ import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
 import pt.psoft.g1.psoftg1.usermanagement.services.SearchUsersQuery;
 
 import lombok.RequiredArgsConstructor;
@@ -131,15 +133,27 @@ class UserRepoCustomImpl implements UserRepoCustom {
 			where.add(cb.like(root.get("fullName"), "%" + query.getFullName() + "%"));
 		}
 
+		final List<Predicate> and = new ArrayList<>();
 		// search using OR
 		if (!where.isEmpty()) {
-			cq.where(cb.or(where.toArray(new Predicate[0])));
+			and.add(cb.or(where.toArray(new Predicate[0])));
 		}
 
-		cq.orderBy(cb.desc(root.get("createdAt")));
+		// newest first; the username breaks ties so a cursor points at exactly one user
+		final Path<LocalDateTime> createdKey = root.get("createdAt");
+		final Path<String> usernameKey = root.get("username");
+		if (PageCursor.isKeyset(page)) {
+			final String[] after = PageCursor.decode(page.getCursor(), 2);
+			final LocalDateTime createdAt = PageCursor.timestamp(after[0]);
+			and.add(cb.or(cb.lessThan(createdKey, createdAt),
+					cb.and(cb.equal(createdKey, createdAt), cb.lessThan(usernameKey, after[1]))));
+		}
+		cq.where(and.toArray(new Predicate[0]));
+		cq.orderBy(cb.desc(createdKey), cb.desc(usernameKey));
 
 		final TypedQuery<User> q = em.createQuery(cq);
-		q.setFirstResult((page.getNumber() - 1) * page.getLimit());
+		if (!PageCursor.isKeyset(page))
+			q.setFirstResult((page.getNumber() - 1) * page.getLimit());
 		q.setMaxResults(page.getLimit());
 
 		return q.getResultList();
@@ -2,6 +2,7 @@ package pt.psoft.g1.psoftg1.usermanagement.infrastructure.repositories.mongo;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -9,6 +10,8 @@ import java.time.LocalDateTime;
 import java.util.Set;
 
 @Document("users")
+// searchUsers order and cursor, newest first
+@CompoundIndex(name = "createdAt_username", def = "{'createdAt': -1, 'username': -1}")
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class UserDoc {
   @Id
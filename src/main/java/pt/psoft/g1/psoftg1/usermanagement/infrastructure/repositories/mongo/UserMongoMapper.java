@@ -7,8 +7,8 @@ import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
 import pt.psoft.g1.psoftg1.usermanagement.model.Role;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 
-import java.lang.reflect.Field;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -21,15 +21,17 @@ public class UserMongoMapper {
     Set<String> roles = new HashSet<>();
     u.getAuthorities().forEach(r -> roles.add(r.getAuthority()));
 
+    // Mongo keeps milliseconds, so a time truncated here reads back equal and can key a page cursor
+    LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
     return UserDoc.builder()
         .id(u.getId())
         .username(u.getUsername())
-        .password(extractPasswordUnsafe(u))
+        .password(u.getPassword())
         .fullName(u.getName() == null ? null : u.getName().toString())
         .enabled(u.isEnabled())
         .roles(roles)
-        .createdAt(LocalDateTime.now())
-        .modifiedAt(LocalDateTime.now())
+        .createdAt(u.getCreatedAt() == null ? now : u.getCreatedAt())
+        .modifiedAt(now)
         .build();
   }
 
@@ -58,28 +60,10 @@ public class UserMongoMapper {
 
     roles.forEach(r -> u.addAuthority(new Role(r)));
 
-    try {
-      Field fp = User.class.getDeclaredField("password");
-      fp.setAccessible(true);
-      fp.set(u, pwdHash);
-    } catch (Exception ignored) {}
-
-    try {
-      Field fid = User.class.getDeclaredField("id");
-      fid.setAccessible(true);
-      fid.set(u, d.getId());
-    } catch (Exception ignored) {}
+    u.setPassword(pwdHash);
+    if (d.getId() != null) u.assignId(d.getId());
+    if (d.getCreatedAt() != null) u.assignCreatedAt(d.getCreatedAt());
 
     return u;
   }
-
-  private String extractPasswordUnsafe(User u) {
-    try {
-      var f = User.class.getDeclaredField("password");
-      f.setAccessible(true);
-      return (String) f.get(u);
-    } catch (Exception e) {
-      return null;
-    }
-  }
 }
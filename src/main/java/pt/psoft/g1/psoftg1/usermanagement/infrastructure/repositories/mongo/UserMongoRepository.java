@@ -9,12 +9,13 @@ import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Repository;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
 import pt.psoft.g1.psoftg1.usermanagement.model.Role;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
 import pt.psoft.g1.psoftg1.usermanagement.services.SearchUsersQuery;
 
-import java.lang.reflect.Field;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -36,14 +37,6 @@ public class UserMongoRepository implements UserRepository {
     return "^" + Pattern.quote(s);
   }
 
-  private void setDomainId(User u, String id) {
-    try {
-      Field fid = User.class.getDeclaredField("id");
-      fid.setAccessible(true);
-      fid.set(u, id);
-    } catch (Exception ignored) {}
-  }
-
   @Override
   public <S extends User> List<S> saveAll(Iterable<S> entities) {
     List<S> list = StreamSupport.stream(entities.spliterator(), false).collect(Collectors.toList());
@@ -63,15 +56,14 @@ public class UserMongoRepository implements UserRepository {
     var doc = mapper.toDoc(entity);
     if (existingByUsername != null) {
       doc.setId(existingByUsername.getId());
+      // an update keeps the user's place in the newest-first search order
+      if (existingByUsername.getCreatedAt() != null) doc.setCreatedAt(existingByUsername.getCreatedAt());
     }
 
     var saved = repo.save(doc);
 
-    try {
-      Field fid = User.class.getDeclaredField("id");
-      fid.setAccessible(true);
-      fid.set(entity, saved.getId());
-    } catch (Exception ignored) { }
+    entity.assignId(saved.getId());
+    entity.assignCreatedAt(saved.getCreatedAt());
 
     return entity;
   }
@@ -81,6 +73,11 @@ public class UserMongoRepository implements UserRepository {
     return repo.findById(objectId).map(mapper::toDomain);
   }
 
+  @Override
+  public Iterable<User> findAllById(Iterable<String> ids) {
+    return repo.findAllById(ids).stream().map(mapper::toDomain).toList();
+  }
+
   @Override
   public Optional<User> findByUsername(String username) {
     return repo.findByUsername(username).map(mapper::toDomain);
@@ -100,9 +97,19 @@ public class UserMongoRepository implements UserRepository {
       }
     }
 
-    q.with(Sort.by(Sort.Direction.DESC, "createdAt"));
+    // newest first; the username breaks ties so a cursor points at exactly one user
+    q.with(Sort.by(Sort.Direction.DESC, "createdAt", "username"));
     var pageable = PageRequest.of(Math.max(0, page.getNumber() - 1), Math.max(1, page.getLimit()));
-    q.skip((long) pageable.getPageNumber() * pageable.getPageSize()).limit(pageable.getPageSize());
+    if (PageCursor.isKeyset(page)) {
+      String[] after = PageCursor.decode(page.getCursor(), 2);
+      LocalDateTime createdAt = PageCursor.timestamp(after[0]);
+      q.addCriteria(new Criteria().orOperator(
+          Criteria.where("createdAt").lt(createdAt),
+          Criteria.where("createdAt").is(createdAt).and("username").lt(after[1])));
+    } else {
+      q.skip((long) pageable.getPageNumber() * pageable.getPageSize());
+    }
+    q.limit(pageable.getPageSize());
 
     return mongo.find(q, UserDoc.class).stream().map(mapper::toDomain).toList();
   }
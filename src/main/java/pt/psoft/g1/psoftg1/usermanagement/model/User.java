@@ -193,6 +193,11 @@ public class User implements UserDetails {
 		this.id = id;
 	}
 
+	/** Restores the creation time kept by a store that does not audit it itself; a time already set is kept. */
+	public void assignCreatedAt(LocalDateTime createdAt) {
+		if (this.createdAt == null) this.createdAt = createdAt;
+	}
+
 	@PrePersist
 	void prePersist() {
 
@@ -39,6 +39,8 @@ public interface UserRepository {
 
 	Optional<User> findById(String id);
 
+	Iterable<User> findAllById(Iterable<String> ids);
+
 	default User getById(final String id) {
 		final Optional<User> maybeUser = findById(id);
 		// throws 404 Not Found if the user does not exist or is not enabled
@@ -32,7 +32,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
-import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
+import pt.psoft.g1.psoftg1.shared.services.ForbiddenNameMatcher;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.usermanagement.model.Librarian;
 import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
@@ -54,7 +54,7 @@ public class UserService implements UserDetailsService {
 	private final UserRepository userRepo;
 	private final EditUserMapper userEditMapper;
 
-	private final ForbiddenNameRepository forbiddenNameRepository;
+	private final ForbiddenNameMatcher forbiddenNameMatcher;
 
 	private final PasswordEncoder passwordEncoder;
 
@@ -71,11 +71,8 @@ public class UserService implements UserDetailsService {
 			throw new ConflictException("Username already exists!");
 		}
 
-		Iterable<String> words = List.of(request.getName().split("\\s+"));
-		for (String word : words){
-			if(!forbiddenNameRepository.findByForbiddenNameIsContained(word).isEmpty()) {
-				throw new IllegalArgumentException("Name contains a forbidden word");
-			}
+		if (forbiddenNameMatcher.containsForbiddenName(request.getName())) {
+			throw new IllegalArgumentException("Name contains a forbidden word");
 		}
 
 		User user;
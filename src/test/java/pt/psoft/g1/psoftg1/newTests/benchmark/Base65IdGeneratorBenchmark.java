@@ -0,0 +1,89 @@
+package pt.psoft.g1.psoftg1.newTests.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pt.psoft.g1.psoftg1.shared.id.Base65IdGenerator;
+import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Base65IdGenerator} against the previous BigInteger-based encoder.
+ * <p>
+ * Add {@code -prof gc} to the JMH command line to compare allocation per id ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class Base65IdGeneratorBenchmark {
+
+  private final IdGenerator current = new Base65IdGenerator();
+  private final IdGenerator legacy = new LegacyBase65IdGenerator();
+
+  @Benchmark
+  public String current() {
+    return current.newId();
+  }
+
+  @Benchmark
+  public String legacy() {
+    return legacy.newId();
+  }
+
+  /** The generator as it was before it moved to long arithmetic, kept here only as a baseline. */
+  static final class LegacyBase65IdGenerator implements IdGenerator {
+    private static final char[] ALPH = (
+        "0123456789" +
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZ" +
+            "abcdefghijklmnopqrstuvwxyz" +
+            "-_" +
+            "~"
+    ).toCharArray();
+    private static final int RADIX = ALPH.length;
+    private static final int BYTES = 16;
+    private static final int FIXED_LEN = 22;
+    private static final SecureRandom RNG = new SecureRandom();
+
+    @Override public String newId() { return newId(null); }
+
+    @Override
+    public String newId(String prefix) {
+      byte[] buf = new byte[BYTES];
+      RNG.nextBytes(buf);
+
+      BigInteger x = new BigInteger(1, buf);
+
+      char[] tmp = new char[64];
+      int i = 0;
+      while (x.signum() != 0) {
+        BigInteger[] qr = x.divideAndRemainder(BigInteger.valueOf(RADIX));
+        tmp[i++] = ALPH[qr[1].intValue()];
+        x = qr[0];
+      }
+      if (i == 0) tmp[i++] = ALPH[0];
+
+      char[] out = new char[Math.max(FIXED_LEN, i)];
+      int outLen = Math.max(FIXED_LEN, i);
+      int p = outLen - i;
+      for (int k = 0; k < p; k++) out[k] = ALPH[0];
+      while (i > 0) out[p++] = tmp[--i];
+
+      String core = new String(out);
+      return (prefix == null || prefix.isEmpty()) ? core : prefix + core;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(Base65IdGeneratorBenchmark.class.getSimpleName())
+        .addProfiler("gc")
+        .build()).run();
+  }
+}
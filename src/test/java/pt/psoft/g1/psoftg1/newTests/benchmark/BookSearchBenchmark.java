@@ -0,0 +1,182 @@
+package pt.psoft.g1.psoftg1.newTests.benchmark;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.MongoDBContainer;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchDocument;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchIndex;
+import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Book search over a seeded catalogue: the {@code books} collection queried the way {@code BookMongoRepository}
+ * does, against {@link BookSearchIndex} holding the same books.
+ * <p>
+ * The {@code mongo*} methods run the repository's case-insensitive regex filters, sorted by title and ISBN, with the
+ * {@code BookDoc} indexes in place. {@code mongoText} is the nearest the database gets to a free-text search: every
+ * word must occur somewhere in the title, author names, genre or description. The {@code index*} methods ask the
+ * same questions of the in-memory index. Needs Docker for the MongoDB container; seeding half a million books takes
+ * a while. Add {@code -prof gc} to see the allocation per search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class BookSearchBenchmark {
+
+  private static final String[] GENRES = {"Fantasia", "Romance", "Thriller", "Infantil", "Informação", "Policial"};
+  private static final String[] FIRST_NAMES = {"Ana", "Rui", "Marta", "João", "Inês", "Pedro", "Sofia", "Tiago"};
+  private static final int WORDS = 20_000;
+  private static final Page FIRST_PAGE = new Page(1, 10);
+
+  @Param({"500000"})
+  public int books;
+
+  private MongoDBContainer container;
+  private MongoClient client;
+  private MongoCollection<Document> bookCollection;
+  private BookSearchIndex index;
+  private String[] vocabulary;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    container = new MongoDBContainer("mongo:7.0");
+    container.start();
+    client = MongoClients.create(container.getConnectionString());
+    bookCollection = client.getDatabase("bench").getCollection("books");
+    bookCollection.createIndex(new Document("title", 1).append("isbn", 1));
+    bookCollection.createIndex(new Document("isbn", 1));
+    bookCollection.createIndex(new Document("genre", 1));
+    bookCollection.createIndex(new Document("authorNames", 1));
+
+    index = new BookSearchIndex();
+    Random random = new Random(42);
+    vocabulary = new String[WORDS];
+    for (int i = 0; i < WORDS; i++) {
+      vocabulary[i] = word(random);
+    }
+    vocabulary[0] = "dragon";
+    vocabulary[1] = "king";
+
+    List<Document> batch = new ArrayList<>(10_000);
+    for (int i = 0; i < books; i++) {
+      BookSearchDocument book = new BookSearchDocument(
+          String.format("978%010d", i),
+          capitalize(words(random, 1 + random.nextInt(4))),
+          words(random, 10 + random.nextInt(30)),
+          GENRES[random.nextInt(GENRES.length)],
+          List.of(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + capitalize(words(random, 1))));
+      index.putIfAbsent(book);
+      batch.add(new Document("isbn", book.isbn())
+          .append("title", book.title())
+          .append("description", book.description())
+          .append("genre", book.genre())
+          .append("authorNames", book.authorNames()));
+      if (batch.size() == 10_000) {
+        bookCollection.insertMany(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) bookCollection.insertMany(batch);
+    index.markReady();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    client.close();
+    container.stop();
+  }
+
+  /** Skewed towards the start of the vocabulary, so some words are common and most are rare. */
+  private String words(Random random, int count) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      if (i > 0) sb.append(' ');
+      sb.append(vocabulary[(int) (WORDS * Math.pow(random.nextDouble(), 3))]);
+    }
+    return sb.toString();
+  }
+
+  private static String word(Random random) {
+    char[] letters = new char[4 + random.nextInt(6)];
+    for (int i = 0; i < letters.length; i++) letters[i] = (char) ('a' + random.nextInt(26));
+    return new String(letters);
+  }
+
+  private static String capitalize(String s) {
+    return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+  }
+
+  private static Bson startsWith(String field, String value) {
+    return Filters.regex(field, "(?i)^" + Pattern.quote(value));
+  }
+
+  private static Bson contains(String field, String value) {
+    return Filters.regex(field, Pattern.quote(value), "i");
+  }
+
+  private List<Document> firstPage(Bson filter) {
+    return bookCollection.find(filter)
+        .sort(Sorts.ascending("title", "isbn"))
+        .limit(FIRST_PAGE.getLimit())
+        .into(new ArrayList<>());
+  }
+
+  @Benchmark
+  public List<Document> mongoTitle() {
+    return firstPage(startsWith("title", "drag"));
+  }
+
+  @Benchmark
+  public List<String> indexTitle() {
+    return index.search(FIRST_PAGE, new SearchBooksQuery("drag", null, null));
+  }
+
+  @Benchmark
+  public List<Document> mongoGenreAndAuthor() {
+    return firstPage(Filters.and(startsWith("genre", "fant"), startsWith("authorNames", "marta")));
+  }
+
+  @Benchmark
+  public List<String> indexGenreAndAuthor() {
+    return index.search(FIRST_PAGE, new SearchBooksQuery(null, "fant", "marta"));
+  }
+
+  @Benchmark
+  public List<Document> mongoText() {
+    List<Bson> everyWord = new ArrayList<>();
+    for (String word : List.of("dragon", "king")) {
+      everyWord.add(Filters.or(contains("title", word), contains("authorNames", word),
+          contains("genre", word), contains("description", word)));
+    }
+    return firstPage(Filters.and(everyWord));
+  }
+
+  @Benchmark
+  public List<String> indexText() {
+    return index.search(FIRST_PAGE, new SearchBooksQuery(null, null, null, "dragon king"));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(BookSearchBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
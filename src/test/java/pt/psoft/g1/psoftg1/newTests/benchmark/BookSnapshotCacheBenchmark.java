@@ -0,0 +1,86 @@
+package pt.psoft.g1.psoftg1.newTests.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.cache.BookSnapshotRedisSerializer;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSnapshot;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding cost of a {@code bookByIsbn} entry in Redis.
+ * <p>
+ * Writes compare the previous value, the {@link Book} entity through {@link GenericJackson2JsonRedisSerializer},
+ * with a {@link BookSnapshot} through {@link BookSnapshotRedisSerializer}. The entity JSON cannot be read back at
+ * all (Jackson fails on the embedded value objects), so reads compare the snapshot in polymorphic JSON with the
+ * binary form. Payload sizes are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BookSnapshotCacheBenchmark {
+
+  private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+  private final BookSnapshotRedisSerializer binary = new BookSnapshotRedisSerializer();
+
+  private Book book;
+  private BookSnapshot snapshot;
+  private byte[] jsonSnapshotBytes;
+  private byte[] binaryBytes;
+
+  @Setup
+  public void setUp() {
+    Author a1 = new Author("Robert Cecil Martin", "Software craftsman and author of several books.", null);
+    a1.assignId("01J9ZQ8Y7M2Q4K3V5N6B7C8D9E");
+    Author a2 = new Author("Michael Feathers", "Author of Working Effectively with Legacy Code.", null);
+    a2.assignId("01J9ZQ8Y7M2Q4K3V5N6B7C8D9F");
+    book = new Book("9780132350884", "Clean Code",
+        "A Handbook of Agile Software Craftsmanship. Even bad code can function, but if code isn't clean "
+            + "it can bring a development organization to its knees.",
+        new Genre("Software"), List.of(a1, a2), "cover-9780132350884.png");
+    book.assignPk("01J9ZQ8Y7M2Q4K3V5N6B7C8DA0");
+    snapshot = BookSnapshot.of(book);
+
+    jsonSnapshotBytes = json.serialize(snapshot);
+    binaryBytes = binary.serialize(snapshot);
+    System.out.printf("%npayload bytes: json entity=%d, json snapshot=%d, binary snapshot=%d%n",
+        json.serialize(book).length, jsonSnapshotBytes.length, binaryBytes.length);
+  }
+
+  @Benchmark
+  public Object jsonSnapshot() {
+    return json.deserialize(jsonSnapshotBytes);
+  }
+
+  @Benchmark
+  public Object binarySnapshot() {
+    return binary.deserialize(binaryBytes);
+  }
+
+  @Benchmark
+  public byte[] jsonEntityWrite() {
+    return json.serialize(book);
+  }
+
+  @Benchmark
+  public byte[] binarySnapshotWrite() {
+    return binary.serialize(BookSnapshot.of(book));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(BookSnapshotCacheBenchmark.class.getSimpleName())
+        .addProfiler("gc")
+        .build()).run();
+  }
+}
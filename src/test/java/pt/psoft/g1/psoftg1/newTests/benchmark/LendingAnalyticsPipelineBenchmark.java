@@ -0,0 +1,149 @@
+package pt.psoft.g1.psoftg1.newTests.benchmark;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.MongoDBContainer;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Genre and author lending analytics over a seeded {@code lendings} collection.
+ * <p>
+ * The {@code lookup*} methods run the previous pipelines, which joined every lending with {@code books} to find
+ * its genre or authors; the others group on the {@code bookGenre} and {@code bookAuthorIds} fields now copied onto
+ * each lending. Needs Docker for the MongoDB container; seeding a million lendings takes a while.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class LendingAnalyticsPipelineBenchmark {
+
+  private static final int BOOKS = 10_000;
+  private static final int AUTHORS = 2_000;
+  private static final String[] GENRES = {"Fantasia", "Romance", "Thriller", "Infantil", "Informação", "Policial"};
+  private static final Document TOP_5 = new Document("$limit", 5);
+  private static final Document BY_COUNT = new Document("$sort", new Document("count", -1));
+
+  @Param({"1000000"})
+  public int lendings;
+
+  private MongoDBContainer container;
+  private MongoClient client;
+  private MongoCollection<Document> lendingCollection;
+  private Date from;
+  private Date to;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    container = new MongoDBContainer("mongo:7.0");
+    container.start();
+    client = MongoClients.create(container.getConnectionString());
+    MongoDatabase db = client.getDatabase("bench");
+    Random random = new Random(42);
+
+    List<Document> books = new ArrayList<>(BOOKS);
+    for (int i = 0; i < BOOKS; i++) {
+      books.add(new Document("isbn", "ISBN-" + i)
+          .append("genre", GENRES[i % GENRES.length])
+          .append("authorIds", List.of("A" + random.nextInt(AUTHORS), "A" + random.nextInt(AUTHORS))));
+    }
+    db.getCollection("books").insertMany(books);
+    db.getCollection("books").createIndex(new Document("isbn", 1));
+
+    lendingCollection = db.getCollection("lendings");
+    LocalDate day0 = LocalDate.of(2022, 1, 1);
+    List<Document> batch = new ArrayList<>(10_000);
+    for (int i = 0; i < lendings; i++) {
+      Document book = books.get(random.nextInt(BOOKS));
+      batch.add(new Document("lendingNumber", "2024/" + i)
+          .append("bookIsbn", book.getString("isbn"))
+          .append("readerNumber", "2024/" + random.nextInt(50_000))
+          .append("startDate", date(day0.plusDays(random.nextInt(1_000))))
+          .append("bookGenre", book.getString("genre"))
+          .append("bookAuthorIds", book.get("authorIds")));
+      if (batch.size() == 10_000) {
+        lendingCollection.insertMany(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) lendingCollection.insertMany(batch);
+
+    from = date(day0.plusDays(200));
+    to = date(day0.plusDays(500));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    client.close();
+    container.stop();
+  }
+
+  private static Date date(LocalDate d) {
+    return Date.from(d.atStartOfDay().toInstant(ZoneOffset.UTC));
+  }
+
+  private Document inRange() {
+    return new Document("$match", new Document("startDate", new Document("$gte", from).append("$lte", to)));
+  }
+
+  private static Document countBy(String field) {
+    return new Document("$group", new Document("_id", "$" + field).append("count", new Document("$sum", 1)));
+  }
+
+  @Benchmark
+  public List<Document> lookupGenreCounts() {
+    return lendingCollection.aggregate(List.of(
+        inRange(),
+        new Document("$lookup", new Document("from", "books").append("localField", "bookIsbn")
+            .append("foreignField", "isbn").append("as", "book")),
+        new Document("$unwind", "$book"),
+        countBy("book.genre"), BY_COUNT
+    )).into(new ArrayList<>());
+  }
+
+  @Benchmark
+  public List<Document> genreCounts() {
+    return lendingCollection.aggregate(List.of(inRange(), countBy("bookGenre"), BY_COUNT)).into(new ArrayList<>());
+  }
+
+  @Benchmark
+  public List<Document> lookupTopAuthors() {
+    return lendingCollection.aggregate(List.of(
+        new Document("$lookup", new Document("from", "books").append("localField", "bookIsbn")
+            .append("foreignField", "isbn").append("as", "book")),
+        new Document("$unwind", "$book"),
+        new Document("$unwind", "$book.authorIds"),
+        countBy("book.authorIds"), BY_COUNT, TOP_5
+    )).into(new ArrayList<>());
+  }
+
+  @Benchmark
+  public List<Document> topAuthors() {
+    return lendingCollection.aggregate(List.of(
+        new Document("$unwind", "$bookAuthorIds"),
+        countBy("bookAuthorIds"), BY_COUNT, TOP_5
+    )).into(new ArrayList<>());
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(LendingAnalyticsPipelineBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
@@ -0,0 +1,141 @@
+package pt.psoft.g1.psoftg1.newTests.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.mongo.BookDoc;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.mongo.BookMongoMapper;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.readermanagement.infraestructure.repositories.mongo.ReaderDoc;
+import pt.psoft.g1.psoftg1.readermanagement.infraestructure.repositories.mongo.ReaderMongoMapper;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderNumber;
+import pt.psoft.g1.psoftg1.usermanagement.infrastructure.repositories.mongo.UserDoc;
+import pt.psoft.g1.psoftg1.usermanagement.infrastructure.repositories.mongo.UserMongoMapper;
+import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
+import pt.psoft.g1.psoftg1.usermanagement.model.Role;
+import pt.psoft.g1.psoftg1.usermanagement.model.User;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Document-to-domain mapping cost of the Mongo mappers.
+ * <p>
+ * The {@code legacy*} methods reproduce the previous mappers, which looked up each private field with
+ * {@code getDeclaredField} and {@code setAccessible} on every call; the others use the current mappers, whose
+ * {@code VarHandle}s are resolved once when the class is initialised.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class MongoMapperBenchmark {
+
+  private final BookMongoMapper bookMapper = new BookMongoMapper();
+  private final ReaderMongoMapper readerMapper = new ReaderMongoMapper();
+  private final UserMongoMapper userMapper = new UserMongoMapper();
+
+  private BookDoc bookDoc;
+  private Genre genre;
+  private List<Author> authors;
+  private ReaderDoc readerDoc;
+  private Reader reader;
+  private UserDoc userDoc;
+
+  @Setup
+  public void setUp() {
+    Author author = new Author("Robert Cecil Martin", "Software craftsman.", null);
+    author.assignId("01J9ZQ8Y7M2Q4K3V5N6B7C8D9E");
+    authors = List.of(author);
+    genre = new Genre("Software");
+    bookDoc = BookDoc.builder()
+        .id("01J9ZQ8Y7M2Q4K3V5N6B7C8DA0").version(4L).isbn("9780132350884").title("Clean Code")
+        .description("A Handbook of Agile Software Craftsmanship.").genre("Software")
+        .authorIds(List.of(author.getId())).photoFile("cover.png")
+        .build();
+    readerDoc = ReaderDoc.builder()
+        .id("01J9ZQ8Y7M2Q4K3V5N6B7C8DA1").readerNumber("2024/42").birthDate(LocalDate.of(1990, 1, 1))
+        .phoneNumber("912345678").gdprConsent(true).version(2L)
+        .build();
+    reader = Reader.newReader("ana@mail.com", "x", "Ana Silva");
+    userDoc = UserDoc.builder()
+        .id("01J9ZQ8Y7M2Q4K3V5N6B7C8DA2").username("ana@mail.com").password("{bcrypt}hash")
+        .fullName("Ana Silva").enabled(true).roles(Set.of(Role.READER))
+        .build();
+  }
+
+  @Benchmark
+  public Book book() {
+    return bookMapper.toDomain(bookDoc, genre, authors);
+  }
+
+  @Benchmark
+  public Book legacyBook() throws Exception {
+    Book b = new Book(bookDoc.getIsbn(), bookDoc.getTitle(), bookDoc.getDescription(), genre, authors,
+        bookDoc.getPhotoFile());
+    b.assignPk(bookDoc.getId());
+    Field f = Book.class.getDeclaredField("version");
+    f.setAccessible(true);
+    f.set(b, bookDoc.getVersion());
+    return b;
+  }
+
+  @Benchmark
+  public ReaderDetails reader() {
+    return readerMapper.toDomainSkeleton(readerDoc, reader, List.of());
+  }
+
+  @Benchmark
+  public ReaderDetails legacyReader() throws Exception {
+    ReaderDetails rd = new ReaderDetails(42, reader, readerDoc.getBirthDate().toString(), readerDoc.getPhoneNumber(),
+        readerDoc.isGdprConsent(), readerDoc.isMarketingConsent(), readerDoc.isThirdPartySharingConsent(),
+        readerDoc.getPhotoFile(), List.of());
+    ReaderNumber rn = new ReaderNumber(0);
+    Field value = ReaderNumber.class.getDeclaredField("readerNumber");
+    value.setAccessible(true);
+    value.set(rn, readerDoc.getReaderNumber());
+    Field number = ReaderDetails.class.getDeclaredField("readerNumber");
+    number.setAccessible(true);
+    number.set(rd, rn);
+    Field version = ReaderDetails.class.getDeclaredField("version");
+    version.setAccessible(true);
+    version.set(rd, readerDoc.getVersion());
+    return rd;
+  }
+
+  @Benchmark
+  public User user() {
+    return userMapper.toDomain(userDoc);
+  }
+
+  @Benchmark
+  public User legacyUser() throws Exception {
+    User u = new Reader(userDoc.getUsername(), "Dummy#123");
+    u.setName(userDoc.getFullName());
+    u.setEnabled(userDoc.isEnabled());
+    userDoc.getRoles().forEach(r -> u.addAuthority(new Role(r)));
+    Field password = User.class.getDeclaredField("password");
+    password.setAccessible(true);
+    password.set(u, userDoc.getPassword());
+    Field id = User.class.getDeclaredField("id");
+    id.setAccessible(true);
+    id.set(u, userDoc.getId());
+    return u;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(MongoMapperBenchmark.class.getSimpleName())
+        .addProfiler("gc")
+        .build()).run();
+  }
+}
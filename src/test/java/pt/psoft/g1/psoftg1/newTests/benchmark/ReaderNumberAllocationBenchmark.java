@@ -0,0 +1,88 @@
+package pt.psoft.g1.psoftg1.newTests.benchmark;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import pt.psoft.g1.psoftg1.readermanagement.infraestructure.repositories.mongo.ReaderMongoRepository;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo.SequenceMongoRepository;
+import pt.psoft.g1.psoftg1.shared.services.SequenceAllocator;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of picking the next reader number as the year's registrations grow.
+ * <p>
+ * {@code countBased} calls {@link ReaderMongoRepository#getCountFromCurrentYear}, the query every registration used
+ * to make; {@code allocator} goes through {@link SequenceAllocator} backed by {@link SequenceMongoRepository}, so
+ * both include their round trips to a seeded {@code readers} collection with its {@code readerNumber} index.
+ * Needs Docker for the MongoDB container.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReaderNumberAllocationBenchmark {
+
+  @Param({"1000", "100000"})
+  int readers;
+
+  private MongoDBContainer container;
+  private MongoClient client;
+  private ReaderMongoRepository readerRepository;
+  private SequenceAllocator allocator;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    container = new MongoDBContainer("mongo:7.0");
+    container.start();
+    client = MongoClients.create(container.getConnectionString());
+    MongoTemplate mongo = new MongoTemplate(client, "bench");
+    mongo.getCollection("readers").createIndex(new Document("readerNumber", 1));
+
+    int year = LocalDate.now().getYear();
+    List<Document> batch = new ArrayList<>(10_000);
+    for (int i = 1; i <= readers; i++) {
+      batch.add(new Document("readerNumber", year + "/" + i));
+      if (batch.size() == 10_000) {
+        mongo.getCollection("readers").insertMany(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) mongo.getCollection("readers").insertMany(batch);
+
+    // only the count query is exercised, so the collaborators it does not touch are left out
+    readerRepository = new ReaderMongoRepository(null, mongo, null, null, null);
+    allocator = new SequenceAllocator(new SequenceMongoRepository(mongo), 20);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    client.close();
+    container.stop();
+  }
+
+  @Benchmark
+  public long countBased() {
+    return readerRepository.getCountFromCurrentYear() + 1;
+  }
+
+  @Benchmark
+  public long allocator() {
+    return allocator.next("readers", readerRepository::getCountFromCurrentYear);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(ReaderNumberAllocationBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,102 @@
+package pt.psoft.g1.psoftg1.newTests.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
+import pt.psoft.g1.psoftg1.shared.id.UlidGenerator;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link UlidGenerator} against the previous synchronized, sleep-on-collision implementation.
+ * <p>
+ * {@link #main} runs both at 1, 4 and 16 threads; a single thread count can be picked with JMH's {@code -t}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class UlidGeneratorBenchmark {
+
+  private final IdGenerator current = new UlidGenerator();
+  private final IdGenerator legacy = new LegacyUlidGenerator();
+
+  @Benchmark
+  public String current() {
+    return current.newId();
+  }
+
+  @Benchmark
+  public String legacy() {
+    return legacy.newId();
+  }
+
+  /** The generator as it was before it became lock-free, kept here only as a baseline. */
+  static final class LegacyUlidGenerator implements IdGenerator {
+    private static final char[] ALPH = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final SecureRandom RNG = new SecureRandom();
+    private static long lastTs = -1L;
+
+    @Override public String newId() { return newId(null); }
+
+    @Override
+    public synchronized String newId(String prefix) {
+      long time = System.currentTimeMillis();
+
+      int tries = 100;
+      while (time == lastTs && tries-- > 0) {
+        try { Thread.sleep(1); } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+        time = System.currentTimeMillis();
+      }
+      if (time == lastTs) {
+        time = lastTs + 1;
+      }
+      lastTs = time;
+
+      byte[] b = new byte[16];
+
+      b[0]=(byte)(time>>>40); b[1]=(byte)(time>>>32); b[2]=(byte)(time>>>24);
+      b[3]=(byte)(time>>>16); b[4]=(byte)(time>>>8);  b[5]=(byte) time;
+
+      byte[] rand = new byte[10]; RNG.nextBytes(rand);
+      System.arraycopy(rand, 0, b, 6, 10);
+
+      char[] out = new char[26];
+      int acc = 0, bits = 0, oi = 0, bi = 0;
+      while (oi < 26) {
+        if (bits < 5) {
+          if (bi < 16) {
+            acc = (acc << 8) | (b[bi++] & 0xFF);
+            bits += 8;
+            continue;
+          } else {
+            acc <<= (5 - bits);
+            bits = 5;
+          }
+        }
+        bits -= 5;
+        out[oi++] = ALPH[(acc >>> bits) & 31];
+      }
+
+      String core = new String(out);
+      return (prefix == null || prefix.isEmpty()) ? core : prefix + core;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    for (int threads : new int[] {1, 4, 16}) {
+      new Runner(new OptionsBuilder()
+          .include(UlidGeneratorBenchmark.class.getSimpleName())
+          .threads(threads)
+          .build()).run();
+    }
+  }
+}
@@ -32,6 +32,7 @@ import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
 import pt.psoft.g1.psoftg1.newTests.testutils.SqlBackedITBase;
+import pt.psoft.g1.psoftg1.newTests.testutils.PhotoFiles;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
 import pt.psoft.g1.psoftg1.shared.model.Photo;
 import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
@@ -69,7 +70,7 @@ class AuthorControllerSqlIT extends SqlBackedITBase {
 
     when(fileStorage.getRequestPhoto(any())).thenReturn(null);
     when(fileStorage.getExtension(any())).thenReturn(Optional.of("jpg"));
-    when(fileStorage.getFile(any())).thenReturn("IMG".getBytes(StandardCharsets.UTF_8));
+    when(fileStorage.getFileResource(any())).thenReturn(PhotoFiles.resource("IMG".getBytes(StandardCharsets.UTF_8)));
     doNothing().when(fileStorage).deleteFile(any());
   }
 
@@ -202,11 +203,12 @@ class AuthorControllerSqlIT extends SqlBackedITBase {
     var saved = authorRepo.save(a);
 
     when(fileStorage.getExtension(any())).thenReturn(Optional.of("png"));
-    when(fileStorage.getFile(any())).thenReturn(new byte[]{1,2,3});
+    when(fileStorage.getFileResource(any())).thenReturn(PhotoFiles.resource(new byte[]{1,2,3}));
 
     mvc.perform(get("/api/authors/{id}/photo", saved.getId()))
         .andExpect(status().isOk())
         .andExpect(header().string("Content-Type", startsWith("image/")))
+        .andExpect(header().exists("ETag"))
         .andExpect(content().bytes(new byte[]{1,2,3}));
   }
 
@@ -33,6 +33,7 @@ import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
 import pt.psoft.g1.psoftg1.newTests.testutils.MongoBackedITBase;
+import pt.psoft.g1.psoftg1.newTests.testutils.PhotoFiles;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
 import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
 
@@ -71,7 +72,7 @@ class BookControllerMongoIT extends MongoBackedITBase {
 
     when(fileStorage.getRequestPhoto(any())).thenReturn(null);
     when(fileStorage.getExtension(any())).thenReturn(Optional.of("png"));
-    when(fileStorage.getFile(any())).thenReturn("IMG".getBytes(StandardCharsets.UTF_8));
+    when(fileStorage.getFileResource(any())).thenReturn(PhotoFiles.resource("IMG".getBytes(StandardCharsets.UTF_8)));
     doNothing().when(fileStorage).deleteFile(any());
   }
 
@@ -175,11 +176,12 @@ class BookControllerMongoIT extends MongoBackedITBase {
         .andExpect(status().isCreated());
 
     when(fileStorage.getExtension(any())).thenReturn(Optional.of("png"));
-    when(fileStorage.getFile(any())).thenReturn(new byte[]{1,2,3});
+    when(fileStorage.getFileResource(any())).thenReturn(PhotoFiles.resource(new byte[]{1,2,3}));
 
     mvc.perform(get("/api/books/{isbn}/photo", "9780000001009"))
         .andExpect(status().isOk())
         .andExpect(header().string("Content-Type", startsWith("image/")))
+        .andExpect(header().exists("ETag"))
         .andExpect(content().bytes(new byte[]{1,2,3}));
   }
 
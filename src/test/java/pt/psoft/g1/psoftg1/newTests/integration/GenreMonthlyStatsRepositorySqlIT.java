@@ -0,0 +1,71 @@
+package pt.psoft.g1.psoftg1.newTests.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreMonthlyStats;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreMonthlyStatsRepository;
+import pt.psoft.g1.psoftg1.newTests.testutils.SqlBackedITBase;
+
+/**
+ * Concurrency tests for the SQL GenreMonthlyStatsRepository against MySQL.
+ * Each lending and return runs in its own transaction, so the month's row is created by several at once.
+ */
+@SpringBootTest
+@ActiveProfiles({"it","sql"})
+class GenreMonthlyStatsRepositorySqlIT extends SqlBackedITBase {
+
+  private static final int THREADS = 8;
+  private static final int LENDINGS_PER_THREAD = 25;
+
+  @Autowired GenreMonthlyStatsRepository stats;
+  @Autowired PlatformTransactionManager transactionManager;
+
+  @Test
+  void recordLendingAndReturn_concurrentFirstOfTheMonth_countEveryOne() throws Exception {
+    YearMonth month = YearMonth.now().plusYears(1);
+    TransactionTemplate tx = new TransactionTemplate(transactionManager);
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        futures.add(pool.submit(() -> {
+          start.await();
+          for (int i = 0; i < LENDINGS_PER_THREAD; i++) {
+            tx.executeWithoutResult(status -> stats.recordLending(month, "it-genre"));
+            tx.executeWithoutResult(status -> stats.recordReturn(month, "it-genre", 3));
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+    } finally {
+      pool.shutdownNow();
+    }
+
+    int period = GenreMonthlyStats.periodOf(month);
+    List<GenreMonthlyStats> rows = stats.findByPeriodBetween(period, period);
+    assertEquals(1, rows.size());
+    long total = THREADS * LENDINGS_PER_THREAD;
+    assertEquals(total, rows.get(0).getLendingCount());
+    assertEquals(total, rows.get(0).getReturnedCount());
+    assertEquals(3 * total, rows.get(0).getTotalDurationDays());
+  }
+}
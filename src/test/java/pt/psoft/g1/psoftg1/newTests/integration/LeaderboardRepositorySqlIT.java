@@ -0,0 +1,70 @@
+package pt.psoft.g1.psoftg1.newTests.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardKind;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LeaderboardRepository;
+import pt.psoft.g1.psoftg1.newTests.testutils.SqlBackedITBase;
+
+/**
+ * Concurrency tests for the SQL LeaderboardRepository against MySQL.
+ * Each lending runs in its own transaction, so buckets that do not exist yet are created by several at once.
+ */
+@SpringBootTest
+@ActiveProfiles({"it","sql"})
+class LeaderboardRepositorySqlIT extends SqlBackedITBase {
+
+  private static final int THREADS = 8;
+  private static final int LENDINGS_PER_THREAD = 25;
+
+  @Autowired LeaderboardRepository leaderboard;
+  @Autowired PlatformTransactionManager transactionManager;
+
+  @Test
+  void recordLending_concurrentFirstLendingsOfTheDay_countEveryOne() throws Exception {
+    LocalDate day = LocalDate.now().plusYears(1);
+    TransactionTemplate tx = new TransactionTemplate(transactionManager);
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        futures.add(pool.submit(() -> {
+          start.await();
+          for (int i = 0; i < LENDINGS_PER_THREAD; i++) {
+            tx.executeWithoutResult(status ->
+                leaderboard.recordLending(day, "9782826012092", List.of("IT-A1", "IT-A2"), "IT/1"));
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+    } finally {
+      pool.shutdownNow();
+    }
+
+    long total = THREADS * LENDINGS_PER_THREAD;
+    assertEquals(total, leaderboard.top(LeaderboardKind.BOOK, day, 1).get(0).count());
+    assertEquals(total, leaderboard.top(LeaderboardKind.READER, day, 1).get(0).count());
+    var authors = leaderboard.top(LeaderboardKind.AUTHOR, day, 5);
+    assertEquals(2, authors.size());
+    authors.forEach(e -> assertEquals(total, e.count()));
+  }
+}
@@ -0,0 +1,213 @@
+package pt.psoft.g1.psoftg1.newTests.integration;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.newTests.testutils.MongoBackedITBase;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.readermanagement.services.SearchReadersQuery;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Query-plan regression tests for the Mongo lending, book and reader repositories.
+ * <p>
+ * Each test calls a repository method, captures the {@code find}, {@code aggregate} and {@code count} commands it
+ * sends to those collections, re-runs them with {@code explain} and fails if any winning plan is a
+ * {@code COLLSCAN}. Queries that read a whole collection by design (top readers, {@code findAll}) are not covered.
+ * <p>
+ * Passing only rules out a collection scan. The title, genre, author-name and reader-name filters are
+ * case-insensitive prefix regexes, which Mongo cannot turn into index bounds: their {@code IXSCAN} walks every key
+ * of the index and filters each one. Those tests ({@code books_byGenreTitleAndAuthor}, {@code books_search} and
+ * {@code readers_search}) only guard against losing the index altogether; the queries remain full index scans.
+ */
+@SpringBootTest
+@ActiveProfiles({"it", "mongo"})
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+class MongoQueryPlanMongoIT extends MongoBackedITBase {
+
+  private static final Set<String> COLLECTIONS = Set.of("lendings", "books", "readers");
+  private static final Set<String> READS = Set.of("find", "aggregate", "count");
+  private static final List<BsonDocument> recorded = new CopyOnWriteArrayList<>();
+  private static volatile boolean recording;
+
+  @TestConfiguration
+  static class RecorderConfig {
+    @Bean
+    MongoClientSettingsBuilderCustomizer commandRecorder() {
+      CommandListener listener = new CommandListener() {
+        @Override
+        public void commandStarted(CommandStartedEvent event) {
+          if (!recording || !READS.contains(event.getCommandName())) return;
+          BsonDocument cmd = event.getCommand();
+          BsonValue target = cmd.get(event.getCommandName());
+          if (target != null && target.isString() && COLLECTIONS.contains(target.asString().getValue())) {
+            recorded.add(cmd.clone());
+          }
+        }
+      };
+      return builder -> builder.addCommandListener(listener);
+    }
+  }
+
+  @Autowired LendingRepository lendingRepo;
+  @Autowired BookRepository bookRepo;
+  @Autowired ReaderRepository readerRepo;
+  @Autowired MongoTemplate mongo;
+
+  private final LocalDate from = LocalDate.now().minusMonths(6);
+  private final LocalDate to = LocalDate.now();
+
+  private void assertIndexed(Runnable call) {
+    recorded.clear();
+    recording = true;
+    try {
+      call.run();
+    } finally {
+      recording = false;
+    }
+    assertFalse(recorded.isEmpty(), "no query was sent");
+
+    for (BsonDocument cmd : recorded) {
+      Document command = new Document();
+      cmd.forEach((k, v) -> {
+        if (!k.startsWith("$") && !k.equals("lsid")) command.put(k, v);
+      });
+      Document explain = mongo.getDb().runCommand(
+          new Document("explain", command).append("verbosity", "queryPlanner"));
+
+      List<Object> plans = new ArrayList<>();
+      collectWinningPlans(explain, plans);
+      assertFalse(plans.isEmpty(), () -> "no winning plan in " + explain.toJson());
+      for (Object plan : plans) {
+        String json = plan instanceof Document d ? d.toJson() : String.valueOf(plan);
+        assertFalse(json.contains("COLLSCAN"), () -> "collection scan for " + command.toJson() + ": " + json);
+      }
+    }
+  }
+
+  private static void collectWinningPlans(Object node, List<Object> out) {
+    if (node instanceof Map<?, ?> map) {
+      map.forEach((k, v) -> {
+        if ("winningPlan".equals(k)) out.add(v);
+        else collectWinningPlans(v, out);
+      });
+    } else if (node instanceof List<?> list) {
+      list.forEach(v -> collectWinningPlans(v, out));
+    }
+  }
+
+  @Test
+  void lendings_byNumber() {
+    assertIndexed(() -> lendingRepo.findByLendingNumber("2024/1"));
+  }
+
+  @Test
+  void lendings_countThisYear() {
+    assertIndexed(() -> lendingRepo.getCountFromCurrentYear());
+  }
+
+  @Test
+  void lendings_byReaderAndIsbn() {
+    assertIndexed(() -> lendingRepo.listByReaderNumberAndIsbn("2024/1", "9780132350884"));
+  }
+
+  @Test
+  void lendings_outstandingByReader() {
+    assertIndexed(() -> lendingRepo.listOutstandingByReaderNumber("2024/1"));
+  }
+
+  @Test
+  void lendings_averageDuration() {
+    assertIndexed(() -> lendingRepo.getAverageDuration());
+    assertIndexed(() -> lendingRepo.getAvgLendingDurationByIsbn("9780132350884"));
+  }
+
+  @Test
+  void lendings_overdue() {
+    assertIndexed(() -> lendingRepo.getOverdue(new Page(1, 10)));
+  }
+
+  @Test
+  void lendings_search() {
+    Page page = new Page(1, 10);
+    assertIndexed(() -> lendingRepo.searchLendings(page, "2024/1", null, null, null, null));
+    assertIndexed(() -> lendingRepo.searchLendings(page, null, "9780132350884", null, from, to));
+    assertIndexed(() -> lendingRepo.searchLendings(page, null, null, false, null, null));
+    assertIndexed(() -> lendingRepo.searchLendings(page, null, null, null, from, to));
+  }
+
+  @Test
+  void books_byIsbn() {
+    assertIndexed(() -> bookRepo.findByIsbn("9780132350884"));
+    assertIndexed(() -> bookRepo.findByIsbnIn(List.of("9780132350884", "9780201633610")));
+  }
+
+  // the genre, title and author-name finders are full scans of their index, see the class comment
+  @Test
+  void books_byGenreTitleAndAuthor() {
+    assertIndexed(() -> bookRepo.findByGenre("Fant"));
+    assertIndexed(() -> bookRepo.findByTitle("Clean"));
+    assertIndexed(() -> bookRepo.findByAuthorName("Robert"));
+    assertIndexed(() -> bookRepo.findBooksByAuthorNumber("01J9ZQ8Y7M2Q4K3V5N6B7C8D9E"));
+  }
+
+  // a full scan of the title index, see the class comment
+  @Test
+  void books_search() {
+    assertIndexed(() -> bookRepo.searchBooks(new Page(1, 10), new SearchBooksQuery("Clean", null, null)));
+  }
+
+  @Test
+  void books_topLent() {
+    assertIndexed(() -> bookRepo.findTop5BooksLent(from, PageRequest.of(0, 5)));
+  }
+
+  @Test
+  void readers_byNumberPhoneAndUsername() {
+    assertIndexed(() -> readerRepo.findByReaderNumber("2024/1"));
+    assertIndexed(() -> readerRepo.findByReaderNumberIn(List.of("2024/1", "2024/2")));
+    assertIndexed(() -> readerRepo.findByPhoneNumber("912345678"));
+    assertIndexed(() -> readerRepo.findByUsername("ana@mail.com"));
+  }
+
+  @Test
+  void readers_countThisYear() {
+    assertIndexed(() -> readerRepo.getCountFromCurrentYear());
+  }
+
+  // a full scan of the full-name index, see the class comment
+  @Test
+  void readers_search() {
+    assertIndexed(() -> readerRepo.searchReaderDetails(new Page(1, 10), new SearchReadersQuery("Ana", null, null)));
+  }
+
+  @Test
+  void readers_topByGenre() {
+    assertIndexed(() -> readerRepo.findTopByGenre(PageRequest.of(0, 5), "Fantasia", from, to));
+  }
+}
@@ -0,0 +1,67 @@
+package pt.psoft.g1.psoftg1.newTests.integration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import pt.psoft.g1.psoftg1.newTests.testutils.MongoBackedITBase;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageProperties;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.OrphanPhotoSweeper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Orphan sweep tests against Mongo: an upload whose entity is never saved is deleted once it is older than the grace
+ * period, while a retained one is kept.
+ */
+@SpringBootTest(properties = "file.upload-dir=target/it-uploads-orphans")
+@ActiveProfiles({"it", "mongo"})
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+class OrphanPhotoSweeperMongoIT extends MongoBackedITBase {
+
+  @Autowired FileStorageService fileStorageService;
+  @Autowired OrphanPhotoSweeper sweeper;
+  @Autowired PhotoRepository photoRepository;
+  @Autowired FileStorageProperties fileStorageProperties;
+
+  private Path upload(byte content) throws Exception {
+    String name = fileStorageService.storeFile("ignored",
+        new MockMultipartFile("photo", "p.png", "image/png", new byte[]{content, 1, 2}));
+    Path file = Paths.get(fileStorageProperties.getUploadDir()).toAbsolutePath().resolve(name);
+    Duration age = fileStorageProperties.getOrphanSweep().getGracePeriod().plusHours(1);
+    Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(age)));
+    return file;
+  }
+
+  @Test
+  void sweep_storedButNeverRetained_isDeletedAfterTheGracePeriod() throws Exception {
+    Path neverSaved = upload((byte) 1);
+
+    sweeper.sweep();
+
+    assertFalse(Files.exists(neverSaved));
+  }
+
+  @Test
+  void sweep_retainedUpload_isKept() throws Exception {
+    Path saved = upload((byte) 2);
+    photoRepository.retain(Paths.get(fileStorageProperties.getUploadDir()).toAbsolutePath()
+        .relativize(saved).toString().replace('\\', '/'));
+
+    sweeper.sweep();
+
+    assertTrue(Files.exists(saved));
+  }
+}
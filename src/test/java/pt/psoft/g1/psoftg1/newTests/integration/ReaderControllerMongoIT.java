@@ -32,6 +32,7 @@ import pt.psoft.g1.psoftg1.external.service.ApiNinjasService;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
 import pt.psoft.g1.psoftg1.newTests.testutils.MongoBackedITBase;
+import pt.psoft.g1.psoftg1.newTests.testutils.PhotoFiles;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
@@ -79,7 +80,7 @@ class ReaderControllerMongoIT extends MongoBackedITBase {
 
     when(fileStorage.getRequestPhoto(any())).thenReturn(null);
     when(fileStorage.getExtension(any())).thenReturn(Optional.of("png"));
-    when(fileStorage.getFile(any())).thenReturn("IMG".getBytes(StandardCharsets.UTF_8));
+    when(fileStorage.getFileResource(any())).thenReturn(PhotoFiles.resource("IMG".getBytes(StandardCharsets.UTF_8)));
     doNothing().when(fileStorage).deleteFile(any());
 
     when(apiNinjas.getRandomEventFromYearMonth(anyInt(), anyInt()))
@@ -0,0 +1,30 @@
+package pt.psoft.g1.psoftg1.newTests.testutils;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Stand-ins for {@code FileStorageService.getFileResource} in tests that mock the file storage.
+ */
+public final class PhotoFiles {
+
+  private PhotoFiles() {
+  }
+
+  /** Writes {@code bytes} to a temporary file and returns it as the stored photo. */
+  public static Optional<Resource> resource(byte[] bytes) {
+    try {
+      Path file = Files.createTempFile("photo", ".png");
+      file.toFile().deleteOnExit();
+      return Optional.of(new FileSystemResource(Files.write(file, bytes)));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package pt.psoft.g1.psoftg1.newTests.unit.api;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import pt.psoft.g1.psoftg1.shared.api.PhotoResponses;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Unit tests for PhotoResponses, through a standalone MockMvc so the conditional and range handling of Spring MVC
+ * is exercised.
+ */
+class PhotoResponsesTest {
+
+  private static final byte[] BYTES = "0123456789".getBytes();
+
+  @TempDir Path dir;
+
+  private MockMvc mvc;
+
+  @RestController
+  static class PhotoController {
+    private final Resource photo;
+
+    PhotoController(Resource photo) {
+      this.photo = photo;
+    }
+
+    @GetMapping("/photo")
+    ResponseEntity<Resource> photo(@RequestParam(value = "v", required = false) String version) {
+      return PhotoResponses.of(photo, "abc.png", version);
+    }
+  }
+
+  @BeforeEach
+  void setUp() throws Exception {
+    Path file = Files.write(dir.resolve("abc.png"), BYTES);
+    mvc = MockMvcBuilders.standaloneSetup(new PhotoController(new FileSystemResource(file))).build();
+  }
+
+  @Test
+  void fullGet_streamsTheFile_withStrongETag_andRevalidation() throws Exception {
+    mvc.perform(get("/photo"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("image/png"))
+        .andExpect(content().bytes(BYTES))
+        .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"abc.png-a-")))
+        .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")));
+  }
+
+  @Test
+  void ifNoneMatch_withCurrentETag_returns304WithoutBody() throws Exception {
+    MvcResult first = mvc.perform(get("/photo")).andReturn();
+    String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+    mvc.perform(get("/photo").header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+  }
+
+  @Test
+  void ifNoneMatch_withStaleETag_returnsThePhoto() throws Exception {
+    mvc.perform(get("/photo").header(HttpHeaders.IF_NONE_MATCH, "\"abc.png-1-1\""))
+        .andExpect(status().isOk())
+        .andExpect(content().bytes(BYTES));
+  }
+
+  @Test
+  void range_returnsPartialContent() throws Exception {
+    mvc.perform(get("/photo").header(HttpHeaders.RANGE, "bytes=2-5"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+        .andExpect(content().string("2345"));
+  }
+
+  @Test
+  void pinnedVersion_isCachedAsImmutable() throws Exception {
+    mvc.perform(get("/photo").param("v", "abc.png"))
+        .andExpect(header().string(HttpHeaders.CACHE_CONTROL,
+            allOf(containsString("max-age=31536000"), containsString("immutable"), containsString("private"))));
+
+    mvc.perform(get("/photo").param("v", "old.png"))
+        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")));
+  }
+}
@@ -0,0 +1,130 @@
+package pt.psoft.g1.psoftg1.newTests.unit.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.cache.BookSearchIndexSync;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchIndex;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchIndexBuilder;
+import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.shared.infrastructure.cache.CacheInvalidation;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for BookSearchIndexSync, with the Redis counter and the invalidation channel mocked.
+ */
+@ExtendWith(MockitoExtension.class)
+class BookSearchIndexSyncTest {
+
+  private static final String ISBN = "9780441013593";
+
+  @Mock StringRedisTemplate redis;
+  @Mock ValueOperations<String, String> counter;
+  @Mock BookRepository bookRepository;
+  @Mock BookSearchIndexBuilder builder;
+
+  BookSearchIndex index;
+  List<CacheInvalidation> published;
+  BookSearchIndexSync sync;
+
+  @BeforeEach
+  void setUp() {
+    when(redis.opsForValue()).thenReturn(counter);
+    index = new BookSearchIndex();
+    published = new ArrayList<>();
+    sync = new BookSearchIndexSync(redis, published::add, bookRepository, index, builder);
+    counterIs(5);
+    sync.run(null);
+    index.markReady();
+  }
+
+  private void counterIs(long value) {
+    when(counter.get(anyString())).thenReturn(String.valueOf(value));
+  }
+
+  private static Book dune() {
+    return new Book(ISBN, "Dune", null, new Genre("Ficção"),
+        List.of(new Author("Frank Herbert", "Author of Dune.", null)), null);
+  }
+
+  private static CacheInvalidation fromOtherNode() {
+    return new CacheInvalidation("other-node", BookSearchIndexSync.CHANNEL_NAME, List.of(ISBN));
+  }
+
+  @Test
+  void index_countsAndAnnouncesTheChange() {
+    index.index(dune());
+
+    verify(counter).increment(anyString());
+    assertEquals(1, published.size());
+    assertEquals(BookSearchIndexSync.CHANNEL_NAME, published.get(0).cacheName());
+    assertEquals(List.of(ISBN), published.get(0).keys());
+  }
+
+  @Test
+  void remoteChange_indexesTheBookAsTheRepositoryHasIt() {
+    when(bookRepository.findByIsbnIn(List.of(ISBN))).thenReturn(List.of(dune()));
+
+    sync.onRemoteInvalidation(fromOtherNode());
+
+    assertEquals(List.of(ISBN), index.search(new Page(1, 10), new SearchBooksQuery("dune", null, null)));
+  }
+
+  @Test
+  void ownAnnouncement_comingBack_isIgnored() {
+    index.index(dune());
+
+    sync.onRemoteInvalidation(published.get(0));
+
+    verifyNoInteractions(bookRepository);
+  }
+
+  @Test
+  void catchUp_everyAnnouncementReceived_keepsTheIndex() {
+    counterIs(7);
+    sync.catchUp();
+    sync.onRemoteInvalidation(fromOtherNode());
+    sync.onRemoteInvalidation(fromOtherNode());
+
+    sync.catchUp();
+
+    verify(builder, never()).build();
+  }
+
+  @Test
+  void catchUp_announcementMissedSinceThePreviousCheck_rebuildsTheIndex() {
+    counterIs(7);
+    sync.catchUp();
+    sync.onRemoteInvalidation(fromOtherNode());
+
+    sync.catchUp();
+
+    verify(builder).build();
+  }
+
+  @Test
+  void catchUp_announcementStillInFlight_waitsForTheNextCheck() {
+    counterIs(5);
+    sync.catchUp();
+    counterIs(6);
+
+    sync.catchUp();
+
+    verify(builder, never()).build();
+  }
+}
@@ -0,0 +1,46 @@
+package pt.psoft.g1.psoftg1.newTests.unit.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.cache.BookSnapshotRedisSerializer;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSnapshot;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BookSnapshotRedisSerializer.
+ */
+class BookSnapshotRedisSerializerTest {
+
+  private final BookSnapshotRedisSerializer serializer = new BookSnapshotRedisSerializer();
+
+  @Test
+  void roundTrip_keepsEveryField() {
+    BookSnapshot snap = new BookSnapshot("9780132350884", "Clean Code", "Um livro sobre código — limpo",
+        "Software", List.of(new BookSnapshot.AuthorRef("A1", "Robert Martin"), new BookSnapshot.AuthorRef("A2", "Zé")),
+        "cover.png", 7L);
+
+    assertEquals(snap, serializer.deserialize(serializer.serialize(snap)));
+  }
+
+  @Test
+  void roundTrip_keepsNulls() {
+    BookSnapshot snap = new BookSnapshot("9780132350884", "T", null, "G", List.of(), null, 0L);
+
+    assertEquals(snap, serializer.deserialize(serializer.serialize(snap)));
+  }
+
+  @Test
+  void unknownOrEmptyPayload_readsAsMiss() {
+    assertNull(serializer.deserialize(null));
+    assertNull(serializer.deserialize(new byte[0]));
+    assertNull(serializer.deserialize("{\"@class\":\"x\"}".getBytes()));
+  }
+
+  @Test
+  void otherTypes_areRejected() {
+    assertThrows(SerializationException.class, () -> serializer.serialize("not a book"));
+  }
+}
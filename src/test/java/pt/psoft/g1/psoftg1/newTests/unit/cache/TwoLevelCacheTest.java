@@ -0,0 +1,191 @@
+package pt.psoft.g1.psoftg1.newTests.unit.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import pt.psoft.g1.psoftg1.shared.infrastructure.cache.CacheInvalidation;
+import pt.psoft.g1.psoftg1.shared.infrastructure.cache.TwoLevelCache;
+import pt.psoft.g1.psoftg1.shared.infrastructure.cache.TwoLevelCache.Tier;
+import pt.psoft.g1.psoftg1.shared.infrastructure.cache.TwoLevelCacheManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TwoLevelCache and TwoLevelCacheManager, with a map-backed cache standing in for Redis.
+ */
+class TwoLevelCacheTest {
+
+  ConcurrentMapCacheManager l2;
+  List<CacheInvalidation> bus;
+  SimpleMeterRegistry meters;
+  TwoLevelCacheManager nodeA;
+  TwoLevelCacheManager nodeB;
+
+  @BeforeEach
+  void setUp() {
+    l2 = new ConcurrentMapCacheManager();
+    bus = new ArrayList<>();
+    meters = new SimpleMeterRegistry();
+    nodeA = node(meters);
+    nodeB = node(null);
+  }
+
+  private TwoLevelCacheManager node(SimpleMeterRegistry registry) {
+    return new TwoLevelCacheManager(l2, Set.of("authorSearch"), Caffeine.newBuilder().maximumSize(100),
+        new GenericJackson2JsonRedisSerializer(), bus::add, registry);
+  }
+
+  private TwoLevelCache cache(TwoLevelCacheManager node) {
+    return (TwoLevelCache) node.getCache("authorSearch");
+  }
+
+  private void deliver() {
+    List<CacheInvalidation> pending = new ArrayList<>(bus);
+    bus.clear();
+    for (CacheInvalidation m : pending) {
+      nodeA.onRemoteInvalidation(m);
+      nodeB.onRemoteInvalidation(m);
+    }
+  }
+
+  @Test
+  void readsL1ThenL2_andCountsEachTier() {
+    TwoLevelCache a = cache(nodeA);
+    assertNull(a.get("k"));
+    l2.getCache("authorSearch").put("k", "v");
+
+    assertEquals("v", a.get("k").get());   // L1 miss, L2 hit
+    assertEquals("v", a.get("k").get());   // L1 hit
+
+    assertEquals(1, a.hits(Tier.L1));
+    assertEquals(2, a.misses(Tier.L1));
+    assertEquals(1, a.hits(Tier.L2));
+    assertEquals(1, a.misses(Tier.L2));
+    assertEquals(1.0, meters.get("cache.tier.gets")
+        .tags("cache", "authorSearch", "tier", "l2", "result", "hit").functionCounter().count());
+  }
+
+  @Test
+  void evictOnOneNode_dropsOnlyThatKeyFromOtherNodesL1() {
+    cache(nodeA).put("k1", "v1");
+    cache(nodeA).put("k2", "v2");
+    deliver();
+    cache(nodeB).get("k1");
+    cache(nodeB).get("k2");
+
+    // stale copies left only in B's L1
+    l2.getCache("authorSearch").put("k1", "v1-new");
+    l2.getCache("authorSearch").put("k2", "v2-new");
+    assertEquals("v1", cache(nodeB).get("k1").get());
+
+    cache(nodeA).evictAll(List.of("k1"));
+    assertEquals(1, bus.size());
+    deliver();
+
+    assertNull(cache(nodeB).get("k1"));
+    assertEquals("v2", cache(nodeB).get("k2").get());
+  }
+
+  @Test
+  void nodeIgnoresItsOwnMessages() {
+    TwoLevelCache a = cache(nodeA);
+    a.put("k", "v");
+    deliver();
+    l2.getCache("authorSearch").evict("k");
+
+    assertEquals("v", a.get("k").get());
+  }
+
+  @Test
+  void clear_dropsEveryEntryOnEveryNode() {
+    cache(nodeA).put("k", "v");
+    cache(nodeB).get("k");
+    cache(nodeA).clear();
+    deliver();
+
+    assertNull(cache(nodeA).get("k"));
+    assertNull(cache(nodeB).get("k"));
+  }
+
+  @Test
+  void get_withLoader_loadsOnceAndStoresInBothTiers() {
+    TwoLevelCache a = cache(nodeA);
+    int[] calls = {0};
+    assertEquals("v", a.get("k", () -> { calls[0]++; return "v"; }));
+    assertEquals("v", a.get("k", () -> { calls[0]++; return "other"; }));
+
+    assertEquals(1, calls[0]);
+    Cache.ValueWrapper inL2 = l2.getCache("authorSearch").get("k");
+    assertNotNull(inL2);
+    assertEquals("v", inL2.get());
+  }
+
+  @Test
+  void cachesWithoutALocalTier_areServedByTheSharedCacheAlone() {
+    Cache users = nodeA.getCache("users");
+
+    assertSame(l2.getCache("users"), users);
+    assertTrue(nodeA.getCacheNames().contains("users"));
+  }
+
+  @Test
+  void put_isNotBroadcast_butEvictIs() {
+    cache(nodeA).put("k", "v");
+    assertTrue(bus.isEmpty());
+
+    cache(nodeA).evict("k");
+    assertEquals(1, bus.size());
+  }
+
+  @Test
+  void callersGetCopies_soChangingAReturnedValueDoesNotChangeTheCache() {
+    TwoLevelCache a = cache(nodeA);
+    List<String> stored = new ArrayList<>(List.of("Ana"));
+    a.put("k", stored);
+    stored.add("changed after put");
+
+    @SuppressWarnings("unchecked")
+    List<String> read = (List<String>) a.get("k").get();
+    read.add("changed after get");
+
+    assertEquals(List.of("Ana"), a.get("k").get());
+  }
+
+  @Test
+  void get_withLoader_concurrentMisses_loadOnce() throws Exception {
+    TwoLevelCache a = cache(nodeA);
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      results.add(pool.submit(() -> {
+        start.await();
+        return a.get("k", () -> {
+          calls.incrementAndGet();
+          Thread.sleep(50);
+          return "v";
+        });
+      }));
+    }
+    start.countDown();
+    for (Future<String> result : results) assertEquals("v", result.get(10, TimeUnit.SECONDS));
+    pool.shutdown();
+
+    assertEquals(1, calls.get());
+  }
+}
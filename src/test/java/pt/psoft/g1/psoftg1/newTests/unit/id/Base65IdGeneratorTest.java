@@ -3,7 +3,10 @@ package pt.psoft.g1.psoftg1.newTests.unit.id;
 import org.junit.jupiter.api.Test;
 import pt.psoft.g1.psoftg1.shared.id.Base65IdGenerator;
 
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -48,4 +51,47 @@ class Base65IdGeneratorTest {
       assertTrue(seen.add(id), "duplicate detected at iteration " + i);
     }
   }
+
+  /** The BigInteger conversion the generator used before switching to long arithmetic. */
+  private static String referenceEncode(byte[] bytes) {
+    char[] alph = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz-_~".toCharArray();
+    BigInteger x = new BigInteger(1, bytes);
+    StringBuilder sb = new StringBuilder();
+    while (x.signum() != 0) {
+      BigInteger[] qr = x.divideAndRemainder(BigInteger.valueOf(alph.length));
+      sb.append(alph[qr[1].intValue()]);
+      x = qr[0];
+    }
+    while (sb.length() < 22) sb.append(alph[0]);
+    return sb.reverse().toString();
+  }
+
+  private static void assertSameAsReference(long hi, long lo) {
+    byte[] bytes = ByteBuffer.allocate(16).putLong(hi).putLong(lo).array();
+    assertEquals(referenceEncode(bytes), Base65IdGenerator.encode(hi, lo),
+        () -> String.format("hi=%016x lo=%016x", hi, lo));
+  }
+
+  @Test
+  void encode_matchesBigIntegerEncoding_forRandomInputs() {
+    Random rnd = new Random(65);
+    for (int i = 0; i < 20_000; i++) {
+      assertSameAsReference(rnd.nextLong(), rnd.nextLong());
+    }
+  }
+
+  @Test
+  void encode_matchesBigIntegerEncoding_atEdges() {
+    long[] edges = {0L, 1L, 64L, 65L, 0xFFFF_FFFFL, 0x1_0000_0000L, Long.MAX_VALUE, Long.MIN_VALUE, -1L};
+    for (long hi : edges) {
+      for (long lo : edges) {
+        assertSameAsReference(hi, lo);
+      }
+    }
+  }
+
+  @Test
+  void encode_zero_isAllZeroSymbols() {
+    assertEquals("0".repeat(22), Base65IdGenerator.encode(0L, 0L));
+  }
 }
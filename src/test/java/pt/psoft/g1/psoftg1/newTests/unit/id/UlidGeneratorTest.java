@@ -3,8 +3,14 @@ package pt.psoft.g1.psoftg1.newTests.unit.id;
 import org.junit.jupiter.api.Test;
 import pt.psoft.g1.psoftg1.shared.id.UlidGenerator;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -49,4 +55,51 @@ class UlidGeneratorTest {
       assertTrue(seen.add(id), "duplicate detected at iteration " + i);
     }
   }
+
+  @Test
+  void newId_sameMillisecond_isStrictlyIncreasing() {
+    var gen = new UlidGenerator();
+    String prev = gen.newId();
+
+    for (int i = 0; i < 50_000; i++) {
+      String id = gen.newId();
+      assertTrue(id.compareTo(prev) > 0, "not increasing: " + prev + " -> " + id);
+      prev = id;
+    }
+  }
+
+  @Test
+  void newId_encodesCurrentTimeInLeadingChars() {
+    long before = System.currentTimeMillis();
+    String id = new UlidGenerator().newId();
+    long after = System.currentTimeMillis();
+
+    // first 9 symbols hold the top 45 of the 48 timestamp bits
+    long decoded = 0;
+    for (char c : id.substring(0, 9).toCharArray()) {
+      decoded = (decoded << 5) | "0123456789ABCDEFGHJKMNPQRSTVWXYZ".indexOf(c);
+    }
+    assertTrue(decoded >= (before >>> 3) && decoded <= (after >>> 3) + 1);
+  }
+
+  @Test
+  void newId_concurrentCallers_neverCollide() throws Exception {
+    var gen = new UlidGenerator();
+    int threads = 8, perThread = 20_000;
+    Set<String> seen = ConcurrentHashMap.newKeySet();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(pool.submit(() -> {
+          for (int i = 0; i < perThread; i++) seen.add(gen.newId());
+        }));
+      }
+      for (Future<?> f : futures) f.get();
+    } finally {
+      pool.shutdown();
+    }
+
+    assertEquals(threads * perThread, seen.size());
+  }
 }
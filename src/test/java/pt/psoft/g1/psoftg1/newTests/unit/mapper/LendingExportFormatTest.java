@@ -0,0 +1,75 @@
+package pt.psoft.g1.psoftg1.newTests.unit.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.lendingmanagement.api.LendingExportFormat;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingExportRow;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LendingExportFormat.
+ */
+class LendingExportFormatTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper()
+      .registerModule(new JavaTimeModule())
+      .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+  private final LendingExportRow row = new LendingExportRow("2024/3", "9780132350884", "2024/1",
+      LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 15), null, 50);
+
+  private String write(LendingExportFormat format, LendingExportRow... rows) throws IOException {
+    StringWriter out = new StringWriter();
+    format.writeHeader(out);
+    for (LendingExportRow r : rows) {
+      format.writeRow(out, r, objectMapper);
+    }
+    return out.toString();
+  }
+
+  @Test
+  void ndjson_writesOneJsonObjectPerLine() throws Exception {
+    String out = write(LendingExportFormat.NDJSON, row, row);
+
+    String[] lines = out.split("\n");
+    assertEquals(2, lines.length);
+    assertTrue(out.endsWith("\n"));
+    var json = objectMapper.readTree(lines[0]);
+    assertEquals("2024/3", json.get("lendingNumber").asText());
+    assertEquals("2024-03-01", json.get("startDate").asText());
+    assertTrue(json.get("returnedDate").isNull());
+    assertEquals(50, json.get("fineValuePerDayInCents").asInt());
+  }
+
+  @Test
+  void csv_writesHeaderThenRows_withEmptyFieldsForMissingDates() throws Exception {
+    String out = write(LendingExportFormat.CSV, row);
+
+    assertEquals("lendingNumber,isbn,readerNumber,startDate,limitDate,returnedDate,fineValuePerDayInCents\n"
+        + "2024/3,9780132350884,2024/1,2024-03-01,2024-03-15,,50\n", out);
+  }
+
+  @Test
+  void csv_quotesValuesWithSeparatorsOrQuotes() throws Exception {
+    LendingExportRow odd = new LendingExportRow("2024/4", "a,b", "say \"hi\"", null, null, null, 0);
+
+    String out = write(LendingExportFormat.CSV, odd);
+
+    assertTrue(out.endsWith("2024/4,\"a,b\",\"say \"\"hi\"\"\",,,,0\n"));
+  }
+
+  @Test
+  void fromParam_isCaseInsensitive_andRejectsUnknownFormats() {
+    assertEquals(LendingExportFormat.CSV, LendingExportFormat.fromParam("CSV"));
+    assertEquals(LendingExportFormat.NDJSON, LendingExportFormat.fromParam(" ndjson "));
+    assertThrows(IllegalArgumentException.class, () -> LendingExportFormat.fromParam("xml"));
+    assertThrows(IllegalArgumentException.class, () -> LendingExportFormat.fromParam(null));
+  }
+}
@@ -0,0 +1,145 @@
+package pt.psoft.g1.psoftg1.newTests.unit.mapper;
+
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.authormanagement.infrastructure.repositories.mongo.AuthorDoc;
+import pt.psoft.g1.psoftg1.authormanagement.infrastructure.repositories.mongo.AuthorMongoMapper;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.mongo.BookDoc;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.mongo.BookMongoMapper;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.readermanagement.infraestructure.repositories.mongo.ReaderDoc;
+import pt.psoft.g1.psoftg1.readermanagement.infraestructure.repositories.mongo.ReaderMongoMapper;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.usermanagement.infrastructure.repositories.mongo.UserDoc;
+import pt.psoft.g1.psoftg1.usermanagement.infrastructure.repositories.mongo.UserMongoMapper;
+import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
+import pt.psoft.g1.psoftg1.usermanagement.model.Role;
+import pt.psoft.g1.psoftg1.usermanagement.model.User;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the private state restored by the Mongo document mappers.
+ */
+class MongoMapperTest {
+
+  @Test
+  void book_toDomain_restoresPkAndVersion_andRoundTrips() {
+    BookMongoMapper mapper = new BookMongoMapper();
+    Author author = new Author("Robert Martin", "bio", null);
+    author.assignId("A1");
+    BookDoc doc = BookDoc.builder()
+        .id("B1").version(7L).isbn("9780132350884").title("Clean Code").description("desc")
+        .genre("Software").authorIds(List.of("A1")).photoFile("cover.png")
+        .build();
+
+    Book book = mapper.toDomain(doc, new Genre("Software"), List.of(author));
+
+    assertEquals("B1", book.getPk());
+    assertEquals(7L, book.getVersion());
+    BookDoc back = mapper.toDoc(book);
+    assertEquals("B1", back.getId());
+    assertEquals(7L, back.getVersion());
+    assertEquals(List.of("A1"), back.getAuthorIds());
+  }
+
+  @Test
+  void book_missingVersion_defaultsToZero() {
+    BookMongoMapper mapper = new BookMongoMapper();
+    Author author = new Author("Robert Martin", "bio", null);
+    author.assignId("A1");
+    BookDoc doc = BookDoc.builder().id("B1").isbn("9780132350884").title("Clean Code").genre("Software").build();
+
+    assertEquals(0L, mapper.toDomain(doc, new Genre("Software"), List.of(author)).getVersion());
+  }
+
+  @Test
+  void reader_toDomain_keepsStoredReaderNumberAndVersion() {
+    ReaderMongoMapper mapper = new ReaderMongoMapper();
+    ReaderDoc doc = ReaderDoc.builder()
+        .id("R1").readerNumber("2019/42").birthDate(LocalDate.of(1990, 1, 1)).phoneNumber("912345678")
+        .gdprConsent(true).version(3L)
+        .build();
+
+    ReaderDetails rd = mapper.toDomainSkeleton(doc, Reader.newReader("ana@mail.com", "x", "Ana Silva"), List.of());
+    rd.assignId("R1");
+
+    assertEquals("2019/42", rd.getReaderNumber());
+    assertEquals(3L, rd.getVersion());
+    assertEquals("R1", mapper.toDoc(rd).getId());
+  }
+
+  @Test
+  void author_photo_roundTripsWithItsFile() {
+    AuthorMongoMapper mapper = new AuthorMongoMapper();
+    Author author = new Author("Ana", "bio", "ab/cd/abcd.png");
+    author.assignId("A1");
+
+    AuthorDoc doc = mapper.toDoc(author);
+    Author back = mapper.toDomain(doc);
+
+    assertEquals("ab/cd/abcd.png", doc.getPhotoFile());
+    assertEquals("ab/cd/abcd.png", back.getPhoto().getPhotoFile());
+    assertEquals(author.getPhotoId(), back.getPhotoId());
+  }
+
+  @Test
+  void author_savedBeforePhotoFilesWereKept_keepsItsPhotoId() {
+    AuthorDoc doc = new AuthorDoc();
+    doc.setId("A1");
+    doc.setName("Ana");
+    doc.setBio("bio");
+    doc.setPhotoId("P1");
+
+    Author author = new AuthorMongoMapper().toDomain(doc);
+
+    assertEquals("P1", author.getPhotoId());
+    assertNull(author.getPhoto().getPhotoFile());
+  }
+
+  @Test
+  void user_toDomain_restoresIdPasswordAndRoles_andRoundTrips() {
+    UserMongoMapper mapper = new UserMongoMapper();
+    UserDoc doc = UserDoc.builder()
+        .id("U1").username("ana@mail.com").password("{bcrypt}hash").fullName("Ana Silva")
+        .enabled(true).roles(Set.of(Role.READER))
+        .build();
+
+    User user = mapper.toDomain(doc);
+
+    assertInstanceOf(Reader.class, user);
+    assertEquals("U1", user.getId());
+    assertEquals("{bcrypt}hash", user.getPassword());
+    assertEquals("{bcrypt}hash", mapper.toDoc(user).getPassword());
+    assertEquals("U1", mapper.toDoc(user).getId());
+  }
+
+  @Test
+  void user_createdAt_isRestored_andKeptOnTheNextSave() {
+    UserMongoMapper mapper = new UserMongoMapper();
+    LocalDateTime created = LocalDateTime.of(2024, 3, 1, 10, 15, 30, 123_000_000);
+    UserDoc doc = UserDoc.builder()
+        .id("U1").username("ana@mail.com").password("{bcrypt}hash")
+        .enabled(true).roles(Set.of(Role.READER)).createdAt(created)
+        .build();
+
+    User user = mapper.toDomain(doc);
+
+    assertEquals(created, user.getCreatedAt());
+    assertEquals(created, mapper.toDoc(user).getCreatedAt());
+  }
+
+  @Test
+  void user_new_getsCreatedAtInMilliseconds() {
+    UserDoc doc = new UserMongoMapper().toDoc(new Reader("ana@mail.com", "Password#123"));
+
+    assertNotNull(doc.getCreatedAt());
+    assertEquals(0, doc.getCreatedAt().getNano() % 1_000_000);
+  }
+}
@@ -0,0 +1,85 @@
+package pt.psoft.g1.psoftg1.newTests.unit.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.mongo.BookIdentityMap;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for BookIdentityMap.
+ */
+class BookIdentityMapTest {
+
+  private static Book book(long version) {
+    Book b = mock(Book.class);
+    lenient().when(b.getVersion()).thenReturn(version);
+    return b;
+  }
+
+  @Test
+  void sameVersion_returnsCachedInstance() {
+    BookIdentityMap map = new BookIdentityMap(10, false, null);
+    AtomicInteger hydrations = new AtomicInteger();
+
+    Book first = map.resolve("b1", 3, () -> { hydrations.incrementAndGet(); return book(3); });
+    Book second = map.resolve("b1", 3, () -> { hydrations.incrementAndGet(); return book(3); });
+
+    assertSame(first, second);
+    assertEquals(1, hydrations.get());
+  }
+
+  @Test
+  void differentVersion_rehydratesAndReplacesEntry() {
+    BookIdentityMap map = new BookIdentityMap(10, false, null);
+    Book old = map.resolve("b1", 1, () -> book(1));
+
+    Book fresh = map.resolve("b1", 2, () -> book(2));
+
+    assertNotSame(old, fresh);
+    assertSame(fresh, map.resolve("b1", 2, () -> fail("should be cached")));
+  }
+
+  @Test
+  void evict_forcesRehydration() {
+    BookIdentityMap map = new BookIdentityMap(10, false, null);
+    Book first = map.resolve("b1", 0, () -> book(0));
+
+    map.evict("b1");
+
+    assertNotSame(first, map.resolve("b1", 0, () -> book(0)));
+  }
+
+  @Test
+  void staysWithinMaximumSize() {
+    BookIdentityMap map = new BookIdentityMap(50, false, null);
+
+    for (int i = 0; i < 1_000; i++) {
+      map.put("b" + i, book(0));
+    }
+
+    assertTrue(map.size() <= 50, "size was " + map.size());
+  }
+
+  @Test
+  void publishesSizeAndHitRatio() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    BookIdentityMap map = new BookIdentityMap(10, true, registry);
+
+    map.resolve("b1", 0, () -> book(0));   // miss
+    map.resolve("b1", 0, () -> book(0));   // hit
+    map.resolve("b1", 1, () -> book(1));   // stale
+    map.resolve("b1", 1, () -> book(1));   // hit
+
+    assertEquals(0.5, map.hitRatio(), 1e-9);
+    assertEquals(0.5, registry.get("book.identity.hit.ratio").gauge().value(), 1e-9);
+    assertEquals(2.0, registry.get("book.identity.gets").tag("result", "hit").functionCounter().count());
+    assertEquals(1.0, registry.get("book.identity.gets").tag("result", "miss").functionCounter().count());
+    assertEquals(1.0, registry.get("book.identity.gets").tag("result", "stale").functionCounter().count());
+    assertTrue(registry.get("book.identity.size").gauge().value() <= 1.0);
+  }
+}
@@ -0,0 +1,210 @@
+package pt.psoft.g1.psoftg1.newTests.unit.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.mongo.BookDoc;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.mongo.BookMongoMapper;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.mongo.BookMongoRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.mongo.SpringMongoBookRepo;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchDocument;
+import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreDictionary;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the batch hydration path of BookMongoRepository.
+ */
+@ExtendWith(MockitoExtension.class)
+class BookMongoRepositoryTest {
+
+  @Mock SpringMongoBookRepo springRepo;
+  @Mock MongoTemplate mongoTemplate;
+  @Mock GenreDictionary genreDictionary;
+  @Mock AuthorRepository authorRepository;
+  @Mock ObjectProvider<MeterRegistry> meterRegistry;
+
+  BookMongoRepository repository;
+
+  @BeforeEach
+  void setUp() {
+    repository = new BookMongoRepository(springRepo, mongoTemplate, new BookMongoMapper(), genreDictionary,
+        authorRepository, meterRegistry, 1_000, false);
+    lenient().when(genreDictionary.findByName("Fantasia")).thenReturn(Optional.of(new Genre("Fantasia")));
+  }
+
+  private static String isbn(int seq) {
+    String body = String.format("978%09d", seq);
+    int sum = 0;
+    for (int i = 0; i < 12; i++) sum += (body.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+    return body + (10 - sum % 10) % 10;
+  }
+
+  private static BookDoc doc(int seq, List<String> authorIds) {
+    return BookDoc.builder()
+        .id("B" + seq)
+        .version(0L)
+        .isbn(isbn(seq))
+        .title("Title " + seq)
+        .genre("Fantasia")
+        .authorIds(authorIds)
+        .build();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void stubAuthors() {
+    when(authorRepository.findByAuthorNumberIn(anyCollection())).thenAnswer(inv -> {
+      List<Author> out = new ArrayList<>();
+      for (String id : (Collection<String>) inv.getArgument(0)) {
+        Author a = new Author("Author " + id.replace("-", " "), "bio", null);
+        a.assignId(id);
+        out.add(a);
+      }
+      return out;
+    });
+  }
+
+  private List<BookDoc> page(int size) {
+    List<BookDoc> docs = new ArrayList<>();
+    for (int i = 1; i <= size; i++) {
+      docs.add(doc(i, List.of("A" + (i % 11), "A" + ((i + 3) % 11), "A" + ((i + 7) % 11))));
+    }
+    return docs;
+  }
+
+  @Test
+  void searchBooks_resolvesAllAuthorsOfThePageInOneQuery() {
+    stubAuthors();
+    when(mongoTemplate.find(any(Query.class), eq(BookDoc.class))).thenReturn(page(50));
+
+    List<Book> out = repository.searchBooks(new Page(1, 50), null);
+
+    assertEquals(50, out.size());
+    verify(authorRepository, times(1)).findByAuthorNumberIn(anyCollection());
+    verify(authorRepository, never()).findByAuthorNumber(anyString());
+  }
+
+  @Test
+  void mapping_preservesAuthorOrderWithinEachBook() {
+    stubAuthors();
+    when(springRepo.findByGenreRegex(anyString()))
+        .thenReturn(List.of(doc(1, List.of("A3", "A1", "A2")), doc(2, List.of("A2", "A3"))));
+
+    List<Book> out = repository.findByGenre("Fantasia");
+
+    assertEquals(List.of("A3", "A1", "A2"), out.get(0).getAuthors().stream().map(Author::getId).toList());
+    assertEquals(List.of("A2", "A3"), out.get(1).getAuthors().stream().map(Author::getId).toList());
+  }
+
+  @Test
+  void mapping_skipsAuthorsThatNoLongerExist() {
+    when(authorRepository.findByAuthorNumberIn(anyCollection())).thenAnswer(inv -> {
+      Author a = new Author("Author One", "bio", null);
+      a.assignId("A1");
+      return List.of(a);
+    });
+    when(springRepo.findByGenreRegex(anyString())).thenReturn(List.of(doc(1, List.of("A9", "A1"))));
+
+    Book book = repository.findByGenre("Fantasia").get(0);
+
+    assertEquals(List.of("A1"), book.getAuthors().stream().map(Author::getId).toList());
+  }
+
+  @Test
+  void booksStillInIdentityMap_needNoAuthorQuery() {
+    stubAuthors();
+    when(mongoTemplate.find(any(Query.class), eq(BookDoc.class))).thenReturn(page(20));
+
+    List<Book> first = repository.searchBooks(new Page(1, 20), null);
+    List<Book> second = repository.searchBooks(new Page(1, 20), null);
+
+    assertSame(first.get(0), second.get(0));
+    verify(authorRepository, times(1)).findByAuthorNumberIn(anyCollection());
+  }
+
+  @Test
+  void bookInIdentityMap_authorRenamedSince_isHydratedAgain() {
+    stubAuthors();
+    BookDoc before = doc(1, List.of("A-1"));
+    before.setAuthorNames(List.of("Author A 1"));
+    BookDoc renamed = doc(1, List.of("A-1"));
+    renamed.setAuthorNames(List.of("Author A 1 Renamed"));
+    when(springRepo.findByGenreRegex(anyString())).thenReturn(List.of(before), List.of(renamed));
+
+    Book first = repository.findByGenre("Fantasia").get(0);
+    Book second = repository.findByGenre("Fantasia").get(0);
+
+    assertNotSame(first, second);
+    verify(authorRepository, times(2)).findByAuthorNumberIn(anyCollection());
+  }
+
+  @Test
+  void emptyPage_skipsAuthorQuery() {
+    when(mongoTemplate.find(any(Query.class), eq(BookDoc.class))).thenReturn(List.of());
+
+    assertTrue(repository.searchBooks(new Page(1, 10), null).isEmpty());
+    verifyNoInteractions(authorRepository);
+  }
+
+  @Test
+  void searchBooks_withCursor_readsAfterTitleAndIsbn() {
+    when(mongoTemplate.find(any(Query.class), eq(BookDoc.class))).thenReturn(List.of());
+
+    repository.searchBooks(new Page(5, 10, PageCursor.encode("Clean Code", "9780132350884")),
+        new SearchBooksQuery("Cl", null, null));
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).find(query.capture(), eq(BookDoc.class));
+    Document filter = query.getValue().getQueryObject();
+    assertTrue(filter.containsKey("title"), "the title filter is kept");
+    assertEquals(List.of(
+        new Document("title", new Document("$gt", "Clean Code")),
+        new Document("title", "Clean Code").append("isbn", new Document("$gt", "9780132350884"))),
+        filter.get("$or"));
+    assertEquals(0, query.getValue().getSkip());
+    assertEquals(new Document("title", 1).append("isbn", 1), query.getValue().getSortObject());
+  }
+
+  @Test
+  void streamSearchDocuments_readsOnlyTheSearchableFields() {
+    BookDoc withAuthors = doc(1, List.of("A1"));
+    withAuthors.setAuthorNames(List.of("Ana Silva"));
+    when(mongoTemplate.stream(any(Query.class), eq(BookDoc.class))).thenReturn(Stream.of(withAuthors, doc(2, List.of())));
+
+    List<BookSearchDocument> docs;
+    try (Stream<BookSearchDocument> stream = repository.streamSearchDocuments()) {
+      docs = stream.toList();
+    }
+
+    assertEquals(new BookSearchDocument(isbn(1), "Title 1", null, "Fantasia", List.of("Ana Silva")), docs.get(0));
+    assertEquals(List.of(), docs.get(1).authorNames());
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).stream(query.capture(), eq(BookDoc.class));
+    assertEquals(Set.of("isbn", "title", "description", "genre", "authorNames"),
+        query.getValue().getFieldsObject().keySet());
+  }
+}
@@ -0,0 +1,96 @@
+package pt.psoft.g1.psoftg1.newTests.unit.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo.ForbiddenNameDoc;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo.ForbiddenNameMongoRepository;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo.SpringMongoForbiddenNameRepo;
+import pt.psoft.g1.psoftg1.shared.model.ForbiddenName;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the bulk insert path of ForbiddenNameMongoRepository.
+ */
+@ExtendWith(MockitoExtension.class)
+class ForbiddenNameMongoRepositoryTest {
+
+  @Mock SpringMongoForbiddenNameRepo springRepo;
+  @Mock MongoTemplate mongoTemplate;
+  @Mock BulkOperations bulkOps;
+
+  ForbiddenNameMongoRepository repository;
+
+  @BeforeEach
+  void setUp() {
+    repository = new ForbiddenNameMongoRepository(springRepo, mongoTemplate);
+  }
+
+  @Test
+  void insertMissing_issuesOneUnorderedBulkOfUpserts() {
+    when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ForbiddenNameDoc.class)).thenReturn(bulkOps);
+    BulkWriteResult result = BulkWriteResult.acknowledged(0, 1, 0, 0,
+        List.of(new BulkWriteUpsert(0, new BsonObjectId())), List.of());
+    when(bulkOps.execute()).thenReturn(result);
+
+    int inserted = repository.insertMissing(List.of(
+        new ForbiddenName("1", "Batman"), new ForbiddenName("2", "Hulk")));
+
+    assertEquals(1, inserted);
+    verify(bulkOps, times(2)).upsert(any(Query.class), any(Update.class));
+    verify(bulkOps, times(1)).execute();
+    verify(mongoTemplate, times(1)).bulkOps(any(BulkOperations.BulkMode.class), eq(ForbiddenNameDoc.class));
+    verifyNoInteractions(springRepo);
+  }
+
+  @Test
+  void insertMissing_withNothingToInsert_skipsTheRoundTrip() {
+    assertEquals(0, repository.insertMissing(List.of()));
+    verifyNoInteractions(mongoTemplate);
+  }
+
+  private static BulkOperationException bulkFailure(int code) {
+    BulkWriteResult partial = BulkWriteResult.acknowledged(0, 1, 0, 0,
+        List.of(new BulkWriteUpsert(0, new BsonObjectId())), List.of());
+    return new BulkOperationException("bulk failed", new MongoBulkWriteException(partial,
+        List.of(new BulkWriteError(code, "failed", new BsonDocument(), 1)), null, new ServerAddress(), Set.of()));
+  }
+
+  @Test
+  void insertMissing_whenAnotherNodeInsertedTheNameFirst_countsItAsSkipped() {
+    when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ForbiddenNameDoc.class)).thenReturn(bulkOps);
+    when(bulkOps.execute()).thenThrow(bulkFailure(11000));
+
+    assertEquals(1, repository.insertMissing(List.of(
+        new ForbiddenName("1", "Batman"), new ForbiddenName("2", "Hulk"))));
+  }
+
+  @Test
+  void insertMissing_otherWriteErrors_propagate() {
+    when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ForbiddenNameDoc.class)).thenReturn(bulkOps);
+    when(bulkOps.execute()).thenThrow(bulkFailure(121));
+
+    assertThrows(BulkOperationException.class,
+        () -> repository.insertMissing(List.of(new ForbiddenName("1", "Batman"))));
+  }
+}
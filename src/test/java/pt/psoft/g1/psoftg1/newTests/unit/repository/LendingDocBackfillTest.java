@@ -0,0 +1,97 @@
+package pt.psoft.g1.psoftg1.newTests.unit.repository;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.mongo.BookDoc;
+import pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.mongo.LendingDoc;
+import pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.mongo.LendingDocBackfill;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for LendingDocBackfill.
+ */
+@ExtendWith(MockitoExtension.class)
+class LendingDocBackfillTest {
+
+  @Mock MongoTemplate mongo;
+  @Mock BulkOperations bulk;
+
+  private static LendingDoc lending(String id, String isbn) {
+    return LendingDoc.builder().id(id).bookIsbn(isbn).build();
+  }
+
+  private static BookDoc book(String isbn, String genre, String... authorIds) {
+    return BookDoc.builder().isbn(isbn).genre(genre).authorIds(List.of(authorIds)).build();
+  }
+
+  @Test
+  void backfill_walksBatchesInIdOrder_andResumesAfterLastId() {
+    when(mongo.find(any(Query.class), eq(LendingDoc.class)))
+        .thenReturn(List.of(lending("a", "I1"), lending("b", "I2")))
+        .thenReturn(List.of(lending("c", "I1")));
+    when(mongo.find(any(Query.class), eq(BookDoc.class)))
+        .thenReturn(List.of(book("I1", "Fantasia", "A1"), book("I2", "Romance", "A2", "A3")))
+        .thenReturn(List.of(book("I1", "Fantasia", "A1")));
+    when(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, LendingDoc.class)).thenReturn(bulk);
+
+    long updated = new LendingDocBackfill(mongo, 2).backfill();
+
+    assertEquals(3, updated);
+    ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+    verify(mongo, times(2)).find(queries.capture(), eq(LendingDoc.class));
+    Query first = queries.getAllValues().get(0);
+    Query second = queries.getAllValues().get(1);
+    assertEquals(2, first.getLimit());
+    assertEquals(new Document("_id", 1), first.getSortObject());
+    assertFalse(first.getQueryObject().containsKey("_id"));
+    assertEquals(new Document("$gt", "b"), second.getQueryObject().get("_id"));
+    verify(bulk, times(2)).execute();
+  }
+
+  @Test
+  void backfill_copiesGenreAndAuthorsFromTheBook() {
+    when(mongo.find(any(Query.class), eq(LendingDoc.class))).thenReturn(List.of(lending("a", "I2")));
+    when(mongo.find(any(Query.class), eq(BookDoc.class))).thenReturn(List.of(book("I2", "Romance", "A2", "A3")));
+    when(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, LendingDoc.class)).thenReturn(bulk);
+
+    new LendingDocBackfill(mongo, 10).backfill();
+
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(bulk).updateOne(any(Query.class), update.capture());
+    Document set = (Document) update.getValue().getUpdateObject().get("$set");
+    assertEquals("Romance", set.get("bookGenre"));
+    assertEquals(List.of("A2", "A3"), set.get("bookAuthorIds"));
+  }
+
+  @Test
+  void backfill_skipsLendingsWhoseBookIsGone() {
+    when(mongo.find(any(Query.class), eq(LendingDoc.class))).thenReturn(List.of(lending("a", "GONE")));
+    when(mongo.find(any(Query.class), eq(BookDoc.class))).thenReturn(List.of());
+    when(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, LendingDoc.class)).thenReturn(bulk);
+
+    assertEquals(0, new LendingDocBackfill(mongo, 10).backfill());
+    verify(bulk, never()).execute();
+  }
+
+  @Test
+  void backfill_nothingMissing_doesNoWork() {
+    when(mongo.find(any(Query.class), eq(LendingDoc.class))).thenReturn(List.of());
+
+    assertEquals(0, new LendingDocBackfill(mongo, 10).backfill());
+    verify(mongo, never()).find(any(Query.class), eq(BookDoc.class));
+    verify(mongo, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(LendingDoc.class));
+  }
+}
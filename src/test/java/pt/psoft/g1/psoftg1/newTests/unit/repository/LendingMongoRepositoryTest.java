@@ -0,0 +1,240 @@
+package pt.psoft.g1.psoftg1.newTests.unit.repository;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.mongo.LendingDoc;
+import pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.mongo.LendingMongoRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.mongo.SpringMongoLendingRepo;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingExportRow;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the batch hydration and save paths of LendingMongoRepository.
+ */
+@ExtendWith(MockitoExtension.class)
+class LendingMongoRepositoryTest {
+
+  @Mock SpringMongoLendingRepo springRepo;
+  @Mock MongoTemplate mongoTemplate;
+  @Mock BookRepository bookRepository;
+  @Mock ReaderRepository readerRepository;
+
+  LendingMongoRepository repository;
+
+  @BeforeEach
+  void setUp() {
+    repository = new LendingMongoRepository(springRepo, mongoTemplate, bookRepository, readerRepository);
+  }
+
+  private static LendingDoc doc(int seq, String isbn, String readerNumber) {
+    LocalDate start = LocalDate.now().minusDays(20);
+    return LendingDoc.builder()
+        .id("L" + seq)
+        .lendingNumber(LocalDate.now().getYear() + "/" + seq)
+        .bookIsbn(isbn)
+        .readerNumber(readerNumber)
+        .startDate(start)
+        .limitDate(start.plusDays(14))
+        .fineValuePerDayInCents(25)
+        .build();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void stubCatalogue() {
+    when(bookRepository.findByIsbnIn(anyCollection())).thenAnswer(inv -> {
+      List<Book> out = new ArrayList<>();
+      for (String isbn : (Collection<String>) inv.getArgument(0)) {
+        Book b = mock(Book.class);
+        when(b.getIsbn()).thenReturn(isbn);
+        out.add(b);
+      }
+      return out;
+    });
+    when(readerRepository.findByReaderNumberIn(anyCollection())).thenAnswer(inv -> {
+      List<ReaderDetails> out = new ArrayList<>();
+      for (String rn : (Collection<String>) inv.getArgument(0)) {
+        ReaderDetails r = mock(ReaderDetails.class);
+        when(r.getReaderNumber()).thenReturn(rn);
+        out.add(r);
+      }
+      return out;
+    });
+  }
+
+  private List<LendingDoc> page(int size) {
+    List<LendingDoc> docs = new ArrayList<>();
+    for (int i = 1; i <= size; i++) {
+      docs.add(doc(i, "ISBN-" + (i % 7), "2024/" + (i % 13)));
+    }
+    return docs;
+  }
+
+  @Test
+  void searchLendings_issuesOneBookAndOneReaderQuery_perPage() {
+    stubCatalogue();
+    when(mongoTemplate.find(any(Query.class), eq(LendingDoc.class), eq("lendings"))).thenReturn(page(100));
+
+    List<Lending> out = repository.searchLendings(new Page(1, 100), null, null, null, null, null);
+
+    assertEquals(100, out.size());
+    verify(bookRepository, times(1)).findByIsbnIn(anyCollection());
+    verify(readerRepository, times(1)).findByReaderNumberIn(anyCollection());
+    verify(bookRepository, never()).findByIsbn(anyString());
+    verify(readerRepository, never()).findByReaderNumber(anyString());
+  }
+
+  @Test
+  void getOverdue_roundTripsDoNotGrowWithPageSize() {
+    stubCatalogue();
+    when(mongoTemplate.find(any(Query.class), eq(LendingDoc.class), eq("lendings")))
+        .thenReturn(page(5))
+        .thenReturn(page(100));
+
+    repository.getOverdue(new Page(1, 5));
+    repository.getOverdue(new Page(1, 100));
+
+    verify(bookRepository, times(2)).findByIsbnIn(anyCollection());
+    verify(readerRepository, times(2)).findByReaderNumberIn(anyCollection());
+  }
+
+  @Test
+  void searchLendings_preservesDocumentOrderAndWiring() {
+    stubCatalogue();
+    when(mongoTemplate.find(any(Query.class), eq(LendingDoc.class), eq("lendings")))
+        .thenReturn(List.of(doc(2, "B", "2024/2"), doc(1, "A", "2024/1")));
+
+    List<Lending> out = repository.searchLendings(new Page(1, 10), null, null, null, null, null);
+
+    assertEquals(LocalDate.now().getYear() + "/2", out.get(0).getLendingNumber());
+    assertEquals("B", out.get(0).getBook().getIsbn());
+    assertEquals("2024/2", out.get(0).getReaderDetails().getReaderNumber());
+    assertEquals("A", out.get(1).getBook().getIsbn());
+  }
+
+  @Test
+  void searchLendings_emptyPage_skipsHydrationQueries() {
+    when(mongoTemplate.find(any(Query.class), eq(LendingDoc.class), eq("lendings"))).thenReturn(List.of());
+
+    assertTrue(repository.searchLendings(new Page(1, 10), null, null, null, null, null).isEmpty());
+    verifyNoInteractions(bookRepository, readerRepository);
+  }
+
+  @Test
+  void searchLendings_missingBook_throws() {
+    when(mongoTemplate.find(any(Query.class), eq(LendingDoc.class), eq("lendings")))
+        .thenReturn(List.of(doc(1, "A", "2024/1")));
+    when(bookRepository.findByIsbnIn(anyCollection())).thenReturn(List.of());
+    when(readerRepository.findByReaderNumberIn(anyCollection())).thenReturn(List.of());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> repository.searchLendings(new Page(1, 10), null, null, null, null, null));
+  }
+
+  @Test
+  void searchLendings_withCursor_readsAfterTheLendingNumberWithoutSkipping() {
+    when(mongoTemplate.find(any(Query.class), eq(LendingDoc.class), eq("lendings"))).thenReturn(List.of());
+
+    repository.searchLendings(new Page(7, 20, PageCursor.encode("2024/41")), "2024/1", null, null, null, null);
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).find(query.capture(), eq(LendingDoc.class), eq("lendings"));
+    assertEquals(new Document("$gt", "2024/41"), query.getValue().getQueryObject().get("lendingNumber"));
+    assertEquals("2024/1", query.getValue().getQueryObject().get("readerNumber"));
+    assertEquals(0, query.getValue().getSkip());
+    assertEquals(20, query.getValue().getLimit());
+    assertEquals(new Document("lendingNumber", 1), query.getValue().getSortObject());
+  }
+
+  @Test
+  void searchLendings_withPageNumber_stillSkips() {
+    when(mongoTemplate.find(any(Query.class), eq(LendingDoc.class), eq("lendings"))).thenReturn(List.of());
+
+    repository.searchLendings(new Page(3, 10), null, null, null, null, null);
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).find(query.capture(), eq(LendingDoc.class), eq("lendings"));
+    assertEquals(20, query.getValue().getSkip());
+    assertFalse(query.getValue().getQueryObject().containsKey("lendingNumber"));
+  }
+
+  @Test
+  void save_upsertsByLendingNumber_andWritesCheckoutFieldsOnlyOnInsert() {
+    Author author = mock(Author.class);
+    when(author.getId()).thenReturn("A1");
+    Book book = mock(Book.class);
+    when(book.getIsbn()).thenReturn("ISBN-1");
+    when(book.getGenre()).thenReturn(new Genre("Fantasia"));
+    when(book.getAuthors()).thenReturn(List.of(author));
+    ReaderDetails reader = mock(ReaderDetails.class);
+    when(reader.getReaderNumber()).thenReturn("2024/1");
+    Lending lending = mock(Lending.class);
+    when(lending.getLendingNumber()).thenReturn("2024/7");
+    when(lending.getBook()).thenReturn(book);
+    when(lending.getReaderDetails()).thenReturn(reader);
+    when(lending.getStartDate()).thenReturn(LocalDate.of(2024, 3, 1));
+    when(lending.getReturnedDate()).thenReturn(LocalDate.of(2024, 3, 9));
+
+    repository.save(lending);
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(LendingDoc.class));
+    assertEquals("2024/7", query.getValue().getQueryObject().get("lendingNumber"));
+
+    Document set = (Document) update.getValue().getUpdateObject().get("$set");
+    Document onInsert = (Document) update.getValue().getUpdateObject().get("$setOnInsert");
+    assertEquals(LocalDate.of(2024, 3, 9), set.get("returnedDate"));
+    assertFalse(set.containsKey("bookGenre"));
+    assertEquals("Fantasia", onInsert.get("bookGenre"));
+    assertEquals(List.of("A1"), onInsert.get("bookAuthorIds"));
+    assertEquals("ISBN-1", onInsert.get("bookIsbn"));
+    assertFalse(onInsert.containsKey("_id"));
+  }
+
+  @Test
+  void streamForExport_streamsOnlyTheExportedFields_inLendingNumberOrder() {
+    LendingDoc doc = LendingDoc.builder().lendingNumber("2024/3").bookIsbn("ISBN-1").readerNumber("2024/1")
+        .startDate(LocalDate.of(2024, 3, 1)).limitDate(LocalDate.of(2024, 3, 15)).fineValuePerDayInCents(50)
+        .build();
+    when(mongoTemplate.stream(any(Query.class), eq(LendingDoc.class), eq("lendings"))).thenReturn(Stream.of(doc));
+
+    List<LendingExportRow> rows = repository.streamForExport(null, "ISBN-1", false, null, null).toList();
+
+    assertEquals(List.of(new LendingExportRow("2024/3", "ISBN-1", "2024/1", LocalDate.of(2024, 3, 1),
+        LocalDate.of(2024, 3, 15), null, 50)), rows);
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).stream(query.capture(), eq(LendingDoc.class), eq("lendings"));
+    assertEquals("ISBN-1", query.getValue().getQueryObject().get("bookIsbn"));
+    assertTrue(query.getValue().getQueryObject().containsKey("returnedDate"));
+    assertEquals(new Document("lendingNumber", 1), query.getValue().getSortObject());
+    assertFalse(query.getValue().getFieldsObject().containsKey("bookGenre"));
+    assertTrue(query.getValue().getFieldsObject().containsKey("fineValuePerDayInCents"));
+    verifyNoInteractions(bookRepository, readerRepository);
+  }
+}
@@ -0,0 +1,83 @@
+package pt.psoft.g1.psoftg1.newTests.unit.repository;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.mongo.BookDoc;
+import pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.mongo.LendingDoc;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo.MongoIndexCreator;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for MongoIndexCreator.
+ */
+@ExtendWith(MockitoExtension.class)
+class MongoIndexCreatorTest {
+
+  @Mock MongoTemplate mongo;
+  @Mock IndexOperations lendingIndexes;
+  @Mock IndexOperations bookIndexes;
+
+  private MongoMappingContext context(Class<?>... types) {
+    MongoMappingContext ctx = new MongoMappingContext();
+    ctx.setInitialEntitySet(Set.of(types));
+    ctx.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+    ctx.afterPropertiesSet();
+    return ctx;
+  }
+
+  private List<Document> created(IndexOperations ops) {
+    ArgumentCaptor<IndexDefinition> captor = ArgumentCaptor.forClass(IndexDefinition.class);
+    verify(ops, atLeastOnce()).ensureIndex(captor.capture());
+    return captor.getAllValues().stream().map(IndexDefinition::getIndexKeys).toList();
+  }
+
+  @Test
+  void createIndexes_appliesTheCompoundIndexesDeclaredOnLendings() {
+    when(mongo.indexOps(LendingDoc.class)).thenReturn(lendingIndexes);
+
+    new MongoIndexCreator(mongo, context(LendingDoc.class)).createIndexes();
+
+    List<Document> keys = created(lendingIndexes);
+    assertTrue(keys.contains(new Document("lendingNumber", 1)));
+    assertTrue(keys.contains(new Document("startDate", 1)));
+    assertTrue(keys.contains(new Document("readerNumber", 1).append("returnedDate", 1)));
+    assertTrue(keys.contains(new Document("returnedDate", 1).append("limitDate", 1)));
+    assertTrue(keys.contains(new Document("bookGenre", 1).append("startDate", 1)));
+  }
+
+  @Test
+  void createIndexes_coversEveryDocumentInTheMappingContext() {
+    when(mongo.indexOps(LendingDoc.class)).thenReturn(lendingIndexes);
+    when(mongo.indexOps(BookDoc.class)).thenReturn(bookIndexes);
+
+    int count = new MongoIndexCreator(mongo, context(LendingDoc.class, BookDoc.class)).createIndexes();
+
+    List<Document> bookKeys = created(bookIndexes);
+    assertTrue(bookKeys.contains(new Document("isbn", 1)));
+    assertTrue(bookKeys.contains(new Document("authorIds", 1)));
+    assertEquals(created(lendingIndexes).size() + bookKeys.size(), count);
+  }
+
+  @Test
+  void createIndexes_nonDocumentTypes_areSkipped() {
+    record Plain(String name) {}
+
+    assertEquals(0, new MongoIndexCreator(mongo, context(Plain.class)).createIndexes());
+    verify(mongo, never()).indexOps(any(Class.class));
+  }
+}
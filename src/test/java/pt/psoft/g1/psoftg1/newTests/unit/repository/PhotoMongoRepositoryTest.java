@@ -0,0 +1,170 @@
+package pt.psoft.g1.psoftg1.newTests.unit.repository;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo.PhotoDoc;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo.PhotoMongoRepository;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.mongo.SpringMongoPhotoRepo;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the reference counting of PhotoMongoRepository.
+ */
+@ExtendWith(MockitoExtension.class)
+class PhotoMongoRepositoryTest {
+
+  @Mock SpringMongoPhotoRepo springRepo;
+  @Mock IdGenerator idGenerator;
+  @Mock MongoTemplate mongoTemplate;
+
+  PhotoMongoRepository repository;
+
+  @BeforeEach
+  void setUp() {
+    repository = new PhotoMongoRepository(springRepo, idGenerator, mongoTemplate);
+  }
+
+  private void countAfterRelease(PhotoDoc doc) {
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+        eq(PhotoDoc.class))).thenReturn(doc);
+  }
+
+  @Test
+  void retain_upsertsAnIncrementOnTheFile() {
+    when(idGenerator.newId("ph_")).thenReturn("ph_1");
+
+    repository.retain("a.png");
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(PhotoDoc.class));
+    assertEquals("a.png", query.getValue().getQueryObject().get("photoFile"));
+    assertTrue(update.getValue().getUpdateObject().toJson().contains("\"$inc\": {\"refCount\": 1}"));
+  }
+
+  @Test
+  void release_otherReferencesLeft_keepsTheFile() {
+    countAfterRelease(PhotoDoc.builder().photoFile("a.png").refCount(1).build());
+
+    assertFalse(repository.release("a.png"));
+    verify(mongoTemplate, never()).remove(any(Query.class), eq(PhotoDoc.class));
+  }
+
+  @Test
+  void release_lastReference_keepsTheEntryAtZero() {
+    countAfterRelease(PhotoDoc.builder().photoFile("a.png").refCount(0).build());
+
+    assertTrue(repository.release("a.png"));
+    verify(mongoTemplate, never()).remove(any(Query.class), eq(PhotoDoc.class));
+  }
+
+  @Test
+  void release_fileStoredBeforeReferenceCounting_isTheLastReference() {
+    countAfterRelease(null);
+
+    assertTrue(repository.release("legacy.png"));
+  }
+
+  @Test
+  void stored_upsertsAnEntryAtZero_withoutTouchingAnExistingCount() {
+    when(idGenerator.newId("ph_")).thenReturn("ph_1");
+
+    repository.stored("a.png");
+
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).upsert(any(Query.class), update.capture(), eq(PhotoDoc.class));
+    String json = update.getValue().getUpdateObject().toJson();
+    assertTrue(json.contains("\"$setOnInsert\""));
+    assertTrue(json.contains("\"refCount\": 0"));
+    assertFalse(json.contains("$inc"));
+  }
+
+  private void backfilled() {
+    when(mongoTemplate.exists(any(Query.class), eq("migrations"))).thenReturn(true);
+    repository.backfillReferences();
+  }
+
+  private void counted(String... files) {
+    when(mongoTemplate.findDistinct(any(Query.class), eq("photoFile"), eq(PhotoDoc.class), eq(String.class)))
+        .thenReturn(List.of(files));
+  }
+
+  @Test
+  void findReferenced_filesWithoutACountNorOwnerNames_areUnreferenced() {
+    backfilled();
+    counted("counted.png");
+    when(mongoTemplate.findDistinct(any(Query.class), eq("photoFile"), eq("books"), eq(String.class)))
+        .thenReturn(List.of("a.png"));
+    when(mongoTemplate.findDistinct(any(Query.class), eq("photoFile"), eq("authors"), eq(String.class)))
+        .thenReturn(List.of("b.png"));
+    when(mongoTemplate.findDistinct(any(Query.class), eq("photoFile"), eq("readers"), eq(String.class)))
+        .thenReturn(List.of("c.png"));
+
+    assertEquals(Set.of("a.png", "b.png", "c.png", "counted.png"),
+        repository.findReferenced(List.of("a.png", "b.png", "c.png", "d.png", "counted.png", "never-saved.png")));
+  }
+
+  @Test
+  void findReferenced_storedButNeverRetained_isUnreferenced() {
+    backfilled();
+    counted();
+    when(mongoTemplate.findDistinct(any(Query.class), eq("photoFile"), anyString(), eq(String.class)))
+        .thenReturn(List.of());
+
+    assertEquals(Set.of(), repository.findReferenced(List.of("upload.png")));
+  }
+
+  @Test
+  void findReferenced_beforeTheBackfill_keepsFilesWithoutAnEntry() {
+    when(mongoTemplate.findDistinct(any(Query.class), eq("photoFile"), eq(PhotoDoc.class), eq(String.class)))
+        .thenReturn(List.of(), List.of("stored.png"));
+    when(mongoTemplate.findDistinct(any(Query.class), eq("photoFile"), anyString(), eq(String.class)))
+        .thenReturn(List.of());
+
+    assertEquals(Set.of("legacy.png"), repository.findReferenced(List.of("legacy.png", "stored.png")));
+  }
+
+  @Test
+  void backfillReferences_countsOwnersAcrossCollections_andLeavesAMarker() {
+    when(idGenerator.newId("ph_")).thenReturn("ph_1");
+    when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("authors")))
+        .thenReturn(List.of(new Document("_id", "A1").append("photoId", "ph_9")));
+    when(springRepo.findById("ph_9")).thenReturn(Optional.of(PhotoDoc.builder().photoFile("old.png").build()));
+    when(mongoTemplate.aggregate(any(Aggregation.class), anyString(), eq(Document.class)))
+        .thenAnswer(inv -> new AggregationResults<>(
+            "readers".equals(inv.getArgument(1)) ? List.of() : List.of(owners("shared.png", 1)), new Document()));
+
+    repository.backfillReferences();
+
+    ArgumentCaptor<Update> author = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).updateFirst(any(Query.class), author.capture(), eq("authors"));
+    assertEquals("old.png", author.getValue().getUpdateObject().get("$set", Document.class).get("photoFile"));
+    ArgumentCaptor<Update> count = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).upsert(any(Query.class), count.capture(), eq(PhotoDoc.class));
+    assertEquals(2L, count.getValue().getUpdateObject().get("$max", Document.class).get("refCount"));
+    verify(mongoTemplate).save(any(Document.class), eq("migrations"));
+  }
+
+  private static Document owners(String photoFile, int count) {
+    return new Document("_id", photoFile).append("owners", count);
+  }
+}
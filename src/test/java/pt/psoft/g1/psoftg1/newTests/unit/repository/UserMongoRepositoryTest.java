@@ -0,0 +1,85 @@
+package pt.psoft.g1.psoftg1.newTests.unit.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
+import pt.psoft.g1.psoftg1.usermanagement.infrastructure.repositories.mongo.SpringMongoUserRepo;
+import pt.psoft.g1.psoftg1.usermanagement.infrastructure.repositories.mongo.UserDoc;
+import pt.psoft.g1.psoftg1.usermanagement.infrastructure.repositories.mongo.UserMongoMapper;
+import pt.psoft.g1.psoftg1.usermanagement.infrastructure.repositories.mongo.UserMongoRepository;
+import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
+import pt.psoft.g1.psoftg1.usermanagement.services.SearchUsersQuery;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the creation time kept by UserMongoRepository.save and the cursor read by searchUsers.
+ */
+@ExtendWith(MockitoExtension.class)
+class UserMongoRepositoryTest {
+
+  @Mock SpringMongoUserRepo springRepo;
+  @Mock MongoTemplate mongoTemplate;
+
+  UserMongoRepository repository;
+
+  @BeforeEach
+  void setUp() {
+    repository = new UserMongoRepository(springRepo, mongoTemplate, new UserMongoMapper());
+  }
+
+  private void saveReturnsTheDoc() {
+    when(springRepo.save(any(UserDoc.class))).thenAnswer(inv -> inv.getArgument(0));
+  }
+
+  @Test
+  void save_existingUser_keepsStoredCreatedAt() {
+    saveReturnsTheDoc();
+    LocalDateTime created = LocalDateTime.of(2024, 3, 1, 10, 15, 30);
+    when(springRepo.findByUsername("ana@mail.com")).thenReturn(Optional.of(
+        UserDoc.builder().id("U1").username("ana@mail.com").createdAt(created).build()));
+    Reader user = new Reader("ana@mail.com", "Password#123");
+    user.assignId("U1");
+
+    repository.save(user);
+
+    ArgumentCaptor<UserDoc> saved = ArgumentCaptor.forClass(UserDoc.class);
+    verify(springRepo).save(saved.capture());
+    assertEquals(created, saved.getValue().getCreatedAt());
+    assertEquals(created, user.getCreatedAt());
+  }
+
+  @Test
+  void save_newUser_setsCreatedAtOnTheUser() {
+    saveReturnsTheDoc();
+    when(springRepo.findByUsername("ana@mail.com")).thenReturn(Optional.empty());
+    Reader user = new Reader("ana@mail.com", "Password#123");
+    user.assignId("U1");
+
+    repository.save(user);
+
+    assertNotNull(user.getCreatedAt());
+  }
+
+  @Test
+  void searchUsers_cursorWithoutATimestamp_isAnInvalidCursor() {
+    Page page = new Page(1, 10, PageCursor.encode("garbage", "ana@mail.com"));
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> repository.searchUsers(page, new SearchUsersQuery()));
+
+    assertEquals("Invalid page cursor", e.getMessage());
+    verifyNoInteractions(mongoTemplate);
+  }
+}
@@ -0,0 +1,73 @@
+package pt.psoft.g1.psoftg1.newTests.unit.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorCacheEvictor;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AuthorCacheEvictor.
+ */
+class AuthorCacheEvictorTest {
+
+  ConcurrentMapCacheManager cacheManager;
+  AuthorCacheEvictor evictor;
+
+  @BeforeEach
+  void setUp() {
+    cacheManager = new ConcurrentMapCacheManager("authorSearch");
+    StaticListableBeanFactory beans = new StaticListableBeanFactory();
+    beans.addBean("cacheManager", cacheManager);
+    evictor = new AuthorCacheEvictor(beans.getBeanProvider(CacheManager.class));
+  }
+
+  private Cache search() {
+    return cacheManager.getCache("authorSearch");
+  }
+
+  @Test
+  void searchKey_isCaseInsensitive() {
+    assertEquals(AuthorCacheEvictor.searchKey("ana"), AuthorCacheEvictor.searchKey("AnA"));
+  }
+
+  @Test
+  void authorChanged_evictsOnlySearchesTheAuthorCanAppearIn() {
+    for (String q : List.of("a", "An", "ana l", "Ana Lima", "ana limao", "b", "lima")) {
+      search().put(AuthorCacheEvictor.searchKey(q), List.of());
+    }
+
+    evictor.authorChanged("Ana Lima");
+
+    for (String evicted : List.of("a", "an", "ana l", "ana lima")) {
+      assertNull(search().get(AuthorCacheEvictor.searchKey(evicted)), evicted);
+    }
+    for (String kept : List.of("ana limao", "b", "lima")) {
+      assertNotNull(search().get(AuthorCacheEvictor.searchKey(kept)), kept);
+    }
+  }
+
+  @Test
+  void authorChanged_coversPreviousAndNewName() {
+    search().put(AuthorCacheEvictor.searchKey("old"), List.of());
+    search().put(AuthorCacheEvictor.searchKey("new"), List.of());
+
+    evictor.authorChanged("Old Name", "New Name");
+
+    assertNull(search().get(AuthorCacheEvictor.searchKey("old")));
+    assertNull(search().get(AuthorCacheEvictor.searchKey("new")));
+  }
+
+  @Test
+  void authorChanged_withoutCacheManager_doesNothing() {
+    AuthorCacheEvictor noCache = new AuthorCacheEvictor(
+        new StaticListableBeanFactory().getBeanProvider(CacheManager.class));
+    assertDoesNotThrow(() -> noCache.authorChanged("Ana"));
+  }
+}
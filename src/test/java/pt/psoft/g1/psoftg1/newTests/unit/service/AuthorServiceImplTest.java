@@ -2,27 +2,31 @@ package pt.psoft.g1.psoftg1.newTests.unit.service;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
 import pt.psoft.g1.psoftg1.authormanagement.api.AuthorLendingView;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorCacheEvictor;
 import pt.psoft.g1.psoftg1.authormanagement.services.AuthorMapper;
 import pt.psoft.g1.psoftg1.authormanagement.services.AuthorServiceImpl;
 import pt.psoft.g1.psoftg1.authormanagement.services.CreateAuthorRequest;
 import pt.psoft.g1.psoftg1.authormanagement.services.UpdateAuthorRequest;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchIndex;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSnapshotCache;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardEntry;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardKind;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardService;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
 import pt.psoft.g1.psoftg1.shared.model.Photo;
-import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.PhotoReferenceService;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
 
@@ -39,8 +43,12 @@ class AuthorServiceImplTest {
   @Mock AuthorRepository authorRepository;
   @Mock BookRepository bookRepository;
   @Mock AuthorMapper mapper;
-  @Mock PhotoRepository photoRepository;
+  @Mock PhotoReferenceService photoReferenceService;
   @Mock IdGenerator idGenerator;
+  @Mock AuthorCacheEvictor cacheEvictor;
+  @Mock LeaderboardService leaderboardService;
+  @Mock BookSearchIndex searchIndex;
+  @Mock BookSnapshotCache snapshotCache;
 
   @InjectMocks
   AuthorServiceImpl service;
@@ -108,6 +116,7 @@ class AuthorServiceImplTest {
     verify(idGenerator).newId();
     verify(author).assignId("GEN-999");
     verify(authorRepository).save(author);
+    verify(cacheEvictor).authorChanged(author.getName());
     assertNull(req.getPhoto());
     assertNull(req.getPhotoURI());
   }
@@ -119,6 +128,7 @@ class AuthorServiceImplTest {
     UpdateAuthorRequest patch = new UpdateAuthorRequest();
 
     Author author = mock(Author.class);
+    when(author.getName()).thenReturn("Old Name", "New Name");
     when(authorRepository.findByAuthorNumber(id)).thenReturn(Optional.of(author));
     when(authorRepository.save(author)).thenReturn(author);
 
@@ -127,6 +137,63 @@ class AuthorServiceImplTest {
     assertSame(author, out);
     verify(author).applyPatch(desiredVersion, patch);
     verify(authorRepository).save(author);
+    verify(cacheEvictor).authorChanged("Old Name", "New Name");
+  }
+
+  @Test
+  void partialUpdate_rename_reindexesTheAuthorsBooks() {
+    Author author = mock(Author.class);
+    when(author.getName()).thenReturn("Old Name", "New Name");
+    when(authorRepository.findByAuthorNumber("A-1")).thenReturn(Optional.of(author));
+    when(authorRepository.save(author)).thenReturn(author);
+    List<Book> books = List.of(mock(Book.class), mock(Book.class));
+    when(bookRepository.findBooksByAuthorNumber("A-1")).thenReturn(books);
+
+    service.partialUpdate("A-1", new UpdateAuthorRequest(), 1L);
+
+    verify(searchIndex).index(books);
+  }
+
+  @Test
+  void partialUpdate_rename_refreshesTheCachedSnapshotsOfTheAuthorsBooks() {
+    Author author = mock(Author.class);
+    when(author.getName()).thenReturn("Old Name", "New Name");
+    when(authorRepository.findByAuthorNumber("A-1")).thenReturn(Optional.of(author));
+    when(authorRepository.save(author)).thenReturn(author);
+    Book first = mock(Book.class);
+    Book second = mock(Book.class);
+    when(bookRepository.findBooksByAuthorNumber("A-1")).thenReturn(List.of(first, second));
+
+    service.partialUpdate("A-1", new UpdateAuthorRequest(), 1L);
+
+    verify(snapshotCache).refresh(first);
+    verify(snapshotCache).refresh(second);
+  }
+
+  @Test
+  void partialUpdate_sameName_leavesTheBooksIndexed() {
+    Author author = mock(Author.class);
+    when(author.getName()).thenReturn("Same Name");
+    when(authorRepository.findByAuthorNumber("A-1")).thenReturn(Optional.of(author));
+    when(authorRepository.save(author)).thenReturn(author);
+
+    service.partialUpdate("A-1", new UpdateAuthorRequest(), 1L);
+
+    verifyNoInteractions(bookRepository, searchIndex, snapshotCache);
+  }
+
+  @Test
+  void partialUpdate_newPhoto_retainsItAndReleasesThePreviousOne() {
+    Photo oldPhoto = new Photo(Path.of("old.png"));
+    Photo newPhoto = new Photo(Path.of("new.png"));
+    Author author = mock(Author.class);
+    when(author.getPhoto()).thenReturn(oldPhoto, newPhoto);
+    when(authorRepository.findByAuthorNumber("A-1")).thenReturn(Optional.of(author));
+    when(authorRepository.save(author)).thenReturn(author);
+
+    service.partialUpdate("A-1", new UpdateAuthorRequest(), 1L);
+
+    verify(photoReferenceService).replaced(oldPhoto, newPhoto);
   }
 
   @Test
@@ -135,25 +202,25 @@ class AuthorServiceImplTest {
     assertThrows(NotFoundException.class,
         () -> service.partialUpdate("MISS", new UpdateAuthorRequest(), 1L));
     verify(authorRepository, never()).save(any());
+    verifyNoInteractions(cacheEvictor);
   }
 
   @Test
-  void findTopAuthorByLendings_usesFirstPageOfFive() {
-    List<AuthorLendingView> expected = List.of(mock(AuthorLendingView.class));
-    @SuppressWarnings("unchecked")
-    Page<AuthorLendingView> page = (Page<AuthorLendingView>) mock(Page.class);
-    when(page.getContent()).thenReturn(expected);
-
-    ArgumentCaptor<Pageable> pageCap = ArgumentCaptor.forClass(Pageable.class);
-    when(authorRepository.findTopAuthorByLendings(any())).thenReturn(page);
+  void findTopAuthorByLendings_readsTopFiveFromLeaderboard() {
+    Author a1 = mock(Author.class);
+    Author a2 = mock(Author.class);
+    when(a1.getId()).thenReturn("A1");
+    when(a1.getName()).thenReturn("Ana");
+    when(a2.getId()).thenReturn("A2");
+    when(a2.getName()).thenReturn("Rui");
+    when(leaderboardService.top(LeaderboardKind.AUTHOR, 5))
+        .thenReturn(List.of(new LeaderboardEntry("A2", 7), new LeaderboardEntry("A1", 3)));
+    when(authorRepository.findByAuthorNumberIn(List.of("A2", "A1"))).thenReturn(List.of(a1, a2));
 
     List<AuthorLendingView> res = service.findTopAuthorByLendings();
 
-    assertEquals(expected, res);
-    verify(authorRepository).findTopAuthorByLendings(pageCap.capture());
-    Pageable p = pageCap.getValue();
-    assertEquals(0, p.getPageNumber());
-    assertEquals(5, p.getPageSize());
+    assertEquals(List.of(new AuthorLendingView("Rui", 7L), new AuthorLendingView("Ana", 3L)), res);
+    verify(authorRepository, never()).findTopAuthorByLendings(any());
   }
 
   @Test
@@ -192,13 +259,14 @@ class AuthorServiceImplTest {
     assertSame(author, out.get());
     verify(author).removePhoto(desiredVersion);
     verify(authorRepository).save(author);
-    verify(photoRepository).deleteByPhotoFile("p.png");
+    verify(photoReferenceService).release("p.png");
+    verify(cacheEvictor).authorChanged((String) null);
   }
 
   @Test
   void removeAuthorPhoto_whenMissing_throwsNotFound() {
     when(authorRepository.findByAuthorNumber("X")).thenReturn(Optional.empty());
     assertThrows(NotFoundException.class, () -> service.removeAuthorPhoto("X", 1L));
-    verify(photoRepository, never()).deleteByPhotoFile(anyString());
+    verify(photoReferenceService, never()).release(anyString());
   }
 }
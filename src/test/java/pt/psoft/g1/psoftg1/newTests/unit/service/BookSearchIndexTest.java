@@ -0,0 +1,186 @@
+package pt.psoft.g1.psoftg1.newTests.unit.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchDocument;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchIndex;
+import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BookSearchIndex.
+ */
+class BookSearchIndexTest {
+
+  private BookSearchIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new BookSearchIndex();
+    index.put(new BookSearchDocument("1", "The Hobbit", "A hobbit goes on a quest.", "Fantasia", List.of("J. R. R. Tolkien")));
+    index.put(new BookSearchDocument("2", "Clean Code", "Writing code that lasts.", "Informação", List.of("Robert Martin")));
+    index.put(new BookSearchDocument("3", "Código Limpo", "Tradução de Clean Code.", "Informação", List.of("Robert Martin")));
+    index.put(new BookSearchDocument("4", "A Tolkien Companion", "Guide to the world of Middle-earth.", "Fantasia", List.of("J. E. A. Tyler")));
+  }
+
+  private List<String> search(SearchBooksQuery query) {
+    return index.search(new Page(1, 10), query);
+  }
+
+  private static SearchBooksQuery text(String text) {
+    return new SearchBooksQuery(null, null, null, text);
+  }
+
+  @Test
+  void filtersAndText_matchCaseAndAccentInsensitively() {
+    assertEquals(List.of("3"), search(new SearchBooksQuery("codigo", null, null)));
+    assertEquals(List.of("2", "3"), search(new SearchBooksQuery(null, "INFORMACAO", null)));
+    assertEquals(List.of("4", "1"), search(new SearchBooksQuery(null, null, null, "tolk")));
+  }
+
+  @Test
+  void filters_matchOnlyTheirOwnField_andAllMustHold() {
+    assertEquals(List.of("1"), search(new SearchBooksQuery(null, null, "tolkien")));
+    assertEquals(List.of("2"), search(new SearchBooksQuery("clean", null, "martin")));
+    assertEquals(List.of(), search(new SearchBooksQuery("clean", "fantasia", null)));
+  }
+
+  @Test
+  void filters_matchAnywhereInTheirField_likeTheRepositoryFinders() {
+    assertEquals(List.of("1"), search(new SearchBooksQuery(null, null, "olkie")));
+    assertEquals(List.of("2"), search(new SearchBooksQuery("ean co", null, null)));
+    assertEquals(List.of("2", "3"), search(new SearchBooksQuery(null, "formação", null)));
+  }
+
+  @Test
+  void filters_ofSeveralWords_mustAppearTogetherAndInOrder() {
+    assertEquals(List.of("1"), search(new SearchBooksQuery("the hob", null, null)));
+    assertEquals(List.of(), search(new SearchBooksQuery("hobbit the", null, null)));
+    assertEquals(List.of(), search(new SearchBooksQuery(null, null, "tolkien j")));
+  }
+
+  @Test
+  void filters_withoutWords_areMatchedAsWritten() {
+    index.put(new BookSearchDocument("5", "C++ Primer", null, "Informação", List.of("Stanley Lippman")));
+
+    assertEquals(List.of("5"), search(new SearchBooksQuery("++", null, null)));
+  }
+
+  @Test
+  void text_ranksTitleMatchesAboveDescriptionMatches() {
+    assertEquals(List.of("2", "3"), search(text("clean code")));
+  }
+
+  @Test
+  void text_wordsMayComeInAnyOrder() {
+    assertEquals(List.of("1"), search(text("tolkien hobbit")));
+  }
+
+  @Test
+  void withoutCriteria_listsAllBooksByTitle() {
+    assertEquals(List.of("4", "2", "3", "1"), search(new SearchBooksQuery("", "", "")));
+  }
+
+  @Test
+  void pages_byNumberAndByCursor_agree() {
+    SearchBooksQuery all = new SearchBooksQuery(null, null, null);
+    List<String> second = index.search(new Page(2, 2), all);
+    String cursor = PageCursor.encode("Clean Code", "2");
+
+    assertEquals(List.of("3", "1"), second);
+    assertEquals(second, index.search(new Page(1, 2, cursor), all));
+  }
+
+  @Test
+  void rankedPages_continueAfterTheCursorBook() {
+    List<String> first = index.search(new Page(1, 1), text("tolk"));
+    String cursor = PageCursor.encode("A Tolkien Companion", first.get(0));
+
+    assertEquals(List.of("4"), first);
+    assertEquals(List.of("1"), index.search(new Page(1, 1, cursor), text("tolk")));
+    assertEquals(List.of(), index.search(new Page(1, 1, PageCursor.encode("The Hobbit", "1")), text("tolk")));
+  }
+
+  @Test
+  void put_replacesTheBooksPreviousWords() {
+    index.put(new BookSearchDocument("1", "The Silmarillion", null, "Fantasia", List.of("J. R. R. Tolkien")));
+
+    assertEquals(List.of(), search(new SearchBooksQuery("hobbit", null, null)));
+    assertEquals(List.of("1"), search(new SearchBooksQuery("silm", null, null)));
+    assertEquals(4, index.size());
+  }
+
+  @Test
+  void put_manyUpdates_forgetsWordsNoBookHasAnyMore() {
+    int words = index.wordCount();
+
+    for (int i = 0; i < 1000; i++) {
+      index.put(new BookSearchDocument("1", "Draft" + i, null, "Fantasia", List.of("J. R. R. Tolkien")));
+    }
+    index.put(new BookSearchDocument("1", "The Hobbit", "A hobbit goes on a quest.", "Fantasia", List.of("J. R. R. Tolkien")));
+
+    // at most one dead entry, and its title word, is left before the next compaction
+    assertTrue(index.wordCount() <= words + 1, "words: " + index.wordCount());
+    assertEquals(List.of(), search(new SearchBooksQuery("draft", null, null)));
+    assertEquals(List.of("4", "2", "3", "1"), search(new SearchBooksQuery()));
+    assertEquals(List.of("4", "1"), search(text("tolkien")));
+    assertEquals(4, index.size());
+  }
+
+  @Test
+  void putIfAbsent_keepsTheEntryAlreadyIndexed() {
+    index.putIfAbsent(new BookSearchDocument("1", "Stale Title", null, "Fantasia", List.of()));
+
+    assertEquals(List.of("1"), search(new SearchBooksQuery("hobbit", null, null)));
+    assertEquals(List.of(), search(new SearchBooksQuery("stale", null, null)));
+  }
+
+  @Test
+  void remove_dropsTheBook() {
+    index.remove("1");
+    index.remove("unknown");
+
+    assertEquals(List.of("4"), search(text("tolkien")));
+    assertEquals(3, index.size());
+  }
+
+  @Test
+  void reset_emptiesTheIndex_untilMarkedReady() {
+    index.markReady();
+
+    index.reset();
+
+    assertFalse(index.isReady());
+    assertEquals(0, index.size());
+    assertEquals(0, index.wordCount());
+    assertEquals(List.of(), search(new SearchBooksQuery()));
+  }
+
+  @Test
+  void index_outsideATransaction_tellsTheChangeListener() {
+    List<List<String>> changes = new ArrayList<>();
+    index.onChange(changes::add);
+    Book book = new Book("9780441013593", "Dune", null, new Genre("Ficção"),
+        List.of(new Author("Frank Herbert", "Author of Dune.", null)), null);
+
+    index.index(book);
+
+    assertEquals(List.of(List.of("9780441013593")), changes);
+    assertEquals(List.of("9780441013593"), search(new SearchBooksQuery("dune", null, null)));
+  }
+
+  @Test
+  void invalidCursor_isRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> index.search(new Page(1, 10, "not-a-cursor"), new SearchBooksQuery()));
+  }
+}
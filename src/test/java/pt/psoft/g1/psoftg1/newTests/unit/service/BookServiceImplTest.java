@@ -14,13 +14,15 @@ import pt.psoft.g1.psoftg1.bookmanagement.services.*;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
-import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreDictionary;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardEntry;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardKind;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardService;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
 import pt.psoft.g1.psoftg1.shared.model.Photo;
-import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
-import org.springframework.data.domain.PageImpl;
+import pt.psoft.g1.psoftg1.shared.services.PhotoReferenceService;
 import org.springframework.data.domain.Pageable;
 
 import java.nio.file.Path;
@@ -36,11 +38,14 @@ import static org.mockito.Mockito.*;
 class BookServiceImplTest {
 
   @Mock private BookRepository bookRepository;
-  @Mock private GenreRepository genreRepository;
+  @Mock private GenreDictionary genreDictionary;
   @Mock private AuthorRepository authorRepository;
-  @Mock private PhotoRepository photoRepository;
+  @Mock private PhotoReferenceService photoReferenceService;
   @Mock private ReaderRepository readerRepository;
   @Mock private IdGenerator idGenerator;
+  @Mock private BookSnapshotCache snapshotCache;
+  @Mock private LeaderboardService leaderboardService;
+  @Mock private BookSearchIndex searchIndex;
 
   @InjectMocks
   private BookServiceImpl service;
@@ -65,7 +70,7 @@ class BookServiceImplTest {
     req.setPhotoURI("cover.png");
 
     when(bookRepository.findByIsbn("9780132350884")).thenReturn(Optional.empty());
-    when(genreRepository.findByString("Software"))
+    when(genreDictionary.findByName("Software"))
         .thenReturn(Optional.of(new Genre("Software")));
     when(authorRepository.findByAuthorNumber("A1"))
         .thenReturn(Optional.of(mock(Author.class)));
@@ -79,6 +84,7 @@ class BookServiceImplTest {
     assertEquals("9780132350884", saved.getIsbn());
     verify(idGenerator, times(1)).newId();
     verify(bookRepository, times(1)).save(any(Book.class));
+    verify(searchIndex).index(saved);
   }
 
   @Test
@@ -99,7 +105,7 @@ class BookServiceImplTest {
     req.setPhotoURI(null);
 
     when(bookRepository.findByIsbn(I1)).thenReturn(Optional.empty());
-    when(genreRepository.findByString("Nope")).thenReturn(Optional.empty());
+    when(genreDictionary.findByName("Nope")).thenReturn(Optional.empty());
 
     assertThrows(NotFoundException.class, () -> service.create(req, I1));
     verify(bookRepository, never()).save(any());
@@ -121,13 +127,14 @@ class BookServiceImplTest {
 
     Author a1 = mock(Author.class);
     when(authorRepository.findByAuthorNumber("A1")).thenReturn(Optional.of(a1));
-    when(genreRepository.findByString("New")).thenReturn(Optional.of(new Genre("New")));
+    when(genreDictionary.findByName("New")).thenReturn(Optional.of(new Genre("New")));
     when(bookRepository.save(any(Book.class))).thenAnswer(inv -> inv.getArgument(0));
 
     Book out = service.update(req, "1");
 
     assertNotNull(out);
     verify(bookRepository).save(existing);
+    verify(snapshotCache).refresh(existing);
   }
 
   @Test
@@ -139,10 +146,11 @@ class BookServiceImplTest {
     req.setIsbn("ISBN");
     req.setGenre("Ghost");
 
-    when(genreRepository.findByString("Ghost")).thenReturn(Optional.empty());
+    when(genreDictionary.findByName("Ghost")).thenReturn(Optional.empty());
 
     assertThrows(NotFoundException.class, () -> service.update(req, "7"));
     verify(bookRepository, never()).save(any());
+    verifyNoInteractions(snapshotCache);
   }
 
   @Test
@@ -154,14 +162,22 @@ class BookServiceImplTest {
   }
 
   @Test
-  void findTop5BooksLent_delegates() {
-    var page = new PageImpl<>(List.of(mock(BookCountDTO.class)));
-    when(bookRepository.findTop5BooksLent(any(), any(Pageable.class))).thenReturn(page);
+  void findTop5BooksLent_readsLeaderboard_inRankOrder() {
+    Book first = mock(Book.class);
+    Book second = mock(Book.class);
+    when(first.getIsbn()).thenReturn("I1");
+    when(second.getIsbn()).thenReturn("I2");
+    when(leaderboardService.top(LeaderboardKind.BOOK, 5)).thenReturn(List.of(
+        new LeaderboardEntry("I1", 9), new LeaderboardEntry("I2", 4), new LeaderboardEntry("GONE", 2)));
+    when(bookRepository.findByIsbnIn(List.of("I1", "I2", "GONE"))).thenReturn(List.of(second, first));
 
     var list = service.findTop5BooksLent();
 
-    assertEquals(1, list.size());
-    verify(bookRepository).findTop5BooksLent(any(), any(Pageable.class));
+    assertEquals(2, list.size());
+    assertSame(first, list.get(0).getBook());
+    assertEquals(9, list.get(0).getLendingCount());
+    assertSame(second, list.get(1).getBook());
+    verify(bookRepository, never()).findTop5BooksLent(any(), any(Pageable.class));
   }
 
   @Test
@@ -189,6 +205,23 @@ class BookServiceImplTest {
     assertSame(b, service.findByIsbn(I1));
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  void findSnapshotByIsbn_loadsThroughTheSnapshotCache() {
+    Author author = mock(Author.class);
+    when(author.getAuthorNumber()).thenReturn("A1");
+    when(author.getName()).thenReturn("Robert Martin");
+    Book b = new Book(I1, "Clean Code", "d", new Genre("Software"), List.of(author), null);
+    when(bookRepository.findByIsbn(I1)).thenReturn(Optional.of(b));
+    when(snapshotCache.get(eq(I1), any())).thenAnswer(inv ->
+        ((java.util.function.Supplier<BookSnapshot>) inv.getArgument(1)).get());
+
+    BookSnapshot snap = service.findSnapshotByIsbn(I1);
+
+    assertEquals(new BookSnapshot(I1, "Clean Code", "d", "Software",
+        List.of(new BookSnapshot.AuthorRef("A1", "Robert Martin")), null, 0L), snap);
+  }
+
   @Test
   void findByIsbn_missing_throws() {
     when(bookRepository.findByIsbn("MISS")).thenReturn(Optional.empty());
@@ -207,8 +240,9 @@ class BookServiceImplTest {
 
     assertSame(book, updated);
     verify(book).removePhoto(3L);
-    verify(photoRepository).deleteByPhotoFile("photo.png");
+    verify(photoReferenceService).release("photo.png");
     verify(bookRepository).save(book);
+    verify(snapshotCache).refresh(book);
   }
 
   @Test
@@ -218,7 +252,7 @@ class BookServiceImplTest {
     when(bookRepository.findByIsbn("I1")).thenReturn(Optional.of(book));
 
     assertThrows(NotFoundException.class, () -> service.removeBookPhoto("I1", 1L));
-    verify(photoRepository, never()).deleteByPhotoFile(any());
+    verify(photoReferenceService, never()).release(any());
   }
 
   @Test
@@ -266,4 +300,48 @@ class BookServiceImplTest {
     assertNotNull(list);
     verify(bookRepository).searchBooks(eq(page), eq(q));
   }
+
+  @Test
+  void searchBooks_indexReady_returnsTheBooksInIndexOrder() {
+    pt.psoft.g1.psoftg1.shared.services.Page page = new pt.psoft.g1.psoftg1.shared.services.Page(1, 10);
+    SearchBooksQuery q = new SearchBooksQuery(null, null, null, "clean");
+    Book b1 = mock(Book.class);
+    Book b2 = mock(Book.class);
+    when(b1.getIsbn()).thenReturn(I1);
+    when(b2.getIsbn()).thenReturn(I2);
+    when(searchIndex.isReady()).thenReturn(true);
+    when(searchIndex.search(page, q)).thenReturn(List.of(I2, I1));
+    when(bookRepository.findByIsbnIn(List.of(I2, I1))).thenReturn(List.of(b1, b2));
+
+    assertEquals(List.of(b2, b1), service.searchBooks(page, q));
+    verify(bookRepository, never()).searchBooks(any(), any());
+  }
+
+  @Test
+  void searchBooks_indexedBookGoneFromTheRepository_isForgotten_andThePageFilledAgain() {
+    pt.psoft.g1.psoftg1.shared.services.Page page = new pt.psoft.g1.psoftg1.shared.services.Page(1, 2);
+    SearchBooksQuery q = new SearchBooksQuery(null, null, null, "clean");
+    Book b1 = mock(Book.class);
+    Book b3 = mock(Book.class);
+    when(b1.getIsbn()).thenReturn(I1);
+    when(b3.getIsbn()).thenReturn("9780201633610");
+    when(searchIndex.isReady()).thenReturn(true);
+    when(searchIndex.search(page, q)).thenReturn(List.of(I1, I2), List.of(I1, "9780201633610"));
+    when(bookRepository.findByIsbnIn(List.of(I1, I2))).thenReturn(List.of(b1));
+    when(bookRepository.findByIsbnIn(List.of(I1, "9780201633610"))).thenReturn(List.of(b1, b3));
+
+    assertEquals(List.of(b1, b3), service.searchBooks(page, q));
+    verify(searchIndex).remove(I2);
+    verify(searchIndex, never()).remove(I1);
+  }
+
+  @Test
+  void searchBooks_indexNotReady_matchesTextAsTheStartOfTheTitle() {
+    pt.psoft.g1.psoftg1.shared.services.Page page = new pt.psoft.g1.psoftg1.shared.services.Page(1, 10);
+    when(bookRepository.searchBooks(any(), any())).thenReturn(List.of());
+
+    service.searchBooks(page, new SearchBooksQuery(null, "Software", null, "Clean"));
+
+    verify(bookRepository).searchBooks(page, new SearchBooksQuery("Clean", "Software", null));
+  }
 }
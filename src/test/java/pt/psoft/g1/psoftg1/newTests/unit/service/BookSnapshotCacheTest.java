@@ -0,0 +1,133 @@
+package pt.psoft.g1.psoftg1.newTests.unit.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSnapshot;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSnapshotCache;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BookSnapshotCache.
+ */
+class BookSnapshotCacheTest {
+
+  private static final String ISBN = "9780132350884";
+
+  ConcurrentMapCacheManager cacheManager;
+  BookSnapshotCache snapshots;
+
+  @BeforeEach
+  void setUp() {
+    cacheManager = new ConcurrentMapCacheManager("bookByIsbn");
+    StaticListableBeanFactory beans = new StaticListableBeanFactory();
+    beans.addBean("cacheManager", cacheManager);
+    snapshots = new BookSnapshotCache(beans.getBeanProvider(CacheManager.class));
+  }
+
+  @AfterEach
+  void clearSynchronization() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  private static Book book(long version, String title) {
+    Author author = new Author("Robert Martin", "bio", null);
+    author.assignId("A1");
+    Book book = new Book(ISBN, title, "d", new Genre("Software"), List.of(author), null);
+    ReflectionTestUtils.setField(book, "version", version);
+    return book;
+  }
+
+  private Cache cache() {
+    return cacheManager.getCache("bookByIsbn");
+  }
+
+  @Test
+  void get_loadsOnce_thenServesFromCache() {
+    AtomicInteger loads = new AtomicInteger();
+    BookSnapshot first = snapshots.get(ISBN, () -> { loads.incrementAndGet(); return BookSnapshot.of(book(1, "A")); });
+    BookSnapshot second = snapshots.get(ISBN, () -> { loads.incrementAndGet(); return BookSnapshot.of(book(1, "B")); });
+
+    assertEquals(1, loads.get());
+    assertSame(first, second);
+  }
+
+  @Test
+  void get_doesNotOverwriteSnapshotWrittenWhileLoading() {
+    BookSnapshot served = snapshots.get(ISBN, () -> {
+      snapshots.refresh(book(2, "New"));      // a PATCH commits while this read is at the database
+      return BookSnapshot.of(book(1, "Old"));
+    });
+
+    assertEquals(2L, served.version());
+    assertEquals(2L, ((BookSnapshot) cache().get(ISBN).get()).version());
+  }
+
+  @Test
+  void refresh_outsideTransaction_writesThroughImmediately() {
+    snapshots.get(ISBN, () -> BookSnapshot.of(book(1, "Old")));
+
+    snapshots.refresh(book(2, "New"));
+
+    BookSnapshot cached = (BookSnapshot) cache().get(ISBN).get();
+    assertEquals(2L, cached.version());
+    assertEquals("New", cached.title());
+  }
+
+  @Test
+  void refresh_afterAuthorRename_replacesTheCachedNameAtTheSameVersion() {
+    Book book = book(1, "Clean Code");
+    snapshots.get(ISBN, () -> BookSnapshot.of(book));
+
+    book.getAuthors().get(0).setName("Bob Martin");     // renaming an author does not bump the book's version
+    snapshots.refresh(book);
+
+    BookSnapshot cached = (BookSnapshot) cache().get(ISBN).get();
+    assertEquals(1L, cached.version());
+    assertEquals("Bob Martin", cached.authors().get(0).name());
+  }
+
+  @Test
+  void refresh_insideTransaction_waitsForCommit() {
+    snapshots.get(ISBN, () -> BookSnapshot.of(book(1, "Old")));
+    TransactionSynchronizationManager.initSynchronization();
+    Book book = book(1, "New");
+
+    snapshots.refresh(book);
+    assertEquals(1L, ((BookSnapshot) cache().get(ISBN).get()).version());
+
+    ReflectionTestUtils.setField(book, "version", 2L);   // version bumped on flush
+    TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+    assertEquals(2L, ((BookSnapshot) cache().get(ISBN).get()).version());
+  }
+
+  @Test
+  void withoutCacheManager_alwaysLoads() {
+    BookSnapshotCache uncached = new BookSnapshotCache(
+        new StaticListableBeanFactory().getBeanProvider(CacheManager.class));
+    AtomicInteger loads = new AtomicInteger();
+
+    uncached.get(ISBN, () -> { loads.incrementAndGet(); return BookSnapshot.of(book(1, "A")); });
+    uncached.get(ISBN, () -> { loads.incrementAndGet(); return BookSnapshot.of(book(1, "A")); });
+    uncached.refresh(book(2, "B"));
+
+    assertEquals(2, loads.get());
+  }
+}
@@ -0,0 +1,156 @@
+package pt.psoft.g1.psoftg1.newTests.unit.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockMultipartFile;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageProperties;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for FileStorageService.
+ */
+class FileStorageServiceTest {
+
+  @TempDir Path root;
+
+  private FileStorageService service;
+  private PhotoRepository photoRepository;
+
+  @BeforeEach
+  void setUp() {
+    FileStorageProperties props = new FileStorageProperties();
+    props.setUploadDir(root.resolve("uploads").toString());
+    props.setPhotoMaxSize(20_000);
+    photoRepository = mock(PhotoRepository.class);
+    service = new FileStorageService(props, photoRepository);
+  }
+
+  @Test
+  void getFileResource_returnsTheStoredFile() throws Exception {
+    Files.write(root.resolve("uploads/p.png"), new byte[]{1, 2, 3});
+
+    Optional<Resource> photo = service.getFileResource("p.png");
+
+    assertTrue(photo.isPresent());
+    assertEquals(3, photo.get().contentLength());
+    assertTrue(photo.get().isFile());
+  }
+
+  @Test
+  void getFileResource_missingFile_isEmpty() {
+    assertTrue(service.getFileResource("nope.png").isEmpty());
+  }
+
+  @Test
+  void getFileResource_nullOrBlankName_isEmpty() {
+    assertTrue(service.getFileResource(null).isEmpty());
+    assertTrue(service.getFileResource(" ").isEmpty());
+  }
+
+  @Test
+  void getFileResource_mongoAuthorPhoto_knownOnlyById_isEmpty() {
+    // the Mongo author mapper restores the photo from its id alone, so it has no file name
+    Author author = new Author("Ana", "bio", null);
+    author.setPhotoId("P1");
+
+    assertNull(author.getPhoto().getPhotoFile());
+    assertTrue(service.getFileResource(author.getPhoto().getPhotoFile()).isEmpty());
+  }
+
+  @Test
+  void getFileResource_outsideTheUploadDirectory_isEmpty() throws Exception {
+    Files.write(root.resolve("secret.txt"), new byte[]{1});
+
+    assertTrue(service.getFileResource("../secret.txt").isEmpty());
+  }
+
+  @Test
+  void storeFile_contentAddressed_namesBySha256InPrefixDirectories_andStoresDuplicatesOnce() throws Exception {
+    MockMultipartFile first = new MockMultipartFile("photo", "cover.PNG", "image/png", "same bytes".getBytes());
+    MockMultipartFile second = new MockMultipartFile("photo", "other.png", "image/png", "same bytes".getBytes());
+
+    String a = service.storeFile("ignored-1", first);
+    String b = service.storeFile("ignored-2", second);
+
+    assertEquals("58/10/58100dc8fc06562ce3e578231dc948e083520ee49c4b4ee5a5a28bb4b4003feb.png", a);
+    assertEquals(a, b);
+    assertTrue(Files.isRegularFile(root.resolve("uploads").resolve(a)));
+    try (var files = Files.walk(root.resolve("uploads"))) {
+      assertEquals(1, files.filter(Files::isRegularFile).count(), "one copy, no leftover temp files");
+    }
+  }
+
+  @Test
+  void storeFile_contentAddressed_duplicateRefreshesTheStoredFilesAge() throws Exception {
+    String name = service.storeFile("x", new MockMultipartFile("photo", "a.png", "image/png", new byte[]{7}));
+    Path stored = root.resolve("uploads").resolve(name);
+    Files.setLastModifiedTime(stored, FileTime.from(Instant.now().minus(Duration.ofDays(3))));
+
+    service.storeFile("y", new MockMultipartFile("photo", "b.png", "image/png", new byte[]{7}));
+
+    assertTrue(Files.getLastModifiedTime(stored).toInstant().isAfter(Instant.now().minus(Duration.ofMinutes(1))));
+  }
+
+  @Test
+  void storeFile_contentAddressed_duplicateRestoresAFileDeletedByARelease() throws Exception {
+    String name = service.storeFile("x", new MockMultipartFile("photo", "a.png", "image/png", new byte[]{7}));
+    Files.delete(root.resolve("uploads").resolve(name));
+
+    assertEquals(name, service.storeFile("y", new MockMultipartFile("photo", "a.png", "image/png", new byte[]{7})));
+    assertTrue(Files.isRegularFile(root.resolve("uploads").resolve(name)));
+  }
+
+  @Test
+  void deleteIfNotModifiedSince_deletesOlderFiles_andKeepsRecentOnes() throws Exception {
+    String old = service.storeFile("x", new MockMultipartFile("photo", "a.png", "image/png", new byte[]{1}));
+    String recent = service.storeFile("y", new MockMultipartFile("photo", "b.png", "image/png", new byte[]{2}));
+    Files.setLastModifiedTime(root.resolve("uploads").resolve(old), FileTime.from(Instant.now().minus(Duration.ofDays(3))));
+    Instant cutoff = Instant.now().minus(Duration.ofDays(1));
+
+    assertTrue(service.deleteIfNotModifiedSince(old, cutoff));
+    assertFalse(service.deleteIfNotModifiedSince(recent, cutoff));
+    assertFalse(Files.exists(root.resolve("uploads").resolve(old)));
+    assertTrue(Files.exists(root.resolve("uploads").resolve(recent)));
+  }
+
+  @Test
+  void deleteIfNotModifiedSince_missingFile_isFalse() {
+    assertFalse(service.deleteIfNotModifiedSince("nope.png", Instant.now()));
+  }
+
+  @Test
+  void storeFile_uuidMode_usesThePrefix() {
+    FileStorageProperties props = new FileStorageProperties();
+    props.setUploadDir(root.resolve("flat").toString());
+    props.setContentAddressed(false);
+    FileStorageService flat = new FileStorageService(props, photoRepository);
+
+    String name = flat.storeFile("abc", new MockMultipartFile("photo", "cover.png", "image/png", new byte[]{1}));
+
+    assertEquals("abc.png", name);
+    assertTrue(Files.isRegularFile(root.resolve("flat/abc.png")));
+    verify(photoRepository).stored("abc.png");
+  }
+
+  @Test
+  void storeFile_recordsEveryUploadAsStored_evenDuplicates() {
+    String a = service.storeFile("x", new MockMultipartFile("photo", "a.png", "image/png", new byte[]{7}));
+    service.storeFile("y", new MockMultipartFile("photo", "a.png", "image/png", new byte[]{7}));
+
+    verify(photoRepository, times(2)).stored(a);
+  }
+}
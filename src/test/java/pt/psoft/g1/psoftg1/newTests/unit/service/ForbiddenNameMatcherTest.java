@@ -0,0 +1,159 @@
+package pt.psoft.g1.psoftg1.newTests.unit.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pt.psoft.g1.psoftg1.shared.model.ForbiddenName;
+import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
+import pt.psoft.g1.psoftg1.shared.repositories.SequenceRepository;
+import pt.psoft.g1.psoftg1.shared.services.ForbiddenNameMatcher;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ForbiddenNameMatcher.
+ */
+@ExtendWith(MockitoExtension.class)
+class ForbiddenNameMatcherTest {
+
+  @Mock ForbiddenNameRepository repo;
+  @Mock SequenceRepository sequences;
+
+  ForbiddenNameMatcher matcher;
+
+  @BeforeEach
+  void setUp() {
+    matcher = new ForbiddenNameMatcher(repo, sequences);
+  }
+
+  private void dictionary(String... names) {
+    List<ForbiddenName> list = Arrays.stream(names).map(n -> new ForbiddenName("id-" + n, n)).toList();
+    when(repo.findAll()).thenReturn(list);
+  }
+
+  @Test
+  void matchesForbiddenNameContainedInAnyWord() {
+    dictionary("Batman", "Hulk");
+
+    assertTrue(matcher.containsForbiddenName("Bruce Batman Wayne"));
+    assertTrue(matcher.containsForbiddenName("Ana Superhulkster"));
+    assertFalse(matcher.containsForbiddenName("Bruce Wayne"));
+  }
+
+  @Test
+  void ignoresCase() {
+    dictionary("Batman");
+
+    assertTrue(matcher.containsForbiddenName("BATMAN Silva"));
+    assertTrue(matcher.containsForbiddenName("batman silva"));
+  }
+
+  @Test
+  void doesNotMatchAcrossWords() {
+    dictionary("Batman");
+
+    assertFalse(matcher.containsForbiddenName("Bat Man"));
+    assertFalse(matcher.containsForbiddenName("Robat manuel"));
+  }
+
+  @Test
+  void followsFailureLinksBetweenOverlappingNames() {
+    dictionary("she", "hers", "his");
+
+    assertTrue(matcher.containsForbiddenName("ushers"));
+    assertTrue(matcher.containsForbiddenName("ahishe"));
+    assertTrue(matcher.containsForbiddenName("xhis"));
+    assertFalse(matcher.containsForbiddenName("hes hi"));
+  }
+
+  @Test
+  void reportsShortNameNestedInLongerOne() {
+    dictionary("abcd", "bc");
+
+    assertTrue(matcher.containsForbiddenName("abcx"));
+  }
+
+  @Test
+  void emptyDictionaryOrName_neverMatches() {
+    dictionary();
+
+    assertFalse(matcher.containsForbiddenName("Anyone"));
+    assertFalse(matcher.containsForbiddenName(""));
+    assertFalse(matcher.containsForbiddenName(null));
+  }
+
+  @Test
+  void buildsOnce_andOnlyReloadsOnRebuild() {
+    dictionary("Hulk");
+    matcher.containsForbiddenName("Ana");
+    matcher.containsForbiddenName("Rui");
+    verify(repo, times(1)).findAll();
+
+    dictionary("Hulk", "Espirro");
+    assertFalse(matcher.containsForbiddenName("Espirro Lopes"));
+
+    matcher.rebuild();
+    assertTrue(matcher.containsForbiddenName("Espirro Lopes"));
+    verify(repo, times(2)).findAll();
+  }
+
+  @Test
+  void refresh_picksUpNamesChangedElsewhere() {
+    dictionary("Hulk");
+    when(repo.count()).thenReturn(1L);
+    matcher.refresh();
+    assertFalse(matcher.containsForbiddenName("Espirro Lopes"));
+
+    dictionary("Espirro");
+    when(sequences.current("forbiddenNames")).thenReturn(1L);
+    matcher.refresh();
+
+    assertTrue(matcher.containsForbiddenName("Espirro Lopes"));
+    assertFalse(matcher.containsForbiddenName("Hulk Silva"));
+  }
+
+  @Test
+  void refresh_picksUpNamesAddedStraightInTheDatabase() {
+    dictionary("Hulk");
+    when(repo.count()).thenReturn(1L);
+    matcher.refresh();
+
+    dictionary("Hulk", "Espirro");
+    when(repo.count()).thenReturn(2L);
+    matcher.refresh();
+
+    assertTrue(matcher.containsForbiddenName("Espirro Lopes"));
+  }
+
+  @Test
+  void refresh_unchangedDictionary_doesNotReloadTheNames() {
+    dictionary("Hulk");
+    when(repo.count()).thenReturn(1L);
+    when(sequences.current("forbiddenNames")).thenReturn(3L);
+    matcher.refresh();
+
+    matcher.refresh();
+    matcher.refresh();
+
+    verify(repo, times(1)).findAll();
+    verify(repo, times(3)).count();
+  }
+
+  @Test
+  void changed_advancesTheSequence_andRebuilds() {
+    dictionary("Espirro");
+
+    matcher.changed();
+
+    verify(sequences).reserve(eq("forbiddenNames"), eq(1), any());
+    assertTrue(matcher.containsForbiddenName("Espirro Lopes"));
+  }
+}
@@ -6,14 +6,20 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
 import pt.psoft.g1.psoftg1.shared.model.ForbiddenName;
 import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
+import pt.psoft.g1.psoftg1.shared.services.ForbiddenNameMatcher;
+import pt.psoft.g1.psoftg1.shared.services.ForbiddenNameService.LoadResult;
 import pt.psoft.g1.psoftg1.shared.services.ForbiddenNameServiceImpl;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 /**
@@ -24,40 +30,63 @@ class ForbiddenNameServiceImplTest {
 
   @Mock ForbiddenNameRepository repo;
   @Mock IdGenerator idGenerator;
+  @Mock ForbiddenNameMatcher matcher;
 
   ForbiddenNameServiceImpl service;
 
   @BeforeEach
   void setUp() {
-    service = new ForbiddenNameServiceImpl(repo, idGenerator);
+    service = new ForbiddenNameServiceImpl(repo, idGenerator, matcher);
   }
 
+  @SuppressWarnings("unchecked")
   @Test
-  void loadDataFromFile_savesOnlyMissingNames() {
-    when(repo.findByForbiddenName("apple"))
-        .thenReturn(Optional.empty())
-        .thenReturn(Optional.of(new ForbiddenName("X", "apple")));
-    when(repo.findByForbiddenName("banana"))
-        .thenReturn(Optional.of(new ForbiddenName("Y", "banana")));
+  void loadDataFromFile_deduplicatesAndInsertsInOneBulkCall() {
+    when(idGenerator.newId()).thenReturn("ID-1", "ID-2");
+    when(repo.insertMissing(anyCollection())).thenReturn(2);
 
-    when(idGenerator.newId()).thenReturn("ID-1");
+    LoadResult result = service.loadDataFromFile("forbidden-names-test.txt");
 
-    service.loadDataFromFile("forbidden-names-test.txt");
+    ArgumentCaptor<Collection<ForbiddenName>> cap = ArgumentCaptor.forClass(Collection.class);
+    verify(repo, times(1)).insertMissing(cap.capture());
+    List<ForbiddenName> sent = new ArrayList<>(cap.getValue());
+    assertEquals(List.of("apple", "banana"), sent.stream().map(ForbiddenName::getForbiddenName).toList());
+    assertEquals(List.of("ID-1", "ID-2"), sent.stream().map(ForbiddenName::getId).toList());
 
-    ArgumentCaptor<ForbiddenName> cap = ArgumentCaptor.forClass(ForbiddenName.class);
-    verify(repo, times(1)).save(cap.capture());
+    assertEquals(new LoadResult(2, 1), result);
+    verify(repo, never()).findByForbiddenName(any());
+    verify(repo, never()).save(any());
+    verify(matcher).changed();
+  }
+
+  @Test
+  void loadDataFromFile_whenAllStored_skipsEveryLineAndKeepsMatcher() {
+    when(idGenerator.newId()).thenReturn("ID");
+    when(repo.insertMissing(anyCollection())).thenReturn(0);
+
+    LoadResult result = service.loadDataFromFile("forbidden-names-test.txt");
 
-    ForbiddenName saved = cap.getValue();
-    assertEquals("ID-1", saved.getId());
-    assertEquals("apple", saved.getForbiddenName());
+    assertEquals(new LoadResult(0, 3), result);
+    verify(matcher, never()).changed();
+  }
+
+  @Test
+  void loadDataFromFile_whenAnotherNodeInsertsConcurrently_retriesAndSkipsItsNames() {
+    when(idGenerator.newId()).thenReturn("ID-1", "ID-2");
+    when(repo.insertMissing(anyCollection()))
+        .thenThrow(new DataIntegrityViolationException("duplicate"))
+        .thenReturn(1);
 
-    verify(repo, times(2)).findByForbiddenName("apple");
-    verify(repo, times(1)).findByForbiddenName("banana");
+    LoadResult result = service.loadDataFromFile("forbidden-names-test.txt");
+
+    assertEquals(new LoadResult(1, 2), result);
+    verify(repo, times(2)).insertMissing(anyCollection());
   }
 
   @Test
   void loadDataFromFile_whenMissing_throwsRuntimeException() {
     assertThrows(RuntimeException.class, () -> service.loadDataFromFile("does-not-exist.txt"));
-    verify(repo, never()).save(any());
+    verify(repo, never()).insertMissing(any());
+    verify(matcher, never()).changed();
   }
 }
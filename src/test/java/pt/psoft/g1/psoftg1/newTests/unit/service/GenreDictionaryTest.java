@@ -0,0 +1,141 @@
+package pt.psoft.g1.psoftg1.newTests.unit.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreDictionary;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreDictionaryInvalidator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for GenreDictionary and GenreDictionaryInvalidator.
+ */
+@ExtendWith(MockitoExtension.class)
+class GenreDictionaryTest {
+
+  @Mock GenreRepository repo;
+
+  GenreDictionary dictionary;
+
+  @BeforeEach
+  void setUp() {
+    dictionary = new GenreDictionary(repo);
+  }
+
+  private static List<Genre> genres(String... names) {
+    return new ArrayList<>(Arrays.stream(names).map(Genre::new).toList());
+  }
+
+  @Test
+  void loadsOnce_andServesLookupsFromMemory() {
+    when(repo.findAll()).thenReturn(genres("Fantasia", "Romance"));
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals("Fantasia", dictionary.findByName("Fantasia").orElseThrow().toString());
+      assertEquals("Romance", dictionary.findByName("Romance").orElseThrow().toString());
+    }
+
+    verify(repo, times(1)).findAll();
+    verify(repo, never()).findByString(any());
+  }
+
+  @Test
+  void assignsDenseIds() {
+    when(repo.findAll()).thenReturn(genres("Fantasia", "Romance", "Thriller"));
+
+    assertEquals(3, dictionary.idCount());
+    for (String name : List.of("Fantasia", "Romance", "Thriller")) {
+      int id = dictionary.idOf(name).orElseThrow();
+      assertTrue(id >= 0 && id < 3);
+      assertEquals(name, dictionary.byId(id).orElseThrow().toString());
+    }
+    assertTrue(dictionary.idOf("Nope").isEmpty());
+    assertTrue(dictionary.byId(3).isEmpty());
+  }
+
+  @Test
+  void idsSurviveReload_andNewGenresAreAppended() {
+    when(repo.findAll()).thenReturn(genres("Fantasia", "Romance"));
+    int fantasia = dictionary.idOf("Fantasia").orElseThrow();
+    int romance = dictionary.idOf("Romance").orElseThrow();
+
+    when(repo.findAll()).thenReturn(genres("Thriller", "Romance", "Fantasia"));
+    dictionary.invalidate();
+
+    assertEquals(fantasia, dictionary.idOf("Fantasia").getAsInt());
+    assertEquals(romance, dictionary.idOf("Romance").getAsInt());
+    assertEquals(2, dictionary.idOf("Thriller").getAsInt());
+  }
+
+  @Test
+  void unknownName_fallsBackToRepository_andAddsTheGenreWithoutReloading() {
+    when(repo.findAll()).thenReturn(genres("Fantasia"));
+    assertTrue(dictionary.findByName("Fantasia").isPresent());
+
+    Genre added = new Genre("Infantil");
+    when(repo.findByString("Infantil")).thenReturn(Optional.of(added));
+
+    assertSame(added, dictionary.findByName("Infantil").orElseThrow());
+    assertSame(added, dictionary.findByName("Infantil").orElseThrow());
+    assertEquals(1, dictionary.idOf("Infantil").getAsInt());
+    assertSame(added, dictionary.byId(1).orElseThrow());
+    verify(repo, times(1)).findAll();
+    verify(repo, times(1)).findByString("Infantil");
+  }
+
+  @Test
+  void lookupsIgnoreCase() {
+    when(repo.findAll()).thenReturn(genres("Fantasia"));
+
+    assertEquals("Fantasia", dictionary.findByName("FANTASIA").orElseThrow().toString());
+    assertEquals(dictionary.idOf("Fantasia"), dictionary.idOf("fantasia"));
+    verify(repo, never()).findByString(any());
+  }
+
+  @Test
+  void unknownName_isRememberedAsMissing_untilInvalidated() {
+    when(repo.findAll()).thenReturn(genres("Fantasia"));
+    when(repo.findByString("Nope")).thenReturn(Optional.empty());
+
+    for (int i = 0; i < 10; i++) assertTrue(dictionary.findByName("Nope").isEmpty());
+    verify(repo, times(1)).findByString("Nope");
+
+    dictionary.invalidate();
+    assertTrue(dictionary.findByName("Nope").isEmpty());
+    verify(repo, times(2)).findByString("Nope");
+    verify(repo, times(2)).findAll();
+  }
+
+  @Test
+  void repositorySaveOrDelete_invalidatesDictionary() {
+    DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+    beans.registerSingleton("genreDictionary", dictionary);
+    AspectJProxyFactory factory = new AspectJProxyFactory(repo);
+    factory.addAspect(new GenreDictionaryInvalidator(beans.getBeanProvider(GenreDictionary.class)));
+    GenreRepository proxied = factory.getProxy();
+
+    when(repo.findAll()).thenReturn(genres("Fantasia"));
+    assertTrue(dictionary.findByName("Romance").isEmpty());
+
+    when(repo.findAll()).thenReturn(genres("Fantasia", "Romance"));
+    proxied.save(new Genre("Romance"));
+    assertTrue(dictionary.idOf("Romance").isPresent());
+
+    when(repo.findAll()).thenReturn(genres("Fantasia"));
+    proxied.delete(new Genre("Romance"));
+    assertTrue(dictionary.idOf("Romance").isEmpty());
+  }
+}
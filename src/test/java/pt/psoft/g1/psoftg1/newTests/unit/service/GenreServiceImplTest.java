@@ -11,14 +11,17 @@ import org.springframework.data.domain.Pageable;
 import pt.psoft.g1.psoftg1.bookmanagement.services.GenreBookCountDTO;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreMonthlyStats;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreMonthlyStatsRepository;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreDictionary;
 import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsDTO;
 import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsPerMonthDTO;
 import pt.psoft.g1.psoftg1.genremanagement.services.GenreServiceImpl;
 import pt.psoft.g1.psoftg1.genremanagement.services.GetAverageLendingsQuery;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
 
-import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,12 +37,19 @@ class GenreServiceImplTest {
 
   @Mock GenreRepository genreRepository;
   @Mock IdGenerator idGenerator;
+  @Mock GenreMonthlyStatsRepository monthlyStatsRepository;
+  @Mock GenreDictionary genreDictionary;
 
   GenreServiceImpl service;
 
   @BeforeEach
   void setUp() {
-    service = new GenreServiceImpl(genreRepository, idGenerator);
+    service = new GenreServiceImpl(genreRepository, idGenerator, monthlyStatsRepository, genreDictionary);
+    Genre fantasy = new Genre("Fantasy");
+    fantasy.assignPk("G1");
+    Genre horror = new Genre("Horror");
+    horror.assignPk("G2");
+    lenient().when(genreDictionary.all()).thenReturn(List.of(fantasy, horror));
   }
 
   @Test
@@ -127,77 +137,69 @@ class GenreServiceImplTest {
   }
 
   @Test
-  void getLendingsPerMonthLastYearByGenre_delegatesToRepo() {
-    List<GenreLendingsPerMonthDTO> expected = List.of(mock(GenreLendingsPerMonthDTO.class));
-    when(genreRepository.getLendingsPerMonthLastYearByGenre()).thenReturn(expected);
+  void getLendingsPerMonthLastYearByGenre_readsLastTwelveMonthsFromRollup() {
+    YearMonth now = YearMonth.now();
+    when(monthlyStatsRepository.findByPeriodBetween(
+        GenreMonthlyStats.periodOf(now.minusMonths(12)), GenreMonthlyStats.periodOf(now)))
+        .thenReturn(List.of(
+            new GenreMonthlyStats(now, "G2", 3, 0, 0),
+            new GenreMonthlyStats(now.minusMonths(1), "G1", 2, 1, 5),
+            new GenreMonthlyStats(now, "G1", 4, 0, 0),
+            new GenreMonthlyStats(now, "GONE", 9, 0, 0)));
 
     List<GenreLendingsPerMonthDTO> out = service.getLendingsPerMonthLastYearByGenre();
 
-    assertEquals(expected, out);
-    verify(genreRepository).getLendingsPerMonthLastYearByGenre();
+    assertEquals(2, out.size());
+    assertEquals(now.minusMonths(1).getMonthValue(), out.get(0).getMonth());
+    assertEquals(List.of(new GenreLendingsDTO("Fantasy", 2L)), out.get(0).getValues());
+    assertEquals(now.getYear(), out.get(1).getYear());
+    assertEquals(now.getMonthValue(), out.get(1).getMonth());
+    assertEquals(List.of(new GenreLendingsDTO("Fantasy", 4L), new GenreLendingsDTO("Horror", 3L)),
+        out.get(1).getValues());
+    verify(genreRepository, never()).getLendingsPerMonthLastYearByGenre();
   }
 
   @Test
-  void getAverageLendings_whenPageNull_defaultsPage_andDelegates() {
+  void getAverageLendings_whenPageNull_defaultsPage_andDividesByDaysInMonth() {
     GetAverageLendingsQuery query = mock(GetAverageLendingsQuery.class);
     when(query.getYear()).thenReturn(2024);
     when(query.getMonth()).thenReturn(6);
-
-    List<GenreLendingsDTO> expected = List.of(mock(GenreLendingsDTO.class));
-
-    ArgumentCaptor<LocalDate> dateCap = ArgumentCaptor.forClass(LocalDate.class);
-    ArgumentCaptor<pt.psoft.g1.psoftg1.shared.services.Page> pageCap =
-        ArgumentCaptor.forClass(pt.psoft.g1.psoftg1.shared.services.Page.class);
-
-    when(genreRepository.getAverageLendingsInMonth(any(), any())).thenReturn(expected);
+    when(monthlyStatsRepository.findByPeriodBetween(202406, 202406)).thenReturn(List.of(
+        new GenreMonthlyStats(YearMonth.of(2024, 6), "G2", 15, 0, 0),
+        new GenreMonthlyStats(YearMonth.of(2024, 6), "G1", 60, 0, 0)));
 
     List<GenreLendingsDTO> out = service.getAverageLendings(query, null);
 
-    assertEquals(expected, out);
-    verify(genreRepository).getAverageLendingsInMonth(dateCap.capture(), pageCap.capture());
-    assertEquals(LocalDate.of(2024, 6, 1), dateCap.getValue());
-    assertNotNull(pageCap.getValue(), "Default Page should be created when null is passed");
+    assertEquals(List.of(new GenreLendingsDTO("Fantasy", 2.0), new GenreLendingsDTO("Horror", 0.5)), out);
+    verify(genreRepository, never()).getAverageLendingsInMonth(any(), any());
   }
 
   @Test
-  void getAverageLendings_whenPageProvided_passesThrough() {
+  void getAverageLendings_whenPageProvided_returnsThatPage() {
     GetAverageLendingsQuery query = mock(GetAverageLendingsQuery.class);
     when(query.getYear()).thenReturn(2025);
     when(query.getMonth()).thenReturn(1);
+    when(monthlyStatsRepository.findByPeriodBetween(202501, 202501)).thenReturn(List.of(
+        new GenreMonthlyStats(YearMonth.of(2025, 1), "G2", 31, 0, 0),
+        new GenreMonthlyStats(YearMonth.of(2025, 1), "G1", 62, 0, 0)));
 
-    pt.psoft.g1.psoftg1.shared.services.Page pageArg =
-        new pt.psoft.g1.psoftg1.shared.services.Page(2, 25);
-    List<GenreLendingsDTO> expected = List.of();
-
-    ArgumentCaptor<LocalDate> dateCap = ArgumentCaptor.forClass(LocalDate.class);
-    ArgumentCaptor<pt.psoft.g1.psoftg1.shared.services.Page> pageCap =
-        ArgumentCaptor.forClass(pt.psoft.g1.psoftg1.shared.services.Page.class);
-
-    when(genreRepository.getAverageLendingsInMonth(any(), any())).thenReturn(expected);
+    List<GenreLendingsDTO> out = service.getAverageLendings(query,
+        new pt.psoft.g1.psoftg1.shared.services.Page(2, 1));
 
-    List<GenreLendingsDTO> out = service.getAverageLendings(query, pageArg);
-
-    assertSame(expected, out);
-    verify(genreRepository).getAverageLendingsInMonth(dateCap.capture(), pageCap.capture());
-    assertEquals(LocalDate.of(2025, 1, 1), dateCap.getValue());
-    assertSame(pageArg, pageCap.getValue(), "Provided Page instance should be passed through");
+    assertEquals(List.of(new GenreLendingsDTO("Horror", 1.0)), out);
   }
 
   @Test
-  void getLendingsAverageDurationPerMonth_parsesDates_callsRepo_andReturns() {
-    List<GenreLendingsPerMonthDTO> expected = List.of(mock(GenreLendingsPerMonthDTO.class));
-    ArgumentCaptor<LocalDate> startCap = ArgumentCaptor.forClass(LocalDate.class);
-    ArgumentCaptor<LocalDate> endCap = ArgumentCaptor.forClass(LocalDate.class);
-
-    when(genreRepository.getLendingsAverageDurationPerMonth(any(), any())).thenReturn(expected);
+  void getLendingsAverageDurationPerMonth_readsMonthsOfRange_andSkipsMonthsWithoutReturns() {
+    when(monthlyStatsRepository.findByPeriodBetween(202401, 202412)).thenReturn(List.of(
+        new GenreMonthlyStats(YearMonth.of(2024, 3), "G1", 5, 4, 30),
+        new GenreMonthlyStats(YearMonth.of(2024, 5), "G2", 2, 0, 0)));
 
     List<GenreLendingsPerMonthDTO> out =
         service.getLendingsAverageDurationPerMonth("2024-01-01", "2024-12-31");
 
-    assertEquals(expected, out);
-    verify(genreRepository).getLendingsAverageDurationPerMonth(startCap.capture(), endCap.capture());
-    assertEquals(LocalDate.of(2024, 1, 1), startCap.getValue());
-    assertEquals(LocalDate.of(2024, 12, 31), endCap.getValue());
+    assertEquals(List.of(new GenreLendingsPerMonthDTO(2024, 3, List.of(new GenreLendingsDTO("Fantasy", 7.5)))), out);
+    verify(genreRepository, never()).getLendingsAverageDurationPerMonth(any(), any());
   }
 
   @Test
@@ -205,19 +207,19 @@ class GenreServiceImplTest {
     IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
         () -> service.getLendingsAverageDurationPerMonth("2024/01/01", "2024-12-31"));
     assertEquals("Expected format is YYYY-MM-DD", ex.getMessage());
-    verify(genreRepository, never()).getLendingsAverageDurationPerMonth(any(), any());
+    verify(monthlyStatsRepository, never()).findByPeriodBetween(anyInt(), anyInt());
   }
 
   @Test
   void getLendingsAverageDurationPerMonth_whenStartAfterEnd_throwsIllegalArgument() {
     assertThrows(IllegalArgumentException.class,
         () -> service.getLendingsAverageDurationPerMonth("2024-12-31", "2024-01-01"));
-    verify(genreRepository, never()).getLendingsAverageDurationPerMonth(any(), any());
+    verify(monthlyStatsRepository, never()).findByPeriodBetween(anyInt(), anyInt());
   }
 
   @Test
-  void getLendingsAverageDurationPerMonth_whenRepoReturnsEmpty_throwsNotFound() {
-    when(genreRepository.getLendingsAverageDurationPerMonth(any(), any())).thenReturn(List.of());
+  void getLendingsAverageDurationPerMonth_whenRollupEmpty_throwsNotFound() {
+    when(monthlyStatsRepository.findByPeriodBetween(202401, 202401)).thenReturn(List.of());
     assertThrows(NotFoundException.class,
         () -> service.getLendingsAverageDurationPerMonth("2024-01-01", "2024-01-31"));
   }
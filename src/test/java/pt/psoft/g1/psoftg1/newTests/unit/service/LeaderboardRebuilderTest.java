@@ -0,0 +1,59 @@
+package pt.psoft.g1.psoftg1.newTests.unit.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LeaderboardRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardRebuilder;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardService;
+
+import java.time.LocalDate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for LeaderboardRebuilder.
+ */
+@ExtendWith(MockitoExtension.class)
+class LeaderboardRebuilderTest {
+
+  @Mock LeaderboardRepository repository;
+
+  LeaderboardService service;
+
+  @BeforeEach
+  void setUp() {
+    service = new LeaderboardService(repository, 365, 60);
+  }
+
+  @Test
+  void run_withoutBuckets_buildsThemFromTheLendings() {
+    when(repository.isEmpty()).thenReturn(true);
+
+    new LeaderboardRebuilder(repository, service, false).run(null);
+
+    verify(repository).rebuildFromLendings(LocalDate.now().minusDays(365));
+    verify(repository, never()).pruneBefore(any());
+  }
+
+  @Test
+  void run_withBuckets_dropsTheDaysBeforeTheWindow() {
+    when(repository.isEmpty()).thenReturn(false);
+
+    new LeaderboardRebuilder(repository, service, false).run(null);
+
+    verify(repository).pruneBefore(LocalDate.now().minusDays(365));
+    verify(repository, never()).rebuildFromLendings(any());
+  }
+
+  @Test
+  void prune_dropsTheDaysThatLeftTheWindow() {
+    new LeaderboardRebuilder(repository, service, false).prune();
+
+    verify(repository).pruneBefore(service.windowStart());
+    verifyNoMoreInteractions(repository);
+  }
+}
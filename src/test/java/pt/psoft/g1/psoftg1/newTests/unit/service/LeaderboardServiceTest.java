@@ -0,0 +1,92 @@
+package pt.psoft.g1.psoftg1.newTests.unit.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardEntry;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardKind;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LeaderboardRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardService;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for LeaderboardService.
+ */
+@ExtendWith(MockitoExtension.class)
+class LeaderboardServiceTest {
+
+  @Mock LeaderboardRepository repository;
+
+  LeaderboardService service;
+
+  @BeforeEach
+  void setUp() {
+    service = new LeaderboardService(repository, 365, 60);
+  }
+
+  @Test
+  void windowStart_isWindowDaysBeforeToday() {
+    assertEquals(LocalDate.now().minusDays(365), service.windowStart());
+  }
+
+  @Test
+  void top_readsWindowFromRepository_andReusesRanking() {
+    List<LeaderboardEntry> ranking = List.of(new LeaderboardEntry("I1", 3));
+    when(repository.top(LeaderboardKind.BOOK, service.windowStart(), 5)).thenReturn(ranking);
+
+    assertEquals(ranking, service.top(LeaderboardKind.BOOK, 5));
+    assertEquals(ranking, service.top(LeaderboardKind.BOOK, 5));
+
+    verify(repository, times(1)).top(LeaderboardKind.BOOK, service.windowStart(), 5);
+  }
+
+  @Test
+  void top_keepsKindsAndLimitsApart() {
+    when(repository.top(any(), any(), anyInt())).thenReturn(List.of());
+
+    service.top(LeaderboardKind.BOOK, 5);
+    service.top(LeaderboardKind.READER, 5);
+    service.top(LeaderboardKind.READER, 7);
+
+    verify(repository, times(3)).top(any(), any(), anyInt());
+  }
+
+  @Test
+  void record_countsBookAuthorsAndReader_andDropsCachedRankings() {
+    when(repository.top(any(), any(), anyInt())).thenReturn(List.of());
+    service.top(LeaderboardKind.AUTHOR, 5);
+
+    Author a1 = mock(Author.class);
+    Author a2 = mock(Author.class);
+    when(a1.getId()).thenReturn("A1");
+    when(a2.getId()).thenReturn("A2");
+    Book book = mock(Book.class);
+    when(book.getIsbn()).thenReturn("I1");
+    when(book.getAuthors()).thenReturn(List.of(a1, a2));
+    ReaderDetails reader = mock(ReaderDetails.class);
+    when(reader.getReaderNumber()).thenReturn("2024/1");
+    Lending lending = mock(Lending.class);
+    LocalDate day = LocalDate.of(2024, 5, 2);
+    when(lending.getStartDate()).thenReturn(day);
+    when(lending.getBook()).thenReturn(book);
+    when(lending.getReaderDetails()).thenReturn(reader);
+
+    service.record(lending);
+    service.top(LeaderboardKind.AUTHOR, 5);
+
+    verify(repository).recordLending(day, "I1", List.of("A1", "A2"), "2024/1");
+    verify(repository, times(2)).top(eq(LeaderboardKind.AUTHOR), any(), eq(5));
+  }
+}
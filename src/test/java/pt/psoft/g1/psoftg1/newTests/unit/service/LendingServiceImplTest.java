@@ -12,20 +12,30 @@ import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreMonthlyStatsRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationStatsRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.CreateLendingRequest;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardService;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingExportRow;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingServiceImpl;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.SearchLendingQuery;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.SetLendingReturnedRequest;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
+import pt.psoft.g1.psoftg1.shared.services.SequenceAllocator;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -42,12 +52,16 @@ class LendingServiceImplTest {
   @Mock BookRepository bookRepository;
   @Mock ReaderRepository readerRepository;
   @Mock IdGenerator idGenerator;
+  @Mock SequenceAllocator sequenceAllocator;
+  @Mock LendingDurationStatsRepository durationStatsRepository;
+  @Mock LeaderboardService leaderboardService;
+  @Mock GenreMonthlyStatsRepository genreMonthlyStatsRepository;
 
   LendingServiceImpl service;
 
   @BeforeEach
   void setUp() {
-    service = new LendingServiceImpl(lendingRepository, fineRepository, bookRepository, readerRepository, idGenerator);
+    service = new LendingServiceImpl(lendingRepository, fineRepository, bookRepository, readerRepository, idGenerator, sequenceAllocator, durationStatsRepository, leaderboardService, genreMonthlyStatsRepository);
     ReflectionTestUtils.setField(service, "lendingDurationInDays", 14);
     ReflectionTestUtils.setField(service, "fineValuePerDayInCents", 25);
   }
@@ -167,9 +181,11 @@ class LendingServiceImplTest {
     req.setIsbn("ISBN2");
 
     when(lendingRepository.listOutstandingByReaderNumber("R2")).thenReturn(List.of());
-    when(bookRepository.findByIsbn("ISBN2")).thenReturn(Optional.of(mock(Book.class)));
+    Book book = mock(Book.class);
+    when(book.getGenre()).thenReturn(genre("G1"));
+    when(bookRepository.findByIsbn("ISBN2")).thenReturn(Optional.of(book));
     when(readerRepository.findByReaderNumber("R2")).thenReturn(Optional.of(mock(ReaderDetails.class)));
-    when(lendingRepository.getCountFromCurrentYear()).thenReturn(41);
+    when(sequenceAllocator.next(eq("lendings/" + LocalDate.now().getYear()), any())).thenReturn(42L);
     when(idGenerator.newId()).thenReturn("LEN-777");
 
     ArgumentCaptor<Lending> cap = ArgumentCaptor.forClass(Lending.class);
@@ -182,6 +198,10 @@ class LendingServiceImplTest {
     verify(lendingRepository).save(cap.capture());
     Lending saved = cap.getValue();
     assertNotNull(saved, "Lending created and saved");
+    assertEquals(LocalDate.now().getYear() + "/42", saved.getLendingNumber());
+    verify(lendingRepository, never()).getCountFromCurrentYear();
+    verify(leaderboardService).record(saved);
+    verify(genreMonthlyStatsRepository).recordLending(YearMonth.now(), "G1");
   }
 
   @Test
@@ -234,11 +254,43 @@ class LendingServiceImplTest {
     verify(lendingRepository).save(lending);
   }
 
+  @Test
+  void setReturned_recordsDurationInStats() {
+    Lending lending = mock(Lending.class);
+    Book book = mock(Book.class);
+    when(lendingRepository.findByLendingNumber("L-3")).thenReturn(Optional.of(lending));
+    when(lending.getStartDate()).thenReturn(LocalDate.of(2024, 3, 1));
+    when(lending.getReturnedDate()).thenReturn(LocalDate.of(2024, 3, 11));
+    when(lending.getBook()).thenReturn(book);
+    when(book.getIsbn()).thenReturn("ISBN7");
+    when(book.getGenre()).thenReturn(genre("G3"));
+    when(lendingRepository.save(lending)).thenReturn(lending);
+
+    service.setReturned("L-3", new SetLendingReturnedRequest(), 1L);
+
+    verify(durationStatsRepository).recordReturn("ISBN7", 10L);
+    verify(genreMonthlyStatsRepository).recordReturn(YearMonth.of(2024, 3), "G3", 10L);
+  }
+
+  private static Genre genre(String pk) {
+    Genre genre = new Genre("Fantasy");
+    genre.assignPk(pk);
+    return genre;
+  }
+
   @Test
   void getAverageDuration_formatsToSingleDecimal_UsLocale() {
-    when(lendingRepository.getAverageDuration()).thenReturn(3.14159);
+    when(durationStatsRepository.findByKey(LendingDurationStats.ALL))
+        .thenReturn(Optional.of(new LendingDurationStats(LendingDurationStats.ALL, 22, 7)));
     Double out = service.getAverageDuration();
     assertEquals(3.1, out.doubleValue(), 0.0001);
+    verify(lendingRepository, never()).getAverageDuration();
+  }
+
+  @Test
+  void getAverageDuration_whenNoStats_returnsZero() {
+    when(durationStatsRepository.findByKey(LendingDurationStats.ALL)).thenReturn(Optional.empty());
+    assertEquals(0.0, service.getAverageDuration().doubleValue(), 0.0001);
   }
 
   @Test
@@ -268,7 +320,8 @@ class LendingServiceImplTest {
 
   @Test
   void getAvgLendingDurationByIsbn_formatsToSingleDecimal() {
-    when(lendingRepository.getAvgLendingDurationByIsbn("ISBN9")).thenReturn(12.9876);
+    when(durationStatsRepository.findByKey("ISBN9"))
+        .thenReturn(Optional.of(new LendingDurationStats("ISBN9", 103899, 8000)));
     Double out = service.getAvgLendingDurationByIsbn("ISBN9");
     assertEquals(13.0, out.doubleValue(), 0.0001);
   }
@@ -337,4 +390,38 @@ class LendingServiceImplTest {
     assertEquals("Expected format is YYYY-MM-DD", ex.getMessage());
     verify(lendingRepository, never()).searchLendings(any(), any(), any(), any(), any(), any());
   }
+
+  @Test
+  void exportLendings_passesParsedFilters_sendsEveryRow_andClosesTheStream() {
+    LendingExportRow r1 = new LendingExportRow("2024/1", "ISBN1", "2024/5", LocalDate.of(2024, 1, 10),
+        LocalDate.of(2024, 1, 24), null, 50);
+    LendingExportRow r2 = new LendingExportRow("2024/2", "ISBN1", "2024/5", LocalDate.of(2024, 1, 12),
+        LocalDate.of(2024, 1, 26), LocalDate.of(2024, 1, 20), 50);
+    AtomicBoolean closed = new AtomicBoolean();
+    when(lendingRepository.streamForExport("2024/5", "ISBN1", null, LocalDate.of(2024, 1, 1), null))
+        .thenReturn(Stream.of(r1, r2).onClose(() -> closed.set(true)));
+
+    List<LendingExportRow> sink = new ArrayList<>();
+    long count = service.exportLendings(
+        new SearchLendingQuery("2024/5", "ISBN1", null, "2024-01-01", null), sink::add);
+
+    assertEquals(2, count);
+    assertEquals(List.of(r1, r2), sink);
+    assertTrue(closed.get());
+  }
+
+  @Test
+  void exportLendings_whenQueryNull_exportsWithoutFilters() {
+    when(lendingRepository.streamForExport(null, null, null, null, null)).thenReturn(Stream.empty());
+
+    assertEquals(0, service.exportLendings(null, row -> fail("no rows expected")));
+  }
+
+  @Test
+  void exportLendings_whenDateParseFails_throwsIllegalArgument() {
+    SearchLendingQuery q = new SearchLendingQuery(null, null, null, null, "01-02-2024");
+
+    assertThrows(IllegalArgumentException.class, () -> service.exportLendings(q, row -> {}));
+    verify(lendingRepository, never()).streamForExport(any(), any(), any(), any(), any());
+  }
 }
@@ -0,0 +1,157 @@
+package pt.psoft.g1.psoftg1.newTests.unit.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageProperties;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.OrphanPhotoSweeper;
+import pt.psoft.g1.psoftg1.shared.services.PhotoThumbnailService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for OrphanPhotoSweeper.
+ */
+class OrphanPhotoSweeperTest {
+
+  @TempDir Path dir;
+
+  private final Set<String> referenced = new HashSet<>();
+  private PhotoRepository photoRepository;
+  private SimpleMeterRegistry meters;
+  private FileStorageProperties props;
+
+  @BeforeEach
+  void setUp() {
+    photoRepository = mock(PhotoRepository.class);
+    when(photoRepository.findReferenced(anyCollection())).thenAnswer(inv -> {
+      Set<String> found = new HashSet<>(inv.<Collection<String>>getArgument(0));
+      found.retainAll(referenced);
+      return found;
+    });
+    meters = new SimpleMeterRegistry();
+    props = new FileStorageProperties();
+    props.setUploadDir(dir.toString());
+    props.getOrphanSweep().setGracePeriod(Duration.ofHours(1));
+    props.getOrphanSweep().setFilesPerSecond(1_000_000);
+  }
+
+  private PhotoThumbnailService thumbnails;
+
+  private OrphanPhotoSweeper sweeper() {
+    FileStorageService storage = new FileStorageService(props, photoRepository);
+    thumbnails = new PhotoThumbnailService(storage, props);
+    return new OrphanPhotoSweeper(photoRepository, storage, thumbnails, props, meters);
+  }
+
+  private Path file(String name, int bytes, Duration age) throws Exception {
+    Path p = dir.resolve(name);
+    Files.createDirectories(p.getParent());
+    Files.write(p, new byte[bytes]);
+    Files.setLastModifiedTime(p, FileTime.from(Instant.now().minus(age)));
+    return p;
+  }
+
+  @Test
+  void sweep_deletesOldUnreferencedFiles_andReportsTheBytes() throws Exception {
+    Path orphan = file("ab/cd/orphan.png", 100, Duration.ofDays(2));
+    Path used = file("ab/cd/used.png", 50, Duration.ofDays(2));
+    referenced.add("ab/cd/used.png");
+
+    long reclaimed = sweeper().sweep();
+
+    assertEquals(100, reclaimed);
+    assertFalse(Files.exists(orphan));
+    assertTrue(Files.exists(used));
+    assertEquals(100, meters.get("photos.orphans.reclaimed").counter().count());
+    assertEquals(1, meters.get("photos.orphans.deleted").counter().count());
+  }
+
+  @Test
+  void sweep_keepsFilesWithinTheGracePeriod() throws Exception {
+    Path fresh = file("fresh.png", 10, Duration.ofMinutes(5));
+
+    assertEquals(0, sweeper().sweep());
+    assertTrue(Files.exists(fresh));
+    verify(photoRepository, never()).findReferenced(anyCollection());
+  }
+
+  @Test
+  void sweep_thumbnailsFollowTheirOriginal() throws Exception {
+    Path orphanThumb = file("a_w64.png", 10, Duration.ofDays(2));
+    Path usedThumb = file("b_w64.png", 10, Duration.ofDays(2));
+    file("b.png", 10, Duration.ofDays(2));
+    referenced.add("b.png");
+
+    sweeper().sweep();
+
+    assertFalse(Files.exists(orphanThumb));
+    assertTrue(Files.exists(usedThumb));
+  }
+
+  @Test
+  void sweep_deletedThumbnailsLeaveTheThumbnailQuota() throws Exception {
+    file("a_w64.png", 10, Duration.ofDays(2));
+    file("b_w64.png", 30, Duration.ofDays(2));
+    file("b.png", 10, Duration.ofDays(2));
+    referenced.add("b.png");
+    OrphanPhotoSweeper sweeper = sweeper();
+    assertEquals(40, thumbnails.usedBytes());
+
+    sweeper.sweep();
+
+    assertEquals(30, thumbnails.usedBytes());
+  }
+
+  @Test
+  void sweep_deletesLeftoverTempFilesWithoutALookup() throws Exception {
+    Path tmp = file("upload123.tmp", 10, Duration.ofDays(2));
+
+    sweeper().sweep();
+
+    assertFalse(Files.exists(tmp));
+    verify(photoRepository, never()).findReferenced(anyCollection());
+  }
+
+  @Test
+  void sweep_checksNamesInBatches() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      file("p" + i + ".png", 1, Duration.ofDays(2));
+    }
+    props.getOrphanSweep().setBatchSize(2);
+
+    sweeper().sweep();
+
+    verify(photoRepository, times(3)).findReferenced(anyCollection());
+    try (var files = Files.list(dir)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  void sweep_isThrottledToTheConfiguredRate() throws Exception {
+    for (int i = 0; i < 30; i++) {
+      file("p" + i + ".png", 1, Duration.ofMinutes(1));
+    }
+    props.getOrphanSweep().setFilesPerSecond(100);
+
+    long started = System.nanoTime();
+    sweeper().sweep();
+
+    assertTrue(Duration.ofNanos(System.nanoTime() - started).toMillis() >= 250);
+  }
+}
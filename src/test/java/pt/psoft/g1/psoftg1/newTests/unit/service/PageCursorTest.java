@@ -0,0 +1,86 @@
+package pt.psoft.g1.psoftg1.newTests.unit.service;
+
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PageCursor.
+ */
+class PageCursorTest {
+
+  @Test
+  void encode_decode_roundTripsKeys() {
+    String cursor = PageCursor.encode("Clean Code", "9780132350884");
+
+    assertArrayEquals(new String[]{"Clean Code", "9780132350884"}, PageCursor.decode(cursor, 2));
+  }
+
+  @Test
+  void encode_isUrlSafe() {
+    String cursor = PageCursor.encode("a/b+c?", "2024/1");
+
+    assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+  }
+
+  @Test
+  void decode_wrongKeyCount_throws() {
+    String cursor = PageCursor.encode("2024/1");
+
+    assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(cursor, 2));
+  }
+
+  @Test
+  void decode_notBase64_throws() {
+    assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not a cursor!", 1));
+  }
+
+  @Test
+  void timestamp_readsAnEncodedDateTime() {
+    LocalDateTime createdAt = LocalDateTime.of(2024, 3, 1, 10, 15, 30, 123_000_000);
+
+    String[] keys = PageCursor.decode(PageCursor.encode(createdAt.toString(), "ana@mail.com"), 2);
+
+    assertEquals(createdAt, PageCursor.timestamp(keys[0]));
+  }
+
+  @Test
+  void timestamp_notADateTime_isAnInvalidCursor() {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> PageCursor.timestamp("garbage"));
+
+    assertEquals("Invalid page cursor", e.getMessage());
+  }
+
+  @Test
+  void next_fullPage_pointsAtLastItem() {
+    String cursor = PageCursor.next(new Page(1, 2), List.of("a", "b"), s -> new String[]{s});
+
+    assertArrayEquals(new String[]{"b"}, PageCursor.decode(cursor, 1));
+  }
+
+  @Test
+  void next_shortOrEmptyPage_isLastPage() {
+    assertNull(PageCursor.next(new Page(1, 3), List.of("a", "b"), s -> new String[]{s}));
+    assertNull(PageCursor.next(new Page(1, 3), List.<String>of(), s -> new String[]{s}));
+  }
+
+  @Test
+  void next_withoutPage_usesDefaultLimit() {
+    List<String> ten = List.of("0", "1", "2", "3", "4", "5", "6", "7", "8", "9");
+
+    assertNotNull(PageCursor.next(null, ten, s -> new String[]{s}));
+  }
+
+  @Test
+  void isKeyset_onlyWithNonBlankCursor() {
+    assertFalse(PageCursor.isKeyset(null));
+    assertFalse(PageCursor.isKeyset(new Page(2, 10)));
+    assertFalse(PageCursor.isKeyset(new Page(1, 10, " ")));
+    assertTrue(PageCursor.isKeyset(new Page(1, 10, PageCursor.encode("x"))));
+  }
+}
@@ -0,0 +1,113 @@
+package pt.psoft.g1.psoftg1.newTests.unit.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.exceptions.FileStorageException;
+import pt.psoft.g1.psoftg1.shared.model.Photo;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageProperties;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.PhotoReferenceService;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PhotoReferenceService.
+ */
+@ExtendWith(MockitoExtension.class)
+class PhotoReferenceServiceTest {
+
+  @Mock PhotoRepository photoRepository;
+  @Mock FileStorageService fileStorageService;
+  PhotoReferenceService service;
+
+  @BeforeEach
+  void setUp() {
+    FileStorageProperties props = new FileStorageProperties();
+    props.getOrphanSweep().setGracePeriod(Duration.ofHours(1));
+    service = new PhotoReferenceService(photoRepository, fileStorageService, props);
+  }
+
+  @Test
+  void replaced_retainsTheNewFileAndReleasesTheOldOne() {
+    when(photoRepository.release("old.png")).thenReturn(true);
+
+    service.replaced(new Photo(Path.of("old.png")), new Photo(Path.of("new.png")));
+
+    verify(photoRepository).retain("new.png");
+    verify(fileStorageService).deleteIfNotModifiedSince(eq("old.png"), any());
+  }
+
+  @Test
+  void replaced_sameFile_changesNothing() {
+    service.replaced(new Photo(Path.of("a.png")), new Photo(Path.of("a.png")));
+
+    verifyNoInteractions(photoRepository, fileStorageService);
+  }
+
+  @Test
+  void replaced_fromNoPhoto_onlyRetains() {
+    service.replaced(null, new Photo(Path.of("new.png")));
+
+    verify(photoRepository).retain("new.png");
+    verify(photoRepository, never()).release(any());
+  }
+
+  @Test
+  void release_stillReferenced_keepsTheFile() {
+    when(photoRepository.release("shared.png")).thenReturn(false);
+
+    service.release("shared.png");
+
+    verify(fileStorageService, never()).deleteIfNotModifiedSince(any(), any());
+  }
+
+  @Test
+  void release_keepsFilesStoredOrReusedWithinTheGracePeriod() {
+    when(photoRepository.release("a.png")).thenReturn(true);
+    Instant before = Instant.now().minus(Duration.ofHours(1));
+
+    service.release("a.png");
+
+    verify(fileStorageService).deleteIfNotModifiedSince(eq("a.png"), argThat(cutoff -> !cutoff.isBefore(before)));
+  }
+
+  @Test
+  void release_insideATransaction_deletesOnlyAfterTheCommit() {
+    when(photoRepository.release("old.png")).thenReturn(true);
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      service.release("old.png");
+
+      verify(fileStorageService, never()).deleteIfNotModifiedSince(any(), any());
+      assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+      verify(fileStorageService).deleteIfNotModifiedSince(eq("old.png"), any());
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void release_deleteFails_isIgnored() {
+    when(photoRepository.release("locked.png")).thenReturn(true);
+    when(fileStorageService.deleteIfNotModifiedSince(eq("locked.png"), any()))
+        .thenThrow(new FileStorageException("locked"));
+
+    assertDoesNotThrow(() -> service.release("locked.png"));
+  }
+}
@@ -0,0 +1,214 @@
+package pt.psoft.g1.psoftg1.newTests.unit.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageProperties;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.PhotoThumbnailService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PhotoThumbnailService.
+ */
+class PhotoThumbnailServiceTest {
+
+  @TempDir Path dir;
+
+  private FileStorageProperties props(long quota) {
+    return props(quota, 40_000_000);
+  }
+
+  private FileStorageProperties props(long quota, long maxPixels) {
+    FileStorageProperties props = new FileStorageProperties();
+    props.setThumbnailMaxPixels(maxPixels);
+    props.setUploadDir(dir.toString());
+    props.setThumbnailSizes(List.of(64, 128));
+    props.setThumbnailQuota(quota);
+    return props;
+  }
+
+  private FileStorageService storage() {
+    FileStorageService storage = mock(FileStorageService.class);
+    when(storage.getFileResource(any())).thenAnswer(inv -> {
+      Path p = dir.resolve(inv.getArgument(0, String.class));
+      return Files.exists(p) ? Optional.of(new FileSystemResource(p)) : Optional.empty();
+    });
+    return storage;
+  }
+
+  private void image(String name, int width, int height) throws Exception {
+    BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    ImageIO.write(img, name.endsWith(".png") ? "png" : "jpg", dir.resolve(name).toFile());
+  }
+
+  @Test
+  void getPhoto_withoutSize_returnsTheOriginal() throws Exception {
+    image("a.png", 400, 200);
+    var service = new PhotoThumbnailService(storage(), props(1_000_000));
+
+    Resource photo = service.getPhoto("a.png", null).orElseThrow();
+
+    assertEquals("a.png", photo.getFilename());
+  }
+
+  @Test
+  void getPhoto_withSize_writesAThumbnailNextToTheOriginal_keepingAspectRatio() throws Exception {
+    image("a.jpg", 400, 200);
+    var service = new PhotoThumbnailService(storage(), props(1_000_000));
+
+    Resource photo = service.getPhoto("a.jpg", 128).orElseThrow();
+
+    assertEquals("a_w128.jpg", photo.getFilename());
+    BufferedImage thumb = ImageIO.read(dir.resolve("a_w128.jpg").toFile());
+    assertEquals(128, thumb.getWidth());
+    assertEquals(64, thumb.getHeight());
+  }
+
+  @Test
+  void getPhoto_neverUpscales() throws Exception {
+    image("small.png", 40, 20);
+    var service = new PhotoThumbnailService(storage(), props(1_000_000));
+
+    service.getPhoto("small.png", 128);
+
+    assertEquals(40, ImageIO.read(dir.resolve("small_w128.png").toFile()).getWidth());
+  }
+
+  @Test
+  void getPhoto_unknownSize_throwsIllegalArgument() {
+    var service = new PhotoThumbnailService(storage(), props(1_000_000));
+
+    assertThrows(IllegalArgumentException.class, () -> service.getPhoto("a.png", 100));
+  }
+
+  @Test
+  void getPhoto_missingOriginal_isEmpty() {
+    var service = new PhotoThumbnailService(storage(), props(1_000_000));
+
+    assertTrue(service.getPhoto("nope.png", 64).isEmpty());
+  }
+
+  @Test
+  void getPhoto_notAnImage_fallsBackToTheOriginal() throws Exception {
+    Files.writeString(dir.resolve("x.png"), "not an image");
+    var service = new PhotoThumbnailService(storage(), props(1_000_000));
+
+    assertEquals("x.png", service.getPhoto("x.png", 64).orElseThrow().getFilename());
+    assertFalse(Files.exists(dir.resolve("x_w64.png")));
+  }
+
+  @Test
+  void getPhoto_notAnImage_isNotDecodedAgain() throws Exception {
+    Files.writeString(dir.resolve("x.png"), "not an image");
+    var service = new PhotoThumbnailService(storage(), props(1_000_000));
+    service.getPhoto("x.png", 64);
+
+    // a decodable file under the same name would now get a thumbnail if the failure were not remembered
+    image("x.png", 400, 200);
+
+    assertEquals("x.png", service.getPhoto("x.png", 64).orElseThrow().getFilename());
+    assertEquals("x.png", service.getPhoto("x.png", 128).orElseThrow().getFilename());
+    assertFalse(Files.exists(dir.resolve("x_w64.png")));
+  }
+
+  @Test
+  void getPhoto_overThePixelLimit_servesTheOriginal() throws Exception {
+    image("big.png", 400, 200);
+    var service = new PhotoThumbnailService(storage(), props(1_000_000, 400 * 200 - 1));
+
+    assertEquals("big.png", service.getPhoto("big.png", 64).orElseThrow().getFilename());
+    assertFalse(Files.exists(dir.resolve("big_w64.png")));
+  }
+
+  @Test
+  void getPhoto_largeOriginal_isSubsampled_butKeepsItsAspectRatio() throws Exception {
+    image("wide.jpg", 3000, 1000);
+    var service = new PhotoThumbnailService(storage(), props(1_000_000));
+
+    service.getPhoto("wide.jpg", 64);
+
+    BufferedImage thumb = ImageIO.read(dir.resolve("wide_w64.jpg").toFile());
+    assertEquals(64, thumb.getWidth());
+    assertEquals(21, thumb.getHeight());
+  }
+
+  @Test
+  void getPhoto_concurrentFirstRequests_allGetTheOneThumbnail() throws Exception {
+    image("a.png", 2000, 2000);
+    CountDownLatch release = new CountDownLatch(1);
+    FileStorageService storage = storage();
+    FileStorageService gated = mock(FileStorageService.class);
+    when(gated.getFileResource(any())).thenAnswer(inv -> {
+      release.await();
+      return storage.getFileResource(inv.getArgument(0));
+    });
+    var service = new PhotoThumbnailService(gated, props(100_000_000));
+
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Resource>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        results.add(pool.submit(() -> service.getPhoto("a.png", 64).orElseThrow()));
+      }
+      release.countDown();
+      for (Future<Resource> r : results) {
+        assertEquals("a_w64.png", r.get(30, TimeUnit.SECONDS).getFilename());
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    try (var files = Files.list(dir)) {
+      assertEquals(2, files.count(), "only the original and one thumbnail, no leftover temp files");
+    }
+  }
+
+  @Test
+  void getPhoto_overQuota_evictsTheLeastRecentlyUsedThumbnail() throws Exception {
+    image("a.png", 300, 300);
+    image("b.png", 300, 300);
+    image("c.png", 300, 300);
+    var probe = new PhotoThumbnailService(storage(), props(Long.MAX_VALUE));
+    probe.getPhoto("a.png", 128);
+    long thumbSize = Files.size(dir.resolve("a_w128.png"));
+    Files.delete(dir.resolve("a_w128.png"));
+
+    var service = new PhotoThumbnailService(storage(), props(thumbSize * 2 + thumbSize / 2));
+    service.getPhoto("a.png", 128);
+    service.getPhoto("b.png", 128);
+    service.getPhoto("a.png", 128);
+    service.getPhoto("c.png", 128);
+
+    assertTrue(Files.exists(dir.resolve("a_w128.png")));
+    assertFalse(Files.exists(dir.resolve("b_w128.png")));
+    assertTrue(Files.exists(dir.resolve("c_w128.png")));
+  }
+
+  @Test
+  void existingThumbnails_countTowardsTheQuotaAfterARestart() throws Exception {
+    image("a.png", 300, 300);
+    image("b.png", 300, 300);
+    new PhotoThumbnailService(storage(), props(Long.MAX_VALUE)).getPhoto("a.png", 128);
+    long thumbSize = Files.size(dir.resolve("a_w128.png"));
+
+    var restarted = new PhotoThumbnailService(storage(), props(thumbSize + thumbSize / 2));
+    restarted.getPhoto("b.png", 128);
+
+    assertFalse(Files.exists(dir.resolve("a_w128.png")));
+    assertTrue(Files.exists(dir.resolve("b_w128.png")));
+  }
+}
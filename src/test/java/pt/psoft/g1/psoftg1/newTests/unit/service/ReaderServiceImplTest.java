@@ -12,15 +12,18 @@ import org.springframework.web.multipart.MultipartFile;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
-import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreDictionary;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardEntry;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LeaderboardKind;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardService;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.readermanagement.services.*;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
-import pt.psoft.g1.psoftg1.shared.model.ForbiddenName;
 import pt.psoft.g1.psoftg1.shared.model.Photo;
-import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
-import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.PhotoReferenceService;
+import pt.psoft.g1.psoftg1.shared.services.ForbiddenNameMatcher;
+import pt.psoft.g1.psoftg1.shared.services.SequenceAllocator;
 import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
 import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
 
@@ -28,6 +31,13 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -42,18 +52,20 @@ class ReaderServiceImplTest {
   @Mock ReaderRepository readerRepo;
   @Mock UserRepository userRepo;
   @Mock ReaderMapper readerMapper;
-  @Mock GenreRepository genreRepo;
-  @Mock ForbiddenNameRepository forbiddenNameRepository;
-  @Mock PhotoRepository photoRepository;
+  @Mock GenreDictionary genreDictionary;
+  @Mock ForbiddenNameMatcher forbiddenNameMatcher;
+  @Mock PhotoReferenceService photoReferenceService;
   @Mock IdGenerator idGenerator;
+  @Mock SequenceAllocator sequenceAllocator;
+  @Mock LeaderboardService leaderboardService;
 
   ReaderServiceImpl service;
 
   @BeforeEach
   void setUp() {
     service = new ReaderServiceImpl(
-        readerRepo, userRepo, readerMapper, genreRepo,
-        forbiddenNameRepository, photoRepository, idGenerator
+        readerRepo, userRepo, readerMapper, genreDictionary,
+        forbiddenNameMatcher, photoReferenceService, idGenerator, sequenceAllocator, leaderboardService
     );
   }
 
@@ -76,8 +88,7 @@ class ReaderServiceImplTest {
     req.setFullName("Evil Bob");
 
     when(userRepo.findByUsername("bob")).thenReturn(Optional.empty());
-    when(forbiddenNameRepository.findByForbiddenNameIsContained("Evil"))
-        .thenReturn(List.of(mock(ForbiddenName.class)));
+    when(forbiddenNameMatcher.containsForbiddenName("Evil Bob")).thenReturn(true);
 
     assertThrows(IllegalArgumentException.class, () -> service.create(req, null));
     verify(readerRepo, never()).save(any());
@@ -91,9 +102,8 @@ class ReaderServiceImplTest {
     req.setInterestList(List.of("UnknownGenre"));
 
     when(userRepo.findByUsername("charlie")).thenReturn(Optional.empty());
-    when(forbiddenNameRepository.findByForbiddenNameIsContained(anyString()))
-        .thenReturn(List.of()); // no forbidden words
-    when(genreRepo.findByString("UnknownGenre")).thenReturn(Optional.empty());
+    when(forbiddenNameMatcher.containsForbiddenName(anyString())).thenReturn(false);
+    when(genreDictionary.findByName("UnknownGenre")).thenReturn(Optional.empty());
 
     assertThrows(NotFoundException.class, () -> service.create(req, null));
   }
@@ -108,8 +118,8 @@ class ReaderServiceImplTest {
     req.setInterestList(List.of());
 
     when(userRepo.findByUsername("dana")).thenReturn(Optional.empty());
-    when(forbiddenNameRepository.findByForbiddenNameIsContained(anyString())).thenReturn(List.of());
-    when(readerRepo.getCountFromCurrentYear()).thenReturn(5);
+    when(forbiddenNameMatcher.containsForbiddenName(anyString())).thenReturn(false);
+    when(sequenceAllocator.next(eq("readers/" + LocalDate.now().getYear()), any())).thenReturn(6L);
 
     Reader reader = mock(Reader.class);
     ReaderDetails rd = mock(ReaderDetails.class);
@@ -131,6 +141,51 @@ class ReaderServiceImplTest {
     assertNull(req.getPhoto());
   }
 
+  @Test
+  void create_concurrentlyOnTwoNodes_assignsDistinctReaderNumbers() throws Exception {
+    // two services with their own allocators over one counter store, as two nodes sharing a database
+    var counters = new SequenceAllocatorTest.FakeSequenceRepository();
+    List<ReaderServiceImpl> nodes = List.of(
+        new ReaderServiceImpl(readerRepo, userRepo, readerMapper, genreDictionary, forbiddenNameMatcher,
+            photoReferenceService, idGenerator, new SequenceAllocator(counters, 7), leaderboardService),
+        new ReaderServiceImpl(readerRepo, userRepo, readerMapper, genreDictionary, forbiddenNameMatcher,
+            photoReferenceService, idGenerator, new SequenceAllocator(counters, 7), leaderboardService));
+    Set<Integer> readerNumbers = ConcurrentHashMap.newKeySet();
+    when(userRepo.findByUsername(anyString())).thenReturn(Optional.empty());
+    when(readerMapper.createReader(any())).thenAnswer(inv -> mock(Reader.class));
+    when(readerMapper.createReaderDetails(anyInt(), any(), any(), any(), any())).thenAnswer(inv -> {
+      assertTrue(readerNumbers.add(inv.getArgument(0)), "reader number handed out twice");
+      return mock(ReaderDetails.class);
+    });
+    when(idGenerator.newId()).thenReturn("ID");
+    when(readerRepo.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+    int threads = 8, perThread = 250;
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<?>> results = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      ReaderServiceImpl node = nodes.get(t % 2);
+      int thread = t;
+      results.add(pool.submit(() -> {
+        start.await();
+        for (int i = 0; i < perThread; i++) {
+          CreateReaderRequest req = new CreateReaderRequest();
+          req.setUsername("reader" + thread + "-" + i);
+          req.setFullName("Reader " + thread);
+          node.create(req, null);
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+    for (Future<?> result : results) result.get();
+
+    assertEquals(threads * perThread, readerNumbers.size());
+  }
+
   @Test
   void create_happyPath_assignsIds_mapsInterests_andSaves() {
     CreateReaderRequest req = new CreateReaderRequest();
@@ -139,13 +194,13 @@ class ReaderServiceImplTest {
     req.setInterestList(List.of("Sci-Fi", "Fantasy"));
 
     when(userRepo.findByUsername("ed")).thenReturn(Optional.empty());
-    when(forbiddenNameRepository.findByForbiddenNameIsContained(anyString())).thenReturn(List.of());
+    when(forbiddenNameMatcher.containsForbiddenName(anyString())).thenReturn(false);
     Genre g1 = mock(Genre.class);
     Genre g2 = mock(Genre.class);
-    when(genreRepo.findByString("Sci-Fi")).thenReturn(Optional.of(g1));
-    when(genreRepo.findByString("Fantasy")).thenReturn(Optional.of(g2));
+    when(genreDictionary.findByName("Sci-Fi")).thenReturn(Optional.of(g1));
+    when(genreDictionary.findByName("Fantasy")).thenReturn(Optional.of(g2));
 
-    when(readerRepo.getCountFromCurrentYear()).thenReturn(9);
+    when(sequenceAllocator.next(eq("readers/" + LocalDate.now().getYear()), any())).thenReturn(10L);
 
     Reader reader = mock(Reader.class);
     ReaderDetails rd = mock(ReaderDetails.class);
@@ -165,8 +220,8 @@ class ReaderServiceImplTest {
     verify(userRepo).save(reader);
     verify(readerRepo).save(rd);
 
-    verify(genreRepo).findByString("Sci-Fi");
-    verify(genreRepo).findByString("Fantasy");
+    verify(genreDictionary).findByName("Sci-Fi");
+    verify(genreDictionary).findByName("Fantasy");
   }
 
   @Test
@@ -241,12 +296,12 @@ class ReaderServiceImplTest {
     when(readerRepo.save(rd)).thenReturn(rd);
 
     Genre g = mock(Genre.class);
-    when(genreRepo.findByString("Mystery")).thenReturn(Optional.of(g));
+    when(genreDictionary.findByName("Mystery")).thenReturn(Optional.of(g));
 
     ReaderDetails out = service.update("ID-2", req, 5L, "uri://x");
 
     assertSame(rd, out);
-    verify(genreRepo).findByString("Mystery");
+    verify(genreDictionary).findByName("Mystery");
     verify(rd).applyPatch(5L, req, "uri://x", List.of(g));
     verify(userRepo).save(userReader);
     verify(readerRepo).save(rd);
@@ -286,29 +341,27 @@ class ReaderServiceImplTest {
   }
 
   @Test
-  void findTopReaders_usesFirstPageOfMinTop() {
-    List<ReaderDetails> expected = List.of(mock(ReaderDetails.class));
-    @SuppressWarnings("unchecked")
-    Page<ReaderDetails> page = (Page<ReaderDetails>) mock(Page.class);
-    when(page.getContent()).thenReturn(expected);
-
-    ArgumentCaptor<Pageable> cap = ArgumentCaptor.forClass(Pageable.class);
-    when(readerRepo.findTopReaders(any())).thenReturn(page);
+  void findTopReaders_readsMinTopFromLeaderboard_inRankOrder_withOneReaderQuery() {
+    ReaderDetails r1 = mock(ReaderDetails.class);
+    ReaderDetails r2 = mock(ReaderDetails.class);
+    when(r1.getReaderNumber()).thenReturn("2024/1");
+    when(r2.getReaderNumber()).thenReturn("2024/2");
+    when(leaderboardService.top(LeaderboardKind.READER, 7)).thenReturn(List.of(
+        new LeaderboardEntry("2024/2", 5), new LeaderboardEntry("2024/9", 4), new LeaderboardEntry("2024/1", 1)));
+    when(readerRepo.findByReaderNumberIn(List.of("2024/2", "2024/9", "2024/1"))).thenReturn(List.of(r1, r2));
 
     List<ReaderDetails> out = service.findTopReaders(7);
 
-    assertEquals(expected, out);
-    verify(readerRepo).findTopReaders(cap.capture());
-    Pageable p = cap.getValue();
-    assertEquals(0, p.getPageNumber());
-    assertEquals(7, p.getPageSize());
+    assertEquals(List.of(r2, r1), out);
+    verify(readerRepo, never()).findByReaderNumber(any());
+    verify(readerRepo, never()).findTopReaders(any());
   }
 
   @Test
   void removeReaderPhoto_whenMissing_throwsNotFound() {
     when(readerRepo.findByReaderNumber("X")).thenReturn(Optional.empty());
     assertThrows(NotFoundException.class, () -> service.removeReaderPhoto("X", 1L));
-    verify(photoRepository, never()).deleteByPhotoFile(anyString());
+    verify(photoReferenceService, never()).release(anyString());
   }
 
   @Test
@@ -331,7 +384,7 @@ class ReaderServiceImplTest {
     assertSame(rd, out.get());
     verify(rd).removePhoto(desiredVersion);
     verify(readerRepo).save(rd);
-    verify(photoRepository).deleteByPhotoFile("p.png");
+    verify(photoReferenceService).release("p.png");
   }
 
   @Test
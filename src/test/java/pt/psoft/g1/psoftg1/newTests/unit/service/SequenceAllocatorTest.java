@@ -0,0 +1,118 @@
+package pt.psoft.g1.psoftg1.newTests.unit.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import pt.psoft.g1.psoftg1.shared.repositories.SequenceRepository;
+import pt.psoft.g1.psoftg1.shared.services.SequenceAllocator;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SequenceAllocator block prefetching.
+ */
+class SequenceAllocatorTest {
+
+  /** In-memory counter store that counts its round trips. */
+  static class FakeSequenceRepository implements SequenceRepository {
+    final Map<String, Long> counters = new ConcurrentHashMap<>();
+    final AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    public synchronized long reserve(String name, int count, java.util.function.LongSupplier initialValue) {
+      calls.incrementAndGet();
+      long v = counters.computeIfAbsent(name, k -> initialValue.getAsLong()) + count;
+      counters.put(name, v);
+      return v;
+    }
+
+    @Override
+    public long current(String name) {
+      return counters.getOrDefault(name, 0L);
+    }
+  }
+
+  @Test
+  void next_continuesFromInitialValue() {
+    var allocator = new SequenceAllocator(new FakeSequenceRepository(), 5);
+
+    assertEquals(42, allocator.next("lendings/2024", () -> 41));
+    assertEquals(43, allocator.next("lendings/2024", () -> 41));
+  }
+
+  @Test
+  void next_reservesOneBlockPerRoundTrip() {
+    var repo = new FakeSequenceRepository();
+    var allocator = new SequenceAllocator(repo, 10);
+
+    for (int i = 1; i <= 95; i++) {
+      assertEquals(i, allocator.next("s", () -> 0));
+    }
+
+    assertEquals(10, repo.calls.get());
+  }
+
+  @Test
+  void next_keepsSequencesIndependent() {
+    var allocator = new SequenceAllocator(new FakeSequenceRepository(), 3);
+
+    assertEquals(1, allocator.next("a", () -> 0));
+    assertEquals(101, allocator.next("b", () -> 100));
+    assertEquals(2, allocator.next("a", () -> 0));
+  }
+
+  @Test
+  void next_underParallelLoad_neverRepeats() throws Exception {
+    var repo = new FakeSequenceRepository();
+    var allocator = new SequenceAllocator(repo, 7);
+    int threads = 8, perThread = 2_000;
+    Set<Long> seen = ConcurrentHashMap.newKeySet();
+    AtomicInteger duplicates = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+    for (int t = 0; t < threads; t++) {
+      pool.submit(() -> {
+        start.await();
+        for (int i = 0; i < perThread; i++) {
+          if (!seen.add(allocator.next("s", () -> 0))) duplicates.incrementAndGet();
+        }
+        return null;
+      });
+    }
+    start.countDown();
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+    assertEquals(0, duplicates.get());
+    assertEquals(threads * perThread, seen.size());
+    assertTrue(repo.calls.get() <= (threads * perThread) / 7 + 1);
+  }
+
+  @Test
+  void next_retriesOnceWhenCounterCreationRaces() {
+    SequenceRepository repo = mock(SequenceRepository.class);
+    when(repo.reserve(eq("s"), eq(5), any()))
+        .thenThrow(new DataIntegrityViolationException("duplicate"))
+        .thenReturn(15L);
+    var allocator = new SequenceAllocator(repo, 5);
+
+    assertEquals(11, allocator.next("s", () -> 0));
+    verify(repo, times(2)).reserve(eq("s"), eq(5), any());
+  }
+
+  @Test
+  void constructor_rejectsNonPositiveBlockSize() {
+    assertThrows(IllegalArgumentException.class, () -> new SequenceAllocator(new FakeSequenceRepository(), 0));
+  }
+}
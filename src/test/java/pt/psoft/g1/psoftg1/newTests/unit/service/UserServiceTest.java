@@ -13,7 +13,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.jwt.Jwt;
 import pt.psoft.g1.psoftg1.shared.id.IdGenerator;
-import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
+import pt.psoft.g1.psoftg1.shared.services.ForbiddenNameMatcher;
 import pt.psoft.g1.psoftg1.usermanagement.model.Role;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
@@ -34,7 +34,7 @@ class UserServiceTest {
 
   @Mock UserRepository userRepo;
   @Mock EditUserMapper userEditMapper;
-  @Mock ForbiddenNameRepository forbiddenNameRepository;
+  @Mock ForbiddenNameMatcher forbiddenNameMatcher;
   @Mock PasswordEncoder passwordEncoder;
   @Mock IdGenerator idGenerator;
 
@@ -42,7 +42,7 @@ class UserServiceTest {
 
   @BeforeEach
   void setUp() {
-    service = new UserService(userRepo, userEditMapper, forbiddenNameRepository, passwordEncoder, idGenerator);
+    service = new UserService(userRepo, userEditMapper, forbiddenNameMatcher, passwordEncoder, idGenerator);
   }
 
   @Test
@@ -82,8 +82,7 @@ class UserServiceTest {
     req.setRole(Role.READER);
 
     when(userRepo.findByUsername("bob")).thenReturn(Optional.empty());
-    when(forbiddenNameRepository.findByForbiddenNameIsContained("Evil"))
-        .thenReturn(List.of(mock(pt.psoft.g1.psoftg1.shared.model.ForbiddenName.class)));
+    when(forbiddenNameMatcher.containsForbiddenName("Evil Bob")).thenReturn(true);
 
     assertThrows(IllegalArgumentException.class, () -> service.create(req));
     verify(userRepo, never()).save(any());
@@ -98,7 +97,7 @@ class UserServiceTest {
     req.setRole(Role.READER);
 
     when(userRepo.findByUsername("reader1")).thenReturn(Optional.empty());
-    when(forbiddenNameRepository.findByForbiddenNameIsContained(anyString())).thenReturn(List.of());
+    when(forbiddenNameMatcher.containsForbiddenName(anyString())).thenReturn(false);
     when(passwordEncoder.encode("Secret1!")).thenReturn("ENC(Secret1!)");
     when(idGenerator.newId()).thenReturn("U-1");
     when(userRepo.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
@@ -123,7 +122,7 @@ class UserServiceTest {
     req.setRole(Role.LIBRARIAN);
 
     when(userRepo.findByUsername("lib1")).thenReturn(Optional.empty());
-    when(forbiddenNameRepository.findByForbiddenNameIsContained(anyString())).thenReturn(List.of());
+    when(forbiddenNameMatcher.containsForbiddenName(anyString())).thenReturn(false);
     when(passwordEncoder.encode("Pw123456!")).thenReturn("ENC(Pw123456!)");
     when(idGenerator.newId()).thenReturn("U-2");
     when(userRepo.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));